@@ -1,31 +1,56 @@
 package net.coderodde.datamining;
 
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.Graphics;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import javax.management.JMException;
 import javax.swing.JFrame;
-import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import net.coderodde.datamining.export.BatchExporter;
+import net.coderodde.datamining.jobs.Job;
+import net.coderodde.datamining.jobs.JobRunner;
+import net.coderodde.datamining.loader.support.CourseSketch;
 import net.coderodde.datamining.loader.support.DataLoaderv1;
+import net.coderodde.datamining.loader.support.PartitionedApriori;
+import net.coderodde.datamining.metrics.CompositeMiningListener;
+import net.coderodde.datamining.metrics.ConsoleMiningListener;
+import net.coderodde.datamining.metrics.JmxMiningListener;
+import net.coderodde.datamining.metrics.LogMiningListener;
+import net.coderodde.datamining.metrics.MiningListener;
 import net.coderodde.datamining.model.AppDataStorage;
 import net.coderodde.datamining.model.AppDataStorage.Result1;
 import net.coderodde.datamining.model.AppDataStorage.SequenceAndSupport;
 import net.coderodde.datamining.model.AssociationRule;
 import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.model.MiningBudget;
+import net.coderodde.datamining.model.MiningResult;
+import net.coderodde.datamining.model.QueryStressHarness;
+import net.coderodde.datamining.model.SampledApriori;
 import net.coderodde.datamining.model.Sequence;
 import net.coderodde.datamining.model.Student;
-import static net.coderodde.datamining.utils.Utils.intersect;
+import net.coderodde.datamining.server.QueryServer;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import net.coderodde.datamining.viz.GradeMatrix;
+import net.coderodde.datamining.viz.GradePairHistogram;
+import net.coderodde.datamining.viz.HeatmapPanel;
+import net.coderodde.datamining.viz.HeatmapRenderer;
 
 /**
  * This class defines the entry point of the program.
@@ -36,8 +61,63 @@ import static net.coderodde.datamining.utils.Utils.intersect;
 public class App {
     
     private static final String HELP = 
-            "usage: java -jar program.jar <file>\n" + 
-            "  where <file> is the path to the data file.\n";
+            "usage: java -jar program.jar <file> [--export <directory> | " +
+            "--serve <port> | --jobs <job file> <directory> | " +
+            "--partitioned <min support> <memory MB> | --sketch <k> | " +
+            "--stress <threads> <seconds>]\n" + 
+            "  where <file> is the path to the data file,\n" +
+            "  --export writes the heatmaps and grade pair data to\n" +
+            "  <directory> without opening any windows,\n" +
+            "  <port> is the local port of the HTTP query service,\n" +
+            "  <job file> lists analyses, one per line, as\n" +
+            "  <output file> <analysis> [<name>=<value> ...], whose\n" +
+            "  outputs are written to <directory>,\n" +
+            "  --partitioned prints the frequent course sets mining\n" +
+            "  <file> in partitions of at most <memory MB> megabytes\n" +
+            "  instead of loading it, and --sketch prints the estimated\n" +
+            "  <k> most attended courses and course pairs after one\n" +
+            "  pass over <file> in bounded memory, and --stress runs\n" +
+            "  mixed queries in one and in <threads> threads for\n" +
+            "  <seconds> seconds each and prints the throughputs.\n";
+    
+    /**
+     * The amount of the most attended courses whose pairwise grade data is
+     * exported in a batch export.
+     */
+    private static final int EXPORTED_COURSES = 20;
+    
+    /**
+     * The relative error of the course sketches of <tt>--sketch</tt>.
+     */
+    private static final double SKETCH_EPSILON = 0.0005;
+    
+    /**
+     * The failure probability of the course sketches of <tt>--sketch</tt>.
+     */
+    private static final double SKETCH_DELTA = 0.01;
+    
+    /**
+     * The amount of courses and course pairs monitored by <tt>--sketch</tt>.
+     */
+    private static final int SKETCH_CAPACITY = 10000;
+    
+    /**
+     * The minimum support of the mining queries of <tt>--stress</tt>.
+     */
+    private static final double STRESS_MIN_SUPPORT = 0.05;
+    
+    /**
+     * The system property selecting the sinks of the mining metrics as a 
+     * comma-separated list of <tt>console</tt>, <tt>jmx</tt>, 
+     * <tt>csv:&lt;file&gt;</tt> and <tt>json:&lt;file&gt;</tt>.
+     */
+    private static final String METRICS_PROPERTY = "datamining.metrics";
+    
+    /**
+     * The system property which, when <tt>true</tt>, keeps the entry table 
+     * of the loaded data in direct memory outside of the heap.
+     */
+    private static final String OFF_HEAP_PROPERTY = "datamining.offheap";
     
     private AppDataStorage appData;
     
@@ -51,11 +131,124 @@ public class App {
             System.exit(1);
         }
         
-        final AppDataStorage appData = 
-                new DataLoaderv1().load(new File(args[0]));
+        if (args.length >= 4 && args[1].equals("--partitioned")) {
+            try {
+                mineInPartitions(new File(args[0]), 
+                                 Double.parseDouble(args[2]),
+                                 Long.parseLong(args[3]) * 1024L * 1024L);
+            } catch (final IOException | IllegalArgumentException ex) {
+                System.err.println("Mining failed: " + ex.getMessage());
+                System.exit(1);
+            }
+            
+            return;
+        }
+        
+        if (args.length >= 3 && args[1].equals("--sketch")) {
+            try {
+                printSketch(new CourseSketch(SKETCH_EPSILON, 
+                                             SKETCH_DELTA, 
+                                             SKETCH_CAPACITY)
+                            .scan(new File(args[0])), 
+                            Integer.parseInt(args[2]));
+            } catch (final IOException | IllegalArgumentException ex) {
+                System.err.println("Sketching failed: " + ex.getMessage());
+                System.exit(1);
+            }
+            
+            return;
+        }
+        
+        final DataLoaderv1 loader = new DataLoaderv1();
+        loader.setOffHeap(Boolean.getBoolean(OFF_HEAP_PROPERTY));
+        
+        final AppDataStorage appData = loader.load(new File(args[0]));
         
         final App app = new App(appData);
         
+        try {
+            configureMetrics(appData, System.getProperty(METRICS_PROPERTY));
+        } catch (final IOException | JMException | 
+                       IllegalArgumentException ex) {
+            System.err.println("Cannot set up the metrics: " + 
+                               ex.getMessage());
+            System.exit(1);
+        }
+        
+        if (args.length >= 3 && args[1].equals("--export")) {
+            try {
+                app.exportBatch(new File(args[2]));
+            } catch (final IOException ex) {
+                System.err.println("Export failed: " + ex.getMessage());
+                System.exit(1);
+            }
+            
+            return;
+        }
+        
+        if (args.length >= 4 && args[1].equals("--jobs")) {
+            try {
+                final List<File> fileList = 
+                        new JobRunner(appData, new File(args[3]))
+                        .run(Job.parse(new File(args[2])));
+                System.out.println("Wrote " + fileList.size() + 
+                                   " job outputs to " + args[3]);
+            } catch (final IOException | IllegalArgumentException ex) {
+                System.err.println("Jobs failed: " + ex.getMessage());
+                System.exit(1);
+            }
+            
+            return;
+        }
+        
+        if (args.length >= 4 && args[1].equals("--stress")) {
+            try {
+                final QueryStressHarness harness = 
+                        new QueryStressHarness(appData, STRESS_MIN_SUPPORT);
+                final long millis = 1000L * Integer.parseInt(args[3]);
+                
+                for (final int threads : 
+                        new int[]{ 1, Integer.parseInt(args[2]) }) {
+                    final QueryStressHarness.Report report = 
+                            harness.run(threads, millis);
+                    System.out.println(report);
+                    
+                    if (report.getMismatches() > 0L) {
+                        System.exit(1);
+                    }
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                System.exit(1);
+            } catch (final IllegalArgumentException ex) {
+                System.err.println("Stress test failed: " + ex.getMessage());
+                System.exit(1);
+            }
+            
+            return;
+        }
+        
+        if (args.length >= 3 && args[1].equals("--serve")) {
+            try {
+                final QueryServer server = 
+                        new QueryServer(
+                                appData,
+                                new InetSocketAddress(
+                                        InetAddress.getLoopbackAddress(),
+                                        Integer.parseInt(args[2])));
+                server.start();
+                System.out.println("Serving queries at http://" + 
+                                   server.getAddress().getHostString() + ":" +
+                                   server.getAddress().getPort() + "/");
+            } catch (final IOException | NumberFormatException ex) {
+                System.err.println("Cannot start the server: " + 
+                                   ex.getMessage());
+                System.exit(1);
+            }
+            
+            return;
+        }
+        
 //        app.printAllCourseCodes();
 //        app.printCourseNames();
 //        app.printProgrammingCourses();
@@ -137,6 +330,78 @@ public class App {
         app.printWeek6VizTask();
     }
 
+    /**
+     * Prints the frequent course sets of a data file too large to be loaded, 
+     * one per line as the count followed by the course codes.
+     */
+    private static void mineInPartitions(final File file, 
+                                         final double minSupport,
+                                         final long memoryBudget) 
+    throws IOException {
+        final PartitionedApriori miner = 
+                new PartitionedApriori(
+                        file, 
+                        memoryBudget, 
+                        new File(System.getProperty("java.io.tmpdir")));
+        final long ta = System.currentTimeMillis();
+        final List<PartitionedApriori.FrequentItemset> itemsetList = 
+                miner.mine(minSupport);
+        final long tb = System.currentTimeMillis();
+        
+        for (final PartitionedApriori.FrequentItemset itemset : itemsetList) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(itemset.getCount());
+            
+            for (final Course course : itemset.getCourseList()) {
+                sb.append('\t').append(course.getCode());
+            }
+            
+            System.out.println(sb);
+        }
+        
+        System.out.println(miner.getTransactionAmount() + " students, " + 
+                           miner.getPartitionAmount() + " partitions, " +
+                           miner.getCandidateAmount() + " candidates, " +
+                           miner.getCountingPassAmount() + 
+                           " counting passes, " + (tb - ta) + " ms.");
+    }
+    
+    /**
+     * Prints the <code>k</code> most attended courses and course pairs of a 
+     * sketch.
+     */
+    private static void printSketch(final CourseSketch sketch, final int k) {
+        System.out.println("Courses:");
+        
+        for (final CourseSketch.Estimate estimate : sketch.getTopCourses(k)) {
+            System.out.println(estimate);
+        }
+        
+        System.out.println("Pairs:");
+        
+        for (final CourseSketch.Estimate estimate : sketch.getTopPairs(k)) {
+            System.out.println(estimate);
+        }
+        
+        System.out.println(sketch.getTransactionAmount() + " students.");
+    }
+    
+    /**
+     * The limits of a single query of the interactive support counter: a low 
+     * threshold stops after a minute or when most of the heap is in use.
+     */
+    private static final MiningBudget INTERACTIVE_BUDGET = 
+            MiningBudget.UNLIMITED
+                        .withTimeLimit(60000L)
+                        .withMaxHeapBytes(Runtime.getRuntime().maxMemory() / 
+                                          10 * 8);
+    
+    /**
+     * The amount of students sampled for the approximate queries of the
+     * interactive support counter, entered as <tt>~&lt;support&gt;</tt>.
+     */
+    private static final int INTERACTIVE_SAMPLE_SIZE = 10000;
+    
     private void interactiveSupportCounter() {
         final Scanner scanner = new Scanner(System.in);
         
@@ -147,19 +412,66 @@ public class App {
                 return;
             }
             
+            if (command.startsWith("~")) {
+                printSampledItemsets(Double.parseDouble(command.substring(1)));
+                continue;
+            }
+            
             final double support = Double.parseDouble(command);
             final long ta = System.currentTimeMillis();
-            final Set<Set<Course>> frequentItemsets = appData.apriori(support);
+            final MiningResult<Set<Set<Course>>> result = 
+                    appData.apriori(support, INTERACTIVE_BUDGET);
             final long tb = System.currentTimeMillis();
             
-            for (final Set<Course> itemset : frequentItemsets) {
+            for (final Set<Course> itemset : result.getResult()) {
                 System.out.println(itemset);
             }
             
+            if (!result.isComplete()) {
+                System.out.println("Stopped after level " + 
+                                   result.getCompletedLevels() + ": " +
+                                   result.getStatus());
+            }
+            
             System.out.println("Time elapsed: " + (tb - ta) + " ms.");
         }
     }
     
+    /**
+     * Prints the frequent course sets estimated from a sample of the students
+     * and verified over all of them.
+     */
+    private void printSampledItemsets(final double support) {
+        final long ta = System.currentTimeMillis();
+        final SampledApriori.Result result = 
+                new SampledApriori(appData, 
+                                   INTERACTIVE_SAMPLE_SIZE, 
+                                   System.nanoTime())
+                .mine(support, 0.95, true);
+        final long tb = System.currentTimeMillis();
+        
+        for (final SampledApriori.EstimatedItemset itemset : 
+                result.getItemsetList()) {
+            System.out.printf("%s %.4f [%.4f, %.4f] exact %.4f\n",
+                              itemset.getCourseList(),
+                              itemset.getSupport(),
+                              itemset.getLowerBound(),
+                              itemset.getUpperBound(),
+                              itemset.getExactSupport());
+        }
+        
+        if (!result.isExact()) {
+            System.out.println(result.getMissedBorderAmount() + 
+                               " itemsets were missed by the sample; " +
+                               "some frequent itemsets may be missing.");
+        }
+        
+        System.out.println("Sample of " + result.getSampleSize() + 
+                           " students mined at support " + 
+                           result.getLoweredSupport() + ". Time elapsed: " + 
+                           (tb - ta) + " ms.");
+    }
+    
     private void printAllCourseCodes() {
         for (final Course course : appData.getCourseList()) {
             System.out.println(course.getCode());
@@ -693,22 +1005,27 @@ public class App {
         System.out.println(basicCourse);
         System.out.println(advancedCourse);
         
-        final Set<Student> basicStudentSet = 
-                new HashSet<>(appData.getStudentsUntil(basicCourse, 2009, 12));
+        final int untilTime = EntryTable.toTime(2010, 1);
         
-        final Set<Student> advStudentSet =
-                new HashSet<>(appData.getStudentsUntil(advancedCourse, 
-                                                       2009, 
-                                                       12));
+        final CompressedBitmap basicStudents = 
+                appData.getStudentBitmapBetween(basicCourse,
+                                                Integer.MIN_VALUE,
+                                                untilTime);
+        
+        final CompressedBitmap advStudents =
+                appData.getStudentBitmapBetween(advancedCourse,
+                                                Integer.MIN_VALUE,
+                                                untilTime);
         
         System.out.println("Total students at basic course: " + 
-                           basicStudentSet.size());
+                           basicStudents.getCardinality());
         
         System.out.println("Total students at advanced course: " +
-                           advStudentSet.size());
+                           advStudents.getCardinality());
         
-        final Set<Student> intersection = intersect(basicStudentSet,
-                                                    advStudentSet);
+        final List<Student> intersection = 
+                appData.toStudentList(CompressedBitmap.and(basicStudents,
+                                                           advStudents));
         
         System.out.println("Total students at both courses: " + 
                            intersection.size());
@@ -765,22 +1082,27 @@ public class App {
         final Course advancedCourse =
                 appData.getCourseByName("Ohjelmoinnin jatkokurssi");
         
-        final Set<Student> basicStudentSet = 
-                new HashSet<>(appData.getStudentsFrom(basicCourse, 2010, 1));
+        final int fromTime = EntryTable.toTime(2010, 1);
+        
+        final CompressedBitmap basicStudents = 
+                appData.getStudentBitmapBetween(basicCourse,
+                                                fromTime,
+                                                Integer.MAX_VALUE);
         
-        final Set<Student> advStudentSet =
-                new HashSet<>(appData.getStudentsFrom(advancedCourse, 
-                                                      2010, 
-                                                      1));
+        final CompressedBitmap advStudents =
+                appData.getStudentBitmapBetween(advancedCourse,
+                                                fromTime,
+                                                Integer.MAX_VALUE);
         
         System.out.println("Total students at basic course: " + 
-                           basicStudentSet.size());
+                           basicStudents.getCardinality());
         
         System.out.println("Total students at advanced course: " +
-                           advStudentSet.size());
+                           advStudents.getCardinality());
         
-        final Set<Student> intersection = intersect(basicStudentSet,
-                                                    advStudentSet);
+        final List<Student> intersection = 
+                appData.toStudentList(CompressedBitmap.and(basicStudents,
+                                                           advStudents));
         
         System.out.println("Total students at both courses: " + 
                            intersection.size());
@@ -1270,30 +1592,18 @@ public class App {
         result.map1.remove(0);
         result.map2.remove(0);
         
-        final Map<Integer, Float> map2 = new HashMap<>(result.map1.size());
-        
-        for (final Map.Entry<Integer, List<Float>> entry : result.map1.entrySet()) {
-            map2.put(entry.getKey(), appData.average(entry.getValue()));
-        }
-        
         final List<Integer> creditList = new ArrayList<>(result.map1.keySet());
-        final List<Float> gpaList = new ArrayList<>(creditList.size());
-        final List<Float> floatCreditList = new ArrayList<>(creditList.size());
         
         Collections.<Integer>sort(creditList);
         
         for (final int credits : creditList) {
             System.out.printf("%d %d\n", 
                               credits, 
-                              //map2.get(credits), 
+                              //result.map1.get(credits).getMean(), 
                               result.map2.get(credits));
-            
-            floatCreditList.add(1.0f * credits);
-            gpaList.add(map2.get(credits));
         }
         
-        System.out.println("Correlation factor: " + 
-                AppDataStorage.correlation(floatCreditList, gpaList));
+        System.out.println("Correlation factor: " + result.getCorrelation());
     }
     
     private static 
@@ -1383,13 +1693,172 @@ public class App {
                            + appData.week5Task18());
     }
     
-    private void printWeek6VizTask() {
+    /**
+     * Exports the week 6 heatmap, the old and new curriculum grade pairs of the
+     * programming courses, and the grade pair histograms of the most attended
+     * courses to <code>directory</code>.
+     * 
+     * @param  directory the output directory.
+     * @throws IOException if writing fails.
+     */
+    private void exportBatch(final File directory) throws IOException {
+        final BatchExporter exporter = new BatchExporter(appData, directory);
+        final List<File> fileList = new ArrayList<>();
+        final List<Course> vizCourseList = getWeek6VizCourses();
+        final CompressedBitmap vizStudents = 
+                appData.queryStudentBitmap(new HashSet<>(vizCourseList));
+        
+        fileList.add(exporter.exportHeatmap("week6-heatmap",
+                                            GradeMatrix.compute(appData, 
+                                                                vizCourseList, 
+                                                                vizStudents),
+                                            new HeatmapRenderer(4, 32)));
+        
+        final Course basicCourse = 
+                appData.getCourseByName("Ohjelmoinnin perusteet");
+        final Course advancedCourse =
+                appData.getCourseByName("Ohjelmoinnin jatkokurssi");
+        final int newCurriculumTime = EntryTable.toTime(2010, 1);
+        
+        // The feed of the grade pair visualization page compares the same old
+        // and new curriculum students as the grade pair exports.
+        final Map<String, CompressedBitmap> cohortMap = new LinkedHashMap<>();
+        
+        cohortMap.put("all", null);
+        
+        if (basicCourse != null && advancedCourse != null) {
+            final CompressedBitmap oldStudents = 
+                    appData.queryStudentBitmapBetween(
+                            new HashSet<>(Arrays.asList(basicCourse, 
+                                                        advancedCourse)),
+                            Integer.MIN_VALUE,
+                            newCurriculumTime);
+            final CompressedBitmap newStudents = 
+                    appData.queryStudentBitmapBetween(
+                            new HashSet<>(Arrays.asList(basicCourse, 
+                                                        advancedCourse)),
+                            newCurriculumTime,
+                            Integer.MAX_VALUE);
+            
+            cohortMap.put("old", oldStudents);
+            cohortMap.put("new", newStudents);
+            fileList.add(exporter.exportGradePairHistogram(
+                    "old-grade-pairs",
+                    GradePairHistogram.compute(appData,
+                                               basicCourse,
+                                               advancedCourse,
+                                               oldStudents)));
+            fileList.add(exporter.exportRawGradePairs(
+                    "old-grade-pairs-raw",
+                    basicCourse,
+                    advancedCourse,
+                    oldStudents,
+                    BatchExporter.RawFormat.BINARY));
+            fileList.add(exporter.exportGradePairHistogram(
+                    "new-grade-pairs",
+                    GradePairHistogram.compute(appData,
+                                               basicCourse,
+                                               advancedCourse,
+                                               newStudents)));
+            fileList.add(exporter.exportRawGradePairs(
+                    "new-grade-pairs-raw",
+                    basicCourse,
+                    advancedCourse,
+                    newStudents,
+                    BatchExporter.RawFormat.BINARY));
+        }
+        
+        final List<Course> popularCourseList = 
+                new ArrayList<>(appData.getCourseList());
+        
+        Collections.sort(popularCourseList, new Comparator<Course>() {
+            @Override
+            public int compare(final Course o1, final Course o2) {
+                return Integer.compare(appData.supportCount(o2), 
+                                       appData.supportCount(o1));
+            }
+        });
+        
+        final List<Course> exportedCourseList = 
+                popularCourseList.subList(0, 
+                                          Math.min(EXPORTED_COURSES,
+                                                   popularCourseList.size()));
+        fileList.addAll(exporter.exportCoursePairs(exportedCourseList, null));
+        
+        exporter.exportGradePairFeed("grade-pair-feed",
+                                     exportedCourseList, 
+                                     cohortMap);
+        
+        System.out.println("Exported " + fileList.size() + 
+                           " files and the grade pair feed to " + 
+                           directory.getAbsolutePath());
+    }
+    
+    /**
+     * Sets the listener of the mining metrics according to 
+     * <code>specification</code>, which lists the sinks as described at 
+     * {@link #METRICS_PROPERTY}. Nothing is set if the specification is 
+     * <code>null</code>.
+     * 
+     * @param  appData       the data storage.
+     * @param  specification the specification of the sinks.
+     * @throws IOException   if a log file cannot be opened.
+     * @throws JMException   if the MBean cannot be registered.
+     */
+    private static void configureMetrics(final AppDataStorage appData,
+                                         final String specification) 
+    throws IOException, JMException {
+        if (specification == null || specification.trim().isEmpty()) {
+            return;
+        }
+        
+        final List<MiningListener> listenerList = new ArrayList<>();
+        
+        for (final String sink : specification.split(",")) {
+            final String trimmed = sink.trim();
+            
+            if (trimmed.equals("console")) {
+                listenerList.add(new ConsoleMiningListener());
+            } else if (trimmed.equals("jmx")) {
+                listenerList.add(new JmxMiningListener().register());
+            } else if (trimmed.startsWith("csv:") || 
+                       trimmed.startsWith("json:")) {
+                final int colon = trimmed.indexOf(':');
+                listenerList.add(
+                        new LogMiningListener(
+                                new OutputStreamWriter(
+                                        new FileOutputStream(
+                                                trimmed.substring(colon + 1)),
+                                        "UTF-8"),
+                                colon == 3 ? 
+                                LogMiningListener.Format.CSV : 
+                                LogMiningListener.Format.JSON));
+            } else {
+                throw new IllegalArgumentException(
+                        "Unknown metrics sink \"" + trimmed + "\".");
+            }
+        }
+        
+        appData.setMiningListener(
+                new CompositeMiningListener(
+                        listenerList.toArray(
+                                new MiningListener[listenerList.size()])));
+    }
+    
+    private List<Course> getWeek6VizCourses() {
         final List<Course> courseList = new ArrayList<>();
         
-        courseList.add(appData.getCourseByName("C-ohjelmointi"));
-        courseList.add(appData.getCourseByName("Tietorakenteet ja algoritmit"));
-        courseList.add(appData.getCourseByName("Ohjelmoinnin perusteet"));
-        courseList.add(appData.getCourseByName("Ohjelmoinnin jatkokurssi"));
+        for (final String name : new String[]{ 
+                "C-ohjelmointi", 
+                "Tietorakenteet ja algoritmit",
+                "Ohjelmoinnin perusteet",
+                "Ohjelmoinnin jatkokurssi" }) {
+            final Course course = appData.getCourseByName(name);
+            
+            if (course != null) {
+                courseList.add(course);
+            }
+        }
         
         Collections.sort(courseList, new Comparator<Course>() {
             @Override
@@ -1398,97 +1867,36 @@ public class App {
             }
         });
         
+        return courseList;
+    }
+    
+    private void printWeek6VizTask() {
+        final List<Course> courseList = getWeek6VizCourses();
+        
 //        System.out.println("Courses are:");
 //        for (final Course course : courseList) {
 //            System.out.println(course);
 //        }
         
         final Set<Course> courseSet = new HashSet<>(courseList);
-        final Set<Student>[] courseStudentSets = new Set[courseSet.size()];
-        
-        int index = 0;
-        
-        for (final Course course : courseSet) {
-            courseStudentSets[index++] = 
-                    new HashSet<>(appData.
-                                  getStudentsByCourseName(course.getName()));
-        }
-        
-        final Set<Student> targetSet = appData.intersection(courseStudentSets);
+        final long ta = System.nanoTime();
+        final CompressedBitmap targetBitmap = 
+                appData.queryStudentBitmap(courseSet);
+        final long tb = System.nanoTime();
         
         System.out.println("Total students: " + appData.getStudentAmount());
-        System.out.println("Intersection: " + targetSet.size());
+        System.out.println("Intersection: " + targetBitmap.getCardinality() +
+                           " in " + (tb - ta) / 1000 + " microseconds.");
+        
+        final GradeMatrix matrix = 
+                GradeMatrix.compute(appData, courseList, targetBitmap);
+        final HeatmapPanel panel = 
+                new HeatmapPanel(matrix, new HeatmapRenderer(4, 32));
         
         final JFrame frame = new JFrame();
-        final MyPanel panel = new MyPanel(appData, 
-                                          courseList, 
-                                          new ArrayList<>(targetSet),
-                                          4);
-        
-//        final Dimension dim = new Dimension(100 + 4 * targetSet.size(), 4 * courseList.size());
-//        
-//        panel.setMinimumSize(dim);
-//        panel.setPreferredSize(dim);
-//        panel.setMaximumSize(dim);
-        frame.add(panel);
+        frame.add(new JScrollPane(panel));
         frame.pack();
-        frame.setResizable(false);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setVisible(true);
-        
-//        for (final Course course : courseList) {
-//            System.out.println(course);
-//        }
-    }
-    
-    static class MyPanel extends JPanel {
-        private final AppDataStorage appData;
-        private final List<Course> courseList;
-        private final List<Student> studentList;
-        private final int cellLength;
-        
-        MyPanel(final AppDataStorage appData,
-                final List<Course> courseList,
-                final List<Student> studentList,
-                final int cellLength) {
-            this.appData = appData;
-            this.courseList = courseList;
-            this.studentList = studentList;
-            this.cellLength = cellLength;
-            
-            final Dimension dim = 
-                    new Dimension(100 + cellLength * studentList.size(),
-                                  50 + 8*cellLength * courseList.size());
-            
-            setMinimumSize(dim);
-            setPreferredSize(dim);
-            setMaximumSize(dim);
-        }
-        
-        private Color getColor(int grade) {
-            final int factor = 255 - 255 * grade / 5;
-            return new Color(factor, factor, 255);
-        }
-        
-        @Override
-        public void update(final Graphics g) {
-            for (int column = 0; column < studentList.size(); ++column) {
-                final Student student = studentList.get(column);
-                
-                for (int row = 0; row < courseList.size(); ++row) {
-                    final Course course = courseList.get(row); 
-                    g.setColor(getColor(appData.grade(student, course)));
-                    g.fillRect(100 + cellLength * column,
-                               8*cellLength * row, 
-                               cellLength, 
-                               8*cellLength);
-                }
-            }
-        }
-        
-        @Override
-        public void paint(final Graphics g) {
-            update(g);
-        }
     }
 }
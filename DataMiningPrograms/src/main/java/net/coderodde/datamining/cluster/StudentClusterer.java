@@ -0,0 +1,724 @@
+package net.coderodde.datamining.cluster;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.model.Student;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.model.Course.MAXIMUM_COURSE_GRADE;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class clusters the students by their course profiles. A student is a
+ * sparse vector over the course ordinals read directly from the distinct
+ * course index of the entry table: either binary, telling which courses the
+ * student has attended, or weighted by the best grade, so that a failed
+ * attendance weighs <tt>1 / 6</tt> and the best grade one; pass/fail courses
+ * weigh one. Nothing is copied per student.
+ * <p>
+ * {@link #kMeans(int, int, long)} keeps dense centroids and computes the
+ * squared Euclidean distance from the sparse dot product
+ * <tt>|x - c|&sup2; = |x|&sup2; - 2 x&middot;c + |c|&sup2;</tt>.
+ * {@link #kMedoids(int, int, int, long)} uses students as the cluster
+ * centers, kept as packed bitsets, and the Hamming distance between course
+ * sets <tt>|A| + |M| - 2 |A &cap; M|</tt> with <tt>|M|</tt> by popcount; it
+ * ignores the grades. In both, each assignment step runs over the students
+ * in parallel. In k-means each chunk also returns its partial cluster sums,
+ * so that the centroids are updated without another pass. Instances are
+ * immutable and thread-safe.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class StudentClusterer {
+
+    /**
+     * The minimum amount of students per parallel chunk.
+     */
+    private static final int MIN_CHUNK = 1024;
+
+    /**
+     * The result of a clustering.
+     */
+    public static final class Clustering {
+
+        private final AppDataStorage storage;
+        private final int[] assignments;
+        private final int[] sizes;
+        private final double[][] centroids;
+        private final int[] medoids;
+        private final double cost;
+        private final int iterations;
+
+        Clustering(final AppDataStorage storage,
+                   final int[] assignments,
+                   final int[] sizes,
+                   final double[][] centroids,
+                   final int[] medoids,
+                   final double cost,
+                   final int iterations) {
+            this.storage = storage;
+            this.assignments = assignments;
+            this.sizes = sizes;
+            this.centroids = centroids;
+            this.medoids = medoids;
+            this.cost = cost;
+            this.iterations = iterations;
+        }
+
+        public int getClusterAmount() {
+            return sizes.length;
+        }
+
+        /**
+         * Returns the cluster of a student.
+         *
+         * @param  ordinal the ordinal of the student.
+         * @return the cluster index.
+         */
+        public int getCluster(final int ordinal) {
+            return assignments[ordinal];
+        }
+
+        /**
+         * Returns the cluster of a student.
+         *
+         * @param  student the student.
+         * @return the cluster index, or -1 if the student is not known.
+         */
+        public int getCluster(final Student student) {
+            final int ordinal = storage.getStudentOrdinal(student);
+            return ordinal < 0 ? -1 : assignments[ordinal];
+        }
+
+        /**
+         * Returns a copy of the cluster of each student.
+         *
+         * @return the cluster indices by student ordinal.
+         */
+        public int[] getAssignments() {
+            return assignments.clone();
+        }
+
+        public int getClusterSize(final int cluster) {
+            return sizes[cluster];
+        }
+
+        /**
+         * Returns a copy of the centroid of a cluster. For k-medoids, this is
+         * the binary course vector of the medoid.
+         *
+         * @param  cluster the cluster index.
+         * @return the centroid by course ordinal.
+         */
+        public double[] getCentroid(final int cluster) {
+            return centroids[cluster].clone();
+        }
+
+        /**
+         * Returns the medoid of a cluster.
+         *
+         * @param  cluster the cluster index.
+         * @return the medoid, or <code>null</code> if the clustering is not
+         *         a k-medoids clustering.
+         */
+        public Student getMedoid(final int cluster) {
+            return medoids == null ?
+                   null :
+                   storage.getStudentByOrdinal(medoids[cluster]);
+        }
+
+        /**
+         * Returns the sum of the distances of the students to their cluster
+         * centers: squared Euclidean for k-means and Hamming for k-medoids.
+         *
+         * @return the cost.
+         */
+        public double getCost() {
+            return cost;
+        }
+
+        /**
+         * Returns the amount of assignment steps run.
+         *
+         * @return the amount of iterations.
+         */
+        public int getIterations() {
+            return iterations;
+        }
+    }
+
+    /**
+     * The partial result of an assignment step over a chunk of students.
+     */
+    private static final class Partial {
+
+        final double[][] sums;
+        final int[] sizes;
+        double cost;
+        int changes;
+
+        Partial(final int k, final int courses, final boolean withSums) {
+            this.sums = withSums ? new double[k][courses] : null;
+            this.sizes = new int[k];
+        }
+    }
+
+    private final AppDataStorage storage;
+    private final EntryTable table;
+    private final int courses;
+
+    /**
+     * Tells for each course whether it is weighted by grade, or is
+     * <code>null</code> if the vectors are binary.
+     */
+    private final boolean[] gradedCourses;
+
+    /**
+     * Constructs a clusterer.
+     *
+     * @param storage       the data storage.
+     * @param gradeWeighted whether the vectors are weighted by grade.
+     */
+    public StudentClusterer(final AppDataStorage storage,
+                            final boolean gradeWeighted) {
+        checkNotNull(storage, "The data storage is null.");
+
+        this.storage = storage;
+        this.table = storage.getEntryTable();
+        this.courses = storage.getCourseAmount();
+
+        if (gradeWeighted) {
+            final List<Course> courseList = storage.getCourseList();
+            this.gradedCourses = new boolean[courses];
+
+            for (int c = 0; c < courses; ++c) {
+                gradedCourses[c] = courseList.get(c).getGradingMode() ==
+                                   Course.GRADING_MODE_NORMAL_SCALE;
+            }
+        } else {
+            this.gradedCourses = null;
+        }
+    }
+
+    /**
+     * Runs Lloyd's k-means with k-means++ seeding.
+     *
+     * @param  k             the amount of clusters.
+     * @param  maxIterations the maximum amount of assignment steps.
+     * @param  seed          the random seed.
+     * @return the clustering.
+     */
+    public Clustering kMeans(final int k,
+                             final int maxIterations,
+                             final long seed) {
+        checkArguments(k, maxIterations);
+
+        final int n = table.getStudentAmount();
+        final double[][] centroids = new double[k][];
+        final Random random = new Random(seed);
+        final int[] seeds = seedCenters(k, random);
+
+        for (int i = 0; i < k; ++i) {
+            centroids[i] = toDense(seeds[i]);
+        }
+
+        final int[] assignments = new int[n];
+        Arrays.fill(assignments, -1);
+
+        Partial total = null;
+        int iteration = 0;
+
+        while (iteration < maxIterations) {
+            ++iteration;
+            total = assignToCentroids(centroids, assignments);
+
+            for (int i = 0; i < k; ++i) {
+                // An empty cluster keeps its centroid.
+                if (total.sizes[i] > 0) {
+                    for (int c = 0; c < courses; ++c) {
+                        centroids[i][c] = total.sums[i][c] / total.sizes[i];
+                    }
+                }
+            }
+
+            if (total.changes == 0) {
+                break;
+            }
+        }
+
+        return new Clustering(storage,
+                              assignments,
+                              total.sizes,
+                              centroids,
+                              null,
+                              total.cost,
+                              iteration);
+    }
+
+    /**
+     * Runs a k-medoids clustering by alternating assignment and medoid
+     * updates. To scale to large clusters, the new medoid of a cluster is
+     * chosen among at most <code>sampleSize</code> random members plus the
+     * current medoid, minimizing the distance to at most
+     * <code>sampleSize</code> random members.
+     *
+     * @param  k             the amount of clusters.
+     * @param  maxIterations the maximum amount of assignment steps.
+     * @param  sampleSize    the amount of members sampled per cluster.
+     * @param  seed          the random seed.
+     * @return the clustering.
+     */
+    public Clustering kMedoids(final int k,
+                               final int maxIterations,
+                               final int sampleSize,
+                               final long seed) {
+        checkArguments(k, maxIterations);
+        checkNotLess(sampleSize,
+                     1,
+                     "The sample size must be positive. Received: " +
+                     sampleSize);
+
+        final int n = table.getStudentAmount();
+        final Random random = new Random(seed);
+        final int[] medoids = seedCenters(k, random);
+        final int[] assignments = new int[n];
+        Arrays.fill(assignments, -1);
+
+        Partial total = null;
+        int iteration = 0;
+
+        for (;;) {
+            ++iteration;
+            total = assignToMedoids(medoids, assignments);
+
+            if (iteration == maxIterations ||
+                    (total.changes == 0 && iteration > 1)) {
+                break;
+            }
+
+            if (!updateMedoids(medoids,
+                               assignments,
+                               total.sizes,
+                               sampleSize,
+                               random)) {
+                break;
+            }
+        }
+
+        final double[][] centroids = new double[k][];
+
+        for (int i = 0; i < k; ++i) {
+            centroids[i] = new double[courses];
+            final int end = table.getStudentCourseEnd(medoids[i]);
+
+            for (int p = table.getStudentCourseBegin(medoids[i]);
+                    p < end;
+                    ++p) {
+                centroids[i][table.getStudentCourse(p)] = 1.0;
+            }
+        }
+
+        return new Clustering(storage,
+                              assignments,
+                              total.sizes,
+                              centroids,
+                              medoids,
+                              total.cost,
+                              iteration);
+    }
+
+    /**
+     * Assigns each student to its nearest centroid and sums the vectors of
+     * each cluster.
+     */
+    private Partial assignToCentroids(final double[][] centroids,
+                                      final int[] assignments) {
+        final int k = centroids.length;
+        final double[] norms = new double[k];
+
+        for (int i = 0; i < k; ++i) {
+            for (final double x : centroids[i]) {
+                norms[i] += x * x;
+            }
+        }
+
+        final List<Partial> partials =
+                Parallel.forRange(assignments.length,
+                                  MIN_CHUNK,
+                                  new Parallel.RangeTask<Partial>() {
+            @Override
+            public Partial compute(final int from, final int to) {
+                final Partial partial = new Partial(k, courses, true);
+
+                for (int s = from; s < to; ++s) {
+                    final int begin = table.getStudentCourseBegin(s);
+                    final int end = table.getStudentCourseEnd(s);
+                    double norm = 0.0;
+                    double best = Double.POSITIVE_INFINITY;
+                    int bestCluster = 0;
+
+                    for (int p = begin; p < end; ++p) {
+                        final double x = value(p);
+                        norm += x * x;
+                    }
+
+                    for (int i = 0; i < k; ++i) {
+                        final double[] centroid = centroids[i];
+                        double dot = 0.0;
+
+                        for (int p = begin; p < end; ++p) {
+                            dot += value(p) *
+                                   centroid[table.getStudentCourse(p)];
+                        }
+
+                        final double distance = norms[i] - 2.0 * dot;
+
+                        if (distance < best) {
+                            best = distance;
+                            bestCluster = i;
+                        }
+                    }
+
+                    if (assignments[s] != bestCluster) {
+                        assignments[s] = bestCluster;
+                        ++partial.changes;
+                    }
+
+                    final double[] sum = partial.sums[bestCluster];
+
+                    for (int p = begin; p < end; ++p) {
+                        sum[table.getStudentCourse(p)] += value(p);
+                    }
+
+                    ++partial.sizes[bestCluster];
+                    partial.cost += Math.max(0.0, norm + best);
+                }
+
+                return partial;
+            }
+        });
+
+        return merge(partials, k);
+    }
+
+    /**
+     * Assigns each student to its nearest medoid.
+     */
+    private Partial assignToMedoids(final int[] medoids,
+                                    final int[] assignments) {
+        final int k = medoids.length;
+        final long[][] bitsets = new long[k][];
+        final int[] cardinalities = new int[k];
+
+        for (int i = 0; i < k; ++i) {
+            bitsets[i] = toBitset(medoids[i]);
+            cardinalities[i] = cardinality(bitsets[i]);
+        }
+
+        final List<Partial> partials =
+                Parallel.forRange(assignments.length,
+                                  MIN_CHUNK,
+                                  new Parallel.RangeTask<Partial>() {
+            @Override
+            public Partial compute(final int from, final int to) {
+                final Partial partial = new Partial(k, courses, false);
+
+                for (int s = from; s < to; ++s) {
+                    int best = Integer.MAX_VALUE;
+                    int bestCluster = 0;
+
+                    for (int i = 0; i < k; ++i) {
+                        final int distance = hamming(s,
+                                                     bitsets[i],
+                                                     cardinalities[i]);
+
+                        if (distance < best) {
+                            best = distance;
+                            bestCluster = i;
+                        }
+                    }
+
+                    if (assignments[s] != bestCluster) {
+                        assignments[s] = bestCluster;
+                        ++partial.changes;
+                    }
+
+                    ++partial.sizes[bestCluster];
+                    partial.cost += best;
+                }
+
+                return partial;
+            }
+        });
+
+        return merge(partials, k);
+    }
+
+    /**
+     * Moves each medoid to the sampled member closest to the sampled members
+     * of its cluster.
+     *
+     * @return <code>true</code> if a medoid moved.
+     */
+    private boolean updateMedoids(final int[] medoids,
+                                  final int[] assignments,
+                                  final int[] sizes,
+                                  final int sampleSize,
+                                  final Random random) {
+        final int k = medoids.length;
+        final int[][] samples = new int[k][];
+        final int[] seen = new int[k];
+
+        for (int i = 0; i < k; ++i) {
+            samples[i] = new int[Math.min(sizes[i], sampleSize)];
+        }
+
+        // Reservoir sampling of the members of each cluster in one pass.
+        for (int s = 0; s < assignments.length; ++s) {
+            final int i = assignments[s];
+            final int index = seen[i]++;
+
+            if (index < samples[i].length) {
+                samples[i][index] = s;
+            } else {
+                final int j = random.nextInt(index + 1);
+
+                if (j < samples[i].length) {
+                    samples[i][j] = s;
+                }
+            }
+        }
+
+        final List<Boolean> moved =
+                Parallel.forRange(k, 1, new Parallel.RangeTask<Boolean>() {
+            @Override
+            public Boolean compute(final int from, final int to) {
+                boolean ret = false;
+
+                for (int i = from; i < to; ++i) {
+                    int best = medoids[i];
+                    long bestCost = sampleCost(best, samples[i]);
+
+                    for (final int candidate : samples[i]) {
+                        final long cost = sampleCost(candidate, samples[i]);
+
+                        if (cost < bestCost) {
+                            bestCost = cost;
+                            best = candidate;
+                        }
+                    }
+
+                    if (best != medoids[i]) {
+                        medoids[i] = best;
+                        ret = true;
+                    }
+                }
+
+                return ret;
+            }
+        });
+
+        return moved.contains(Boolean.TRUE);
+    }
+
+    private long sampleCost(final int candidate, final int[] sample) {
+        final long[] bitset = toBitset(candidate);
+        final int cardinality = cardinality(bitset);
+        long ret = 0L;
+
+        for (final int s : sample) {
+            ret += hamming(s, bitset, cardinality);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Picks <code>k</code> distinct initial centers by k-means++ seeding over
+     * the binary course vectors: each next center is drawn with probability
+     * proportional to its Hamming distance to the nearest chosen center.
+     */
+    private int[] seedCenters(final int k, final Random random) {
+        final int n = table.getStudentAmount();
+
+        if (k > n) {
+            throw new IllegalArgumentException(
+                    "More clusters than students: " + k + " > " + n);
+        }
+
+        final int[] ret = new int[k];
+        final int[] distances = new int[n];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        ret[0] = random.nextInt(n);
+
+        for (int i = 1; i < k; ++i) {
+            final long[] bitset = toBitset(ret[i - 1]);
+            final int cardinality = cardinality(bitset);
+
+            final List<Long> sums =
+                    Parallel.forRange(n,
+                                      MIN_CHUNK,
+                                      new Parallel.RangeTask<Long>() {
+                @Override
+                public Long compute(final int from, final int to) {
+                    long sum = 0L;
+
+                    for (int s = from; s < to; ++s) {
+                        distances[s] = Math.min(distances[s],
+                                                hamming(s,
+                                                        bitset,
+                                                        cardinality));
+                        sum += distances[s];
+                    }
+
+                    return sum;
+                }
+            });
+
+            long sum = 0L;
+
+            for (final long partial : sums) {
+                sum += partial;
+            }
+
+            if (sum == 0L) {
+                // All students coincide with a center; pick any other.
+                ret[i] = pickOther(ret, i, n, random);
+                continue;
+            }
+
+            long target = (long)(random.nextDouble() * sum);
+            int s = 0;
+
+            while (target >= distances[s]) {
+                target -= distances[s++];
+            }
+
+            ret[i] = s;
+        }
+
+        return ret;
+    }
+
+    private static int pickOther(final int[] centers,
+                                 final int amount,
+                                 final int n,
+                                 final Random random) {
+        for (;;) {
+            final int s = random.nextInt(n);
+            boolean taken = false;
+
+            for (int i = 0; i < amount; ++i) {
+                taken |= centers[i] == s;
+            }
+
+            if (!taken) {
+                return s;
+            }
+        }
+    }
+
+    /**
+     * Returns the weight of the course at position <code>p</code> of the
+     * distinct course index.
+     */
+    private double value(final int p) {
+        if (gradedCourses == null ||
+                !gradedCourses[table.getStudentCourse(p)]) {
+            return 1.0;
+        }
+
+        return (1.0 + table.getStudentBestGrade(p)) /
+               (1.0 + MAXIMUM_COURSE_GRADE);
+    }
+
+    private double[] toDense(final int s) {
+        final double[] ret = new double[courses];
+        final int end = table.getStudentCourseEnd(s);
+
+        for (int p = table.getStudentCourseBegin(s); p < end; ++p) {
+            ret[table.getStudentCourse(p)] = value(p);
+        }
+
+        return ret;
+    }
+
+    private long[] toBitset(final int s) {
+        final long[] ret = new long[(courses + 63) >>> 6];
+        final int end = table.getStudentCourseEnd(s);
+
+        for (int p = table.getStudentCourseBegin(s); p < end; ++p) {
+            final int c = table.getStudentCourse(p);
+            ret[c >>> 6] |= 1L << c;
+        }
+
+        return ret;
+    }
+
+    private static int cardinality(final long[] bitset) {
+        int ret = 0;
+
+        for (final long word : bitset) {
+            ret += Long.bitCount(word);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the Hamming distance between the course set of student
+     * <code>s</code> and the course set in <code>bitset</code>.
+     */
+    private int hamming(final int s,
+                        final long[] bitset,
+                        final int cardinality) {
+        final int begin = table.getStudentCourseBegin(s);
+        final int end = table.getStudentCourseEnd(s);
+        int intersection = 0;
+
+        for (int p = begin; p < end; ++p) {
+            final int c = table.getStudentCourse(p);
+            intersection += (int)(bitset[c >>> 6] >>> c) & 1;
+        }
+
+        return end - begin + cardinality - 2 * intersection;
+    }
+
+    private Partial merge(final List<Partial> partials, final int k) {
+        final Partial ret = partials.get(0);
+
+        for (int t = 1; t < partials.size(); ++t) {
+            final Partial partial = partials.get(t);
+
+            for (int i = 0; i < k; ++i) {
+                ret.sizes[i] += partial.sizes[i];
+
+                if (ret.sums != null) {
+                    final double[] sum = ret.sums[i];
+                    final double[] other = partial.sums[i];
+
+                    for (int c = 0; c < courses; ++c) {
+                        sum[c] += other[c];
+                    }
+                }
+            }
+
+            ret.cost += partial.cost;
+            ret.changes += partial.changes;
+        }
+
+        return ret;
+    }
+
+    private static void checkArguments(final int k, final int maxIterations) {
+        checkNotLess(k, 1, "The amount of clusters must be positive.");
+        checkNotLess(maxIterations,
+                     1,
+                     "The amount of iterations must be positive.");
+    }
+}
@@ -0,0 +1,413 @@
+package net.coderodde.datamining.export;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import net.coderodde.datamining.utils.JsonWriter;
+import net.coderodde.datamining.viz.GradeMatrix;
+import net.coderodde.datamining.viz.GradePairHistogram;
+import net.coderodde.datamining.viz.HeatmapRenderer;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class writes visualization data to files without a display: grade
+ * heatmaps as PNG images, grade pair histograms as JSON, and optionally the
+ * raw grade pairs as a binary or JSON stream. Everything is written through
+ * streaming writers, so the output size is not limited by memory.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class BatchExporter {
+
+    /**
+     * The formats of the raw grade pair streams.
+     */
+    public enum RawFormat {
+
+        /**
+         * The magic <tt>GPR1</tt>, the amount of pairs as a big-endian 32-bit
+         * integer, and two bytes (first grade, second grade) per pair.
+         */
+        BINARY(".bin"),
+
+        /**
+         * A JSON array of two-element arrays.
+         */
+        JSON(".json");
+
+        private final String suffix;
+
+        private RawFormat(final String suffix) {
+            this.suffix = suffix;
+        }
+    }
+
+    /**
+     * The magic number starting the binary raw pair stream.
+     */
+    private static final byte[] RAW_MAGIC = { 'G', 'P', 'R', '1' };
+
+    /**
+     * The maximum amount of pixels rendered at a time when exporting a
+     * heatmap.
+     */
+    private static final int MAXIMUM_STRIP_PIXELS = 1 << 22;
+
+    private final AppDataStorage storage;
+    private final File directory;
+
+    /**
+     * Constructs an exporter writing to <code>directory</code>, which is
+     * created if it does not exist.
+     *
+     * @param storage   the data storage.
+     * @param directory the output directory.
+     */
+    public BatchExporter(final AppDataStorage storage, final File directory) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotNull(directory, "The output directory is null.");
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException(
+                    "Cannot create directory \"" +
+                    directory.getAbsolutePath() + "\".");
+        }
+
+        this.storage = storage;
+        this.directory = directory;
+    }
+
+    /**
+     * Writes the heatmap of <code>matrix</code> as a PNG image. The heatmap is
+     * rendered in horizontal strips, which are streamed to the file.
+     *
+     * @param  name     the file name without the suffix.
+     * @param  matrix   the grade matrix.
+     * @param  renderer the heatmap renderer.
+     * @return the written file.
+     * @throws IOException if writing fails.
+     */
+    public File exportHeatmap(final String name,
+                              final GradeMatrix matrix,
+                              final HeatmapRenderer renderer)
+    throws IOException {
+        final File file = new File(directory, name + ".png");
+        final int width = Math.max(1, renderer.getWidth(matrix));
+        final int height = Math.max(1, renderer.getHeight(matrix));
+        final int stripHeight = Math.max(1, MAXIMUM_STRIP_PIXELS / width);
+
+        try (final StreamingPngWriter writer =
+                new StreamingPngWriter(
+                        new BufferedOutputStream(new FileOutputStream(file)),
+                        width,
+                        height)) {
+            for (int y = 0; y < height; y += stripHeight) {
+                final int rows = Math.min(stripHeight, height - y);
+                final BufferedImage strip =
+                        renderer.render(matrix, 0, y, width, rows);
+                final int[] pixels =
+                        ((DataBufferInt) strip.getRaster().getDataBuffer())
+                        .getData();
+
+                writer.writeRows(pixels, 0, width, rows);
+            }
+        }
+
+        return file;
+    }
+
+    /**
+     * Writes a grade pair histogram as JSON. The document has the form
+     * <pre>
+     * {"first": {"code": ..., "name": ...},
+     *  "second": {"code": ..., "name": ...},
+     *  "total": ..., "correlation": ...,
+     *  "counts": [[...], ...]}
+     * </pre>
+     * where <tt>counts[a][b]</tt> is the amount of students with best grade
+     * <code>a</code> from the first and <code>b</code> from the second course.
+     *
+     * @param  name      the file name without the suffix.
+     * @param  histogram the histogram to write.
+     * @return the written file.
+     * @throws IOException if writing fails.
+     */
+    public File exportGradePairHistogram(final String name,
+                                         final GradePairHistogram histogram)
+    throws IOException {
+        final File file = new File(directory, name + ".json");
+
+        try (final JsonWriter writer = openJson(file)) {
+            writeHistogram(writer, histogram);
+        }
+
+        return file;
+    }
+
+    /**
+     * Writes the best grade pairs of the students that have attended both
+     * courses.
+     *
+     * @param  name         the file name without the suffix.
+     * @param  firstCourse  the first course.
+     * @param  secondCourse the second course.
+     * @param  students     the bitmap of the student ordinals to consider, or
+     *                      <code>null</code> for all students.
+     * @param  format       the output format.
+     * @return the written file.
+     * @throws IOException if writing fails.
+     */
+    public File exportRawGradePairs(final String name,
+                                    final Course firstCourse,
+                                    final Course secondCourse,
+                                    final CompressedBitmap students,
+                                    final RawFormat format)
+    throws IOException {
+        checkNotNull(format, "The format is null.");
+
+        final File file = new File(directory, name + format.suffix);
+        final EntryTable table = storage.getEntryTable();
+        final int a = storage.getCourseOrdinal(firstCourse);
+        final int b = storage.getCourseOrdinal(secondCourse);
+
+        CompressedBitmap both =
+                CompressedBitmap.and(storage.getStudentBitmap(firstCourse),
+                                     storage.getStudentBitmap(secondCourse));
+
+        if (students != null) {
+            both = CompressedBitmap.and(both, students);
+        }
+
+        final int[] ordinals = both.toArray();
+
+        if (format == RawFormat.BINARY) {
+            try (final DataOutputStream out =
+                    new DataOutputStream(
+                            new BufferedOutputStream(
+                                    new FileOutputStream(file)))) {
+                out.write(RAW_MAGIC);
+                out.writeInt(ordinals.length);
+
+                for (final int s : ordinals) {
+                    out.writeByte(table.getBestGrade(s, a));
+                    out.writeByte(table.getBestGrade(s, b));
+                }
+            }
+        } else {
+            try (final JsonWriter writer = openJson(file)) {
+                writer.beginArray();
+
+                for (final int s : ordinals) {
+                    writer.beginArray()
+                          .value(table.getBestGrade(s, a))
+                          .value(table.getBestGrade(s, b))
+                          .endArray();
+                }
+
+                writer.endArray();
+            }
+        }
+
+        return file;
+    }
+
+    /**
+     * Exports the grade pair histogram, and optionally the raw grade pairs, of
+     * each pair of courses in <code>courseList</code>. The files are named
+     * after the course codes as <tt>pair-&lt;code1&gt;-&lt;code2&gt;</tt>.
+     *
+     * @param  courseList the courses.
+     * @param  rawFormat  the format of the raw pairs, or <code>null</code> if
+     *                    they are not exported.
+     * @return the list of written files.
+     * @throws IOException if writing fails.
+     */
+    public List<File> exportCoursePairs(final List<Course> courseList,
+                                        final RawFormat rawFormat)
+    throws IOException {
+        final List<File> ret = new ArrayList<>();
+
+        for (final GradePairHistogram histogram :
+                GradePairHistogram.computeAll(storage, courseList, null)) {
+            final Course first = histogram.getFirstCourse();
+            final Course second = histogram.getSecondCourse();
+            final String name = pairName(first, second);
+
+            ret.add(exportGradePairHistogram(name, histogram));
+
+            if (rawFormat != null) {
+                ret.add(exportRawGradePairs(name + "-raw",
+                                            first,
+                                            second,
+                                            null,
+                                            rawFormat));
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Writes a feed of precomputed grade pair histograms for the grade pair
+     * visualization page. The histograms of all pairs of courses in
+     * <code>courseList</code> are computed in one pass per cohort. The feed
+     * directory <code>name</code> receives an index
+     * <pre>
+     * {"courses": [{"code": ..., "name": ...}, ...],
+     *  "cohorts": [..., ...],
+     *  "pairs": [{"first": i, "second": j, "file": ...}, ...]}
+     * </pre>
+     * where <code>first</code> and <code>second</code> index the course list,
+     * and a subdirectory per cohort holding the histogram of each pair in the
+     * file given by the index.
+     *
+     * @param  name       the name of the feed directory.
+     * @param  courseList the courses.
+     * @param  cohorts    maps the name of each cohort to the bitmap of its
+     *                    student ordinals, or to <code>null</code> for all
+     *                    students.
+     * @return the written index file.
+     * @throws IOException if writing fails.
+     */
+    public File exportGradePairFeed(final String name,
+                                    final List<Course> courseList,
+                                    final Map<String, CompressedBitmap> cohorts)
+    throws IOException {
+        checkNotNull(courseList, "The course list is null.");
+        checkNotNull(cohorts, "The cohort map is null.");
+
+        final File feedDirectory = new File(directory, name);
+
+        for (final Map.Entry<String, CompressedBitmap> e : cohorts.entrySet()) {
+            final BatchExporter exporter =
+                    new BatchExporter(storage,
+                                      new File(feedDirectory,
+                                               fileName(e.getKey())));
+
+            for (final GradePairHistogram histogram :
+                    GradePairHistogram.computeAll(storage,
+                                                  courseList,
+                                                  e.getValue())) {
+                exporter.exportGradePairHistogram(
+                        pairName(histogram.getFirstCourse(),
+                                 histogram.getSecondCourse()),
+                        histogram);
+            }
+        }
+
+        final File file = new File(feedDirectory, "index.json");
+
+        try (final JsonWriter writer = openJson(file)) {
+            writer.beginObject();
+            writer.name("courses").beginArray();
+
+            for (final Course course : courseList) {
+                writeCourse(writer, course);
+            }
+
+            writer.endArray();
+            writer.name("cohorts").beginArray();
+
+            for (final String cohort : cohorts.keySet()) {
+                writer.value(fileName(cohort));
+            }
+
+            writer.endArray();
+            writer.name("pairs").beginArray();
+
+            for (int i = 0; i < courseList.size(); ++i) {
+                for (int j = i + 1; j < courseList.size(); ++j) {
+                    writer.beginObject()
+                          .name("first").value(i)
+                          .name("second").value(j)
+                          .name("file").value(pairName(courseList.get(i),
+                                                       courseList.get(j)) +
+                                              ".json")
+                          .endObject();
+                }
+            }
+
+            writer.endArray();
+            writer.endObject();
+        }
+
+        return file;
+    }
+
+    /**
+     * Writes <code>histogram</code> as a JSON object.
+     *
+     * @param  writer    the JSON writer.
+     * @param  histogram the histogram.
+     * @throws IOException if writing fails.
+     */
+    static void writeHistogram(final JsonWriter writer,
+                               final GradePairHistogram histogram)
+    throws IOException {
+        writer.beginObject();
+        writer.name("first");
+        writeCourse(writer, histogram.getFirstCourse());
+        writer.name("second");
+        writeCourse(writer, histogram.getSecondCourse());
+        writer.name("total").value(histogram.getTotal());
+        writer.name("correlation").value(histogram.getCorrelation());
+        writer.name("counts").beginArray();
+
+        for (int a = 0; a < GradePairHistogram.GRADES; ++a) {
+            writer.beginArray();
+
+            for (int b = 0; b < GradePairHistogram.GRADES; ++b) {
+                writer.value(histogram.getCount(a, b));
+            }
+
+            writer.endArray();
+        }
+
+        writer.endArray();
+        writer.endObject();
+    }
+
+    static void writeCourse(final JsonWriter writer, final Course course)
+    throws IOException {
+        writer.beginObject()
+              .name("code").value(course.getCode())
+              .name("name").value(course.getName())
+              .endObject();
+    }
+
+    private static String pairName(final Course first, final Course second) {
+        return "pair-" + fileName(first.getCode()) +
+               "-" + fileName(second.getCode());
+    }
+
+    /**
+     * Converts a course code to a string safe for use in file names.
+     *
+     * @param  code the course code.
+     * @return the file name part.
+     */
+    static String fileName(final String code) {
+        return code.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static JsonWriter openJson(final File file) throws IOException {
+        return new JsonWriter(
+                new BufferedWriter(
+                        new OutputStreamWriter(new FileOutputStream(file),
+                                               "UTF-8")));
+    }
+}
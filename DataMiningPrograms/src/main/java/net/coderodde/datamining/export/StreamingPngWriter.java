@@ -0,0 +1,204 @@
+package net.coderodde.datamining.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class writes an RGB PNG image scanline by scanline, so that the entire
+ * image never needs to reside in memory. The compressed image data is emitted
+ * in chunks of bounded size as it is produced.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class StreamingPngWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {
+        (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'
+    };
+
+    /**
+     * The maximum size of an image data chunk.
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private final DeflaterOutputStream deflaterStream;
+    private final Deflater deflater;
+    private final int width;
+    private final int height;
+
+    /**
+     * The filter type byte followed by the RGB bytes of a scanline.
+     */
+    private final byte[] scanline;
+    private int rowsWritten;
+
+    /**
+     * Creates a writer and writes the PNG header.
+     *
+     * @param  out    the stream to write to.
+     * @param  width  the width of the image.
+     * @param  height the height of the image.
+     * @throws IOException if writing fails.
+     */
+    public StreamingPngWriter(final OutputStream out,
+                              final int width,
+                              final int height) throws IOException {
+        checkNotNull(out, "The output stream is null.");
+        checkNotLess(width, 1, "The image width must be positive.");
+        checkNotLess(height, 1, "The image height must be positive.");
+
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.scanline = new byte[1 + 3 * width];
+        this.deflater = new Deflater(Deflater.BEST_SPEED);
+        this.deflaterStream =
+                new DeflaterOutputStream(new ChunkStream(), deflater, 8192);
+
+        this.out.write(SIGNATURE);
+
+        final ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        final DataOutputStream headerData = new DataOutputStream(header);
+
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8); // Bit depth.
+        headerData.writeByte(2); // Color type: RGB.
+        headerData.writeByte(0); // Compression method.
+        headerData.writeByte(0); // Filter method.
+        headerData.writeByte(0); // No interlace.
+        writeChunk("IHDR", header.toByteArray(), header.size());
+    }
+
+    /**
+     * Writes <code>rows</code> scanlines. The pixels are given as
+     * <tt>0xRRGGBB</tt> values, <code>stride</code> values per row starting at
+     * <code>offset</code>.
+     *
+     * @param  pixels the pixel values.
+     * @param  offset the index of the first pixel of the first row.
+     * @param  stride the distance between the first pixels of two rows.
+     * @param  rows   the amount of rows to write.
+     * @throws IOException if writing fails.
+     */
+    public void writeRows(final int[] pixels,
+                          final int offset,
+                          final int stride,
+                          final int rows) throws IOException {
+        if (rowsWritten + rows > height) {
+            throw new IllegalStateException(
+                    "Too many rows. Image height: " + height);
+        }
+
+        for (int row = 0; row < rows; ++row) {
+            final int base = offset + row * stride;
+
+            // Filter type 1 (Sub) turns runs of equal pixels into zeros.
+            scanline[0] = 1;
+            int previous = 0;
+
+            for (int x = 0; x < width; ++x) {
+                final int rgb = pixels[base + x];
+                final int i = 1 + 3 * x;
+                scanline[i] = (byte)((rgb >>> 16) - (previous >>> 16));
+                scanline[i + 1] = (byte)((rgb >>> 8) - (previous >>> 8));
+                scanline[i + 2] = (byte)(rgb - previous);
+                previous = rgb;
+            }
+
+            deflaterStream.write(scanline);
+        }
+
+        rowsWritten += rows;
+    }
+
+    /**
+     * Finishes the image and closes the underlying stream.
+     *
+     * @throws IOException if writing fails or not all rows were written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten != height) {
+                throw new IOException("Only " + rowsWritten + " rows out of " +
+                                      height + " were written.");
+            }
+
+            deflaterStream.finish();
+            deflaterStream.flush();
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeChunk(final String type,
+                            final byte[] data,
+                            final int length) throws IOException {
+        final byte[] typeBytes = type.getBytes("US-ASCII");
+        final CRC32 crc = new CRC32();
+
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Buffers the compressed data and emits it as image data chunks.
+     */
+    private final class ChunkStream extends OutputStream {
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int size;
+
+        @Override
+        public void write(final int b) throws IOException {
+            write(new byte[]{ (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len)
+        throws IOException {
+            while (len > 0) {
+                final int n = Math.min(len, CHUNK_SIZE - size);
+                System.arraycopy(b, off, buffer, size, n);
+                size += n;
+                off += n;
+                len -= n;
+
+                if (size == CHUNK_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (size > 0) {
+                writeChunk("IDAT", buffer, size);
+                size = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
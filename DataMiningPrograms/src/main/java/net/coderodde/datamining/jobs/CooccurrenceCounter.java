@@ -0,0 +1,298 @@
+package net.coderodde.datamining.jobs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class counts for several sizes <tt>k</tt> at once how many students
+ * have attended each set of <tt>k</tt> courses. All the sizes are counted in
+ * one pass over the distinct course index of the students: the subsets of
+ * each student's courses are enumerated once up to the largest size, and
+ * every subset of a requested size is counted. A course attended by fewer
+ * students than the smallest minimum count cannot be part of any reported
+ * set, so it is left out of the enumeration.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class CooccurrenceCounter {
+
+    /**
+     * A set of courses with the amount of students that have attended all of
+     * them.
+     */
+    public static final class CourseSetCount {
+
+        private final List<Course> courseList;
+        private final int count;
+
+        CourseSetCount(final List<Course> courseList, final int count) {
+            this.courseList = courseList;
+            this.count = count;
+        }
+
+        public List<Course> getCourseList() {
+            return courseList;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    private final AppDataStorage storage;
+
+    /**
+     * Maps each requested size to its minimum count.
+     */
+    private final Map<Integer, Integer> minCountMap = new TreeMap<>();
+
+    /**
+     * Maps each requested size to the counts of its course sets, keyed by the
+     * packed course ordinals.
+     */
+    private final Map<Integer, Map<Long, int[]>> countMap = new HashMap<>();
+
+    /**
+     * The amount of bits per course ordinal in a packed key.
+     */
+    private final int bits;
+
+    public CooccurrenceCounter(final AppDataStorage storage) {
+        checkNotNull(storage, "The data storage is null.");
+        this.storage = storage;
+        this.bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(
+                                         storage.getCourseAmount()));
+    }
+
+    /**
+     * Requests the counts of the course sets of size <code>k</code> attended
+     * by at least <code>minCount</code> students. If the same size is
+     * requested several times, the smallest minimum count is used.
+     *
+     * @param  k        the size of the course sets.
+     * @param  minCount the minimum amount of students.
+     * @return this counter.
+     */
+    public CooccurrenceCounter request(final int k, final int minCount) {
+        checkNotLess(k, 1, "The set size must be positive. Received: " + k);
+        checkNotLess(minCount,
+                     1,
+                     "The minimum count must be positive. Received: " +
+                     minCount);
+
+        if (k * bits > Long.SIZE - 1) {
+            throw new IllegalArgumentException(
+                    "Sets of " + k + " courses are too large to count.");
+        }
+
+        final Integer previous = minCountMap.get(k);
+        minCountMap.put(k, previous == null ?
+                           minCount :
+                           Math.min(previous, minCount));
+        return this;
+    }
+
+    /**
+     * Counts all the requested sizes in one pass.
+     *
+     * @return this counter.
+     */
+    public CooccurrenceCounter count() {
+        countMap.clear();
+
+        if (minCountMap.isEmpty()) {
+            return this;
+        }
+
+        final EntryTable table = storage.getEntryTable();
+        final int maxK = Collections.max(minCountMap.keySet());
+        final int minCount = Collections.min(minCountMap.values());
+        final boolean[] requested = new boolean[maxK + 1];
+        final boolean[] eligible = new boolean[table.getCourseAmount()];
+
+        for (final int k : minCountMap.keySet()) {
+            requested[k] = true;
+        }
+
+        for (int c = 0; c < eligible.length; ++c) {
+            eligible[c] = table.getCourseEnd(c) - table.getCourseBegin(c) >=
+                          minCount;
+        }
+
+        final List<List<Map<Long, int[]>>> partials =
+                Parallel.forRange(table.getStudentAmount(),
+                                  256,
+                                  new Parallel.RangeTask<List<Map<Long, int[]>>>() {
+            @Override
+            public List<Map<Long, int[]>> compute(final int from,
+                                                  final int to) {
+                final List<Map<Long, int[]>> maps = new ArrayList<>(maxK + 1);
+
+                for (int k = 0; k <= maxK; ++k) {
+                    maps.add(requested[k] ?
+                             new HashMap<Long, int[]>() :
+                             null);
+                }
+
+                int[] courses = new int[16];
+
+                for (int s = from; s < to; ++s) {
+                    final int end = table.getStudentCourseEnd(s);
+                    int amount = 0;
+
+                    for (int p = table.getStudentCourseBegin(s); p < end; ++p) {
+                        final int c = table.getStudentCourse(p);
+
+                        if (eligible[c]) {
+                            if (amount == courses.length) {
+                                courses = Arrays.copyOf(courses, 2 * amount);
+                            }
+
+                            courses[amount++] = c;
+                        }
+                    }
+
+                    Arrays.sort(courses, 0, amount);
+                    enumerate(courses, amount, 0, 0, 0L, maxK, maps);
+                }
+
+                return maps;
+            }
+        });
+
+        for (final int k : minCountMap.keySet()) {
+            final Map<Long, int[]> merged = partials.get(0).get(k);
+
+            for (int i = 1; i < partials.size(); ++i) {
+                for (final Map.Entry<Long, int[]> e :
+                        partials.get(i).get(k).entrySet()) {
+                    final int[] counter = merged.get(e.getKey());
+
+                    if (counter == null) {
+                        merged.put(e.getKey(), e.getValue());
+                    } else {
+                        counter[0] += e.getValue()[0];
+                    }
+                }
+            }
+
+            countMap.put(k, merged);
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the course sets of size <code>k</code> attended by at least
+     * <code>minCount</code> students, by descending count.
+     *
+     * @param  k        the size of the course sets.
+     * @param  minCount the minimum amount of students.
+     * @return the list of course sets.
+     */
+    public List<CourseSetCount> getCourseSets(final int k, final int minCount) {
+        final Integer requestedMinCount = minCountMap.get(k);
+
+        if (requestedMinCount == null || requestedMinCount > minCount) {
+            throw new IllegalStateException(
+                    "Sets of " + k + " courses with at least " + minCount +
+                    " students were not requested.");
+        }
+
+        final Map<Long, int[]> map = countMap.get(k);
+
+        if (map == null) {
+            throw new IllegalStateException("Not counted yet.");
+        }
+
+        final List<Course> courseList = storage.getCourseList();
+        final List<CourseSetCount> ret = new ArrayList<>();
+        final long mask = (1L << bits) - 1;
+
+        for (final Map.Entry<Long, int[]> e : map.entrySet()) {
+            if (e.getValue()[0] < minCount) {
+                continue;
+            }
+
+            final Course[] courses = new Course[k];
+            long key = e.getKey();
+
+            for (int i = k - 1; i >= 0; --i) {
+                courses[i] = courseList.get((int)(key & mask));
+                key >>>= bits;
+            }
+
+            ret.add(new CourseSetCount(Arrays.asList(courses),
+                                       e.getValue()[0]));
+        }
+
+        Collections.sort(ret, new Comparator<CourseSetCount>() {
+            @Override
+            public int compare(final CourseSetCount o1,
+                               final CourseSetCount o2) {
+                final int cmp = Integer.compare(o2.count, o1.count);
+
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                for (int i = 0; i < o1.courseList.size(); ++i) {
+                    final int c = o1.courseList.get(i)
+                                    .compareTo(o2.courseList.get(i));
+
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+
+                return 0;
+            }
+        });
+
+        return ret;
+    }
+
+    /**
+     * Counts the subsets of <tt>courses[start, amount)</tt> extending the set
+     * of <code>size</code> courses packed in <code>key</code>.
+     */
+    private void enumerate(final int[] courses,
+                           final int amount,
+                           final int start,
+                           final int size,
+                           final long key,
+                           final int maxK,
+                           final List<Map<Long, int[]>> maps) {
+        for (int i = start; i < amount; ++i) {
+            final long nextKey = (key << bits) | courses[i];
+            final Map<Long, int[]> map = maps.get(size + 1);
+
+            if (map != null) {
+                final int[] counter = map.get(nextKey);
+
+                if (counter == null) {
+                    map.put(nextKey, new int[]{ 1 });
+                } else {
+                    ++counter[0];
+                }
+            }
+
+            if (size + 1 < maxK) {
+                enumerate(courses, amount, i + 1, size + 1, nextKey, maxK, maps);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package net.coderodde.datamining.jobs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class describes a single analysis of a job file: the kind of the
+ * analysis, its parameters and the name of its output file. A job file has
+ * one job per line in the form
+ * <pre>
+ * &lt;output file&gt; &lt;analysis&gt; [&lt;name&gt;=&lt;value&gt; ...]
+ * </pre>
+ * Empty lines and lines starting with <tt>#</tt> are ignored.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class Job {
+
+    /**
+     * The supported analyses.
+     */
+    public enum Analysis {
+
+        /**
+         * The amount of students per set of <tt>k</tt> courses. Parameters:
+         * <tt>k</tt> and <tt>minCount</tt>.
+         */
+        COOCCURRENCE("cooccurrence"),
+
+        /**
+         * The frequent itemsets. Parameter: <tt>minSupport</tt>.
+         */
+        ITEMSETS("itemsets"),
+
+        /**
+         * The association rules. Parameters: <tt>minSupport</tt> and
+         * <tt>minConfidence</tt>.
+         */
+        RULES("rules"),
+
+        /**
+         * The frequent sequences. Parameters: <tt>minSupport</tt>, and
+         * optionally <tt>size</tt> and <tt>maxspan</tt>.
+         */
+        SEQUENCES("sequences"),
+
+        /**
+         * The grade point averages by the amount of credits per study period.
+         */
+        GPA("gpa"),
+
+        /**
+         * The grade correlations of the pairs of normal scale courses.
+         * Parameter: <tt>minCount</tt>.
+         */
+        CORRELATIONS("correlations"),
+
+        /**
+         * The amount of students attending each pair of courses in either
+         * order or in the same period. Parameter: optionally
+         * <tt>maxGap</tt> in months.
+         */
+        PRECEDENCE("precedence");
+
+        private final String name;
+
+        private Analysis(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        static Analysis forName(final String name) {
+            for (final Analysis analysis : values()) {
+                if (analysis.name.equals(name)) {
+                    return analysis;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private final String outputName;
+    private final Analysis analysis;
+    private final Map<String, String> parameterMap;
+
+    public Job(final String outputName,
+               final Analysis analysis,
+               final Map<String, String> parameterMap) {
+        checkNotNull(outputName, "The output name is null.");
+        checkNotNull(analysis, "The analysis is null.");
+        checkNotNull(parameterMap, "The parameter map is null.");
+
+        this.outputName = outputName;
+        this.analysis = analysis;
+        this.parameterMap =
+                Collections.unmodifiableMap(
+                        new LinkedHashMap<>(parameterMap));
+    }
+
+    /**
+     * Reads the jobs of a job file.
+     *
+     * @param  file the job file.
+     * @return the list of jobs in file order.
+     * @throws IOException if reading fails.
+     */
+    public static List<Job> parse(final File file) throws IOException {
+        try (final Reader reader =
+                new InputStreamReader(new FileInputStream(file), "UTF-8")) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Reads jobs in the job file format.
+     *
+     * @param  reader the reader to read from.
+     * @return the list of jobs in input order.
+     * @throws IOException if reading fails.
+     * @throws IllegalArgumentException if a line is malformed.
+     */
+    public static List<Job> parse(final Reader reader) throws IOException {
+        final BufferedReader bufferedReader = new BufferedReader(reader);
+        final List<Job> ret = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+
+        while ((line = bufferedReader.readLine()) != null) {
+            ++lineNumber;
+            line = line.trim();
+
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            final String[] words = line.split("\\s+");
+
+            if (words.length < 2) {
+                throw new IllegalArgumentException(
+                        "Line " + lineNumber + ": expected an output file " +
+                        "and an analysis.");
+            }
+
+            final Analysis analysis = Analysis.forName(words[1]);
+
+            if (analysis == null) {
+                throw new IllegalArgumentException(
+                        "Line " + lineNumber + ": unknown analysis \"" +
+                        words[1] + "\".");
+            }
+
+            final Map<String, String> parameterMap = new LinkedHashMap<>();
+
+            for (int i = 2; i < words.length; ++i) {
+                final int equals = words[i].indexOf('=');
+
+                if (equals <= 0) {
+                    throw new IllegalArgumentException(
+                            "Line " + lineNumber + ": expected " +
+                            "<name>=<value>, received \"" + words[i] + "\".");
+                }
+
+                parameterMap.put(words[i].substring(0, equals),
+                                 words[i].substring(equals + 1));
+            }
+
+            ret.add(new Job(words[0], analysis, parameterMap));
+        }
+
+        return ret;
+    }
+
+    public String getOutputName() {
+        return outputName;
+    }
+
+    public Analysis getAnalysis() {
+        return analysis;
+    }
+
+    public Map<String, String> getParameterMap() {
+        return parameterMap;
+    }
+
+    /**
+     * Returns a parameter as a floating point number.
+     *
+     * @param  name the name of the parameter.
+     * @return the value of the parameter.
+     * @throws IllegalArgumentException if the parameter is missing or not a
+     *                                  number.
+     */
+    public double getDouble(final String name) {
+        final String value = getRequired(name);
+
+        try {
+            return Double.parseDouble(value);
+        } catch (final NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    this + ": bad number \"" + value + "\" for \"" + name +
+                    "\".");
+        }
+    }
+
+    /**
+     * Returns a parameter as an integer.
+     *
+     * @param  name         the name of the parameter.
+     * @param  defaultValue the value returned if the parameter is missing.
+     * @return the value of the parameter.
+     * @throws IllegalArgumentException if the parameter is not an integer.
+     */
+    public int getInt(final String name, final int defaultValue) {
+        final String value = parameterMap.get(name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    this + ": bad integer \"" + value + "\" for \"" + name +
+                    "\".");
+        }
+    }
+
+    /**
+     * Returns a required parameter as an integer.
+     *
+     * @param  name the name of the parameter.
+     * @return the value of the parameter.
+     * @throws IllegalArgumentException if the parameter is missing or not an
+     *                                  integer.
+     */
+    public int getInt(final String name) {
+        getRequired(name);
+        return getInt(name, 0);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(outputName);
+        sb.append(' ').append(analysis.getName());
+
+        for (final Map.Entry<String, String> e : parameterMap.entrySet()) {
+            sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+        }
+
+        return sb.toString();
+    }
+
+    private String getRequired(final String name) {
+        final String value = parameterMap.get(name);
+
+        if (value == null) {
+            throw new IllegalArgumentException(
+                    this + ": missing parameter \"" + name + "\".");
+        }
+
+        return value;
+    }
+}
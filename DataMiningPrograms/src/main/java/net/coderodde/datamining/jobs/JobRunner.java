@@ -0,0 +1,435 @@
+package net.coderodde.datamining.jobs;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.AppDataStorage.GpaStatistics;
+import net.coderodde.datamining.model.AppDataStorage.Result1;
+import net.coderodde.datamining.model.AppDataStorage.SequenceAndSupport;
+import net.coderodde.datamining.model.AssociationRule;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.GradeCorrelationMatrix;
+import net.coderodde.datamining.model.PrecedenceMatrix;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class runs the jobs of a job file over a loaded data storage. Before
+ * anything is run the jobs are planned: all the co-occurrence jobs are served
+ * by a single {@link CooccurrenceCounter} pass, and the remaining jobs are
+ * independent of each other. The shared pass and the independent jobs run
+ * concurrently, and each job writes its own output file.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class JobRunner {
+
+    private final AppDataStorage storage;
+    private final File directory;
+
+    /**
+     * Constructs a runner writing the output files to <code>directory</code>,
+     * which is created if it does not exist.
+     *
+     * @param storage   the data storage.
+     * @param directory the output directory.
+     */
+    public JobRunner(final AppDataStorage storage, final File directory) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotNull(directory, "The output directory is null.");
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException(
+                    "Cannot create directory \"" +
+                    directory.getAbsolutePath() + "\".");
+        }
+
+        this.storage = storage;
+        this.directory = directory;
+    }
+
+    /**
+     * Runs the jobs.
+     *
+     * @param  jobList the jobs to run.
+     * @return the output files in job order.
+     * @throws IOException if writing an output fails.
+     * @throws IllegalArgumentException if a job has bad parameters or two jobs
+     *                                  share an output file.
+     */
+    public List<File> run(final List<Job> jobList) throws IOException {
+        checkNotNull(jobList, "The job list is null.");
+
+        final Set<String> outputNameSet = new HashSet<>();
+        final List<Job> cooccurrenceJobList = new ArrayList<>();
+        final List<Callable<Void>> taskList = new ArrayList<>();
+
+        // Plan: validate everything before running anything.
+        for (final Job job : jobList) {
+            if (!outputNameSet.add(job.getOutputName())) {
+                throw new IllegalArgumentException(
+                        "Output file \"" + job.getOutputName() +
+                        "\" is written by two jobs.");
+            }
+
+            if (job.getAnalysis() == Job.Analysis.COOCCURRENCE) {
+                cooccurrenceJobList.add(job);
+            } else {
+                taskList.add(createTask(job));
+            }
+        }
+
+        if (!cooccurrenceJobList.isEmpty()) {
+            taskList.add(createCooccurrenceTask(cooccurrenceJobList));
+        }
+
+        runAll(taskList);
+
+        final List<File> ret = new ArrayList<>(jobList.size());
+
+        for (final Job job : jobList) {
+            ret.add(new File(directory, job.getOutputName()));
+        }
+
+        return ret;
+    }
+
+    private Callable<Void> createCooccurrenceTask(final List<Job> jobList) {
+        final CooccurrenceCounter counter = new CooccurrenceCounter(storage);
+
+        for (final Job job : jobList) {
+            counter.request(job.getInt("k"), job.getInt("minCount"));
+        }
+
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                counter.count();
+
+                for (final Job job : jobList) {
+                    try (final PrintWriter out = open(job)) {
+                        for (final CooccurrenceCounter.CourseSetCount set :
+                                counter.getCourseSets(job.getInt("k"),
+                                                      job.getInt("minCount"))) {
+                            out.print(set.getCount());
+
+                            for (final Course course : set.getCourseList()) {
+                                out.print('\t');
+                                out.print(course.getCode());
+                            }
+
+                            out.println();
+                        }
+
+                        check(out, job);
+                    }
+                }
+
+                return null;
+            }
+        };
+    }
+
+    private Callable<Void> createTask(final Job job) {
+        switch (job.getAnalysis()) {
+            case ITEMSETS: {
+                final double minSupport = job.getDouble("minSupport");
+
+                return new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final List<List<Course>> itemsetList =
+                                new ArrayList<>();
+
+                        for (final Set<Course> itemset :
+                                storage.apriori(minSupport)) {
+                            final List<Course> courseList =
+                                    new ArrayList<>(itemset);
+                            Collections.sort(courseList);
+                            itemsetList.add(courseList);
+                        }
+
+                        try (final PrintWriter out = open(job)) {
+                            for (final List<Course> courseList : itemsetList) {
+                                out.print(storage.supportCount(
+                                        new HashSet<>(courseList)));
+
+                                for (final Course course : courseList) {
+                                    out.print('\t');
+                                    out.print(course.getCode());
+                                }
+
+                                out.println();
+                            }
+
+                            check(out, job);
+                        }
+
+                        return null;
+                    }
+                };
+            }
+
+            case RULES: {
+                final double minSupport = job.getDouble("minSupport");
+                final double minConfidence = job.getDouble("minConfidence");
+
+                return new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final List<AssociationRule> ruleList =
+                                storage.apriori(minSupport, minConfidence);
+
+                        try (final PrintWriter out = open(job)) {
+                            for (final AssociationRule rule : ruleList) {
+                                out.println(rule);
+                            }
+
+                            check(out, job);
+                        }
+
+                        return null;
+                    }
+                };
+            }
+
+            case SEQUENCES: {
+                final double minSupport = job.getDouble("minSupport");
+                final int size = job.getInt("size", -1);
+                final int maxspan = job.getInt("maxspan", -1);
+
+                return new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final List<SequenceAndSupport> sequenceList =
+                                size < 0 ?
+                                storage.sequentialApriori(minSupport) :
+                                maxspan < 0 ?
+                                storage.sequentialApriori(minSupport, size) :
+                                storage.sequentialApriori(minSupport,
+                                                          size,
+                                                          maxspan);
+
+                        try (final PrintWriter out = open(job)) {
+                            for (final SequenceAndSupport sequence :
+                                    sequenceList) {
+                                out.println(sequence.getSupport() + "\t" +
+                                            sequence.getSequence());
+                            }
+
+                            check(out, job);
+                        }
+
+                        return null;
+                    }
+                };
+            }
+
+            case GPA:
+                return new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final Result1 result = storage.getCreditsToGPA();
+
+                        try (final PrintWriter out = open(job)) {
+                            out.println("credits\tperiods\tmean");
+
+                            for (final Integer credits :
+                                    new TreeSet<>(
+                                            result.map1.keySet())) {
+                                final GpaStatistics statistics =
+                                        result.map1.get(credits);
+                                out.println(credits + "\t" +
+                                            statistics.getCount() + "\t" +
+                                            statistics.getMean());
+                            }
+
+                            out.println("correlation\t" +
+                                        result.getCorrelation());
+
+                            check(out, job);
+                        }
+
+                        return null;
+                    }
+                };
+
+            case CORRELATIONS: {
+                final int minCount = job.getInt("minCount");
+
+                return new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final GradeCorrelationMatrix matrix =
+                                GradeCorrelationMatrix.compute(storage,
+                                                               minCount);
+                        final List<Course> courseList =
+                                matrix.getCourseList();
+
+                        try (final PrintWriter out = open(job)) {
+                            for (int i = 0; i < courseList.size(); ++i) {
+                                for (int j = i + 1;
+                                        j < courseList.size();
+                                        ++j) {
+                                    final double correlation =
+                                            matrix.getCorrelation(i, j);
+
+                                    if (!Double.isNaN(correlation)) {
+                                        out.println(
+                                                matrix.getCount(i, j) + "\t" +
+                                                correlation + "\t" +
+                                                courseList.get(i).getCode() +
+                                                "\t" +
+                                                courseList.get(j).getCode());
+                                    }
+                                }
+                            }
+
+                            check(out, job);
+                        }
+
+                        return null;
+                    }
+                };
+            }
+
+            case PRECEDENCE: {
+                final int maxGap = job.getInt("maxGap",
+                                              PrecedenceMatrix.NO_GAP_LIMIT);
+
+                return new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        final PrecedenceMatrix matrix =
+                                PrecedenceMatrix.compute(storage, maxGap);
+                        final List<Course> courseList =
+                                storage.getCourseList();
+
+                        try (final PrintWriter out = open(job)) {
+                            out.println("before\tsame\tafter\tfirst\tsecond");
+
+                            for (int a = 0; a < courseList.size(); ++a) {
+                                for (int b = a + 1;
+                                        b < courseList.size();
+                                        ++b) {
+                                    final int before =
+                                            matrix.getBeforeCount(a, b);
+                                    final int same =
+                                            matrix.getSameCount(a, b);
+                                    final int after =
+                                            matrix.getAfterCount(a, b);
+
+                                    if (before + same + after > 0) {
+                                        out.println(
+                                                before + "\t" + same + "\t" +
+                                                after + "\t" +
+                                                courseList.get(a).getCode() +
+                                                "\t" +
+                                                courseList.get(b).getCode());
+                                    }
+                                }
+                            }
+
+                            check(out, job);
+                        }
+
+                        return null;
+                    }
+                };
+            }
+
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported analysis: " + job.getAnalysis());
+        }
+    }
+
+    private PrintWriter open(final Job job) throws IOException {
+        return new PrintWriter(
+                new BufferedWriter(
+                        new OutputStreamWriter(
+                                new FileOutputStream(
+                                        new File(directory,
+                                                 job.getOutputName())),
+                                "UTF-8")));
+    }
+
+    /**
+     * Throws if writing to <code>out</code> has failed, since print writers do
+     * not report errors.
+     */
+    private static void check(final PrintWriter out, final Job job)
+    throws IOException {
+        if (out.checkError()) {
+            throw new IOException("Writing the output of \"" + job +
+                                  "\" failed.");
+        }
+    }
+
+    /**
+     * Runs the tasks concurrently and waits for all of them. The first failure
+     * is rethrown after the remaining tasks are cancelled.
+     */
+    private static void runAll(final List<Callable<Void>> taskList)
+    throws IOException {
+        if (taskList.isEmpty()) {
+            return;
+        }
+
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        Math.min(taskList.size(), Parallel.getParallelism()));
+        final List<Future<Void>> futureList = new ArrayList<>(taskList.size());
+
+        try {
+            for (final Callable<Void> task : taskList) {
+                futureList.add(executor.submit(task));
+            }
+
+            for (final Future<Void> future : futureList) {
+                future.get();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted.", ex);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException(cause);
+        } finally {
+            for (final Future<Void> future : futureList) {
+                future.cancel(true);
+            }
+
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package net.coderodde.datamining.loader.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.coderodde.datamining.utils.CountMinSketch;
+import net.coderodde.datamining.utils.SpaceSaving;
+import static net.coderodde.datamining.loader.support.DataLoaderv1.TOKENS_PER_ENTRY;
+import static net.coderodde.datamining.loader.support.DataLoaderv1.handleCourseNames;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkFileExists;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkFileIsRegular;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class summarizes in bounded memory how many students have attended
+ * each course and each pair of courses. The students are fed one at a time,
+ * either by {@link DataLoaderv1} while it loads a file or by
+ * {@link #scan(File)} without building a data storage at all. Count-Min
+ * sketches answer support queries for any course or pair, and Space-Saving
+ * summaries keep the most attended ones. Apart from the sketches, only the
+ * dictionary of course codes is kept. This class is not thread-safe.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class CourseSketch {
+
+    /**
+     * A course or a pair of courses with its estimated amount of students.
+     */
+    public static final class Estimate {
+
+        private final List<String> codeList;
+        private final long count;
+        private final long error;
+
+        Estimate(final List<String> codeList,
+                 final long count,
+                 final long error) {
+            this.codeList = codeList;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * Returns the course codes in ascending order.
+         *
+         * @return the list of course codes.
+         */
+        public List<String> getCodeList() {
+            return codeList;
+        }
+
+        /**
+         * Returns the estimated amount of students, which is never less than
+         * the true amount.
+         *
+         * @return the estimated count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the maximum overestimation of the count.
+         *
+         * @return the error bound.
+         */
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return codeList + ": " + count + " (+-" + error + ")";
+        }
+    }
+
+    private final CountMinSketch courseCounts;
+    private final CountMinSketch pairCounts;
+    private final SpaceSaving topCourses;
+    private final SpaceSaving topPairs;
+
+    /**
+     * Maps each course code to its ID.
+     */
+    private final Map<String, Integer> idMap = new HashMap<>();
+
+    /**
+     * The course codes indexed by ID.
+     */
+    private final List<String> codeList = new ArrayList<>();
+
+    private int transactionAmount;
+
+    /**
+     * Constructs a sketch.
+     *
+     * @param epsilon  the relative error of the Count-Min sketches.
+     * @param delta    the failure probability of the Count-Min sketches.
+     * @param capacity the amount of courses and of pairs monitored by the
+     *                 Space-Saving summaries.
+     */
+    public CourseSketch(final double epsilon,
+                        final double delta,
+                        final int capacity) {
+        checkNotLess(capacity,
+                     1,
+                     "The capacity must be positive. Received: " + capacity);
+
+        this.courseCounts = new CountMinSketch(epsilon, delta, 1L);
+        this.pairCounts = new CountMinSketch(epsilon, delta, 2L);
+        this.topCourses = new SpaceSaving(capacity);
+        this.topPairs = new SpaceSaving(capacity);
+    }
+
+    /**
+     * Feeds the courses of one student. Repeated courses are counted once.
+     *
+     * @param codes the course codes of the student.
+     */
+    public void add(final Collection<String> codes) {
+        checkNotNull(codes, "The course codes are null.");
+
+        final int[] ids = new int[codes.size()];
+        int amount = 0;
+
+        for (final String code : codes) {
+            Integer id = idMap.get(code);
+
+            if (id == null) {
+                id = codeList.size();
+                idMap.put(code, id);
+                codeList.add(code);
+            }
+
+            ids[amount++] = id;
+        }
+
+        Arrays.sort(ids);
+        amount = 0;
+
+        for (int i = 0; i < ids.length; ++i) {
+            if (amount == 0 || ids[amount - 1] != ids[i]) {
+                ids[amount++] = ids[i];
+            }
+        }
+
+        for (int i = 0; i < amount; ++i) {
+            courseCounts.add(ids[i], 1L);
+            topCourses.add(ids[i], 1L);
+
+            for (int j = i + 1; j < amount; ++j) {
+                final long key = pairKey(ids[i], ids[j]);
+                pairCounts.add(key, 1L);
+                topPairs.add(key, 1L);
+            }
+        }
+
+        ++transactionAmount;
+    }
+
+    /**
+     * Feeds all the students of a file in the {@link DataLoaderv1} format.
+     *
+     * @param  file the data file.
+     * @return this sketch.
+     * @throws IOException if reading fails.
+     */
+    public CourseSketch scan(final File file) throws IOException {
+        checkNotNull(file, "The file is null.");
+        checkFileExists(file);
+        checkFileIsRegular(file);
+
+        try (final BufferedReader reader =
+                new BufferedReader(new FileReader(file))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    add(parseCodes(line));
+                }
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the amount of students fed.
+     *
+     * @return the amount of students.
+     */
+    public int getTransactionAmount() {
+        return transactionAmount;
+    }
+
+    /**
+     * Returns an upper bound for the amount of students that have attended
+     * a course.
+     *
+     * @param  code the course code.
+     * @return the estimated amount of students.
+     */
+    public long estimateCount(final String code) {
+        final Integer id = idMap.get(code);
+        return id == null ? 0L : courseCounts.estimate(id);
+    }
+
+    /**
+     * Returns an upper bound for the amount of students that have attended
+     * both courses.
+     *
+     * @param  code1 the code of the first course.
+     * @param  code2 the code of the second course.
+     * @return the estimated amount of students.
+     */
+    public long estimateCount(final String code1, final String code2) {
+        final Integer id1 = idMap.get(code1);
+        final Integer id2 = idMap.get(code2);
+
+        if (id1 == null || id2 == null || id1.equals(id2)) {
+            return id1 == null || id2 == null ? 0L : estimateCount(code1);
+        }
+
+        return pairCounts.estimate(pairKey(Math.min(id1, id2),
+                                           Math.max(id1, id2)));
+    }
+
+    /**
+     * Returns the estimated support of a course.
+     *
+     * @param  code the course code.
+     * @return the estimated support.
+     */
+    public double estimateSupport(final String code) {
+        return transactionAmount == 0 ?
+               0.0 :
+               1.0 * estimateCount(code) / transactionAmount;
+    }
+
+    /**
+     * Returns the estimated support of a pair of courses.
+     *
+     * @param  code1 the code of the first course.
+     * @param  code2 the code of the second course.
+     * @return the estimated support.
+     */
+    public double estimateSupport(final String code1, final String code2) {
+        return transactionAmount == 0 ?
+               0.0 :
+               1.0 * estimateCount(code1, code2) / transactionAmount;
+    }
+
+    /**
+     * Returns at most <code>k</code> of the most attended courses.
+     *
+     * @param  k the maximum amount of courses.
+     * @return the courses by descending estimated count.
+     */
+    public List<Estimate> getTopCourses(final int k) {
+        final List<Estimate> ret = new ArrayList<>();
+
+        for (final SpaceSaving.Counter counter : topCourses.getTop(k)) {
+            ret.add(toEstimate(
+                    Collections.singletonList(
+                            codeList.get((int) counter.getKey())),
+                    counter,
+                    courseCounts.estimate(counter.getKey())));
+        }
+
+        sort(ret);
+        return ret;
+    }
+
+    /**
+     * Returns at most <code>k</code> of the most attended pairs of courses.
+     *
+     * @param  k the maximum amount of pairs.
+     * @return the pairs by descending estimated count.
+     */
+    public List<Estimate> getTopPairs(final int k) {
+        final List<Estimate> ret = new ArrayList<>();
+
+        for (final SpaceSaving.Counter counter : topPairs.getTop(k)) {
+            final String code1 = codeList.get((int)(counter.getKey() >>> 32));
+            final String code2 = codeList.get((int) counter.getKey());
+
+            ret.add(toEstimate(code1.compareTo(code2) < 0 ?
+                               Arrays.asList(code1, code2) :
+                               Arrays.asList(code2, code1),
+                               counter,
+                               pairCounts.estimate(counter.getKey())));
+        }
+
+        sort(ret);
+        return ret;
+    }
+
+    /**
+     * Returns the line parsed into its course codes.
+     */
+    static List<String> parseCodes(final String line) {
+        final String[] parts = handleCourseNames(line.split(" "));
+        final int totalCourses = (parts.length - 1) / TOKENS_PER_ENTRY;
+        final List<String> ret = new ArrayList<>(totalCourses);
+
+        for (int i = 0; i < totalCourses; ++i) {
+            ret.add(parts[2 + i * TOKENS_PER_ENTRY]);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Combines the two bounds: the Space-Saving count minus its error is a
+     * lower bound and the Count-Min estimate an upper bound.
+     */
+    private static Estimate toEstimate(final List<String> codeList,
+                                       final SpaceSaving.Counter counter,
+                                       final long sketchCount) {
+        final long upper = Math.min(counter.getCount(), sketchCount);
+        final long lower = counter.getCount() - counter.getError();
+        return new Estimate(codeList, upper, Math.max(0L, upper - lower));
+    }
+
+    private static void sort(final List<Estimate> list) {
+        Collections.sort(list, new Comparator<Estimate>() {
+            @Override
+            public int compare(final Estimate o1, final Estimate o2) {
+                final int cmp = Long.compare(o2.count, o1.count);
+                return cmp != 0 ?
+                       cmp :
+                       o1.codeList.toString().compareTo(
+                               o2.codeList.toString());
+            }
+        });
+    }
+
+    private static long pairKey(final int id1, final int id2) {
+        return ((long) id1 << 32) | id2;
+    }
+}
@@ -35,7 +35,7 @@ public class DataLoaderv1 extends DataLoader {
      * The string denoting that a student passed a course with binary
      * (passed/failed) grading mode.
      */
-    private static final String COURSE_PASSED_TOKEN = "Hyv.";
+    static final String COURSE_PASSED_TOKEN = "Hyv.";
     
     /**
      * The string denoting that a student was not attending the course exam.
@@ -90,7 +90,7 @@ public class DataLoaderv1 extends DataLoader {
     /**
      * Denotes the amount of tokens per course attendance entry.
      */
-    private static final int TOKENS_PER_ENTRY = 5;
+    static final int TOKENS_PER_ENTRY = 5;
     
     /**
      * The list of courses.
@@ -117,6 +117,36 @@ public class DataLoaderv1 extends DataLoader {
      */
     private Map<Course, Course> courses;
     
+    /**
+     * The sketch fed with the courses of each student, if any.
+     */
+    private CourseSketch sketch;
+    
+    /**
+     * Whether the loaded storages keep their entry tables off the heap.
+     */
+    private boolean offHeap;
+    
+    /**
+     * Sets the sketch fed with the courses of each student during the 
+     * subsequent loads. Passing <code>null</code> disables sketching.
+     * 
+     * @param sketch the sketch or <code>null</code>.
+     */
+    public void setSketch(final CourseSketch sketch) {
+        this.sketch = sketch;
+    }
+    
+    /**
+     * Sets whether the subsequently loaded storages keep their entry tables 
+     * in direct memory outside of the heap.
+     * 
+     * @param offHeap <code>true</code> to store the entries off the heap.
+     */
+    public void setOffHeap(final boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+    
     @Override
     public AppDataStorage load(File file) {
         checkFile(file);
@@ -144,7 +174,13 @@ public class DataLoaderv1 extends DataLoader {
         }
         
         courseList.addAll(courses.keySet());
-        return new AppDataStorage(studentList, courseList, entryList);
+        
+        final AppDataStorage storage = 
+                new AppDataStorage(studentList, courseList, entryList, offHeap);
+        
+        // The storage keeps its own columnar copy of the entries.
+        entryList = null;
+        return storage;
     }
     
     private void parseLine(final String line) {
@@ -161,6 +197,16 @@ public class DataLoaderv1 extends DataLoader {
         for (int i = 0; i < totalCourses; ++i) {
             processCourse(student, parts, 1 + i * TOKENS_PER_ENTRY);
         }
+        
+        if (sketch != null) {
+            final List<String> codeList = new ArrayList<>(totalCourses);
+            
+            for (int i = 0; i < totalCourses; ++i) {
+                codeList.add(parts[2 + i * TOKENS_PER_ENTRY]);
+            }
+            
+            sketch.add(codeList);
+        }
     }
     
     private void processCourse(
@@ -251,7 +297,7 @@ public class DataLoaderv1 extends DataLoader {
      * @param  parts the individual words.
      * @return the joined string.
      */
-    private String[] handleCourseNames(final String[] parts) {
+    static String[] handleCourseNames(final String[] parts) {
         final List<String> partList = new ArrayList<>(parts.length);
         
         for (int i = 0; i < parts.length; ++i) {
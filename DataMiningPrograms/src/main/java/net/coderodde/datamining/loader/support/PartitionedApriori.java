@@ -0,0 +1,687 @@
+package net.coderodde.datamining.loader.support;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import net.coderodde.datamining.model.Course;
+import static net.coderodde.datamining.loader.support.DataLoaderv1.COURSE_PASSED_TOKEN;
+import static net.coderodde.datamining.loader.support.DataLoaderv1.TOKENS_PER_ENTRY;
+import static net.coderodde.datamining.loader.support.DataLoaderv1.handleCourseNames;
+import static net.coderodde.datamining.model.Course.createCourse;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkFileExists;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkFileIsRegular;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class mines the frequent course sets of a data file in the
+ * {@link DataLoaderv1} format without loading the file as a whole. It
+ * implements the two-pass partition algorithm of Savasere, Omiecinski and
+ * Navathe:
+ * <ol>
+ *   <li>The file is streamed in partitions small enough to fit in the memory
+ *       budget. The itemsets frequent within each partition are mined in
+ *       memory and spilled, sorted, to a file of their own. Any globally
+ *       frequent itemset is locally frequent in at least one partition.</li>
+ *   <li>The spill files are merged into a sorted stream of distinct
+ *       candidates, and the file is streamed once more to count the global
+ *       support of each candidate. Should the candidates not fit in the
+ *       memory budget at once, they are counted in several passes.</li>
+ * </ol>
+ * A transaction is the set of distinct courses on a line of the file; only
+ * the course dictionary is kept in memory between the partitions. This class
+ * is not thread-safe.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class PartitionedApriori {
+
+    /**
+     * A set of courses with the amount of transactions containing it.
+     */
+    public static final class FrequentItemset {
+
+        private final List<Course> courseList;
+        private final int count;
+
+        FrequentItemset(final List<Course> courseList, final int count) {
+            this.courseList = courseList;
+            this.count = count;
+        }
+
+        /**
+         * Returns the courses of this itemset sorted by code.
+         *
+         * @return the list of courses.
+         */
+        public List<Course> getCourseList() {
+            return courseList;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * The estimated amount of bytes per buffered transaction besides its
+     * items: the array header, the list slot and the bitmap entries.
+     */
+    private static final long TRANSACTION_OVERHEAD_BYTES = 64L;
+
+    /**
+     * The estimated amount of bytes per counted candidate besides its items:
+     * the trie node, its hash map entry and the boxed key.
+     */
+    private static final long CANDIDATE_OVERHEAD_BYTES = 160L;
+
+    /**
+     * Absorbs the rounding error of the support thresholds.
+     */
+    private static final double EPSILON = 1e-9;
+
+    private final File file;
+    private final long memoryBudget;
+    private final File spillDirectory;
+
+    /**
+     * Maps each course code to its item ID.
+     */
+    private final Map<String, Integer> itemMap = new HashMap<>();
+
+    /**
+     * The courses indexed by item ID.
+     */
+    private final List<Course> itemList = new ArrayList<>();
+
+    private int transactionAmount;
+    private int partitionAmount;
+    private int candidateAmount;
+    private int countingPassAmount;
+
+    /**
+     * Constructs a miner over <code>file</code>.
+     *
+     * @param file           the data file.
+     * @param memoryBudget   the amount of bytes the buffered transactions and
+     *                       the counted candidates may take.
+     * @param spillDirectory the directory of the temporary spill files.
+     */
+    public PartitionedApriori(final File file,
+                              final long memoryBudget,
+                              final File spillDirectory) {
+        checkNotNull(file, "The file is null.");
+        checkFileExists(file);
+        checkFileIsRegular(file);
+        checkNotLess(memoryBudget,
+                     1L,
+                     "The memory budget must be positive. Received: " +
+                     memoryBudget);
+        checkNotNull(spillDirectory, "The spill directory is null.");
+
+        if (!spillDirectory.isDirectory()) {
+            throw new IllegalArgumentException(
+                    "\"" + spillDirectory.getAbsolutePath() +
+                    "\" is not a directory.");
+        }
+
+        this.file = file;
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Mines the course sets contained by at least a fraction
+     * <code>minSupport</code> of all transactions.
+     *
+     * @param  minSupport the minimum support within <tt>(0, 1]</tt>.
+     * @return the frequent itemsets by descending count.
+     * @throws IOException if reading the file or a spill file fails.
+     */
+    public List<FrequentItemset> mine(final double minSupport)
+    throws IOException {
+        if (!(minSupport > 0.0 && minSupport <= 1.0)) {
+            throw new IllegalArgumentException(
+                    "The minimum support must be within (0, 1]. Received: " +
+                    minSupport);
+        }
+
+        itemMap.clear();
+        itemList.clear();
+        transactionAmount = 0;
+        partitionAmount = 0;
+        candidateAmount = 0;
+        countingPassAmount = 0;
+
+        final List<File> spillList = new ArrayList<>();
+
+        try {
+            // Pass 1: mine each partition and spill its local itemsets.
+            try (final BufferedReader reader =
+                    new BufferedReader(new FileReader(file))) {
+                final List<int[]> partition = new ArrayList<>();
+                long bytes = 0L;
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+
+                    final int[] transaction = parseTransaction(line, true);
+                    partition.add(transaction);
+                    ++transactionAmount;
+                    bytes += TRANSACTION_OVERHEAD_BYTES +
+                             4L * transaction.length;
+
+                    if (bytes >= memoryBudget) {
+                        spillList.add(spill(mine(partition, minSupport)));
+                        partition.clear();
+                        bytes = 0L;
+                    }
+                }
+
+                if (!partition.isEmpty()) {
+                    spillList.add(spill(mine(partition, minSupport)));
+                }
+            }
+
+            partitionAmount = spillList.size();
+
+            // Pass 2: count the distinct candidates over the whole file.
+            final int minCount =
+                    (int) Math.ceil(minSupport * transactionAmount - EPSILON);
+            final List<FrequentItemset> ret = new ArrayList<>();
+
+            try (final CandidateMerger merger =
+                    new CandidateMerger(spillList)) {
+                int[] candidate = merger.next();
+
+                while (candidate != null) {
+                    final Node root = new Node();
+                    final List<Node> candidateList = new ArrayList<>();
+                    long candidateBytes = 0L;
+
+                    while (candidate != null &&
+                            candidateBytes < memoryBudget) {
+                        candidateList.add(root.insert(candidate));
+                        candidateBytes += CANDIDATE_OVERHEAD_BYTES +
+                                          4L * candidate.length;
+                        candidate = merger.next();
+                    }
+
+                    candidateAmount += candidateList.size();
+                    count(root);
+
+                    for (final Node node : candidateList) {
+                        if (node.count >= minCount) {
+                            ret.add(toFrequentItemset(node));
+                        }
+                    }
+                }
+            }
+
+            sort(ret);
+            return ret;
+        } finally {
+            for (final File spill : spillList) {
+                spill.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of transactions in the file after mining.
+     *
+     * @return the amount of transactions.
+     */
+    public int getTransactionAmount() {
+        return transactionAmount;
+    }
+
+    /**
+     * Returns the amount of partitions the file was mined in.
+     *
+     * @return the amount of partitions.
+     */
+    public int getPartitionAmount() {
+        return partitionAmount;
+    }
+
+    /**
+     * Returns the amount of distinct locally frequent itemsets, that is, the
+     * amount of candidates counted in the second pass.
+     *
+     * @return the amount of candidates.
+     */
+    public int getCandidateAmount() {
+        return candidateAmount;
+    }
+
+    /**
+     * Returns the amount of times the file was read in the second pass.
+     *
+     * @return the amount of counting passes.
+     */
+    public int getCountingPassAmount() {
+        return countingPassAmount;
+    }
+
+    /**
+     * Returns the sorted, distinct item IDs of the courses on a line. If
+     * <code>register</code> is set, unseen courses are added to the
+     * dictionary; otherwise, all the courses must be known already.
+     */
+    private int[] parseTransaction(final String line, final boolean register) {
+        final String[] parts = handleCourseNames(line.split(" "));
+        final int totalCourses = (parts.length - 1) / TOKENS_PER_ENTRY;
+        final int[] items = new int[totalCourses];
+
+        for (int i = 0; i < totalCourses; ++i) {
+            final int startIndex = 1 + i * TOKENS_PER_ENTRY;
+            final String code = parts[startIndex + 1];
+            Integer item = itemMap.get(code);
+
+            if (register) {
+                item = register(item, parts, startIndex);
+            }
+
+            items[i] = item;
+        }
+
+        Arrays.sort(items);
+
+        int amount = 0;
+
+        for (int i = 0; i < items.length; ++i) {
+            if (amount == 0 || items[amount - 1] != items[i]) {
+                items[amount++] = items[i];
+            }
+        }
+
+        return Arrays.copyOf(items, amount);
+    }
+
+    /**
+     * Adds the course of an entry to the dictionary as {@link DataLoaderv1}
+     * would: a course with any "passed" grade uses the binary scale.
+     */
+    private int register(final Integer item,
+                         final String[] parts,
+                         final int startIndex) {
+        final boolean passed =
+                parts[startIndex + 4].equals(COURSE_PASSED_TOKEN);
+
+        if (item != null &&
+                (!passed || itemList.get(item).getGradingMode() ==
+                            Course.GRADING_MODE_PASS_FAIL)) {
+            return item;
+        }
+
+        final String courseNameRaw = parts[startIndex + 2].trim();
+        final Course.GradingModeSelector selector =
+                createCourse()
+                .withName(courseNameRaw.substring(
+                        1, courseNameRaw.length() - 1))
+                .withCode(parts[startIndex + 1]);
+        final float credits = Float.parseFloat(parts[startIndex + 3]);
+        final Course course = passed ?
+                selector.withBinaryScale().withCredits(credits) :
+                selector.withNormalScale().withCredits(credits);
+
+        if (item != null) {
+            itemList.set(item, course);
+            return item;
+        }
+
+        itemMap.put(course.getCode(), itemList.size());
+        itemList.add(course);
+        return itemList.size() - 1;
+    }
+
+    /**
+     * Mines the itemsets frequent within a partition by intersecting the
+     * transaction bitmaps of the items depth first.
+     */
+    private List<int[]> mine(final List<int[]> partition,
+                             final double minSupport) {
+        final int minCount =
+                Math.max(1, (int) Math.ceil(minSupport * partition.size() -
+                                            EPSILON));
+        final CompressedBitmap.Builder[] builders =
+                new CompressedBitmap.Builder[itemList.size()];
+
+        for (int t = 0; t < partition.size(); ++t) {
+            for (final int item : partition.get(t)) {
+                if (builders[item] == null) {
+                    builders[item] = new CompressedBitmap.Builder();
+                }
+
+                builders[item].add(t);
+            }
+        }
+
+        final List<Integer> itemIdList = new ArrayList<>();
+        final List<CompressedBitmap> bitmapList = new ArrayList<>();
+
+        for (int item = 0; item < builders.length; ++item) {
+            if (builders[item] != null) {
+                final CompressedBitmap bitmap = builders[item].build();
+
+                if (bitmap.getCardinality() >= minCount) {
+                    itemIdList.add(item);
+                    bitmapList.add(bitmap);
+                }
+            }
+        }
+
+        final List<int[]> ret = new ArrayList<>();
+        extend(new int[0], itemIdList, bitmapList, minCount, ret);
+        return ret;
+    }
+
+    private static void extend(final int[] prefix,
+                               final List<Integer> itemIdList,
+                               final List<CompressedBitmap> bitmapList,
+                               final int minCount,
+                               final List<int[]> out) {
+        for (int i = 0; i < itemIdList.size(); ++i) {
+            final int[] itemset = Arrays.copyOf(prefix, prefix.length + 1);
+            itemset[prefix.length] = itemIdList.get(i);
+            out.add(itemset);
+
+            final List<Integer> nextItemIdList = new ArrayList<>();
+            final List<CompressedBitmap> nextBitmapList = new ArrayList<>();
+
+            for (int j = i + 1; j < itemIdList.size(); ++j) {
+                final CompressedBitmap bitmap =
+                        CompressedBitmap.and(bitmapList.get(i),
+                                             bitmapList.get(j));
+
+                if (bitmap.getCardinality() >= minCount) {
+                    nextItemIdList.add(itemIdList.get(j));
+                    nextBitmapList.add(bitmap);
+                }
+            }
+
+            if (!nextItemIdList.isEmpty()) {
+                extend(itemset, nextItemIdList, nextBitmapList, minCount, out);
+            }
+        }
+    }
+
+    /**
+     * Writes the itemsets in lexicographic order to a new spill file.
+     */
+    private File spill(final List<int[]> itemsetList) throws IOException {
+        Collections.sort(itemsetList, ITEMSET_COMPARATOR);
+
+        final File spill =
+                Files.createTempFile(spillDirectory.toPath(),
+                                     "partition",
+                                     ".spill").toFile();
+
+        try (final DataOutputStream out =
+                new DataOutputStream(
+                        new BufferedOutputStream(
+                                new FileOutputStream(spill)))) {
+            for (final int[] itemset : itemsetList) {
+                out.writeInt(itemset.length);
+
+                for (final int item : itemset) {
+                    out.writeInt(item);
+                }
+            }
+        } catch (final IOException ex) {
+            spill.delete();
+            throw ex;
+        }
+
+        return spill;
+    }
+
+    /**
+     * Streams the file once and counts the candidates in the trie.
+     */
+    private void count(final Node root) throws IOException {
+        ++countingPassAmount;
+
+        try (final BufferedReader reader =
+                new BufferedReader(new FileReader(file))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    root.count(parseTransaction(line, false), 0);
+                }
+            }
+        }
+    }
+
+    private FrequentItemset toFrequentItemset(final Node node) {
+        final List<Course> courseList = new ArrayList<>(node.itemset.length);
+
+        for (final int item : node.itemset) {
+            courseList.add(itemList.get(item));
+        }
+
+        Collections.sort(courseList);
+        return new FrequentItemset(Collections.unmodifiableList(courseList),
+                                   node.count);
+    }
+
+    private static void sort(final List<FrequentItemset> list) {
+        Collections.sort(list, new Comparator<FrequentItemset>() {
+            @Override
+            public int compare(final FrequentItemset o1,
+                               final FrequentItemset o2) {
+                int cmp = Integer.compare(o2.count, o1.count);
+
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                cmp = Integer.compare(o1.courseList.size(),
+                                      o2.courseList.size());
+
+                for (int i = 0; cmp == 0 && i < o1.courseList.size(); ++i) {
+                    cmp = o1.courseList.get(i)
+                                       .compareTo(o2.courseList.get(i));
+                }
+
+                return cmp;
+            }
+        });
+    }
+
+    /**
+     * Orders the itemsets lexicographically; a prefix precedes its
+     * extensions.
+     */
+    private static final Comparator<int[]> ITEMSET_COMPARATOR =
+            new Comparator<int[]>() {
+        @Override
+        public int compare(final int[] o1, final int[] o2) {
+            final int length = Math.min(o1.length, o2.length);
+
+            for (int i = 0; i < length; ++i) {
+                if (o1[i] != o2[i]) {
+                    return Integer.compare(o1[i], o2[i]);
+                }
+            }
+
+            return Integer.compare(o1.length, o2.length);
+        }
+    };
+
+    /**
+     * A node of the candidate trie. The path from the root spells the items
+     * of the node; a node is a candidate if its itemset is set.
+     */
+    private static final class Node {
+
+        private final Map<Integer, Node> children = new HashMap<>();
+        private int[] itemset;
+        private int count;
+
+        Node insert(final int[] candidate) {
+            Node node = this;
+
+            for (final int item : candidate) {
+                Node child = node.children.get(item);
+
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(item, child);
+                }
+
+                node = child;
+            }
+
+            node.itemset = candidate;
+            return node;
+        }
+
+        /**
+         * Counts the candidates below this node contained by the sorted
+         * items <tt>transaction[start, length)</tt>.
+         */
+        void count(final int[] transaction, final int start) {
+            if (children.isEmpty()) {
+                return;
+            }
+
+            for (int i = start; i < transaction.length; ++i) {
+                final Node child = children.get(transaction[i]);
+
+                if (child != null) {
+                    if (child.itemset != null) {
+                        ++child.count;
+                    }
+
+                    child.count(transaction, i + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the sorted spill files into one sorted stream of distinct
+     * itemsets.
+     */
+    private static final class CandidateMerger implements Closeable {
+
+        private final List<DataInputStream> inputList = new ArrayList<>();
+        private final PriorityQueue<Head> queue = new PriorityQueue<>();
+        private int[] previous;
+
+        CandidateMerger(final List<File> spillList) throws IOException {
+            try {
+                for (final File spill : spillList) {
+                    final DataInputStream in =
+                            new DataInputStream(
+                                    new BufferedInputStream(
+                                            new FileInputStream(spill)));
+                    inputList.add(in);
+                    advance(in);
+                }
+            } catch (final IOException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        /**
+         * Returns the next distinct itemset, or <code>null</code> if all the
+         * spill files are exhausted.
+         */
+        int[] next() throws IOException {
+            while (!queue.isEmpty()) {
+                final Head head = queue.poll();
+                advance(head.in);
+
+                if (previous == null ||
+                        ITEMSET_COMPARATOR.compare(previous,
+                                                   head.itemset) != 0) {
+                    previous = head.itemset;
+                    return previous;
+                }
+            }
+
+            return null;
+        }
+
+        private void advance(final DataInputStream in) throws IOException {
+            final int length;
+
+            try {
+                length = in.readInt();
+            } catch (final EOFException ex) {
+                return;
+            }
+
+            final int[] itemset = new int[length];
+
+            for (int i = 0; i < length; ++i) {
+                itemset[i] = in.readInt();
+            }
+
+            queue.add(new Head(itemset, in));
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException exception = null;
+
+            for (final DataInputStream in : inputList) {
+                try {
+                    in.close();
+                } catch (final IOException ex) {
+                    if (exception == null) {
+                        exception = ex;
+                    }
+                }
+            }
+
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+
+    private static final class Head implements Comparable<Head> {
+
+        private final int[] itemset;
+        private final DataInputStream in;
+
+        Head(final int[] itemset, final DataInputStream in) {
+            this.itemset = itemset;
+            this.in = in;
+        }
+
+        @Override
+        public int compareTo(final Head o) {
+            return ITEMSET_COMPARATOR.compare(itemset, o.itemset);
+        }
+    }
+}
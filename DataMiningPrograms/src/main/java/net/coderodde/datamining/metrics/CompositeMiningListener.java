@@ -0,0 +1,42 @@
+package net.coderodde.datamining.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This listener forwards the metrics to several listeners in order.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class CompositeMiningListener implements MiningListener {
+
+    private final List<MiningListener> listenerList;
+
+    public CompositeMiningListener(final MiningListener... listeners) {
+        checkNotNull(listeners, "The listener array is null.");
+        this.listenerList = new ArrayList<>(Arrays.asList(listeners));
+
+        for (final MiningListener listener : listenerList) {
+            checkNotNull(listener, "A listener is null.");
+        }
+    }
+
+    @Override
+    public void levelCompleted(final LevelMetrics metrics) {
+        for (final MiningListener listener : listenerList) {
+            listener.levelCompleted(metrics);
+        }
+    }
+
+    @Override
+    public void miningCompleted(final String algorithm,
+                                final int levels,
+                                final long totalNanos) {
+        for (final MiningListener listener : listenerList) {
+            listener.miningCompleted(algorithm, levels, totalNanos);
+        }
+    }
+}
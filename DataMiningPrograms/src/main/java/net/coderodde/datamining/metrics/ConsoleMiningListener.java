@@ -0,0 +1,37 @@
+package net.coderodde.datamining.metrics;
+
+import java.io.PrintStream;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This listener prints the metrics of each level to a print stream.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class ConsoleMiningListener implements MiningListener {
+
+    private final PrintStream out;
+
+    public ConsoleMiningListener() {
+        this(System.out);
+    }
+
+    public ConsoleMiningListener(final PrintStream out) {
+        checkNotNull(out, "The print stream is null.");
+        this.out = out;
+    }
+
+    @Override
+    public void levelCompleted(final LevelMetrics metrics) {
+        out.println(metrics);
+    }
+
+    @Override
+    public void miningCompleted(final String algorithm,
+                                final int levels,
+                                final long totalNanos) {
+        out.println(algorithm + " completed " + levels + " levels in " +
+                    totalNanos / 1000000 + " ms.");
+    }
+}
@@ -0,0 +1,117 @@
+package net.coderodde.datamining.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This listener accumulates the metrics of all mining runs and exposes them
+ * as a standard MBean, so that a long mining job may be watched with any JMX
+ * console.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class JmxMiningListener
+implements MiningListener, JmxMiningListenerMBean {
+
+    /**
+     * The default object name of the MBean.
+     */
+    public static final String DEFAULT_OBJECT_NAME =
+            "net.coderodde.datamining:type=MiningMetrics";
+
+    private long runs;
+    private long levels;
+    private long totalCandidates;
+    private long totalFrequent;
+    private long totalJoinNanos;
+    private long totalCountNanos;
+    private long maxSampledHeapBytes;
+    private String lastLevel = "";
+
+    /**
+     * Registers this listener with the platform MBean server under
+     * {@link #DEFAULT_OBJECT_NAME}.
+     *
+     * @return this listener.
+     * @throws JMException if the registration fails.
+     */
+    public JmxMiningListener register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer()
+                         .registerMBean(this,
+                                        new ObjectName(DEFAULT_OBJECT_NAME));
+        return this;
+    }
+
+    @Override
+    public synchronized void levelCompleted(final LevelMetrics metrics) {
+        ++levels;
+        totalCandidates += metrics.getCandidates();
+        totalFrequent += metrics.getFrequent();
+        totalJoinNanos += metrics.getJoinNanos();
+        totalCountNanos += metrics.getCountNanos();
+        maxSampledHeapBytes = Math.max(maxSampledHeapBytes,
+                                       metrics.getSampledHeapBytes());
+        lastLevel = metrics.toString();
+    }
+
+    @Override
+    public synchronized void miningCompleted(final String algorithm,
+                                             final int levels,
+                                             final long totalNanos) {
+        ++runs;
+    }
+
+    @Override
+    public synchronized long getRuns() {
+        return runs;
+    }
+
+    @Override
+    public synchronized long getLevels() {
+        return levels;
+    }
+
+    @Override
+    public synchronized long getTotalCandidates() {
+        return totalCandidates;
+    }
+
+    @Override
+    public synchronized long getTotalFrequent() {
+        return totalFrequent;
+    }
+
+    @Override
+    public synchronized long getTotalJoinMillis() {
+        return totalJoinNanos / 1000000;
+    }
+
+    @Override
+    public synchronized long getTotalCountMillis() {
+        return totalCountNanos / 1000000;
+    }
+
+    @Override
+    public synchronized long getMaxSampledHeapBytes() {
+        return maxSampledHeapBytes;
+    }
+
+    @Override
+    public synchronized String getLastLevel() {
+        return lastLevel;
+    }
+
+    @Override
+    public synchronized void reset() {
+        runs = 0L;
+        levels = 0L;
+        totalCandidates = 0L;
+        totalFrequent = 0L;
+        totalJoinNanos = 0L;
+        totalCountNanos = 0L;
+        maxSampledHeapBytes = 0L;
+        lastLevel = "";
+    }
+}
@@ -0,0 +1,53 @@
+package net.coderodde.datamining.metrics;
+
+/**
+ * This interface defines the management interface of
+ * {@link JmxMiningListener}.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public interface JmxMiningListenerMBean {
+
+    /**
+     * Returns the amount of completed mining runs.
+     *
+     * @return the amount of runs.
+     */
+    long getRuns();
+
+    /**
+     * Returns the amount of completed levels over all runs.
+     *
+     * @return the amount of levels.
+     */
+    long getLevels();
+
+    long getTotalCandidates();
+
+    long getTotalFrequent();
+
+    long getTotalJoinMillis();
+
+    long getTotalCountMillis();
+
+    /**
+     * Returns the largest sampled heap use of any level.
+     *
+     * @return the sampled heap use in bytes.
+     * @see LevelMetrics#getSampledHeapBytes()
+     */
+    long getMaxSampledHeapBytes();
+
+    /**
+     * Returns the last completed level as text.
+     *
+     * @return the description of the last level, or an empty string.
+     */
+    String getLastLevel();
+
+    /**
+     * Resets all the counters.
+     */
+    void reset();
+}
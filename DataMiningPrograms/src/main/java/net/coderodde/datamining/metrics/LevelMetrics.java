@@ -0,0 +1,101 @@
+package net.coderodde.datamining.metrics;
+
+/**
+ * This class holds the metrics of one level of a level-wise mining run: the
+ * amount of candidates generated and of those found frequent, the time spent
+ * on generating (joining) and on counting the candidates, and the memory use.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class LevelMetrics {
+
+    private final String algorithm;
+    private final int level;
+    private final int candidates;
+    private final int frequent;
+    private final long joinNanos;
+    private final long countNanos;
+    private final long allocatedBytes;
+    private final long sampledHeapBytes;
+
+    public LevelMetrics(final String algorithm,
+                        final int level,
+                        final int candidates,
+                        final int frequent,
+                        final long joinNanos,
+                        final long countNanos,
+                        final long allocatedBytes,
+                        final long sampledHeapBytes) {
+        this.algorithm = algorithm;
+        this.level = level;
+        this.candidates = candidates;
+        this.frequent = frequent;
+        this.joinNanos = joinNanos;
+        this.countNanos = countNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.sampledHeapBytes = sampledHeapBytes;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the level, which is the size of the patterns of the level.
+     *
+     * @return the level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public int getFrequent() {
+        return frequent;
+    }
+
+    public long getJoinNanos() {
+        return joinNanos;
+    }
+
+    public long getCountNanos() {
+        return countNanos;
+    }
+
+    /**
+     * Returns the amount of bytes allocated by the mining thread and the
+     * threads of the parallel pool during the level, or <code>-1</code> if
+     * the JVM does not measure it.
+     *
+     * @return the amount of allocated bytes.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the larger of the amounts of used heap sampled after the join
+     * and after the counting of the level. This is not the peak of the
+     * level, since the heap is not sampled while the candidates are counted.
+     *
+     * @return the sampled heap use in bytes.
+     */
+    public long getSampledHeapBytes() {
+        return sampledHeapBytes;
+    }
+
+    @Override
+    public String toString() {
+        return algorithm + " k = " + level +
+               ", candidates: " + candidates +
+               ", frequent: " + frequent +
+               ", join: " + joinNanos / 1000000 + " ms" +
+               ", count: " + countNanos / 1000000 + " ms" +
+               ", allocated: " + allocatedBytes + " B" +
+               ", sampled heap: " + sampledHeapBytes + " B";
+    }
+}
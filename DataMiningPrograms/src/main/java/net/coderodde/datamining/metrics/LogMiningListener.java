@@ -0,0 +1,128 @@
+package net.coderodde.datamining.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import net.coderodde.datamining.utils.JsonWriter;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This listener appends one record per completed level to a log, either as
+ * CSV with a header line or as JSON with one object per line. The records of
+ * concurrent runs are not interleaved. Since the listener methods may not
+ * throw, the first write error stops the logging and is kept for
+ * {@link #getError()}.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class LogMiningListener implements MiningListener, Closeable {
+
+    /**
+     * The log formats.
+     */
+    public enum Format {
+        CSV,
+        JSON
+    }
+
+    private static final String CSV_HEADER =
+            "algorithm,level,candidates,frequent,join_ns,count_ns," +
+            "allocated_bytes,sampled_heap_bytes";
+
+    private final Writer writer;
+    private final Format format;
+    private IOException error;
+
+    /**
+     * Creates a listener logging to <code>writer</code>. In the CSV format the
+     * header line is written immediately.
+     *
+     * @param  writer the writer to log to.
+     * @param  format the log format.
+     * @throws IOException if writing the header fails.
+     */
+    public LogMiningListener(final Writer writer, final Format format)
+    throws IOException {
+        checkNotNull(writer, "The writer is null.");
+        checkNotNull(format, "The format is null.");
+        this.writer = writer;
+        this.format = format;
+
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    @Override
+    public synchronized void levelCompleted(final LevelMetrics metrics) {
+        if (error != null) {
+            return;
+        }
+
+        try {
+            if (format == Format.CSV) {
+                writer.write(escapeCsv(metrics.getAlgorithm()) + "," +
+                             metrics.getLevel() + "," +
+                             metrics.getCandidates() + "," +
+                             metrics.getFrequent() + "," +
+                             metrics.getJoinNanos() + "," +
+                             metrics.getCountNanos() + "," +
+                             metrics.getAllocatedBytes() + "," +
+                             metrics.getSampledHeapBytes());
+            } else {
+                // The JSON writer is not closed, since that would close the
+                // log.
+                new JsonWriter(writer)
+                        .beginObject()
+                        .name("algorithm").value(metrics.getAlgorithm())
+                        .name("level").value(metrics.getLevel())
+                        .name("candidates").value(metrics.getCandidates())
+                        .name("frequent").value(metrics.getFrequent())
+                        .name("joinNanos").value(metrics.getJoinNanos())
+                        .name("countNanos").value(metrics.getCountNanos())
+                        .name("allocatedBytes")
+                        .value(metrics.getAllocatedBytes())
+                        .name("sampledHeapBytes")
+                        .value(metrics.getSampledHeapBytes())
+                        .endObject();
+            }
+
+            writer.write('\n');
+            writer.flush();
+        } catch (final IOException ex) {
+            error = ex;
+        }
+    }
+
+    @Override
+    public void miningCompleted(final String algorithm,
+                                final int levels,
+                                final long totalNanos) {
+        // The log holds only the levels.
+    }
+
+    /**
+     * Returns the error that stopped the logging.
+     *
+     * @return the error, or <code>null</code> if no error has occurred.
+     */
+    public synchronized IOException getError() {
+        return error;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private static String escapeCsv(final String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+            return s;
+        }
+
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
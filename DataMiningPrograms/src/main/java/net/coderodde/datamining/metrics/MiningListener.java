@@ -0,0 +1,30 @@
+package net.coderodde.datamining.metrics;
+
+/**
+ * This interface defines the API for receiving the metrics of mining runs.
+ * The methods are called in the thread doing the mining, so several runs may
+ * report concurrently to the same listener.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public interface MiningListener {
+
+    /**
+     * Called when a level of a mining run is completed.
+     *
+     * @param metrics the metrics of the level.
+     */
+    void levelCompleted(final LevelMetrics metrics);
+
+    /**
+     * Called when a mining run is completed.
+     *
+     * @param algorithm  the name of the mining algorithm.
+     * @param levels     the amount of levels processed.
+     * @param totalNanos the duration of the run in nanoseconds.
+     */
+    void miningCompleted(final String algorithm,
+                         final int levels,
+                         final long totalNanos);
+}
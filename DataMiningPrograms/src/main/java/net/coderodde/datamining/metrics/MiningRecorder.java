@@ -0,0 +1,205 @@
+package net.coderodde.datamining.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import net.coderodde.datamining.utils.Parallel;
+
+/**
+ * This class measures a single level-wise mining run and reports the metrics
+ * of each level to a {@link MiningListener}. A level is measured by calling
+ * {@link #startLevel(int)}, {@link #joined(int)} after the candidates are
+ * generated and {@link #counted(int)} after they are counted. Without a
+ * listener the recorder does nothing, so the mining engines may use it
+ * unconditionally.
+ * <p>
+ * The allocated bytes of a level are those allocated by the mining thread
+ * and by the threads of the {@link Parallel} pool, which count the
+ * candidates of some levels. The pool is shared, so the allocations of other
+ * parallel work running at the same time are included too. The heap use is
+ * not tracked continuously: it is sampled after the join and after the
+ * counting, and the larger sample is reported.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class MiningRecorder {
+
+    /**
+     * The per-thread allocation counter of HotSpot, or <code>null</code> if
+     * it is not available.
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN;
+
+    static {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocationBean = null;
+
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            allocationBean = (com.sun.management.ThreadMXBean) bean;
+
+            if (!allocationBean.isThreadAllocatedMemorySupported()
+                    || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+                allocationBean = null;
+            }
+        }
+
+        ALLOCATION_BEAN = allocationBean;
+    }
+
+    private final String algorithm;
+    private final MiningListener listener;
+    private final long runStart;
+
+    private int level;
+    private int levels;
+    private int candidates;
+    private long levelStart;
+    private long joinEnd;
+    private long[] allocationThreadIds;
+    private long[] allocationStarts;
+    private long sampledHeapBytes;
+
+    /**
+     * Starts measuring a run.
+     *
+     * @param algorithm the name of the mining algorithm.
+     * @param listener  the listener to report to, or <code>null</code>.
+     */
+    public MiningRecorder(final String algorithm,
+                          final MiningListener listener) {
+        this.algorithm = algorithm;
+        this.listener = listener;
+        this.runStart = listener == null ? 0L : System.nanoTime();
+    }
+
+    /**
+     * Starts measuring the level <code>level</code>.
+     *
+     * @param level the level, that is, the size of its patterns.
+     */
+    public void startLevel(final int level) {
+        if (listener == null) {
+            return;
+        }
+
+        this.level = level;
+        this.candidates = 0;
+        this.sampledHeapBytes = 0L;
+        this.allocationThreadIds = getAllocationThreadIds();
+        this.allocationStarts = getAllocatedBytes(allocationThreadIds);
+        this.levelStart = System.nanoTime();
+        this.joinEnd = levelStart;
+    }
+
+    /**
+     * Marks the end of the candidate generation of the current level.
+     *
+     * @param candidates the amount of generated candidates.
+     */
+    public void joined(final int candidates) {
+        if (listener == null) {
+            return;
+        }
+
+        this.joinEnd = System.nanoTime();
+        this.candidates = candidates;
+        sampleHeap();
+    }
+
+    /**
+     * Marks the end of the counting of the current level and reports the
+     * level.
+     *
+     * @param frequent the amount of frequent candidates.
+     */
+    public void counted(final int frequent) {
+        if (listener == null) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final long allocatedBytes = getAllocatedBytesSinceStart();
+        sampleHeap();
+        ++levels;
+
+        listener.levelCompleted(
+                new LevelMetrics(algorithm,
+                                 level,
+                                 candidates,
+                                 frequent,
+                                 joinEnd - levelStart,
+                                 now - joinEnd,
+                                 allocatedBytes,
+                                 sampledHeapBytes));
+    }
+
+    /**
+     * Reports the end of the run.
+     */
+    public void finish() {
+        if (listener != null) {
+            listener.miningCompleted(algorithm,
+                                     levels,
+                                     System.nanoTime() - runStart);
+        }
+    }
+
+    private void sampleHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        sampledHeapBytes = Math.max(sampledHeapBytes,
+                                    runtime.totalMemory() -
+                                    runtime.freeMemory());
+    }
+
+    /**
+     * Returns the bytes allocated by the mining thread and the pool threads
+     * since the start of the level, or <code>-1</code> if they are not
+     * measured. A pool thread started during the level counts from zero.
+     */
+    private long getAllocatedBytesSinceStart() {
+        if (allocationStarts == null) {
+            return -1L;
+        }
+
+        final long[] threadIds = getAllocationThreadIds();
+        final long[] ends = getAllocatedBytes(threadIds);
+        long ret = 0L;
+
+        for (int i = 0; i < threadIds.length; ++i) {
+            if (ends[i] < 0L) {
+                // The thread has died.
+                continue;
+            }
+
+            long start = 0L;
+
+            for (int j = 0; j < allocationThreadIds.length; ++j) {
+                if (allocationThreadIds[j] == threadIds[i]) {
+                    start = Math.max(allocationStarts[j], 0L);
+                    break;
+                }
+            }
+
+            ret += ends[i] - start;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the IDs of the calling thread and the pool threads.
+     */
+    private static long[] getAllocationThreadIds() {
+        final long[] poolIds = Parallel.getThreadIds();
+        final long[] ret = new long[poolIds.length + 1];
+        ret[0] = Thread.currentThread().getId();
+        System.arraycopy(poolIds, 0, ret, 1, poolIds.length);
+        return ret;
+    }
+
+    private static long[] getAllocatedBytes(final long[] threadIds) {
+        return ALLOCATION_BEAN == null ?
+               null :
+               ALLOCATION_BEAN.getThreadAllocatedBytes(threadIds);
+    }
+}
@@ -1,7 +1,9 @@
 package net.coderodde.datamining.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -10,14 +12,28 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import net.coderodde.datamining.metrics.MiningListener;
+import net.coderodde.datamining.metrics.MiningRecorder;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import net.coderodde.datamining.utils.Parallel;
 import static net.coderodde.datamining.model.Course.COURSE_FAILED_GRADE;
 import static net.coderodde.datamining.utils.Utils.containsAll;
-import static net.coderodde.datamining.utils.Utils.intersect;
 import static net.coderodde.datamining.utils.ValidationUtilities.checkNotMore;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
 
 /**
  * This singleton class is responsible for organizing all the data such, that 
  * it can be accessed efficiently.
+ * <p>
+ * All the indices are built and sorted in the constructor and never modified
+ * afterwards: the maps are filled before the constructor returns, the lists 
+ * handed out are unmodifiable, and the {@link EntryTable} and the student 
+ * bitmaps are immutable. The queries and the miners keep their work 
+ * structures, including the candidate sequences, in local variables. Hence a
+ * storage may be queried by any amount of threads at once without locking; 
+ * the only mutable state is the mining listener, which is volatile. 
+ * {@link QueryStressHarness} checks this by running mixed queries in 
+ * parallel against their single-threaded answers.
  * 
  * @author Rodion Efremov
  * @version 1.6
@@ -25,42 +41,59 @@ import static net.coderodde.datamining.utils.ValidationUtilities.checkNotMore;
 public class AppDataStorage {
     
     /**
-     * This map maps each student to the list of course attendance entries of
-     * that student.
+     * The columnar store of all the course attendance entries.
      */
-    private final Map<Student, List<CourseAttendanceEntry>> studentMap;
+    private final EntryTable table;
     
     /**
-     * This maps each student to the list of courses of that student.
+     * This map maps the name of each course to the actual course.
      */
-    private final Map<Student, List<Course>> studentToCourseListMap;
+    private final Map<String, Course> mapNameToCourse;
     
     /**
-     * This map maps each course to the list of course attendance entries of
-     * that course.
+     * The list containing all the courses sorted by code. The index of a 
+     * course in this list is the ordinal of that course.
      */
-    private final Map<Course, List<CourseAttendanceEntry>> courseMap;
+    private final List<Course> courseList;
     
     /**
-     * This map maps the name of each course to the actual course.
+     * This map maps each course to its ordinal.
      */
-    private final Map<String, Course> mapNameToCourse;
+    private final Map<Course, Integer> courseOrdinalMap;
     
     /**
-     * The structure mapping <tt>(student, course)</tt> tuple to the list of
-     * course attendances.
+     * The list of all students. The index of a student in this list is the
+     * ordinal of that student.
      */
-    private final Map<Student, Map<Course, List<CourseAttendanceEntry>>> 
-            matrix;
+    private final List<Student> studentOrdinalList;
     
     /**
-     * The list containing all the courses.
+     * This map maps each student to its ordinal.
      */
-    private final List<Course> courseList;
+    private final Map<Student, Integer> studentOrdinalMap;
+    
+    /**
+     * The bitmap of ordinals of the students that have attended each course,
+     * indexed by course ordinal.
+     */
+    private final CompressedBitmap[] courseBitmaps;
+    
+    /**
+     * The distinct course records appearing in the entries. Two records of 
+     * the same course may differ in grading mode or credits.
+     */
+    private final List<Course> courseVariantList;
     
     /**
-     * Constructs a new application data storage and establishes the maps for 
-     * faster data access.
+     * The listener receiving the metrics of the mining runs, or 
+     * <code>null</code> if the runs are not measured.
+     */
+    private volatile MiningListener miningListener;
+    
+    /**
+     * Constructs a new application data storage and establishes the indices
+     * for faster data access. The entries are copied into a columnar 
+     * {@link EntryTable}, so the input entry objects are not retained.
      * 
      * @param studentList the list of students.
      * @param courseList  the list of courses.
@@ -69,112 +102,503 @@ public class AppDataStorage {
     public AppDataStorage(final List<Student> studentList,
                           final List<Course> courseList,
                           final List<CourseAttendanceEntry> entryList) {
-        this.studentMap = new HashMap<>(studentList.size());
-        this.courseMap = new HashMap<>(courseList.size());
-        this.courseList = Collections.<Course>unmodifiableList(courseList);
+        this(studentList, courseList, entryList, false);
+    }
+    
+    /**
+     * Constructs a new application data storage and establishes the indices
+     * for faster data access. If <code>offHeap</code> is set, the entry 
+     * table is moved into direct memory once built, and the heap retains 
+     * only the student and course dictionaries and the course bitmaps.
+     * 
+     * @param studentList the list of students.
+     * @param courseList  the list of courses.
+     * @param entryList   the list of course attendance entries.
+     * @param offHeap     whether to store the entry table off the heap.
+     */
+    public AppDataStorage(final List<Student> studentList,
+                          final List<Course> courseList,
+                          final List<CourseAttendanceEntry> entryList,
+                          final boolean offHeap) {
+        this.studentOrdinalList = new ArrayList<>(studentList.size());
+        this.studentOrdinalMap = new HashMap<>(studentList.size());
         this.mapNameToCourse = new HashMap<>(courseList.size());
-        this.matrix = new HashMap<>(studentList.size());
-        this.studentToCourseListMap = new HashMap<>(studentList.size());
+        this.courseOrdinalMap = new HashMap<>(courseList.size());
+        
+        final Set<Course> courseSet = new HashSet<>(courseList);
+        
+        for (final Student student : studentList) {
+            addStudent(student);
+        }
         
         for (final CourseAttendanceEntry entry : entryList) {
-            final Student student = entry.getStudent();
-            final Course course = entry.getCourse();
-            
-            if (studentMap.containsKey(student)) {
-                studentMap.get(student).add(entry);
-            } else {
-                studentMap.put(student, initEntryList(entry));
-            }
-            
-            if (courseMap.containsKey(course)) {
-                courseMap.get(course).add(entry);
-            } else {
-                courseMap.put(course, initEntryList(entry));
-            }
+            addStudent(entry.getStudent());
+            courseSet.add(entry.getCourse());
         }
         
-        for (final Course course : courseMap.keySet()) {
+        this.courseVariantList = new ArrayList<>();
+        final int[] variants = computeCourseVariants(entryList);
+        final List<Course> sortedCourseList = new ArrayList<>(courseSet);
+        Collections.sort(sortedCourseList);
+        this.courseList = Collections.unmodifiableList(sortedCourseList);
+        
+        for (final Course course : sortedCourseList) {
+            courseOrdinalMap.put(course, courseOrdinalMap.size());
             mapNameToCourse.put(course.getName(), course);
         }
         
-        for (final Student student : studentList) {
-            final Map<Course, List<CourseAttendanceEntry>> map 
-                    = new HashMap<>();
-            
-            matrix.put(student, map);
-            
-            final List<CourseAttendanceEntry> entryListA = 
-                    studentMap.get(student);
+        final EntryTable heapTable = 
+                EntryTable.build(entryList,
+                                 studentOrdinalMap,
+                                 courseOrdinalMap,
+                                 computeCourseNameRanks(sortedCourseList),
+                                 studentOrdinalList.size(),
+                                 variants);
+        this.table = offHeap ? heapTable.toOffHeap() : heapTable;
+        this.courseBitmaps = new CompressedBitmap[sortedCourseList.size()];
+        
+        for (int c = 0; c < courseBitmaps.length; ++c) {
+            final int begin = table.getCourseBegin(c);
+            final int end = table.getCourseEnd(c);
+            final CompressedBitmap.Builder builder = 
+                    new CompressedBitmap.Builder(end - begin);
             
-            for (final CourseAttendanceEntry entry : entryListA) {
-                final Course course = entry.getCourse();
-                
-                if (map.containsKey(course)) {
-                    map.get(course).add(entry);
-                } else {
-                    final List<CourseAttendanceEntry> entryListB = 
-                            new ArrayList<>();
-                    entryListB.add(entry);
-                    map.put(course, entryListB);
-                    Collections.sort(entryListB);
-                }
+            for (int i = begin; i < end; ++i) {
+                builder.add(table.getStudent(table.getCourseEntry(i)));
             }
+            
+            courseBitmaps[c] = builder.build();
         }
+    }
+    
+    private void addStudent(final Student student) {
+        if (!studentOrdinalMap.containsKey(student)) {
+            studentOrdinalMap.put(student, studentOrdinalList.size());
+            studentOrdinalList.add(student);
+        }
+    }
+    
+    private int[] computeCourseVariants(
+            final List<CourseAttendanceEntry> entryList) {
+        final Map<List<Object>, Integer> variantMap = new HashMap<>();
+        final int[] variants = new int[entryList.size()];
+        int index = 0;
         
-        Collections.sort(courseList);
-        
-        for (final Student student : studentList) {
-            final List<Course> sortedCourseList = new ArrayList<>();
-            final Set<Course> courseSet = new HashSet<>();
+        for (final CourseAttendanceEntry entry : entryList) {
+            final Course course = entry.getCourse();
+            final List<Object> key = Arrays.<Object>asList(
+                    course.getCode(),
+                    course.getGradingMode(),
+                    course.getCredits());
             
-            for (final CourseAttendanceEntry entry : studentMap.get(student)) {
-                courseSet.add(entry.getCourse());
-            }
+            Integer variant = variantMap.get(key);
             
-            sortedCourseList.addAll(courseSet);
-//            Collections.sort(sortedCourseList, 
-//                             new CourseComparatorByEntries(courseMap));
+            if (variant == null) {
+                variant = courseVariantList.size();
+                variantMap.put(key, variant);
+                courseVariantList.add(course);
+            }
             
-            studentToCourseListMap.put(student, courseList);
+            variants[index++] = variant;
         }
+        
+        return variants;
     }
     
-    public List<Student> getStudentsFrom(final Course course,
-                                         final int year,
-                                         final int month) {
-        final List<CourseAttendanceEntry> entryList = courseMap.get(course);
-        final Set<Student> studentSet = new HashSet<>();
+    private static int[] computeCourseNameRanks(final List<Course> courseList) {
+        final List<Course> byName = new ArrayList<>(courseList);
         
-        for (final CourseAttendanceEntry entry : entryList) {
-            if (entry.getYear() >= year && entry.getMonth() >= month) {
-                studentSet.add(entry.getStudent());
+        Collections.sort(byName, new Comparator<Course>() {
+            @Override
+            public int compare(final Course o1, final Course o2) {
+                return o1.getName().compareTo(o2.getName());
             }
+        });
+        
+        final int[] ranks = new int[courseList.size()];
+        
+        for (int i = 0; i < ranks.length; ++i) {
+            ranks[Collections.binarySearch(courseList, byName.get(i))] = i;
         }
         
-        return new ArrayList<>(studentSet);
+        return ranks;
     }
     
+    /**
+     * Sets the listener receiving the per-level metrics of the level-wise
+     * mining methods. By default no listener is set and nothing is measured 
+     * or printed.
+     * 
+     * @param miningListener the listener, or <code>null</code> for none.
+     */
+    public void setMiningListener(final MiningListener miningListener) {
+        this.miningListener = miningListener;
+    }
+    
+    public MiningListener getMiningListener() {
+        return miningListener;
+    }
+    
+    /**
+     * Returns the columnar entry store backing this storage.
+     * 
+     * @return the entry table.
+     */
+    public EntryTable getEntryTable() {
+        return table;
+    }
+    
+    /**
+     * Returns the ordinal of the input course, which is the index of the 
+     * course in {@link #getCourseList()}.
+     * 
+     * @param  course the course whose ordinal to return.
+     * @return the ordinal of the course, or <code>-1</code> if the course is
+     *         not known.
+     */
+    public int getCourseOrdinal(final Course course) {
+        final Integer ordinal = course == null ? 
+                                null : 
+                                courseOrdinalMap.get(course);
+        return ordinal == null ? -1 : ordinal;
+    }
+    
+    /**
+     * Returns the students that have attended <code>course</code> at 
+     * <code>year</code>-<code>month</code> or later.
+     * 
+     * @param  course the target course.
+     * @param  year   the first year.
+     * @param  month  the first month of the first year.
+     * @return the list of students in ordinal order.
+     */
+    public List<Student> getStudentsFrom(final Course course,
+                                         final int year,
+                                         final int month) {
+        return toStudentList(
+                getStudentBitmapBetween(course,
+                                        EntryTable.toTime(year, month),
+                                        Integer.MAX_VALUE));
+    }
+    
+    /**
+     * Returns the students that have attended <code>course</code> at 
+     * <code>year</code>-<code>month</code> or earlier.
+     * 
+     * @param  course the target course.
+     * @param  year   the last year.
+     * @param  month  the last month of the last year.
+     * @return the list of students in ordinal order.
+     */
     public List<Student> getStudentsUntil(final Course course,
                                           final int year,
                                           final int month) {
-        final List<CourseAttendanceEntry> entryList = courseMap.get(course);
-        final Set<Student> studentSet = new HashSet<>();
+        return toStudentList(
+                getStudentBitmapBetween(course,
+                                        Integer.MIN_VALUE,
+                                        EntryTable.toTime(year, month) + 1));
+    }
+    
+    /**
+     * Returns the bitmap of the students that have attended 
+     * <code>course</code> within the time range 
+     * <tt>[fromTime, untilTime)</tt>. The times are as returned by 
+     * {@link EntryTable#toTime(int, int)}.
+     * 
+     * @param  course    the target course.
+     * @param  fromTime  the first time included in the range.
+     * @param  untilTime the first time past the range.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap getStudentBitmapBetween(final Course course,
+                                                    final int fromTime,
+                                                    final int untilTime) {
+        final int c = getCourseOrdinal(course);
         
-        for (final CourseAttendanceEntry entry : entryList) {
-            if (entry.getYear() <= year && entry.getMonth() <= month) {
-                studentSet.add(entry.getStudent());
+        if (c < 0 || fromTime >= untilTime) {
+            return CompressedBitmap.empty();
+        }
+        
+        final int begin = table.findCourseTime(c, fromTime);
+        final int end = table.findCourseTime(c, untilTime);
+        
+        if (begin == table.getCourseBegin(c) && end == table.getCourseEnd(c)) {
+            return courseBitmaps[c];
+        }
+        
+        final CompressedBitmap.Builder builder = 
+                new CompressedBitmap.Builder(end - begin);
+        
+        for (int i = begin; i < end; ++i) {
+            builder.add(table.getStudent(table.getCourseTimeEntry(i)));
+        }
+        
+        return builder.build();
+    }
+    
+    /**
+     * Returns the bitmap of the students that have attended each of the 
+     * courses in <code>courseSet</code> within the time range 
+     * <tt>[fromTime, untilTime)</tt>.
+     * 
+     * @param  courseSet the set of courses.
+     * @param  fromTime  the first time included in the range.
+     * @param  untilTime the first time past the range.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap queryStudentBitmapBetween(
+            final Set<Course> courseSet,
+            final int fromTime,
+            final int untilTime) {
+        final CompressedBitmap[] bitmaps = 
+                new CompressedBitmap[courseSet.size()];
+        
+        int i = 0;
+        
+        for (final Course course : courseSet) {
+            bitmaps[i++] = getStudentBitmapBetween(course, fromTime, untilTime);
+        }
+        
+        return CompressedBitmap.and(bitmaps);
+    }
+    
+    /**
+     * Returns the bitmap of the students that have attended 
+     * <code>course</code> within the time range 
+     * <tt>[fromTime, untilTime)</tt> with a grade within 
+     * <tt>[minGrade, maxGrade]</tt>. Both conditions must hold for the same
+     * attendance: a student who failed the course within the time range and
+     * passed it outside does not have a passing grade within the range.
+     * 
+     * @param  course    the target course.
+     * @param  fromTime  the first time included in the range.
+     * @param  untilTime the first time past the range.
+     * @param  minGrade  the minimum grade.
+     * @param  maxGrade  the maximum grade.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap getStudentBitmapBetween(final Course course,
+                                                    final int fromTime,
+                                                    final int untilTime,
+                                                    final int minGrade,
+                                                    final int maxGrade) {
+        final int c = getCourseOrdinal(course);
+        
+        if (c < 0 || fromTime >= untilTime) {
+            return CompressedBitmap.empty();
+        }
+        
+        final int begin = table.findCourseTime(c, fromTime);
+        final int end = table.findCourseTime(c, untilTime);
+        final CompressedBitmap.Builder builder = 
+                new CompressedBitmap.Builder(end - begin);
+        
+        for (int i = begin; i < end; ++i) {
+            final int entry = table.getCourseTimeEntry(i);
+            final int grade = table.getGrade(entry);
+            
+            if (grade >= minGrade && grade <= maxGrade) {
+                builder.add(table.getStudent(entry));
             }
         }
         
-        return new ArrayList<>(studentSet);
+        return builder.build();
+    }
+    
+    /**
+     * Returns the bitmap of the students that have attended each of the 
+     * courses in <code>courseSet</code> within the time range 
+     * <tt>[fromTime, untilTime)</tt> with a grade within 
+     * <tt>[minGrade, maxGrade]</tt>, both conditions holding for the same
+     * attendance.
+     * 
+     * @param  courseSet the set of courses.
+     * @param  fromTime  the first time included in the range.
+     * @param  untilTime the first time past the range.
+     * @param  minGrade  the minimum grade.
+     * @param  maxGrade  the maximum grade.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap queryStudentBitmapBetween(
+            final Set<Course> courseSet,
+            final int fromTime,
+            final int untilTime,
+            final int minGrade,
+            final int maxGrade) {
+        final CompressedBitmap[] bitmaps = 
+                new CompressedBitmap[courseSet.size()];
+        
+        int i = 0;
+        
+        for (final Course course : courseSet) {
+            bitmaps[i++] = getStudentBitmapBetween(course, 
+                                                   fromTime, 
+                                                   untilTime,
+                                                   minGrade,
+                                                   maxGrade);
+        }
+        
+        return CompressedBitmap.and(bitmaps);
     }
     
     public int getStudentAmount() {
-        return studentMap.size();
+        return studentOrdinalList.size();
     }
     
     public int getCourseAmount() {
-        return courseMap.size();
+        return courseList.size();
+    }
+    
+    /**
+     * Returns the ordinal of the input student. Ordinals are dense, starting
+     * from zero, and are used as the elements of student bitmaps.
+     * 
+     * @param  student the student whose ordinal to return.
+     * @return the ordinal of the student, or <code>-1</code> if the student is
+     *         not known.
+     */
+    public int getStudentOrdinal(final Student student) {
+        final Integer ordinal = studentOrdinalMap.get(student);
+        return ordinal == null ? -1 : ordinal;
+    }
+    
+    /**
+     * Returns the student with the given ordinal.
+     * 
+     * @param  ordinal the ordinal of the student.
+     * @return the student.
+     */
+    public Student getStudentByOrdinal(final int ordinal) {
+        return studentOrdinalList.get(ordinal);
+    }
+    
+    /**
+     * Returns the bitmap of the students that have attended 
+     * <code>course</code>.
+     * 
+     * @param  course the target course.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap getStudentBitmap(final Course course) {
+        final int c = getCourseOrdinal(course);
+        return c < 0 ? CompressedBitmap.empty() : courseBitmaps[c];
+    }
+    
+    /**
+     * Returns the bitmap of the students that have at least one grade within
+     * <tt>[minGrade, maxGrade]</tt> from <code>course</code>.
+     * 
+     * @param  course   the target course.
+     * @param  minGrade the minimum grade.
+     * @param  maxGrade the maximum grade.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap getStudentBitmap(final Course course,
+                                             final int minGrade,
+                                             final int maxGrade) {
+        final int c = getCourseOrdinal(course);
+        
+        if (c < 0) {
+            return CompressedBitmap.empty();
+        }
+        
+        final CompressedBitmap.Builder builder = new CompressedBitmap.Builder();
+        
+        for (int i = table.getCourseBegin(c); i < table.getCourseEnd(c); ++i) {
+            final int entry = table.getCourseEntry(i);
+            final int grade = table.getGrade(entry);
+            
+            if (grade >= minGrade && grade <= maxGrade) {
+                builder.add(table.getStudent(entry));
+            }
+        }
+        
+        return builder.build();
+    }
+    
+    /**
+     * Returns the bitmap of the students that have attended all the courses in
+     * <code>courseSet</code>.
+     * 
+     * @param  courseSet the set of courses.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap queryStudentBitmap(final Set<Course> courseSet) {
+        final CompressedBitmap[] bitmaps = 
+                new CompressedBitmap[courseSet.size()];
+        
+        int i = 0;
+        
+        for (final Course course : courseSet) {
+            bitmaps[i++] = getStudentBitmap(course);
+        }
+        
+        return CompressedBitmap.and(bitmaps);
+    }
+    
+    /**
+     * Returns the bitmap of the students that have a grade within 
+     * <tt>[minGrade, maxGrade]</tt> from each of the courses in 
+     * <code>courseSet</code>.
+     * 
+     * @param  courseSet the set of courses.
+     * @param  minGrade  the minimum grade.
+     * @param  maxGrade  the maximum grade.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap queryStudentBitmap(final Set<Course> courseSet,
+                                               final int minGrade,
+                                               final int maxGrade) {
+        final CompressedBitmap[] bitmaps = 
+                new CompressedBitmap[courseSet.size()];
+        
+        int i = 0;
+        
+        for (final Course course : courseSet) {
+            bitmaps[i++] = getStudentBitmap(course, minGrade, maxGrade);
+        }
+        
+        return CompressedBitmap.and(bitmaps);
+    }
+    
+    /**
+     * Converts a bitmap of student ordinals to a list of students.
+     * 
+     * @param  bitmap the bitmap to convert.
+     * @return the list of students in ordinal order.
+     */
+    public List<Student> toStudentList(final CompressedBitmap bitmap) {
+        final int[] ordinals = bitmap.toArray();
+        final List<Student> ret = new ArrayList<>(ordinals.length);
+        
+        for (final int ordinal : ordinals) {
+            ret.add(studentOrdinalList.get(ordinal));
+        }
+        
+        return ret;
+    }
+    
+    /**
+     * Converts a collection of students to a bitmap of student ordinals. 
+     * Unknown students are ignored.
+     * 
+     * @param  students the students to convert.
+     * @return the bitmap of student ordinals.
+     */
+    public CompressedBitmap toStudentBitmap(
+            final Collection<Student> students) {
+        final CompressedBitmap.Builder builder = 
+                new CompressedBitmap.Builder(students.size());
+        
+        for (final Student student : students) {
+            final Integer ordinal = studentOrdinalMap.get(student);
+            
+            if (ordinal != null) {
+                builder.add(ordinal);
+            }
+        }
+        
+        return builder.build();
     }
     
     /**
@@ -207,8 +631,37 @@ public class AppDataStorage {
      */
     public List<CourseAttendanceEntry> getEntryList(final Student student,
                                                     final Course course) {
-        return Collections.<CourseAttendanceEntry>
-                unmodifiableList(matrix.get(student).get(course));
+        final int s = getStudentOrdinal(student);
+        final int c = getCourseOrdinal(course);
+        
+        if (s < 0 || c < 0) {
+            return Collections.<CourseAttendanceEntry>emptyList();
+        }
+        
+        final int begin = table.getStudentBegin(s);
+        final int end = table.getStudentEnd(s);
+        final int[] entries = new int[end - begin];
+        int size = 0;
+        
+        for (int i = begin; i < end; ++i) {
+            if (table.getCourse(i) == c) {
+                entries[size++] = i;
+            }
+        }
+        
+        final int entryAmount = size;
+        
+        return new EntryListView() {
+            @Override
+            int getEntryIndex(final int index) {
+                return entries[index];
+            }
+            
+            @Override
+            public int size() {
+                return entryAmount;
+            }
+        };
     }
     
     /**
@@ -218,8 +671,66 @@ public class AppDataStorage {
      * @return a list of attendance entries of the input course.
      */
     public List<CourseAttendanceEntry> getEntriesOfCourse(final Course course) {
-        return Collections.<CourseAttendanceEntry>
-                unmodifiableList(courseMap.get(course));
+        final int c = getCourseOrdinal(course);
+        
+        if (c < 0) {
+            return Collections.<CourseAttendanceEntry>emptyList();
+        }
+        
+        final int begin = table.getCourseBegin(c);
+        final int entryAmount = table.getCourseEnd(c) - begin;
+        
+        return new EntryListView() {
+            @Override
+            int getEntryIndex(final int index) {
+                return table.getCourseEntry(begin + index);
+            }
+            
+            @Override
+            public int size() {
+                return entryAmount;
+            }
+        };
+    }
+    
+    /**
+     * This class implements an unmodifiable list view over entries of the 
+     * entry table. The attendance entry objects are materialized on access
+     * and are not retained.
+     */
+    private abstract class EntryListView 
+    extends AbstractList<CourseAttendanceEntry> {
+        
+        /**
+         * Maps a list index to an entry table index.
+         */
+        abstract int getEntryIndex(final int index);
+        
+        @Override
+        public CourseAttendanceEntry get(final int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(
+                        "Index: " + index + ", size: " + size());
+            }
+            
+            return toEntry(getEntryIndex(index));
+        }
+    }
+    
+    /**
+     * Materializes the entry with index <code>entry</code> of the entry table.
+     * 
+     * @param  entry the index of the entry.
+     * @return the attendance entry object.
+     */
+    private CourseAttendanceEntry toEntry(final int entry) {
+        final int time = table.getTime(entry);
+        return new CourseAttendanceEntry(
+                studentOrdinalList.get(table.getStudent(entry)),
+                courseVariantList.get(table.getVariant(entry)),
+                EntryTable.getYear(time),
+                EntryTable.getMonth(time),
+                table.getGrade(entry));
     }
     
     /**
@@ -230,35 +741,11 @@ public class AppDataStorage {
      * @return the list of students.
      */
     public List<Student> getStudentsByCourseName(final String courseName) {
-        final Set<Student> studentSet = new HashSet<>();
-        
-        final List<CourseAttendanceEntry> entryList = 
-                getEntriesOfCourse(getCourseByName(courseName));
-        
-        for (final CourseAttendanceEntry entry : entryList) {
-            studentSet.add(entry.getStudent());
-        }
-        
-        final List<Student> ret = new ArrayList<>(studentSet.size());
-        ret.addAll(studentSet);
-        return ret;
+        return toStudentList(getStudentBitmap(getCourseByName(courseName)));
     }
     
     public boolean passed(final Student student, final Course course) {
-        final List<CourseAttendanceEntry> entryList = 
-                matrix.get(student).get(course);
-        
-        if (entryList == null || entryList.isEmpty()) {
-            return false;
-        }
-        
-        for (final CourseAttendanceEntry entry : entryList) {
-            if (entry.getGrade() != COURSE_FAILED_GRADE) {
-                return true;
-            }
-        }
-        
-        return false;
+        return grade(student, course) > COURSE_FAILED_GRADE;
     }
     
     /**
@@ -271,61 +758,53 @@ public class AppDataStorage {
      * @return the best grade of the student for the course.
      */
     public int grade(final Student student, final Course course) {
-        final List<CourseAttendanceEntry> entryList = 
-                matrix.get(student).get(course);
-                
-        if (entryList == null || entryList.isEmpty()) {
+        final int s = getStudentOrdinal(student);
+        final int c = getCourseOrdinal(course);
+        
+        if (s < 0 || c < 0) {
             return Course.NON_EXISTENT_GRADE;
         }
         
-        int best = Course.NON_EXISTENT_GRADE;
-        
-        for (final CourseAttendanceEntry entry : entryList) {
-            if (best < entry.getGrade()) {
-                best = entry.getGrade();
-            }
-        }
+        final int position = table.findStudentCourse(s, c);
         
-        return best;
+        return position < 0 ? 
+               Course.NON_EXISTENT_GRADE : 
+               table.getStudentBestGrade(position);
     }
     
     public boolean hasGrade(final Student student, 
                             final Course course,
                             final int minGrade,
                             final int maxGrade) {
+        final int s = getStudentOrdinal(student);
+        final int c = getCourseOrdinal(course);
+        
+        return s >= 0 && c >= 0 && hasGrade(s, c, minGrade, maxGrade);
+    }
+    
+    private boolean hasGrade(final int student,
+                             final int course,
+                             final int minGrade,
+                             final int maxGrade) {
         final int localMinGrade = Math.min(minGrade, maxGrade);
         final int localMaxGrade = Math.max(minGrade, maxGrade);
+        final int end = table.getStudentEnd(student);
         
-        final List<CourseAttendanceEntry> entryList = 
-                matrix.get(student).get(course);
-        
-        if (entryList == null || entryList.isEmpty()) {
-            return false;
-        }
-        
-        for (final CourseAttendanceEntry entry : entryList) {
-            final int grade = entry.getGrade();
-            
-            if (grade >= localMinGrade && grade <= localMaxGrade) {
-                return true;
-            } 
+        for (int i = table.getStudentBegin(student); i < end; ++i) {
+            if (table.getCourse(i) == course) {
+                final int grade = table.getGrade(i);
+                
+                if (grade >= localMinGrade && grade <= localMaxGrade) {
+                    return true;
+                }
+            }
         }
         
         return false;
     }
     
     public List<Student> queryStudents(final Set<Course> courseSet) {
-        final List<Student>[] lists = new ArrayList[courseSet.size()];
-        
-        int i = 0;
-        
-        for (final Course course : courseSet) {
-            lists[i++] = getStudentsByCourseName(course.getName());
-        }
-        
-        final List<Student> ret = new ArrayList<>();
-        ret.addAll(intersect(lists));
-        return ret;
+        return toStudentList(queryStudentBitmap(courseSet));
     }
     
     public List<Student> queryStudents(final Set<Course> courseSet,
@@ -334,23 +813,9 @@ public class AppDataStorage {
         checkNotMore(minGrade, 
                      maxGrade, 
                      "The minimum and maximum grades ass-backwards.");
-        final List<Student>[] lists = new ArrayList[courseSet.size()];
-        
-        int i = 0;
-        
-        for (final Course course : courseSet) {
-            lists[i++] = getStudentsByCourseName(course.getName());
-            
-            for (int j = lists[i].size() - 1; j >= 0; --j) {
-                if (!hasGrade(lists[i].get(j), course, minGrade, maxGrade)) {
-                    lists[i].remove(j);
-                }
-            }
-        }
-        
-        final List<Student> ret = new ArrayList<>();
-        ret.addAll(intersect(lists));
-        return ret;
+        return toStudentList(queryStudentBitmap(courseSet, 
+                                                minGrade, 
+                                                maxGrade));
     }
     
     public List<Student> queryStudents(final Course course, 
@@ -359,19 +824,7 @@ public class AppDataStorage {
         checkNotMore(minGrade, 
                      maxGrade, 
                      "Mininum and maximum grades ass-backwards.");
-        
-        final List<Student> studentList = 
-                getStudentsByCourseName(course.getName());
-        
-        final List<Student> ret = new ArrayList<>(studentList.size());
-        
-        for (final Student student : studentList) {
-            if (hasGrade(student, course, minGrade, maxGrade)) {
-                ret.add(student);
-            }
-        }
-        
-        return ret;
+        return toStudentList(getStudentBitmap(course, minGrade, maxGrade));
     }
     
     public Map<Course, Map<Course, Map<Course, Map<Course, Integer>>>> 
@@ -407,10 +860,9 @@ public class AppDataStorage {
         }
         
         // Count the supports.
-        for (final Student student : studentMap.keySet()) {
-            final Set<Course> studentCourseSet = getStudentsAllCourses(student);
+        for (final Student student : studentOrdinalList) {
             final List<Course> studentCourseList = 
-                    new ArrayList<>(studentCourseSet);
+                    getStudentsCourseList(student);
             final int LIST_SIZE = studentCourseList.size();
             
             for (int i1 = 0; i1 < LIST_SIZE; ++i1) {
@@ -465,10 +917,9 @@ public class AppDataStorage {
         }
         
         // Count the supports.
-        for (final Student student : studentMap.keySet()) {
-            final Set<Course> studentCourseSet = getStudentsAllCourses(student);
+        for (final Student student : studentOrdinalList) {
             final List<Course> studentCourseList = 
-                    new ArrayList<>(studentCourseSet);
+                    getStudentsCourseList(student);
             final int LIST_SIZE  = studentCourseList.size();
             
             // Iterate over all 3-combinations and update the support matrix.
@@ -514,10 +965,9 @@ public class AppDataStorage {
         }
         
         // Count the supports.
-        for (final Student student : studentMap.keySet()) {
-            final Set<Course> studentCourseSet = getStudentsAllCourses(student);
+        for (final Student student : studentOrdinalList) {
             final List<Course> studentCourseList = 
-                    new ArrayList<>(studentCourseSet);
+                    getStudentsCourseList(student);
             final int LIST_SIZE  = studentCourseList.size();
             
             // Iterate over all 2-combinations and update the support matrix.
@@ -540,66 +990,243 @@ public class AppDataStorage {
         checkIsAssociationRule(setx, sety);
         final Set<Course> work = new HashSet<>(setx);
         work.addAll(sety);
+        return 1.0 * supportCount(work) / getStudentAmount();
+    }
+    
+    /**
+     * Returns the amount of students that have attended all the courses in
+     * <code>itemset</code>. 
+     * 
+     * @param  itemset the set of courses.
+     * @return the support count of the itemset.
+     */
+    public int supportCount(final Set<Course> itemset) {
+        if (itemset.isEmpty()) {
+            return getStudentAmount();
+        }
+        
+        final CompressedBitmap[] bitmaps = new CompressedBitmap[itemset.size()];
+        int i = 0;
+        
+        for (final Course course : itemset) {
+            bitmaps[i++] = getStudentBitmap(course);
+        }
+        
+        return CompressedBitmap.andCardinality(bitmaps);
+    }
+    
+    /**
+     * Returns the support of the union of <code>setx</code> and 
+     * <code>sety</code>, counting at most <code>threshold</code> students.
+     * The intersection of the course bitmaps stops being counted as soon as
+     * <code>threshold</code> students are found.
+     * 
+     * @param  setx      the antecedent.
+     * @param  sety      the consequent.
+     * @param  threshold the amount of students after which to stop counting.
+     * @return the capped support.
+     */
+    public double supportStopAfter(final Set<Course> setx, 
+                                   final Set<Course> sety,
+                                   final int threshold) {
+        checkIsAssociationRule(setx, sety);
+        final Set<Course> work = new HashSet<>(setx);
+        work.addAll(sety);
+        
+        final int stopCount = Math.max(threshold, 1);
+        
+        if (work.isEmpty()) {
+            return 1.0 * Math.min(getStudentAmount(), stopCount) / 
+                   getStudentAmount();
+        }
+        
+        final CompressedBitmap[] bitmaps = new CompressedBitmap[work.size()];
+        int i = 0;
+        
+        for (final Course course : work) {
+            bitmaps[i++] = getStudentBitmap(course);
+        }
+        
+        final int count = 
+                Math.min(CompressedBitmap.andCardinalityStopAfter(stopCount,
+                                                                  bitmaps),
+                         stopCount);
+        return 1.0 * count / getStudentAmount();
+    }
+    
+    /**
+     * Returns the support count of <code>itemset</code> if it is at least
+     * <code>minCount</code>. The counting gives up as soon as the itemset 
+     * cannot reach <code>minCount</code>, so rejecting an infrequent itemset
+     * is cheaper than counting it.
+     * 
+     * @param  itemset  the set of courses.
+     * @param  minCount the least support count of interest.
+     * @return the support count of the itemset if it is at least 
+     *         <code>minCount</code>, and otherwise a value less than 
+     *         <code>minCount</code>.
+     */
+    public int supportCountAtLeast(final Set<Course> itemset, 
+                                   final int minCount) {
+        if (itemset.isEmpty()) {
+            return getStudentAmount();
+        }
+        
+        final CompressedBitmap[] bitmaps = new CompressedBitmap[itemset.size()];
+        int i = 0;
+        
+        for (final Course course : itemset) {
+            bitmaps[i++] = getStudentBitmap(course);
+        }
+        
+        return CompressedBitmap.andCardinalityAtLeast(minCount, bitmaps);
+    }
+
+    /**
+     * Tells whether <code>itemset</code> has at least support 
+     * <code>minSupport</code>. The counting stops as soon as the answer is
+     * decided either way, that is, when enough students have been counted or
+     * when the students left cannot make up for the missing ones.
+     * 
+     * @param  itemset    the set of courses.
+     * @param  minSupport the minimum support.
+     * @return <code>true</code> if the itemset is frequent.
+     */
+    public boolean isFrequent(final Set<Course> itemset, 
+                              final double minSupport) {
+        return reachesSupportCount(itemset, getMinCount(minSupport));
+    }
+    
+    /**
+     * Tells whether at least <code>minCount</code> students have attended all
+     * the courses of <code>itemset</code>, stopping as soon as the answer is
+     * decided either way.
+     * 
+     * @param  itemset  the set of courses.
+     * @param  minCount the support count to reach.
+     * @return <code>true</code> if the support count reaches 
+     *         <code>minCount</code>.
+     */
+    public boolean reachesSupportCount(final Set<Course> itemset, 
+                                       final int minCount) {
+        if (itemset.isEmpty()) {
+            return getStudentAmount() >= minCount;
+        }
+        
+        final CompressedBitmap[] bitmaps = new CompressedBitmap[itemset.size()];
+        int i = 0;
+        
+        for (final Course course : itemset) {
+            bitmaps[i++] = getStudentBitmap(course);
+        }
+        
+        return CompressedBitmap.andCardinalityReaches(minCount, bitmaps);
+    }
+    
+    /**
+     * Tells whether the rule <code>setx -&gt; sety</code> has at least 
+     * confidence <code>minConfidence</code>. The support count of the 
+     * antecedent is turned into the support count the union must reach, 
+     * which is then decided with early termination.
+     * 
+     * @param  setx          the antecedent.
+     * @param  sety          the consequent.
+     * @param  minConfidence the minimum confidence.
+     * @return <code>true</code> if the rule is confident enough.
+     */
+    public boolean isConfident(final Set<Course> setx, 
+                               final Set<Course> sety,
+                               final double minConfidence) {
+        checkIsAssociationRule(setx, sety);
+        final int antecedentCount = supportCount(setx);
+        
+        if (antecedentCount == 0) {
+            // The confidence is undefined.
+            return false;
+        }
+        
+        final Set<Course> work = new HashSet<>(setx);
+        work.addAll(sety);
+        return reachesSupportCount(work, 
+                                   getMinCount(minConfidence, 
+                                               antecedentCount));
+    }
+    
+    /**
+     * Tells whether <code>sequence</code> is contained in the course 
+     * sequences of at least a fraction <code>minSupport</code> of the 
+     * students.
+     * 
+     * @param  sequence   the sequence.
+     * @param  minSupport the minimum support.
+     * @return <code>true</code> if the sequence is frequent.
+     */
+    public boolean isFrequent(final Sequence sequence, 
+                              final double minSupport) {
+        return reachesSupportCount(sequence, getMinCount(minSupport));
+    }
+    
+    /**
+     * Tells whether at least <code>minCount</code> students have a course 
+     * sequence containing <code>sequence</code>. Only the students that have
+     * attended all the courses of the sequence are matched, and the matching
+     * stops as soon as enough students contain the sequence or the students 
+     * left cannot make up for the missing ones.
+     * 
+     * @param  sequence the sequence.
+     * @param  minCount the support count to reach.
+     * @return <code>true</code> if the support count reaches 
+     *         <code>minCount</code>.
+     */
+    public boolean reachesSupportCount(final Sequence sequence, 
+                                       final int minCount) {
+        final Set<Course> courseSet = toCourseSet(sequence);
         
-        int count = 0;
+        if (minCount <= 0) {
+            return true;
+        }
         
-        for (final Student student : studentMap.keySet()) {
-            final Set<Course> courseSet = getStudentsAllCourses(student);
-            
-            if (containsAll(work, courseSet)) {
-                ++count;
-            }
+        if (courseSet.isEmpty()) {
+            return getStudentAmount() >= minCount;
         }
         
-        return 1.0 * count / getStudentAmount();
-    }
-    
-    public double supportStopAfter(final Set<Course> setx, 
-                                   final Set<Course> sety,
-                                   final int threshold) {
-        checkIsAssociationRule(setx, sety);
-        final Set<Course> work = new HashSet<>(setx);
-        work.addAll(sety);
+        final CompressedBitmap[] bitmaps = 
+                new CompressedBitmap[courseSet.size()];
+        int i = 0;
         
+        for (final Course course : courseSet) {
+            bitmaps[i++] = getStudentBitmap(course);
+        }
+        
+        final int[] candidates = CompressedBitmap.and(bitmaps).toArray();
         int count = 0;
         
-        for (final Student student : studentMap.keySet()) {
-            final Set<Course> courseSet = getStudentsAllCourses(student);
+        for (i = 0; i < candidates.length; ++i) {
+            if (count + candidates.length - i < minCount) {
+                return false;
+            }
             
-            if (containsAll(work, courseSet)) {
-                if (++count >= threshold) {
-                    break;
-                }
+            final Sequence transaction = 
+                    getStudentCoursesAsSequence(
+                            studentOrdinalList.get(candidates[i]));
+            
+            if (sequence.isContainedIn(transaction) && ++count >= minCount) {
+                return true;
             }
         }
         
-        return 1.0 * count / getStudentAmount();
+        return false;
     }
-
+    
     public Set<Student> intersection(final Set<Student>[] courseStudentSets) {
-        Arrays.sort(courseStudentSets, new Comparator<Set<Student>>() {
-            @Override
-            public int compare(Set<Student> o1, Set<Student> o2) {
-                return Integer.compare(o1.size(), o2.size());
-            }
-        });
+        final CompressedBitmap[] bitmaps = 
+                new CompressedBitmap[courseStudentSets.length];
         
-        final Set<Student> ret = new HashSet<>(courseStudentSets[0]);
-        final Iterator<Student> iterator = ret.iterator();
-        
-        outer:
-        while (iterator.hasNext()) {
-            final Student student = iterator.next();
-            
-            for (int i = 1; i < courseStudentSets.length; ++i) {
-                if (!courseStudentSets[i].contains(student)) {
-                    iterator.remove();
-                    continue outer;
-                }
-            }
+        for (int i = 0; i < bitmaps.length; ++i) {
+            bitmaps[i] = toStudentBitmap(courseStudentSets[i]);
         }
         
-        return ret;
+        return new HashSet<>(toStudentList(CompressedBitmap.and(bitmaps)));
     }
     
     public static class SequenceAndSupport 
@@ -647,7 +1274,13 @@ public class AppDataStorage {
         workList.add(elementList);
         //// END: Work structures.
         
-        final int ROWS = studentMap.size();
+        final int ROWS = getStudentAmount();
+        
+        final MiningRecorder recorder = 
+                new MiningRecorder("sequentialApriori", miningListener);
+        
+        recorder.startLevel(1);
+        recorder.joined(courseList.size());
         
         map.put(1, new ArrayList<Sequence>());
         
@@ -673,7 +1306,11 @@ public class AppDataStorage {
             }
         }
         
+        recorder.counted(map.get(1).size());
+        
         if (size <= 1) {
+            recorder.finish();
+            
             final List<SequenceAndSupport> ret = 
                     extractSequences(map, seqToSupportMap);
 
@@ -683,31 +1320,35 @@ public class AppDataStorage {
         }
         
         final Map<Student, Sequence> transactionMap = 
-                new HashMap<>(studentMap.size());
+                new HashMap<>(getStudentAmount());
         
-        for (final Student student : studentMap.keySet()) {
+        for (final Student student : studentOrdinalList) {
             transactionMap.put(student, 
                                getStudentCoursesAsSequenceWithTimes(student));
         }
         
+        final int minCount = getMinCount(minSupport);
         int k = 1;
         
         do {
             ++k;
-            
-            System.out.println("Doing k = " + k);
+            recorder.startLevel(k);
             
             final List<Sequence> candidateList = 
-                    generateSequenceCandidates(map.get(k - 1), maxspan);
+                    generateSequenceCandidates(map.get(k - 1));
+            
+            recorder.joined(candidateList.size());
             
-            System.out.println("Candidates: " + candidateList.size());
+            final List<Sequence> frequentCandidateList = 
+                    pruneInfrequent(candidateList, minCount);
             
-            for (final Student student : studentMap.keySet()) {
+            for (final Student student : studentOrdinalList) {
                 final Sequence transaction = transactionMap.get(student);
-                final List<Sequence> candidateList2 = subsequence(candidateList,
-                                                                  transaction,
-                                                                  student,
-                                                                  maxspan);
+                final List<Sequence> candidateList2 = 
+                        subsequence(frequentCandidateList,
+                                    transaction,
+                                    student,
+                                    maxspan);
                 
                 for (final Sequence sequence : candidateList2) {
                     if (!sigma.containsKey(sequence)) {
@@ -723,8 +1364,11 @@ public class AppDataStorage {
             }
             
             map.put(k, getNextSequences(candidateList, sigma, minSupport));
+            recorder.counted(map.get(k).size());
         } while (k < size && map.get(k).size() > 0);
         
+        recorder.finish();
+        
         final List<SequenceAndSupport> ret = 
                 extractSequences(map, seqToSupportMap);
         
@@ -746,14 +1390,20 @@ public class AppDataStorage {
         workList.add(elementList);
         //// END: Work structures.
         
-        final int ROWS = studentMap.size();
+        final int ROWS = getStudentAmount();
+        
+        final MiningRecorder recorder = 
+                new MiningRecorder("sequentialApriori", miningListener);
+        
+        recorder.startLevel(1);
+        recorder.joined(courseList.size());
         
         map.put(1, new ArrayList<Sequence>());
         
         // In the first iteration, find out all frequent 1-sequences.
         for (final Course course : courseList) {
             final int supportCount = supportCount(course);
-            final double support = 1.0 * supportCount / studentMap.size();
+            final double support = 1.0 * supportCount / getStudentAmount();
             
             if (support >= minSupport) {
                 elementList.clear();
@@ -768,7 +1418,11 @@ public class AppDataStorage {
             }
         }
         
+        recorder.counted(map.get(1).size());
+        
         if (size <= 1) {
+            recorder.finish();
+            
             final List<SequenceAndSupport> ret = 
                     extractSequences(map, seqToSupportMap);
 
@@ -777,31 +1431,50 @@ public class AppDataStorage {
             return ret;
         }
         
-        System.out.println("Hfdsf: " + map.get(1).size());
-        
         final Map<Student, Sequence> transactionMap = 
-                new HashMap<>(studentMap.size());
+                new HashMap<>(getStudentAmount());
         
-        for (final Student student : studentMap.keySet()) {
-            transactionMap.put(student, getStudentCoursesAsSequence(student));
+        if (size > 2) {
+            for (final Student student : studentOrdinalList) {
+                transactionMap.put(student, 
+                                   getStudentCoursesAsSequence(student));
+            }
         }
         
+        final int minCount = getMinCount(minSupport);
         int k = 1;
         
         do {
             ++k;
-            
-            System.out.println("Doing k = " + k);
+            recorder.startLevel(k);
             
             final List<Sequence> candidateList = 
                     generateSequenceCandidates(map.get(k - 1));
             
-            System.out.println("Candidates: " + candidateList.size());
+            recorder.joined(candidateList.size());
+            
+            if (k == 2) {
+                countByPrecedence(candidateList, sigma);
+                
+                for (final Sequence sequence : candidateList) {
+                    if (sigma.containsKey(sequence)) {
+                        seqToSupportMap.put(sequence, 
+                                            1.0 * sigma.get(sequence) / ROWS);
+                    }
+                }
+                
+                map.put(k, getNextSequences(candidateList, sigma, minSupport));
+                recorder.counted(map.get(k).size());
+                continue;
+            }
+            
+            final List<Sequence> frequentCandidateList = 
+                    pruneInfrequent(candidateList, minCount);
             
-            for (final Student student : studentMap.keySet()) {
+            for (final Student student : studentOrdinalList) {
                 final Sequence transaction = transactionMap.get(student);
-                final List<Sequence> candidateList2 = subsequence(candidateList,
-                                                                  transaction);
+                final List<Sequence> candidateList2 = 
+                        subsequence(frequentCandidateList, transaction);
                 
                 for (final Sequence sequence : candidateList2) {
                     if (!sigma.containsKey(sequence)) {
@@ -817,8 +1490,11 @@ public class AppDataStorage {
             }
             
             map.put(k, getNextSequences(candidateList, sigma, minSupport));
+            recorder.counted(map.get(k).size());
         } while (k < size && map.get(k).size() > 0);
         
+        recorder.finish();
+        
         final List<SequenceAndSupport> ret = 
                 extractSequences(map, seqToSupportMap);
         
@@ -828,9 +1504,29 @@ public class AppDataStorage {
     }
     
     public List<SequenceAndSupport> sequentialApriori(final double minSupport) {
+        return sequentialApriori(minSupport, MiningBudget.UNLIMITED)
+               .getResult();
+    }
+    
+    /**
+     * Mines the frequent sequences within <code>budget</code>. If the budget 
+     * is exhausted, the run stops and the result holds the sequences of all 
+     * the levels completed so far.
+     * 
+     * @param  minSupport the minimum support of a frequent sequence.
+     * @param  budget     the limits of the run.
+     * @return the frequent sequences sorted by support, and the status of the
+     *         run.
+     */
+    public MiningResult<List<SequenceAndSupport>> 
+        sequentialApriori(final double minSupport, 
+                          final MiningBudget budget) {
+        checkNotNull(budget, "The mining budget is null.");
+        
         final Map<Sequence, Double> seqToSupportMap = new HashMap<>();
         final Map<Sequence, Integer> sigma = new HashMap<>();
         final Map<Integer, List<Sequence>> map = new HashMap<>();
+        final MiningBudget.Tracker tracker = budget.start();
         
         //// BEGIN: Work structures.
         final List<List<Course>> workList = new ArrayList<>();
@@ -838,12 +1534,20 @@ public class AppDataStorage {
         workList.add(elementList);
         //// END: Work structures.
         
+        final int ROWS = getStudentAmount();
+        
+        final MiningRecorder recorder = 
+                new MiningRecorder("sequentialApriori", miningListener);
+        
+        recorder.startLevel(1);
+        recorder.joined(courseList.size());
+        
         map.put(1, new ArrayList<Sequence>());
         
         // In the first iteration, find out all frequent 1-sequences.
         for (final Course course : courseList) {
             final int supportCount = supportCount(course);
-            final double support = 1.0 * supportCount / studentMap.size();
+            final double support = 1.0 * supportCount / ROWS;
             
             if (support >= minSupport) {
                 elementList.clear();
@@ -858,38 +1562,54 @@ public class AppDataStorage {
             }
         }
         
+        recorder.counted(map.get(1).size());
+        
         int k = 1;
         
-        do {
-            ++k;
+        while (map.get(k).size() > 0 && tracker.check()) {
+            recorder.startLevel(k + 1);
             
             final List<Sequence> candidateList = 
-                    generateSequenceCandidates(map.get(k - 1));
+                    generateSequenceCandidates(map.get(k));
             
-            for (final Student student : studentMap.keySet()) {
-                final Sequence transaction 
-                        = getStudentCoursesAsSequence(student);
-                final List<Sequence> candidateList2 = subsequence(candidateList,
-                                                                  transaction);
-                
-                for (final Sequence sequence : candidateList2) {
-                    if (!sigma.containsKey(sequence)) {
-                        sigma.put(sequence, 1);
-                    } else {
-                        sigma.put(sequence, sigma.get(sequence) + 1);
-                    }
-                }
+            recorder.joined(candidateList.size());
+            
+            if (!tracker.checkCandidates(candidateList.size())) {
+                break;
+            }
+            
+            if (k == 1) {
+                countByPrecedence(candidateList, sigma);
+            } else {
+                countBySubsequence(pruneInfrequent(candidateList, 
+                                                   getMinCount(minSupport)),
+                                   sigma,
+                                   tracker);
+            }
+            
+            if (tracker.getStatus() != MiningResult.Status.COMPLETED) {
+                // The level was counted only partially, so it is dropped.
+                break;
             }
             
+            ++k;
             map.put(k, getNextSequences(candidateList, sigma, minSupport));
-        } while (map.get(k).size() > 0);
+            
+            for (final Sequence sequence : map.get(k)) {
+                seqToSupportMap.put(sequence, 1.0 * sigma.get(sequence) / ROWS);
+            }
+            
+            recorder.counted(map.get(k).size());
+        }
+        
+        recorder.finish();
         
         final List<SequenceAndSupport> ret = 
                 extractSequences(map, seqToSupportMap);
         
         Collections.sort(ret);
         
-        return ret;
+        return new MiningResult<>(ret, tracker.getStatus(), k);
     }
     
     public List<AssociationRule> apriori(final double minSupport,
@@ -897,11 +1617,17 @@ public class AppDataStorage {
         final Map<Integer, Set<Set<Course>>> map = new HashMap<>();
         final Map<Set<Course>, Integer> sigma = new HashMap<>();
         
+        final MiningRecorder recorder = 
+                new MiningRecorder("apriori", miningListener);
+        
+        recorder.startLevel(1);
+        recorder.joined(courseList.size());
+        
         map.put(1, new HashSet<Set<Course>>());
         
         for (final Course course : getCourseList()) {
             final int supportCount = supportCount(course);
-            final double support = 1.0 * supportCount / studentMap.size();
+            final double support = 1.0 * supportCount / getStudentAmount();
             
             if (support > minSupport) {
                 final Set<Course> itemSet = new HashSet<>(1);
@@ -911,48 +1637,39 @@ public class AppDataStorage {
             }
         }
         
+        recorder.counted(map.get(1).size());
+        
+        final int minCount = getMinCount(minSupport);
         int k = 1;
         
         do {
             ++k;
-            
-            System.out.println("Doing k = " + k);
+            recorder.startLevel(k);
             
             final Set<Set<Course>> candidateSet = 
                     generateCandidates(map.get(k - 1));
             
-            System.out.println("Candidates: " + candidateSet.size());
+            recorder.joined(candidateSet.size());
             
-            for (final Student student : studentMap.keySet()) {
-                final Set<Course> transaction = getStudentsAllCourses(student);
-                final Set<Set<Course>> candidateSet2 = subset(candidateSet, 
-                                                              transaction);
-                
-                for (final Set<Course> itemset : candidateSet2) {
-                    if (!sigma.containsKey(itemset)) {
-                        sigma.put(itemset, 1);
-                    } else {
-                        sigma.put(itemset, sigma.get(itemset) + 1);
-                    }
-                }
-            }
+            countItemsets(candidateSet, 
+                          minCount, 
+                          sigma, 
+                          MiningBudget.UNLIMITED.start());
             
             map.put(k, getNextItemsets(candidateSet, sigma, minSupport));
+            recorder.counted(map.get(k).size());
         } while (map.get(k).size() > 0);
         
+        recorder.finish();
+        
         final Set<Set<Course>> frequentItemsets = extractItemSets(map);
         final List<AssociationRule> associationRules = new ArrayList<>();
         
-        System.out.println("Frequent itemsets: " + frequentItemsets.size());
-        
         //// Create all possible association rules (with one-element 
         //// consequents) out of frequent itemsets:
         final List<AssociationRule> inputRules = 
                 extractRules1(frequentItemsets, sigma);
         
-        System.out.println("Initial rules: " + inputRules.size());
-        System.out.println("Initial frequent itemsets: " + frequentItemsets.size());
-        
         //// Iterate through all frequent itemsets with at least two courses.
         for (final Set<Course> itemset : frequentItemsets) {
             if (itemset.size() < 2) {
@@ -991,7 +1708,7 @@ public class AppDataStorage {
                 
                 final int supportCount = sigma.get(itemset);
                 final double support = 1.0 * supportCount 
-                                           / studentMap.size();
+                                           / getStudentAmount();
                 
                 workSet.clear();
                 workSet.add(course);
@@ -1007,9 +1724,8 @@ public class AppDataStorage {
                 workSet.addAll(antecedent);
                 
                 final double supportCountOfAntecedent = sigma.get(workSet);
-                final double lift = confidence / 
-                                   (supportCountOfConsequent * 
-                                    studentMap.size());
+                final double lift = confidence * getStudentAmount() /
+                                    supportCountOfConsequent;
                 final double isMeasure = 
                         1.0 * supportCount / 
                         Math.sqrt(supportCountOfConsequent * 
@@ -1027,8 +1743,6 @@ public class AppDataStorage {
             }
         }
         
-        System.out.println("extractRules1 - ret: " + ret.size() + " set: " + 
-                           set.size());
         return ret;
     }
     
@@ -1071,6 +1785,12 @@ public class AppDataStorage {
                                  final Map<Set<Course>, Integer> sigma,
                                  final double minConfidence) {
         final Set<AssociationRule> set = new HashSet<>();
+        
+        if (rules.isEmpty()) {
+            // All rules of the previous level fell below the confidence.
+            return new ArrayList<>(set);
+        }
+        
         final int k = itemset.size();
         final int m = rules.get(0).getConsequent().size();
         final Set<Course> workSet = new HashSet<>(k);
@@ -1103,7 +1823,7 @@ public class AppDataStorage {
                 
                 final int supportCountOfAntecedent = sigma.get(workSet);
                 final double supportOfConsequent = 
-                        1.0 * supportCountOfConsequent / studentMap.size();
+                        1.0 * supportCountOfConsequent / getStudentAmount();
                 
                 final double lift = confidence / supportOfConsequent;
                 final double isMeasure = 
@@ -1113,7 +1833,7 @@ public class AppDataStorage {
                 
                 if (confidence >= minConfidence) {
                    final double support = 1.0 * supportCount 
-                                              / studentMap.size();
+                                              / getStudentAmount();
                    rule.setSupport(support);
                    rule.setConfidence(confidence);
                    rule.setLift(lift);
@@ -1142,11 +1862,17 @@ public class AppDataStorage {
         final Map<Integer, Set<Set<Course>>> map = new HashMap<>();
         final Map<Set<Course>, Integer> sigma = new HashMap<>();
         
+        final MiningRecorder recorder = 
+                new MiningRecorder("closedFrequentPatterns", miningListener);
+        
+        recorder.startLevel(1);
+        recorder.joined(courseList.size());
+        
         map.put(1, new HashSet<Set<Course>>());
         
         for (final Course course : getCourseList()) {
             final int supportCount = supportCount(course);
-            final double support = 1.0 * supportCount / studentMap.size();
+            final double support = 1.0 * supportCount / getStudentAmount();
             
             if (support > minSupport) {
                 final Set<Course> itemSet = new HashSet<>(1);
@@ -1156,15 +1882,20 @@ public class AppDataStorage {
             }
         }
         
+        recorder.counted(map.get(1).size());
+        
         int k = 1;
         
         do {
             ++k;
+            recorder.startLevel(k);
             
             final Set<Set<Course>> candidateSet = 
                     generateCandidates(map.get(k - 1));
             
-            for (final Student student : studentMap.keySet()) {
+            recorder.joined(candidateSet.size());
+            
+            for (final Student student : studentOrdinalList) {
                 final Set<Course> transaction = getStudentsAllCourses(student);
                 final Set<Set<Course>> candidateSet2 = subset(candidateSet, 
                                                               transaction);
@@ -1180,9 +1911,12 @@ public class AppDataStorage {
             
             map.put(k, getNextItemsets(candidateSet, 
                                        sigma,
-                                       (int)(minSupport * studentMap.size())));
+                                       minSupport));
+            recorder.counted(map.get(k).size());
         } while (map.get(k).size() > 0);
         
+        recorder.finish();
+        
         final Set<Set<Course>> patternSet = extractItemSets(map);
         final Set<Set<Course>> closedFrequentPatternSet = 
                 new HashSet<>(patternSet.size());
@@ -1235,14 +1969,37 @@ public class AppDataStorage {
     }
         
     public Set<Set<Course>> apriori(final double minSupport) {
+        return apriori(minSupport, MiningBudget.UNLIMITED).getResult();
+    }
+    
+    /**
+     * Mines the frequent itemsets within <code>budget</code>. If the budget is
+     * exhausted, the run stops and the result holds the itemsets of all the 
+     * levels completed so far.
+     * 
+     * @param  minSupport the minimum support of a frequent itemset.
+     * @param  budget     the limits of the run.
+     * @return the frequent itemsets and the status of the run.
+     */
+    public MiningResult<Set<Set<Course>>> apriori(final double minSupport,
+                                                  final MiningBudget budget) {
+        checkNotNull(budget, "The mining budget is null.");
+        
         final Map<Integer, Set<Set<Course>>> map = new HashMap<>();
         final Map<Set<Course>, Integer> sigma = new HashMap<>();
+        final MiningBudget.Tracker tracker = budget.start();
+        
+        final MiningRecorder recorder = 
+                new MiningRecorder("apriori", miningListener);
+        
+        recorder.startLevel(1);
+        recorder.joined(courseList.size());
         
         map.put(1, new HashSet<Set<Course>>());
         
         for (final Course course : getCourseList()) {
             final int supportCount = supportCount(course);
-            final double support = 1.0 * supportCount / studentMap.size();
+            final double support = 1.0 * supportCount / getStudentAmount();
             
             if (support > minSupport) {
                 final Set<Course> itemSet = new HashSet<>(1);
@@ -1252,107 +2009,88 @@ public class AppDataStorage {
             }
         }
         
+        recorder.counted(map.get(1).size());
+        
+        final int minCount = getMinCount(minSupport);
         int k = 1;
         
-        do {
-            ++k;
+        while (map.get(k).size() > 0 && tracker.check()) {
+            recorder.startLevel(k + 1);
             
             final Set<Set<Course>> candidateSet = 
-                    generateCandidates(map.get(k - 1));
+                    generateCandidates(map.get(k));
             
-            for (final Student student : studentMap.keySet()) {
-                final Set<Course> transaction = getStudentsAllCourses(student);
-                final Set<Set<Course>> candidateSet2 = subset(candidateSet, 
-                                                              transaction);
-                
-                for (final Set<Course> itemset : candidateSet2) {
-                    if (!sigma.containsKey(itemset)) {
-                        sigma.put(itemset, 1);
-                    } else {
-                        sigma.put(itemset, sigma.get(itemset) + 1);
-                    }
-                }
+            recorder.joined(candidateSet.size());
+            
+            if (!tracker.checkCandidates(candidateSet.size())) {
+                break;
             }
             
+            countItemsets(candidateSet, minCount, sigma, tracker);
+            
+            if (tracker.getStatus() != MiningResult.Status.COMPLETED) {
+                // The level was counted only partially, so it is dropped.
+                break;
+            }
+            
+            ++k;
             map.put(k, getNextItemsets(candidateSet, 
                                        sigma,
-                                       (int)(minSupport * studentMap.size())));
-        } while (map.get(k).size() > 0);
+                                       minSupport));
+            recorder.counted(map.get(k).size());
+        }
         
-        return extractItemSets(map);
+        recorder.finish();
+        
+        return new MiningResult<>(extractItemSets(map), 
+                                  tracker.getStatus(), 
+                                  k);
     }
     
     public double confidence(final Set<Course> setx, final Set<Course> sety) {
         checkIsAssociationRule(setx, sety);
         final Set<Course> work = new HashSet<>(setx);
         work.addAll(sety);
-        
-        int countXY = 0;
-        int countX = 0;
-        
-        for (final Student student : studentMap.keySet()) {
-            final Set<Course> courseSet = getStudentsAllCourses(student);
-            
-            if (containsAll(setx, courseSet)) {
-                ++countX;
-                
-                if (containsAll(work, courseSet)) {
-                    ++countXY;
-                }
-            }
-        }
-        
-        return 1.0 * countXY / countX;
+        return 1.0 * supportCount(work) / supportCount(setx);
     }
     
     public Set<Course> getStudentsAllCourses(final Student student) {
-        final List<CourseAttendanceEntry> entryList = studentMap.get(student);
-        final Set<Course> ret = new HashSet<>();
+        return new HashSet<>(getStudentsCourseList(student));
+    }
+    
+    /**
+     * Returns the list of distinct courses the student has attended, sorted 
+     * by course code.
+     * 
+     * @param  student the target student.
+     * @return the sorted list of courses.
+     */
+    public List<Course> getStudentsCourseList(final Student student) {
+        final int s = getStudentOrdinal(student);
         
-        for (final CourseAttendanceEntry entry : entryList) {
-            ret.add(entry.getCourse());
+        if (s < 0) {
+            return Collections.<Course>emptyList();
+        }
+        
+        final int begin = table.getStudentCourseBegin(s);
+        final int end = table.getStudentCourseEnd(s);
+        final List<Course> ret = new ArrayList<>(end - begin);
+        
+        for (int i = begin; i < end; ++i) {
+            ret.add(courseList.get(table.getStudentCourse(i)));
         }
         
         return ret;
     }
     
     public double support(final Course course) {
-        int count = 0;
-        
-        for (final Student student : studentMap.keySet()) {
-            final List<CourseAttendanceEntry> list = 
-                    matrix.get(student).get(course);
-            
-            if (list != null && list.size() > 0) {
-                ++count;
-            }
-        }
-        
-        return 1.0 * count / studentMap.size();
+        return 1.0 * supportCount(course) / getStudentAmount();
     }
     
     public int supportCount(final Course course) {
-        int count = 0;
-        
-        for (final Student student : studentMap.keySet()) {
-            final List<CourseAttendanceEntry> list = 
-                    matrix.get(student).get(course);
-            
-            if (list != null && list.size() > 0) {
-                ++count;
-            }
-        }
-        
-        return count;
+        return getStudentBitmap(course).getCardinality();
     }
     
-    private List<CourseAttendanceEntry> 
-        initEntryList(final CourseAttendanceEntry entry) {
-        final List<CourseAttendanceEntry> list = new ArrayList<>();
-        list.add(entry);
-        return list;
-    }
-        
     private static <T> void checkIsAssociationRule(final Set<T> set1, 
                                                    final Set<T> set2) {
         for (final T element : set1) {
@@ -1480,7 +2218,7 @@ public class AppDataStorage {
         for (final Set<Course> itemset : candidateSet) {
             if (sigma.containsKey(itemset)) {
                 final int supportCount = sigma.get(itemset);
-                final double support = 1.0 * supportCount / studentMap.size();
+                final double support = 1.0 * supportCount / getStudentAmount();
                 
                 if (support >= minSupport) {
                     ret.add(itemset);
@@ -1491,12 +2229,98 @@ public class AppDataStorage {
         return ret;
     }
 
+    /**
+     * Returns the least support count whose support is at least 
+     * <code>minSupport</code>, consistently with the support comparisons of
+     * the miners.
+     */
+    private int getMinCount(final double minSupport) {
+        return getMinCount(minSupport, getStudentAmount());
+    }
+    
+    /**
+     * Returns the least count <tt>c</tt> such that <tt>c / total</tt> is at
+     * least <code>minRatio</code> in floating point, or 
+     * <tt>total + 1</tt> if there is no such count.
+     */
+    private static int getMinCount(final double minRatio, final int total) {
+        if (minRatio <= 0.0) {
+            return 0;
+        }
+        
+        int count = (int) Math.min(total + 1L, 
+                                   (long) Math.ceil(minRatio * total));
+        
+        while (count > 0 && 1.0 * (count - 1) / total >= minRatio) {
+            --count;
+        }
+        
+        while (count <= total && 1.0 * count / total < minRatio) {
+            ++count;
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Puts into <code>sigma</code> the support count of each candidate 
+     * itemset that reaches <code>minCount</code>, polling 
+     * <code>tracker</code> between the candidates. Each candidate is counted
+     * once on the course bitmaps, and the counting of an infrequent one stops
+     * as soon as it cannot reach <code>minCount</code>.
+     */
+    private void countItemsets(final Set<Set<Course>> candidateSet,
+                               final int minCount,
+                               final Map<Set<Course>, Integer> sigma,
+                               final MiningBudget.Tracker tracker) {
+        for (final Set<Course> itemset : candidateSet) {
+            if (!tracker.poll()) {
+                break;
+            }
+            
+            final int count = supportCountAtLeast(itemset, minCount);
+            
+            if (count >= minCount && count > 0) {
+                sigma.put(itemset, count);
+            }
+        }
+    }
+    
+    /**
+     * Returns the candidate sequences whose course sets reach 
+     * <code>minCount</code>. No student contains a sequence without having
+     * attended all of its courses, so the other candidates cannot be 
+     * frequent.
+     */
+    private List<Sequence> pruneInfrequent(final List<Sequence> candidateList,
+                                           final int minCount) {
+        final List<Sequence> ret = new ArrayList<>(candidateList.size());
+        
+        for (final Sequence sequence : candidateList) {
+            if (reachesSupportCount(toCourseSet(sequence), minCount)) {
+                ret.add(sequence);
+            }
+        }
+        
+        return ret;
+    }
+    
+    private static Set<Course> toCourseSet(final Sequence sequence) {
+        final Set<Course> ret = new HashSet<>();
+        
+        for (final Course course : sequence) {
+            ret.add(course);
+        }
+        
+        return ret;
+    }
+
     private List<Sequence> 
         getNextSequences(final List<Sequence> candidateList, 
                          final Map<Sequence, Integer> sigma, 
                          final double minSupport) {
         final List<Sequence> ret = new ArrayList<>(candidateList.size());
-        final int ROWS = studentMap.keySet().size();
+        final int ROWS = getStudentAmount();
         
         for (final Sequence sequence : candidateList) {
             if (sigma.get(sequence) != null
@@ -1508,66 +2332,99 @@ public class AppDataStorage {
         return ret;
     }
 
-    private Sequence 
-        getStudentCoursesAsSequenceWithTimes(final Student student) {
-        final List<CourseAttendanceEntry> entryList = studentMap.get(student);
-        final List<List<Course>> mainList = new ArrayList<>();
-        
-        Collections.<CourseAttendanceEntry>sort(entryList);
+    /**
+     * Counts the candidate sequences contained in the sequence of each 
+     * student into <code>sigma</code>, polling <code>tracker</code> between
+     * the students.
+     */
+    private void countBySubsequence(final List<Sequence> candidateList,
+                                    final Map<Sequence, Integer> sigma,
+                                    final MiningBudget.Tracker tracker) {
+        for (final Student student : studentOrdinalList) {
+            if (!tracker.poll()) {
+                break;
+            }
+            
+            final Sequence transaction = getStudentCoursesAsSequence(student);
+            final List<Sequence> candidateList2 = subsequence(candidateList,
+                                                              transaction);
+            
+            for (final Sequence sequence : candidateList2) {
+                if (!sigma.containsKey(sequence)) {
+                    sigma.put(sequence, 1);
+                } else {
+                    sigma.put(sequence, sigma.get(sequence) + 1);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Counts the candidate 2-sequences <tt>&lt;{a},{b}&gt;</tt> from the 
+     * precedence matrix instead of matching them against the sequence of 
+     * every student. Only the candidates attended by some student are put in
+     * <code>sigma</code>, as when matching. The matrix is restricted to the
+     * courses of the candidates, which are the frequent ones.
+     */
+    private void countByPrecedence(final List<Sequence> candidateList,
+                                   final Map<Sequence, Integer> sigma) {
+        final Set<Course> courseSet = new HashSet<>();
         
-        int year = entryList.get(0).getYear();
-        int month = entryList.get(0).getMonth();
+        for (final Sequence sequence : candidateList) {
+            for (final Course course : sequence) {
+                courseSet.add(course);
+            }
+        }
         
-        List<Course> workList = new ArrayList<>();
-        workList.add(entryList.get(0).getCourse());
+        final PrecedenceMatrix matrix = PrecedenceMatrix.compute(this, 
+                                                                 courseSet);
         
-        for (int i = 1; i < entryList.size(); ++i) {
-            final CourseAttendanceEntry currentEntry = entryList.get(i);
+        for (final Sequence sequence : candidateList) {
+            final Iterator<Course> iterator = sequence.iterator();
+            final int count = matrix.getBeforeCount(iterator.next(), 
+                                                    iterator.next());
             
-            if (currentEntry.getMonth() == month 
-                    && currentEntry.getYear() == year) {
-                workList.add(currentEntry.getCourse());
-            } else {
-                mainList.add(workList);
-                workList = new ArrayList<>();
-                workList.add(currentEntry.getCourse());
-                
-                year = currentEntry.getYear();
-                month = currentEntry.getMonth();
+            if (count > 0) {
+                sigma.put(sequence, count);
             }
         }
-        
-        return new Sequence(mainList);
+    }
+    
+    private Sequence 
+        getStudentCoursesAsSequenceWithTimes(final Student student) {
+        return getStudentCoursesAsSequence(student);
     }
 
     private Sequence getStudentCoursesAsSequence(final Student student) {
-        final List<CourseAttendanceEntry> entryList = studentMap.get(student);
+        final int s = getStudentOrdinal(student);
         final List<List<Course>> mainList = new ArrayList<>();
         
-        Collections.<CourseAttendanceEntry>sort(entryList);
+        if (s < 0 || table.getStudentBegin(s) == table.getStudentEnd(s)) {
+            return new Sequence(mainList);
+        }
         
-        int year = entryList.get(0).getYear();
-        int month = entryList.get(0).getMonth();
+        // The entries of a student are already in chronological order.
+        final int begin = table.getStudentBegin(s);
+        final int end = table.getStudentEnd(s);
+        int time = table.getTime(begin);
         
         List<Course> workList = new ArrayList<>();
-        workList.add(entryList.get(0).getCourse());
+        workList.add(courseList.get(table.getCourse(begin)));
         
-        for (int i = 1; i < entryList.size(); ++i) {
-            final CourseAttendanceEntry currentEntry = entryList.get(i);
+        for (int i = begin + 1; i < end; ++i) {
+            final Course course = courseList.get(table.getCourse(i));
             
-            if (currentEntry.getMonth() == month 
-                    && currentEntry.getYear() == year) {
-                workList.add(currentEntry.getCourse());
+            if (table.getTime(i) == time) {
+                workList.add(course);
             } else {
                 mainList.add(workList);
                 workList = new ArrayList<>();
-                workList.add(currentEntry.getCourse());
-                
-                year = currentEntry.getYear();
-                month = currentEntry.getMonth();
+                workList.add(course);
+                time = table.getTime(i);
             }
         }
         
+        mainList.add(workList);
         return new Sequence(mainList);
     }
 
@@ -1576,40 +2433,62 @@ public class AppDataStorage {
                                        final Student owner,
                                        final int maxspan) {
         final List<Sequence> ret = new ArrayList<>(candidateList.size());
+        final int s = getStudentOrdinal(owner);
         
         for (final Sequence sequence : candidateList) {
-            if (sequence.isContainedIn(transaction)) {
-                loadTimestamps(sequence, owner);
-                
-                if (sequence.fitsInSpan(maxspan)) {
-                    ret.add(sequence);
-                }
+            if (sequence.isContainedIn(transaction)
+                    && getSpan(sequence, s) <= maxspan) {
+                ret.add(sequence);
             }
         }
         
         return ret;
     }
     
-    private void loadTimestamps(final Sequence sequence,
-                                final Student owner) {
+    /**
+     * Returns the amount of months between the last attendances of a student
+     * on the earliest and the latest course of a sequence. The candidate 
+     * sequences are shared by all the students, so the span is computed
+     * without storing it in the sequence.
+     * 
+     * @param  sequence the sequence contained in the courses of the student.
+     * @param  s        the student ordinal.
+     * @return the span of the sequence.
+     */
+    private int getSpan(final Sequence sequence, final int s) {
         int first = Integer.MAX_VALUE;
         int last = Integer.MIN_VALUE;
-       
+        
         for (final Course course : sequence) {
-            final List<CourseAttendanceEntry> list = 
-                    matrix.get(owner).get(course);
-            
-            final CourseAttendanceEntry entry = list.get(list.size() - 1);
-            final int time = 12 * entry.getYear() + entry.getMonth() - 1;
+            final int time = getLastTime(s, getCourseOrdinal(course));
             
             first = Math.min(first, time);
             last = Math.max(last, time);
         }
         
-        sequence.setFirstEventStart(first);
-        sequence.setLastEventEnd(last);
+        return last - first;
     }
 
+    /**
+     * Returns the time of the last attendance of a student on a course.
+     * 
+     * @param  student the student ordinal.
+     * @param  course  the course ordinal.
+     * @return the time of the last attendance entry.
+     */
+    private int getLastTime(final int student, final int course) {
+        for (int i = table.getStudentEnd(student) - 1; 
+                i >= table.getStudentBegin(student); 
+                --i) {
+            if (table.getCourse(i) == course) {
+                return table.getTime(i);
+            }
+        }
+        
+        throw new IllegalStateException(
+                "The student has not attended the course.");
+    }
+    
     private List<Sequence> subsequence(final List<Sequence> candidateList, 
                                        final Sequence transaction) {
         final List<Sequence> ret = new ArrayList<>(candidateList.size());
@@ -1661,37 +2540,6 @@ public class AppDataStorage {
         }
     }
     
-    private List<Sequence> 
-        generateSequenceCandidates(final List<Sequence> input,
-                                   final int maxspan) {
-        final List<Sequence> outputList = new ArrayList<>();
-        final int inputSequenceAmount = input.size();
-        
-        for (int i1 = 0; i1 < inputSequenceAmount; ++i1) {
-            final Sequence s1 = input.get(i1);
-            final Sequence s1aux = s1.dropFirstEvent();
-            
-            for (int i2 = 0; i2 < inputSequenceAmount; ++i2) {
-                if (i1 == i2) {
-                    continue;
-                }
-                
-                final Sequence s2 = input.get(i2);
-                final Sequence s2aux = s2.dropLastEvent();
-                
-                if (s1aux.equals(s2aux)) {
-                    final Sequence out = mergeSequencesWithTimestamps(s1, s2);
-                    
-                    if (out.fitsInSpan(maxspan)) {
-                        outputList.add(out);
-                    } 
-                }
-            }
-        }
-        
-        return outputList;
-    }
-        
     private List<Sequence> 
         generateSequenceCandidates(final List<Sequence> input) {
         final List<Sequence> outputList = new ArrayList<>();
@@ -1718,29 +2566,6 @@ public class AppDataStorage {
         return outputList;
     }
       
-    private Sequence mergeSequencesWithTimestamps(final Sequence s1, 
-                                                  final Sequence s2) {
-        final Course lastEvent = s2.getLastEvent();
-        
-        final int start = Math.min(s1.getFirstEventStart(),
-                                   s2.getFirstEventStart());
-        
-        final int end = Math.max(s1.getLastEventEnd(),
-                                 s2.getLastEventEnd());
-        
-        switch (s2.getMergeType()) {
-            case Sequence.SEPARATE:
-                return new Sequence(s1, lastEvent, false, start, end);
-                
-            case Sequence.TOGETHER:
-                return new Sequence(s1, lastEvent, true, start, end);
-                
-            default:
-                throw new IllegalStateException(
-                        "Unknown merge type: " + s2.getMergeType());
-        }
-    }
-    
     private Sequence mergeSequences(final Sequence s1, final Sequence s2) {
         final Course lastEvent = s2.getLastEvent();
         
@@ -1757,51 +2582,255 @@ public class AppDataStorage {
         }
     }
     
-    private Set<CourseDate> getCourseDatesOfStudent(final Student student) {
-        final List<CourseAttendanceEntry> entryList = studentMap.get(student);
-        final Set<CourseDate> ret = new HashSet<>(entryList.size());
+    /**
+     * This class holds the running statistics of the grade point averages of 
+     * the study periods falling into one credit bucket.
+     */
+    public static final class GpaStatistics {
         
-        for (final CourseAttendanceEntry entry : entryList) {
-            ret.add(new CourseDate(entry));
+        private int count;
+        private double sum;
+        private double sumOfSquares;
+        
+        void add(final float gpa) {
+            ++count;
+            sum += gpa;
+            sumOfSquares += (double) gpa * gpa;
         }
         
-        return ret;
+        void add(final GpaStatistics other) {
+            count += other.count;
+            sum += other.sum;
+            sumOfSquares += other.sumOfSquares;
+        }
+        
+        public int getCount() {
+            return count;
+        }
+        
+        public double getSum() {
+            return sum;
+        }
+        
+        public double getSumOfSquares() {
+            return sumOfSquares;
+        }
+        
+        public float getMean() {
+            return (float)(sum / count);
+        }
+        
+        public float getVariance() {
+            final double mean = sum / count;
+            return (float)(sumOfSquares / count - mean * mean);
+        }
     }
     
+    /**
+     * This class holds the GPA statistics of study periods grouped by the 
+     * amount of credits taken within the period.
+     */
     public static class Result1 {
-        public final Map<Integer, List<Float>> map1;
+        
+        /**
+         * Maps the amount of credits to the statistics of the periods with 
+         * that amount of credits.
+         */
+        public final Map<Integer, GpaStatistics> map1;
+        
+        /**
+         * Maps the amount of credits to the amount of periods with that 
+         * amount of credits.
+         */
         public final Map<Integer, Integer> map2;
         
-        public Result1(final Map<Integer, List<Float>> map1,
+        public Result1(final Map<Integer, GpaStatistics> map1,
                        final Map<Integer, Integer> map2) {
             this.map1 = map1;
             this.map2 = map2;
         }
+        
+        /**
+         * Computes the correlation between the amount of credits and the mean
+         * GPA over the credit buckets in <code>map1</code>.
+         * 
+         * @return the correlation coefficient.
+         */
+        public float getCorrelation() {
+            final int n = map1.size();
+            double sumX = 0.0;
+            double sumY = 0.0;
+            double sumXX = 0.0;
+            double sumYY = 0.0;
+            double sumXY = 0.0;
+            
+            for (final Map.Entry<Integer, GpaStatistics> entry 
+                    : map1.entrySet()) {
+                final double x = entry.getKey();
+                final double y = entry.getValue().getMean();
+                sumX += x;
+                sumY += y;
+                sumXX += x * x;
+                sumYY += y * y;
+                sumXY += x * y;
+            }
+            
+            final double covariance = sumXY - sumX * sumY / n;
+            final double varianceX = sumXX - sumX * sumX / n;
+            final double varianceY = sumYY - sumY * sumY / n;
+            return (float)(covariance / Math.sqrt(varianceX * varianceY));
+        }
     }
     
+    /**
+     * Computes the GPA of each study period of each student and groups the 
+     * periods by the amount of credits taken. A study period consists of the 
+     * course attendances of a student within a month; if a course is attended
+     * several times within a period, only the best grade counts. Only normal
+     * scale courses contribute to the credits and the GPA.
+     * <p>
+     * The students are processed in parallel in a single pass over the entry
+     * table, and only running sums are kept per credit bucket.
+     * 
+     * @return the GPA statistics per credit bucket.
+     */
     public Result1 getCreditsToGPA() {
-        final Map<Integer, List<Float>> ret = new HashMap<>();
-        final Map<Integer, Integer> ret2 = new HashMap<>();
+        final int variantAmount = courseVariantList.size();
+        final boolean[] normalScale = new boolean[variantAmount];
+        final float[] credits = new float[variantAmount];
+        
+        for (int v = 0; v < variantAmount; ++v) {
+            final Course course = courseVariantList.get(v);
+            normalScale[v] = course.getGradingMode() == 
+                             Course.GRADING_MODE_NORMAL_SCALE;
+            credits[v] = course.getCredits();
+        }
+        
+        final List<GpaStatistics[]> partials = 
+                Parallel.forRange(getStudentAmount(), 
+                                  1024,
+                                  new Parallel.RangeTask<GpaStatistics[]>() {
+            @Override
+            public GpaStatistics[] compute(final int from, final int to) {
+                GpaStatistics[] buckets = new GpaStatistics[64];
+                
+                for (int s = from; s < to; ++s) {
+                    buckets = accumulatePeriods(s, 
+                                                normalScale, 
+                                                credits, 
+                                                buckets);
+                }
+                
+                return buckets;
+            }
+        });
+        
+        final Map<Integer, GpaStatistics> map1 = new HashMap<>();
+        final Map<Integer, Integer> map2 = new HashMap<>();
+        
+        for (final GpaStatistics[] buckets : partials) {
+            for (int c = 0; c < buckets.length; ++c) {
+                if (buckets[c] == null) {
+                    continue;
+                }
+                
+                if (!map1.containsKey(c)) {
+                    map1.put(c, new GpaStatistics());
+                }
+                
+                map1.get(c).add(buckets[c]);
+            }
+        }
+        
+        for (final Map.Entry<Integer, GpaStatistics> entry : map1.entrySet()) {
+            map2.put(entry.getKey(), entry.getValue().getCount());
+        }
+        
+        return new Result1(map1, map2);
+    }
+    
+    /**
+     * Adds the GPA of each study period of a student to the statistics of its
+     * credit bucket.
+     * 
+     * @param  s           the student ordinal.
+     * @param  normalScale tells for each course variant whether it is graded
+     *                     in the normal scale.
+     * @param  credits     the credits of each course variant.
+     * @param  buckets     the statistics indexed by credits.
+     * @return the statistics array, which is reallocated when a credit amount
+     *         does not fit.
+     */
+    private GpaStatistics[] accumulatePeriods(final int s,
+                                              final boolean[] normalScale,
+                                              final float[] credits,
+                                              GpaStatistics[] buckets) {
+        final int end = table.getStudentEnd(s);
+        int begin = table.getStudentBegin(s);
         
-        for (final Student student : studentMap.keySet()) {
-            final List<List<CourseAttendanceEntry>> periodList = 
-                    getStudentSchedule(student);
+        while (begin < end) {
+            // The entries of a student are sorted chronologically, so each 
+            // period is a contiguous run of entries.
+            int periodEnd = begin + 1;
+            
+            while (periodEnd < end 
+                    && table.getTime(periodEnd) == table.getTime(begin)) {
+                ++periodEnd;
+            }
             
-            for (final List<CourseAttendanceEntry> period : periodList) {
-                final float gpa = computeGPA(period);
-                final int credits = countCredits(period);
+            int periodCredits = 0;
+            int gradeSum = 0;
+            
+            for (int i = begin; i < periodEnd; ++i) {
+                if (!isBestOfPeriod(i, begin, periodEnd)) {
+                    continue;
+                }
+                
+                final int variant = table.getVariant(i);
                 
-                if (!ret.containsKey(credits)) {
-                    ret.put(credits, new ArrayList<Float>());
-                    ret2.put(credits, 1);
+                if (normalScale[variant]) {
+                    periodCredits += credits[variant];
+                    gradeSum += table.getGrade(i) * credits[variant];
                 }
+            }
+            
+            if (periodCredits >= buckets.length) {
+                buckets = Arrays.copyOf(buckets, 2 * periodCredits);
+            }
+            
+            if (buckets[periodCredits] == null) {
+                buckets[periodCredits] = new GpaStatistics();
+            }
+            
+            buckets[periodCredits].add(1.0f * gradeSum / periodCredits);
+            begin = periodEnd;
+        }
+        
+        return buckets;
+    }
+    
+    /**
+     * Tells whether the entry <code>entry</code> is the retained attendance of
+     * its course within the period <tt>[begin, end)</tt>: it must have the 
+     * greatest grade, ties resolved in favour of the earliest entry.
+     */
+    private boolean isBestOfPeriod(final int entry,
+                                   final int begin,
+                                   final int end) {
+        final int course = table.getCourse(entry);
+        final int grade = table.getGrade(entry);
+        
+        for (int i = begin; i < end; ++i) {
+            if (i != entry && table.getCourse(i) == course) {
+                final int otherGrade = table.getGrade(i);
                 
-                ret.get(credits).add(gpa);
-                ret2.put(credits, ret2.get(credits) + 1);
+                if (otherGrade > grade || (otherGrade == grade && i < entry)) {
+                    return false;
+                }
             }
         }
         
-        return new Result1(ret, ret2);
+        return true;
     }
     
     private static float mean(final List<Float> x) {
@@ -1814,6 +2843,16 @@ public class AppDataStorage {
         return sum / x.size();
     }
     
+    /**
+     * Computes the correlation of two samples of equal size. For the grade
+     * correlations of many course pairs use 
+     * {@link GradeCorrelationMatrix#compute(AppDataStorage, int)}, which
+     * computes all of them in one pass.
+     * 
+     * @param  x the first sample.
+     * @param  y the second sample.
+     * @return the correlation coefficient.
+     */
     public static float correlation(final List<Float> x, final List<Float> y) {
         final float meanx = mean(x);
         final float meany = mean(y);
@@ -1823,9 +2862,11 @@ public class AppDataStorage {
         float lowerSum2 = 0.0f;
         
         for (int i = 0; i < x.size(); ++i) {
-            upperSum += (x.get(i) - meanx) * (y.get(i) - meany);
-            lowerSum1 += Math.pow(x.get(i) - meanx, 2.0f);
-            lowerSum2 += Math.pow(y.get(i) - meany, 2.0f);
+            final float dx = x.get(i) - meanx;
+            final float dy = y.get(i) - meany;
+            upperSum += dx * dy;
+            lowerSum1 += dx * dx;
+            lowerSum2 += dy * dy;
         }
         
         return (float)(upperSum / Math.sqrt(lowerSum1 * lowerSum2));
@@ -1841,153 +2882,14 @@ public class AppDataStorage {
         return sum / floatList.size();
     }
     
-    private List<List<CourseAttendanceEntry>> 
-        getStudentSchedule(final Student student) {
-        final Set<CourseDate> dateSet = getCourseDatesOfStudent(student);
-        final Map<CourseDate, List<CourseAttendanceEntry>> map =
-                new HashMap<>(dateSet.size());
-        
-        final List<List<CourseAttendanceEntry>> ret = new ArrayList<>();
-        final List<CourseAttendanceEntry> entryList = studentMap.get(student);
-        
-        for (final CourseAttendanceEntry entry : entryList) {
-            final CourseDate tmp = new CourseDate(entry);
-            
-            if (!map.containsKey(tmp)) {
-                map.put(tmp, new ArrayList<CourseAttendanceEntry>());
-            }
-            
-            map.get(tmp).add(entry);
-        }
-        
-        for (final List<CourseAttendanceEntry> list : map.values()) {
-            ret.add(prune(list));
-        }
-        
-        return ret;
-    }
-     
-    /**
-     * For each course, if there is multiple course attendance entries, the one
-     * with the greatest grade is retained.
-     * 
-     * @param  entryList the list to prune from multiple same-course 
-     *                    attendancies.
-     * @return the pruned list.
-     */
-    private List<CourseAttendanceEntry> 
-        prune(final List<CourseAttendanceEntry> entryList) {
-        final List<CourseAttendanceEntry> ret = 
-                new ArrayList<>(entryList.size());
-        
-        final Map<Course, List<CourseAttendanceEntry>> map = 
-                new HashMap<>(entryList.size());
-        
-        for (final CourseAttendanceEntry entry : entryList) {
-            final Course course = entry.getCourse();
-            
-            if (!map.containsKey(course)) {
-                map.put(course, new ArrayList<CourseAttendanceEntry>());
-            }
-            
-            map.get(course).add(entry);
-        }
-        
-        final EntryComparatorByGrade entryComparatorByGrade =
-                new EntryComparatorByGrade();
-        
-        for (final List<CourseAttendanceEntry> list : map.values()) {
-            Collections.sort(list, entryComparatorByGrade);
-            ret.add(list.get(0));
-        }
-        
-        return ret;
-    }
-        
-    private static class EntryComparatorByGrade 
-    implements Comparator<CourseAttendanceEntry> {
-
-        @Override
-        public int compare(CourseAttendanceEntry o1, CourseAttendanceEntry o2) {
-            return -Integer.compare(o1.getGrade(), o2.getGrade());
-        }
-    }
-        
-    private float computeGPA(final List<CourseAttendanceEntry> entryList) {
-        final int credits = countCredits(entryList);
-        int sum = 0;
-        
-        for (final CourseAttendanceEntry entry : entryList) {
-            if (entry.getCourse().getGradingMode() == 
-                    Course.GRADING_MODE_NORMAL_SCALE) {
-                sum += entry.getGrade() * entry.getCourse().getCredits();
-            }
-        }
-        
-        return 1.0f * sum / credits;
-    }
-        
-    private int countCredits(final List<CourseAttendanceEntry> entryList) {
-        final Set<Course> courseSet = new HashSet<>(entryList.size());
-        
-        for (final CourseAttendanceEntry entry : entryList) {
-            if (entry.getCourse().getGradingMode() 
-                    == Course.GRADING_MODE_NORMAL_SCALE) {
-                courseSet.add(entry.getCourse());
-            }
-        }
-        
-        int credits = 0;
-        
-        for (final Course course : courseSet) {
-            credits += course.getCredits();
-        }
-        
-        return credits;
-    }
-    
-    static class CourseDate {
-        
-        private final int year;
-        private final int month;
-        
-        CourseDate(final int year, final int month) {
-            this.year = year;
-            this.month = month;
-        }
-        
-        CourseDate(final CourseAttendanceEntry entry) {
-            this(entry.getYear(), entry.getMonth());
-        }
-        
-        public int getYear() {
-            return year;
-        }
-        
-        public int getMonth() {
-            return month;
-        }
-        
-        @Override
-        public boolean equals(final Object o) {
-            final CourseDate cd = (CourseDate) o;
-            return getYear() == cd.getYear() && getMonth() == cd.getMonth();
-        }
-
-        @Override
-        public int hashCode() {
-            return 12 * getYear() + getMonth() - 1;
-        }
-    }
-    
     public int supportCount(final Set<Course> courseSet, 
                             final int minGrade, 
                             final int maxGrade) {
         int supportCount = 0;
         
-        for (final Student student : studentMap.keySet()) {
+        for (final Student student : studentOrdinalList) {
             final Set<Course> studentsCourseSet = 
-                    new HashSet<>(studentToCourseListMap.get(student));
+                    getStudentsAllCourses(student);
             
             for (final Course course : courseSet) {
                 if (studentsCourseSet.contains(course)
@@ -2000,84 +2902,41 @@ public class AppDataStorage {
         return supportCount;
     }
     
+    /**
+     * Returns a new query over the course attendance entries.
+     * 
+     * @return a new query.
+     */
+    public EnrollmentQuery query() {
+        return new EnrollmentQuery(this);
+    }
+    
     public float week5Task16() {
-        final List<Student> targetStudents = new ArrayList<>();
-        final Course intro = getCourseByName("Ohjelmoinnin perusteet");
-        final Course adv = getCourseByName("Ohjelmoinnin jatkokurssi");
-        
-        for (final Student student : studentMap.keySet()) {
-            if (student.getRegistrationYear() > 2010) {
-                final int grade = grade(student, intro);
-                
-                if (grade >= 1 && grade <= 3
-                        && hasGrade(student, adv, 0, 5)) {
-                    targetStudents.add(student);
-                }
-            }
-        }
-        
-        int gradeSum = 0;
-        
-        for (final Student student : targetStudents) {
-            gradeSum += grade(student, adv);
-        }
-        
-        return 1.0f * gradeSum / targetStudents.size();
+        return query().withRegistrationYears(2011, Integer.MAX_VALUE)
+                      .withStudentGrade(
+                              getCourseByName("Ohjelmoinnin perusteet"), 1, 3)
+                      .withCourses(getCourseByName("Ohjelmoinnin jatkokurssi"))
+                      .bestAttemptOnly()
+                      .mean();
     }
     
     public float week5Task17() {
-        final List<Student> targetStudents = new ArrayList<>();
-        final Course intro = getCourseByName("Ohjelmoinnin perusteet");
-        final Course algo = getCourseByName("Tietorakenteet ja algoritmit");
-        
-        intro.getCode();
-        algo.getCode();
-        
-        for (final Student student : studentMap.keySet()) {
-            if (student.getRegistrationYear() > 2010) {
-                final int grade = grade(student, intro);
-                
-                if (grade >= 4 && grade <= 5
-                        && hasGrade(student, algo, 0, 5)) {
-                    targetStudents.add(student);
-                }
-            }
-        }
-        
-        int gradeSum = 0;
-        
-        for (final Student student : targetStudents) {
-            gradeSum += grade(student, algo);
-        }
-        
-        return 1.0f * gradeSum / targetStudents.size();
+        return query().withRegistrationYears(2011, Integer.MAX_VALUE)
+                      .withStudentGrade(
+                              getCourseByName("Ohjelmoinnin perusteet"), 4, 5)
+                      .withCourses(
+                              getCourseByName("Tietorakenteet ja algoritmit"))
+                      .bestAttemptOnly()
+                      .mean();
     }
     
     public float week5Task18() {
-        final List<Student> targetStudents = new ArrayList<>();
-        final Course intro = getCourseByName("Ohjelmoinnin perusteet");
-        final Course algo = getCourseByName("Tietorakenteet ja algoritmit");
-        
-        intro.getCode();
-        algo.getCode();
-        
-        for (final Student student : studentMap.keySet()) {
-            if (student.getRegistrationYear() < 2010) {
-                final int grade = grade(student, intro);
-                
-                if (grade >= 4 && grade <= 5
-                        && hasGrade(student, algo, 0, 5)) {
-                    targetStudents.add(student);
-                }
-            }
-        }
-        
-        int gradeSum = 0;
-        
-        for (final Student student : targetStudents) {
-            gradeSum += grade(student, algo);
-        }
-        
-        return 1.0f * gradeSum / targetStudents.size();
+        return query().withRegistrationYears(Integer.MIN_VALUE, 2009)
+                      .withStudentGrade(
+                              getCourseByName("Ohjelmoinnin perusteet"), 4, 5)
+                      .withCourses(
+                              getCourseByName("Tietorakenteet ja algoritmit"))
+                      .bestAttemptOnly()
+                      .mean();
     }
 }
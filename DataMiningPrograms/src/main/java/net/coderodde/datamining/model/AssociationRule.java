@@ -30,6 +30,7 @@ public class AssociationRule {
         this.consequent = consequent;
         this.support = support;
         this.confidence = confidence;
+        this.lift = lift;
         this.isMeasure = isMeasure;
     }
     
@@ -0,0 +1,24 @@
+package net.coderodde.datamining.model;
+
+/**
+ * This class lets one thread ask a mining run executing in another thread to
+ * stop. The run polls the token, so it stops shortly after the request.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    /**
+     * Requests the runs polling this token to stop.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
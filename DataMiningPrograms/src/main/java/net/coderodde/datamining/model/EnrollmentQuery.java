@@ -0,0 +1,645 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.model.Course.MAXIMUM_COURSE_GRADE;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class implements a small query engine over the course attendance
+ * entries of an {@link AppDataStorage}. A query consists of filter predicates,
+ * an optional group-by key and the aggregates computed for each group: the
+ * amount of rows, the mean grade and the grade histogram.
+ * <p>
+ * By default the rows are the individual course attendances. After calling
+ * {@link #bestAttemptOnly()} each row is a (student, course) pair carrying the
+ * best grade the student received from the course, which is what
+ * {@link AppDataStorage#grade(Student, Course)} returns.
+ * <p>
+ * When run, the predicates are compiled to primitive lookup tables and the
+ * rows are scanned in one loop over the columns of the {@link EntryTable}.
+ * The students are processed in parallel.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class EnrollmentQuery {
+
+    /**
+     * The aggregates of a group of rows.
+     */
+    public static final class Aggregate {
+
+        private final int count;
+        private final long gradeSum;
+        private final int[] histogram;
+
+        Aggregate(final int count, final long gradeSum, final int[] histogram) {
+            this.count = count;
+            this.gradeSum = gradeSum;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Returns the amount of rows in the group.
+         *
+         * @return the amount of rows.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        public long getGradeSum() {
+            return gradeSum;
+        }
+
+        /**
+         * Returns the mean grade of the group, or <code>NaN</code> if the
+         * group is empty.
+         *
+         * @return the mean grade.
+         */
+        public float getMean() {
+            return 1.0f * gradeSum / count;
+        }
+
+        /**
+         * Returns the grade histogram of the group. The element at index
+         * <code>g</code> is the amount of rows with grade <code>g</code>.
+         *
+         * @return the grade histogram.
+         */
+        public int[] getHistogram() {
+            return histogram.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "[count: " + count + ", mean: " + getMean() +
+                   ", histogram: " + Arrays.toString(histogram) + "]";
+        }
+    }
+
+    /**
+     * This class defines the keys by which the rows may be grouped. Each key
+     * maps a row to a dense integer index and back to the key value.
+     *
+     * @param <K> the type of the key values.
+     */
+    public abstract static class GroupKey<K> {
+
+        /**
+         * Groups by course.
+         */
+        public static final GroupKey<Course> COURSE = new GroupKey<Course>() {
+            @Override
+            int index(final Plan plan, final int student, final int course,
+                      final int time, final int grade) {
+                return course;
+            }
+
+            @Override
+            int size(final Plan plan) {
+                return plan.courseAmount;
+            }
+
+            @Override
+            Course decode(final Plan plan, final int index) {
+                return plan.storage.getCourseList().get(index);
+            }
+        };
+
+        /**
+         * Groups by the registration year of the student.
+         */
+        public static final GroupKey<Integer> REGISTRATION_YEAR =
+                new GroupKey<Integer>() {
+            @Override
+            int index(final Plan plan, final int student, final int course,
+                      final int time, final int grade) {
+                return plan.registrationYears[student] -
+                       plan.minRegistrationYear;
+            }
+
+            @Override
+            int size(final Plan plan) {
+                return plan.maxRegistrationYear - plan.minRegistrationYear + 1;
+            }
+
+            @Override
+            Integer decode(final Plan plan, final int index) {
+                return plan.minRegistrationYear + index;
+            }
+        };
+
+        /**
+         * Groups by grade.
+         */
+        public static final GroupKey<Integer> GRADE = new GroupKey<Integer>() {
+            @Override
+            int index(final Plan plan, final int student, final int course,
+                      final int time, final int grade) {
+                return grade;
+            }
+
+            @Override
+            int size(final Plan plan) {
+                return MAXIMUM_COURSE_GRADE + 1;
+            }
+
+            @Override
+            Integer decode(final Plan plan, final int index) {
+                return index;
+            }
+        };
+
+        /**
+         * Groups by the calendar year of the attendance.
+         */
+        public static final GroupKey<Integer> YEAR = new GroupKey<Integer>() {
+            @Override
+            int index(final Plan plan, final int student, final int course,
+                      final int time, final int grade) {
+                return EntryTable.getYear(time) - plan.minYear;
+            }
+
+            @Override
+            int size(final Plan plan) {
+                return plan.maxYear - plan.minYear + 1;
+            }
+
+            @Override
+            Integer decode(final Plan plan, final int index) {
+                return plan.minYear + index;
+            }
+
+            @Override
+            boolean needsTime() {
+                return true;
+            }
+        };
+
+        /**
+         * Groups by the month of the attendance. The key values are times as
+         * returned by {@link EntryTable#toTime(int, int)}.
+         */
+        public static final GroupKey<Integer> PERIOD =
+                new GroupKey<Integer>() {
+            @Override
+            int index(final Plan plan, final int student, final int course,
+                      final int time, final int grade) {
+                return time - plan.minTime;
+            }
+
+            @Override
+            int size(final Plan plan) {
+                return plan.maxTime - plan.minTime + 1;
+            }
+
+            @Override
+            Integer decode(final Plan plan, final int index) {
+                return plan.minTime + index;
+            }
+
+            @Override
+            boolean needsTime() {
+                return true;
+            }
+        };
+
+        /**
+         * Puts all rows in one group.
+         */
+        static final GroupKey<Void> NONE = new GroupKey<Void>() {
+            @Override
+            int index(final Plan plan, final int student, final int course,
+                      final int time, final int grade) {
+                return 0;
+            }
+
+            @Override
+            int size(final Plan plan) {
+                return 1;
+            }
+
+            @Override
+            Void decode(final Plan plan, final int index) {
+                return null;
+            }
+        };
+
+        GroupKey() {}
+
+        abstract int index(final Plan plan,
+                           final int student,
+                           final int course,
+                           final int time,
+                           final int grade);
+
+        abstract int size(final Plan plan);
+
+        abstract K decode(final Plan plan, final int index);
+
+        boolean needsTime() {
+            return false;
+        }
+    }
+
+    /**
+     * The student-level condition requiring a grade within a band from a
+     * course.
+     */
+    private static final class StudentGrade {
+
+        final Course course;
+        final int minGrade;
+        final int maxGrade;
+
+        StudentGrade(final Course course,
+                     final int minGrade,
+                     final int maxGrade) {
+            this.course = course;
+            this.minGrade = minGrade;
+            this.maxGrade = maxGrade;
+        }
+    }
+
+    /**
+     * The compiled form of a query.
+     */
+    static final class Plan {
+
+        final AppDataStorage storage;
+        final EntryTable table;
+        final int courseAmount;
+        final int[] registrationYears;
+        final int minRegistrationYear;
+        final int maxRegistrationYear;
+        final int minTime;
+        final int maxTime;
+        final int minYear;
+        final int maxYear;
+        final boolean[] studentMask;
+        final boolean[] courseMask;
+
+        Plan(final EnrollmentQuery query, final boolean needsTime) {
+            this.storage = query.storage;
+            this.table = storage.getEntryTable();
+            this.courseAmount = table.getCourseAmount();
+
+            final int studentAmount = table.getStudentAmount();
+            this.registrationYears = new int[studentAmount];
+            this.studentMask = new boolean[studentAmount];
+
+            int minRegYear = Integer.MAX_VALUE;
+            int maxRegYear = Integer.MIN_VALUE;
+
+            for (int s = 0; s < studentAmount; ++s) {
+                final int year =
+                        storage.getStudentByOrdinal(s).getRegistrationYear();
+                registrationYears[s] = year;
+                minRegYear = Math.min(minRegYear, year);
+                maxRegYear = Math.max(maxRegYear, year);
+                studentMask[s] = year >= query.minRegistrationYear
+                              && year <= query.maxRegistrationYear
+                              && satisfies(s, query.studentGradeList);
+            }
+
+            this.minRegistrationYear = minRegYear;
+            this.maxRegistrationYear = Math.max(minRegYear, maxRegYear);
+
+            int minT = 0;
+            int maxT = 0;
+
+            if (needsTime && table.getEntryAmount() > 0) {
+                minT = Integer.MAX_VALUE;
+                maxT = Integer.MIN_VALUE;
+
+                for (int i = 0; i < table.getEntryAmount(); ++i) {
+                    minT = Math.min(minT, table.getTime(i));
+                    maxT = Math.max(maxT, table.getTime(i));
+                }
+            }
+
+            this.minTime = minT;
+            this.maxTime = Math.max(minT, maxT);
+            this.minYear = EntryTable.getYear(minTime);
+            this.maxYear = EntryTable.getYear(maxTime);
+
+            if (query.courseList == null) {
+                this.courseMask = null;
+            } else {
+                this.courseMask = new boolean[courseAmount];
+
+                for (final Course course : query.courseList) {
+                    final int c = storage.getCourseOrdinal(course);
+
+                    if (c >= 0) {
+                        courseMask[c] = true;
+                    }
+                }
+            }
+        }
+
+        private boolean satisfies(final int s,
+                                  final List<StudentGrade> studentGradeList) {
+            for (final StudentGrade condition : studentGradeList) {
+                final int c = storage.getCourseOrdinal(condition.course);
+                final int position = c < 0 ? -1 : table.findStudentCourse(s, c);
+
+                if (position < 0) {
+                    return false;
+                }
+
+                final int grade = table.getStudentBestGrade(position);
+
+                if (grade < condition.minGrade || grade > condition.maxGrade) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private final AppDataStorage storage;
+    private final List<StudentGrade> studentGradeList = new ArrayList<>();
+    private int minRegistrationYear = Integer.MIN_VALUE;
+    private int maxRegistrationYear = Integer.MAX_VALUE;
+    private int minGrade = 0;
+    private int maxGrade = MAXIMUM_COURSE_GRADE;
+    private int fromTime = Integer.MIN_VALUE;
+    private int untilTime = Integer.MAX_VALUE;
+    private List<Course> courseList;
+    private boolean bestAttemptOnly;
+
+    /**
+     * Constructs a new query over all the entries of <code>storage</code>.
+     *
+     * @param storage the data storage to query.
+     */
+    public EnrollmentQuery(final AppDataStorage storage) {
+        checkNotNull(storage, "The data storage is null.");
+        this.storage = storage;
+    }
+
+    /**
+     * Restricts the rows to the students registered within
+     * <tt>[minYear, maxYear]</tt>.
+     *
+     * @param  minYear the minimum registration year.
+     * @param  maxYear the maximum registration year.
+     * @return this query.
+     */
+    public EnrollmentQuery withRegistrationYears(final int minYear,
+                                                 final int maxYear) {
+        this.minRegistrationYear = minYear;
+        this.maxRegistrationYear = maxYear;
+        return this;
+    }
+
+    /**
+     * Restricts the rows to the given courses. Calling this method again
+     * replaces the previous course restriction.
+     *
+     * @param  courses the courses to retain.
+     * @return this query.
+     */
+    public EnrollmentQuery withCourses(final Course... courses) {
+        return withCourses(Arrays.asList(courses));
+    }
+
+    /**
+     * Restricts the rows to the given courses. Calling this method again
+     * replaces the previous course restriction.
+     *
+     * @param  courses the courses to retain.
+     * @return this query.
+     */
+    public EnrollmentQuery withCourses(final Collection<Course> courses) {
+        checkNotNull(courses, "The course collection is null.");
+        this.courseList = new ArrayList<>(courses);
+        return this;
+    }
+
+    /**
+     * Restricts the rows to those with grade within
+     * <tt>[minGrade, maxGrade]</tt>.
+     *
+     * @param  minGrade the minimum grade.
+     * @param  maxGrade the maximum grade.
+     * @return this query.
+     */
+    public EnrollmentQuery withGrades(final int minGrade, final int maxGrade) {
+        this.minGrade = Math.max(0, minGrade);
+        this.maxGrade = Math.min(MAXIMUM_COURSE_GRADE, maxGrade);
+        return this;
+    }
+
+    /**
+     * Restricts the rows to the attendances within the time range
+     * <tt>[fromTime, untilTime)</tt>, where the times are as returned by
+     * {@link EntryTable#toTime(int, int)}.
+     *
+     * @param  fromTime  the first time included.
+     * @param  untilTime the first time excluded.
+     * @return this query.
+     */
+    public EnrollmentQuery withPeriod(final int fromTime, final int untilTime) {
+        this.fromTime = fromTime;
+        this.untilTime = untilTime;
+        return this;
+    }
+
+    /**
+     * Restricts the rows to the students whose best grade from
+     * <code>course</code> is within <tt>[minGrade, maxGrade]</tt>. Several
+     * such conditions may be given, in which case all of them must hold.
+     *
+     * @param  course   the course.
+     * @param  minGrade the minimum grade.
+     * @param  maxGrade the maximum grade.
+     * @return this query.
+     */
+    public EnrollmentQuery withStudentGrade(final Course course,
+                                            final int minGrade,
+                                            final int maxGrade) {
+        checkNotNull(course, "The course is null.");
+        studentGradeList.add(new StudentGrade(course, minGrade, maxGrade));
+        return this;
+    }
+
+    /**
+     * Makes each row a (student, course) pair carrying the best grade of the
+     * student from the course. Such rows have no time, so this mode may not be
+     * combined with a period restriction or a time-based group-by key.
+     *
+     * @return this query.
+     */
+    public EnrollmentQuery bestAttemptOnly() {
+        this.bestAttemptOnly = true;
+        return this;
+    }
+
+    /**
+     * Runs the query without grouping.
+     *
+     * @return the aggregates over all matching rows.
+     */
+    public Aggregate aggregate() {
+        return run(GroupKey.NONE).get(null);
+    }
+
+    /**
+     * Runs the query and groups the matching rows by <code>key</code>. Only
+     * nonempty groups are returned, in the ascending order of the key.
+     *
+     * @param  <K> the type of the key values.
+     * @param  key the group-by key.
+     * @return the map from key values to the aggregates of the groups.
+     */
+    public <K> Map<K, Aggregate> groupBy(final GroupKey<K> key) {
+        checkNotNull(key, "The group-by key is null.");
+        return run(key);
+    }
+
+    /**
+     * Returns the amount of matching rows.
+     *
+     * @return the amount of rows.
+     */
+    public int count() {
+        return aggregate().getCount();
+    }
+
+    /**
+     * Returns the mean grade of the matching rows.
+     *
+     * @return the mean grade, or <code>NaN</code> if no row matches.
+     */
+    public float mean() {
+        return aggregate().getMean();
+    }
+
+    private <K> Map<K, Aggregate> run(final GroupKey<K> key) {
+        if (bestAttemptOnly
+                && (key.needsTime()
+                    || fromTime != Integer.MIN_VALUE
+                    || untilTime != Integer.MAX_VALUE)) {
+            throw new IllegalStateException(
+                    "The best attempts carry no time and may not be " +
+                    "filtered or grouped by time.");
+        }
+
+        final Plan plan = new Plan(this, key.needsTime());
+        final int groups = key.size(plan);
+        final int histogramLength = MAXIMUM_COURSE_GRADE + 1;
+
+        final List<long[]> partials =
+                Parallel.forRange(plan.table.getStudentAmount(),
+                                  1024,
+                                  new Parallel.RangeTask<long[]>() {
+            @Override
+            public long[] compute(final int from, final int to) {
+                // Per group: the count, the grade sum and the histogram.
+                final long[] acc = new long[groups * (2 + histogramLength)];
+
+                for (int s = from; s < to; ++s) {
+                    if (plan.studentMask[s]) {
+                        if (bestAttemptOnly) {
+                            scanBestAttempts(plan, key, s, acc);
+                        } else {
+                            scanAttempts(plan, key, s, acc);
+                        }
+                    }
+                }
+
+                return acc;
+            }
+        });
+
+        final long[] total = new long[groups * (2 + histogramLength)];
+
+        for (final long[] partial : partials) {
+            for (int i = 0; i < total.length; ++i) {
+                total[i] += partial[i];
+            }
+        }
+
+        final Map<K, Aggregate> ret = new LinkedHashMap<>();
+
+        for (int g = 0; g < groups; ++g) {
+            final int base = g * (2 + histogramLength);
+
+            if (total[base] == 0L && key != GroupKey.NONE) {
+                continue;
+            }
+
+            final int[] histogram = new int[histogramLength];
+
+            for (int i = 0; i < histogramLength; ++i) {
+                histogram[i] = (int) total[base + 2 + i];
+            }
+
+            ret.put(key.decode(plan, g),
+                    new Aggregate((int) total[base], total[base + 1],
+                                  histogram));
+        }
+
+        return ret;
+    }
+
+    private void scanAttempts(final Plan plan,
+                              final GroupKey<?> key,
+                              final int s,
+                              final long[] acc) {
+        final EntryTable table = plan.table;
+        final boolean[] courseMask = plan.courseMask;
+        final int stride = 2 + MAXIMUM_COURSE_GRADE + 1;
+        final int end = table.getStudentEnd(s);
+
+        for (int i = table.getStudentBegin(s); i < end; ++i) {
+            final int course = table.getCourse(i);
+            final int time = table.getTime(i);
+            final int grade = table.getGrade(i);
+
+            if ((courseMask == null || courseMask[course])
+                    && time >= fromTime && time < untilTime
+                    && grade >= minGrade && grade <= maxGrade) {
+                final int base = stride * key.index(plan, s, course, time,
+                                                    grade);
+                ++acc[base];
+                acc[base + 1] += grade;
+                ++acc[base + 2 + grade];
+            }
+        }
+    }
+
+    private void scanBestAttempts(final Plan plan,
+                                  final GroupKey<?> key,
+                                  final int s,
+                                  final long[] acc) {
+        final EntryTable table = plan.table;
+        final boolean[] courseMask = plan.courseMask;
+        final int stride = 2 + MAXIMUM_COURSE_GRADE + 1;
+        final int end = table.getStudentCourseEnd(s);
+
+        for (int i = table.getStudentCourseBegin(s); i < end; ++i) {
+            final int course = table.getStudentCourse(i);
+            final int grade = table.getStudentBestGrade(i);
+
+            if ((courseMask == null || courseMask[course])
+                    && grade >= minGrade && grade <= maxGrade) {
+                final int base = stride * key.index(plan, s, course, 0, grade);
+                ++acc[base];
+                acc[base + 1] += grade;
+                ++acc[base + 2 + grade];
+            }
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package net.coderodde.datamining.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class stores the course attendance entries column-wise in primitive
+ * arrays. Students and courses are referred to by their ordinals. The entries
+ * are grouped by student (each student's entries are sorted chronologically,
+ * ties broken by course name), and two compressed sparse row (CSR) indices
+ * give the entries of each student and the entries of each course. A third
+ * CSR index lists the distinct courses of each student in ascending order
+ * together with the best grade the student received from each. Finally, the
+ * entries of each course are also indexed in chronological order, which allows
+ * answering time-range queries by binary search.
+ * <p>
+ * The columns are held in buffers. A table is built on the heap, and
+ * {@link #toOffHeap()} copies it into direct buffers outside of the heap, so
+ * that the garbage collector neither copies nor scans the entry data; a table
+ * of tens of millions of entries then costs the heap only a few buffer
+ * objects. The accessors read the buffers by absolute index and never move
+ * their positions.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class EntryTable {
+
+    /**
+     * The student ordinal of each entry.
+     */
+    private final IntBuffer studentColumn;
+
+    /**
+     * The course ordinal of each entry.
+     */
+    private final IntBuffer courseColumn;
+
+    /**
+     * The time of each entry as returned by {@link #toTime(int, int)}.
+     */
+    private final IntBuffer timeColumn;
+
+    /**
+     * The grade of each entry.
+     */
+    private final ByteBuffer gradeColumn;
+
+    /**
+     * The course variant of each entry. Entries of the same course may differ
+     * in grading mode and credits, and the variant ordinal identifies the
+     * exact course record of the entry.
+     */
+    private final IntBuffer variantColumn;
+
+    /**
+     * The entries of student <code>s</code> are at indices
+     * <tt>[studentOffsets[s], studentOffsets[s + 1])</tt>.
+     */
+    private final IntBuffer studentOffsets;
+
+    /**
+     * The entries of course <code>c</code> are listed in
+     * <code>courseEntries</code> at positions
+     * <tt>[courseOffsets[c], courseOffsets[c + 1])</tt>.
+     */
+    private final IntBuffer courseOffsets;
+
+    /**
+     * The entry indices grouped by course. Within a course the entries appear
+     * in ascending student ordinal order.
+     */
+    private final IntBuffer courseEntries;
+
+    /**
+     * The entry indices grouped by course in the same layout as
+     * <code>courseEntries</code>, but within a course the entries appear in
+     * chronological order.
+     */
+    private final IntBuffer courseTimeEntries;
+
+    /**
+     * The time of each entry in <code>courseTimeEntries</code>. Within a
+     * course the times are sorted.
+     */
+    private final IntBuffer courseTimes;
+
+    /**
+     * The distinct courses of student <code>s</code> are at positions
+     * <tt>[studentCourseOffsets[s], studentCourseOffsets[s + 1])</tt> of
+     * <code>studentCourses</code> and <code>studentBestGrades</code>.
+     */
+    private final IntBuffer studentCourseOffsets;
+
+    /**
+     * The distinct course ordinals of each student in ascending order.
+     */
+    private final IntBuffer studentCourses;
+
+    /**
+     * The best grade of each (student, course) pair in
+     * <code>studentCourses</code>.
+     */
+    private final ByteBuffer studentBestGrades;
+
+    private EntryTable(final IntBuffer studentColumn,
+                       final IntBuffer courseColumn,
+                       final IntBuffer timeColumn,
+                       final ByteBuffer gradeColumn,
+                       final IntBuffer variantColumn,
+                       final IntBuffer studentOffsets,
+                       final IntBuffer courseOffsets,
+                       final IntBuffer courseEntries,
+                       final IntBuffer courseTimeEntries,
+                       final IntBuffer courseTimes,
+                       final IntBuffer studentCourseOffsets,
+                       final IntBuffer studentCourses,
+                       final ByteBuffer studentBestGrades) {
+        this.studentColumn = studentColumn;
+        this.courseColumn = courseColumn;
+        this.timeColumn = timeColumn;
+        this.gradeColumn = gradeColumn;
+        this.variantColumn = variantColumn;
+        this.studentOffsets = studentOffsets;
+        this.courseOffsets = courseOffsets;
+        this.courseEntries = courseEntries;
+        this.courseTimeEntries = courseTimeEntries;
+        this.courseTimes = courseTimes;
+        this.studentCourseOffsets = studentCourseOffsets;
+        this.studentCourses = studentCourses;
+        this.studentBestGrades = studentBestGrades;
+    }
+
+    /**
+     * Builds an entry table.
+     *
+     * @param  entryList       the course attendance entries.
+     * @param  studentOrdinals maps each student to its ordinal.
+     * @param  courseOrdinals  maps each course to its ordinal.
+     * @param  courseNameRanks the rank of each course (by ordinal) when the
+     *                         courses are sorted by name.
+     * @param  studentAmount   the amount of students.
+     * @param  variants        the course variant ordinal of each entry in
+     *                         <code>entryList</code>.
+     * @return an entry table.
+     */
+    public static EntryTable build(final List<CourseAttendanceEntry> entryList,
+                                   final Map<Student, Integer> studentOrdinals,
+                                   final Map<Course, Integer> courseOrdinals,
+                                   final int[] courseNameRanks,
+                                   final int studentAmount,
+                                   final int[] variants) {
+        final int entryAmount = entryList.size();
+        final int courseAmount = courseNameRanks.length;
+
+        final int[] rawStudents = new int[entryAmount];
+        final int[] rawCourses = new int[entryAmount];
+        final int[] rawTimes = new int[entryAmount];
+        final byte[] rawGrades = new byte[entryAmount];
+        final int[] studentOffsets = new int[studentAmount + 1];
+
+        int index = 0;
+
+        for (final CourseAttendanceEntry entry : entryList) {
+            rawStudents[index] = studentOrdinals.get(entry.getStudent());
+            rawCourses[index] = courseOrdinals.get(entry.getCourse());
+            rawTimes[index] = toTime(entry.getYear(), entry.getMonth());
+            rawGrades[index] = (byte) entry.getGrade();
+            ++studentOffsets[rawStudents[index] + 1];
+            ++index;
+        }
+
+        for (int s = 0; s < studentAmount; ++s) {
+            studentOffsets[s + 1] += studentOffsets[s];
+        }
+
+        // Counting sort the entries by student, then sort each student's
+        // entries chronologically.
+        final int[] order = new int[entryAmount];
+        final int[] fill = Arrays.copyOf(studentOffsets, studentAmount);
+
+        for (int i = 0; i < entryAmount; ++i) {
+            order[fill[rawStudents[i]]++] = i;
+        }
+
+        final long[] sortKeys = new long[entryAmount];
+
+        for (int i = 0; i < entryAmount; ++i) {
+            final int raw = order[i];
+            sortKeys[i] = ((long) rawTimes[raw] << 44)
+                        | ((long) courseNameRanks[rawCourses[raw]] << 24)
+                        | (i - studentOffsets[rawStudents[raw]]);
+        }
+
+        for (int s = 0; s < studentAmount; ++s) {
+            Arrays.sort(sortKeys, studentOffsets[s], studentOffsets[s + 1]);
+        }
+
+        final int[] studentColumn = new int[entryAmount];
+        final int[] courseColumn = new int[entryAmount];
+        final int[] timeColumn = new int[entryAmount];
+        final byte[] gradeColumn = new byte[entryAmount];
+        final int[] variantColumn = new int[entryAmount];
+        final int[] courseOffsets = new int[courseAmount + 1];
+
+        for (int s = 0; s < studentAmount; ++s) {
+            final int begin = studentOffsets[s];
+
+            for (int i = begin; i < studentOffsets[s + 1]; ++i) {
+                final int raw = order[begin + (int)(sortKeys[i] & 0xffffff)];
+                studentColumn[i] = s;
+                courseColumn[i] = rawCourses[raw];
+                timeColumn[i] = rawTimes[raw];
+                gradeColumn[i] = rawGrades[raw];
+                variantColumn[i] = variants[raw];
+                ++courseOffsets[courseColumn[i] + 1];
+            }
+        }
+
+        for (int c = 0; c < courseAmount; ++c) {
+            courseOffsets[c + 1] += courseOffsets[c];
+        }
+
+        final int[] courseEntries = new int[entryAmount];
+        final int[] courseFill = Arrays.copyOf(courseOffsets, courseAmount);
+
+        for (int i = 0; i < entryAmount; ++i) {
+            courseEntries[courseFill[courseColumn[i]]++] = i;
+        }
+
+        // Build the chronological index of each course.
+        final int[] courseTimeEntries = new int[entryAmount];
+        final int[] courseTimes = new int[entryAmount];
+        final long[] timeKeys = new long[entryAmount];
+
+        for (int i = 0; i < entryAmount; ++i) {
+            final int entry = courseEntries[i];
+            timeKeys[i] = ((long) timeColumn[entry] << 32) | entry;
+        }
+
+        for (int c = 0; c < courseAmount; ++c) {
+            Arrays.sort(timeKeys, courseOffsets[c], courseOffsets[c + 1]);
+        }
+
+        for (int i = 0; i < entryAmount; ++i) {
+            courseTimeEntries[i] = (int) timeKeys[i];
+            courseTimes[i] = (int)(timeKeys[i] >>> 32);
+        }
+
+        // Build the index of distinct courses per student.
+        final int[] studentCourseOffsets = new int[studentAmount + 1];
+        final int[] studentCourses = new int[entryAmount];
+        final byte[] studentBestGrades = new byte[entryAmount];
+        final int[] work = new int[entryAmount];
+        int size = 0;
+
+        for (int s = 0; s < studentAmount; ++s) {
+            final int begin = studentOffsets[s];
+            final int end = studentOffsets[s + 1];
+
+            // Pack (course, grade) such that sorting orders by course and
+            // then by grade.
+            for (int i = begin; i < end; ++i) {
+                work[i] = (courseColumn[i] << 3) | gradeColumn[i];
+            }
+
+            Arrays.sort(work, begin, end);
+
+            for (int i = begin; i < end; ++i) {
+                final int course = work[i] >>> 3;
+
+                if (i + 1 < end && (work[i + 1] >>> 3) == course) {
+                    // Only the greatest grade of a course is retained.
+                    continue;
+                }
+
+                studentCourses[size] = course;
+                studentBestGrades[size++] = (byte)(work[i] & 7);
+            }
+
+            studentCourseOffsets[s + 1] = size;
+        }
+
+        return new EntryTable(IntBuffer.wrap(studentColumn),
+                              IntBuffer.wrap(courseColumn),
+                              IntBuffer.wrap(timeColumn),
+                              ByteBuffer.wrap(gradeColumn),
+                              IntBuffer.wrap(variantColumn),
+                              IntBuffer.wrap(studentOffsets),
+                              IntBuffer.wrap(courseOffsets),
+                              IntBuffer.wrap(courseEntries),
+                              IntBuffer.wrap(courseTimeEntries),
+                              IntBuffer.wrap(courseTimes),
+                              IntBuffer.wrap(studentCourseOffsets),
+                              IntBuffer.wrap(Arrays.copyOf(studentCourses,
+                                                           size)),
+                              ByteBuffer.wrap(Arrays.copyOf(studentBestGrades,
+                                                            size)));
+    }
+
+    /**
+     * Returns a copy of this table whose columns are stored in direct buffers
+     * outside of the heap. If this table is already off the heap, it is
+     * returned as is.
+     *
+     * @return an off-heap entry table.
+     * @throws OutOfMemoryError if the direct memory limit would be exceeded.
+     */
+    public EntryTable toOffHeap() {
+        if (isOffHeap()) {
+            return this;
+        }
+
+        return new EntryTable(copyToDirect(studentColumn),
+                              copyToDirect(courseColumn),
+                              copyToDirect(timeColumn),
+                              copyToDirect(gradeColumn),
+                              copyToDirect(variantColumn),
+                              copyToDirect(studentOffsets),
+                              copyToDirect(courseOffsets),
+                              copyToDirect(courseEntries),
+                              copyToDirect(courseTimeEntries),
+                              copyToDirect(courseTimes),
+                              copyToDirect(studentCourseOffsets),
+                              copyToDirect(studentCourses),
+                              copyToDirect(studentBestGrades));
+    }
+
+    /**
+     * Tells whether the columns of this table are stored outside of the heap.
+     *
+     * @return <code>true</code> if the table is off the heap.
+     */
+    public boolean isOffHeap() {
+        return studentColumn.isDirect();
+    }
+
+    /**
+     * Returns the amount of bytes taken by the columns of this table.
+     *
+     * @return the size of the columns in bytes.
+     */
+    public long getColumnBytes() {
+        long bytes = 0L;
+
+        for (final IntBuffer buffer : new IntBuffer[]{ studentColumn,
+                                                       courseColumn,
+                                                       timeColumn,
+                                                       variantColumn,
+                                                       studentOffsets,
+                                                       courseOffsets,
+                                                       courseEntries,
+                                                       courseTimeEntries,
+                                                       courseTimes,
+                                                       studentCourseOffsets,
+                                                       studentCourses }) {
+            bytes += 4L * buffer.capacity();
+        }
+
+        return bytes + gradeColumn.capacity() + studentBestGrades.capacity();
+    }
+
+    /**
+     * Converts a year and a month to a single integer such that the
+     * chronological order is preserved.
+     *
+     * @param  year  the year.
+     * @param  month the month within <tt>[1, 12]</tt>.
+     * @return the time.
+     */
+    public static int toTime(final int year, final int month) {
+        return 12 * year + month - 1;
+    }
+
+    public static int getYear(final int time) {
+        return time / 12;
+    }
+
+    public static int getMonth(final int time) {
+        return time % 12 + 1;
+    }
+
+    public int getEntryAmount() {
+        return studentColumn.capacity();
+    }
+
+    public int getStudentAmount() {
+        return studentOffsets.capacity() - 1;
+    }
+
+    public int getCourseAmount() {
+        return courseOffsets.capacity() - 1;
+    }
+
+    public int getStudent(final int entry) {
+        return studentColumn.get(entry);
+    }
+
+    public int getCourse(final int entry) {
+        return courseColumn.get(entry);
+    }
+
+    public int getTime(final int entry) {
+        return timeColumn.get(entry);
+    }
+
+    public int getGrade(final int entry) {
+        return gradeColumn.get(entry);
+    }
+
+    public int getVariant(final int entry) {
+        return variantColumn.get(entry);
+    }
+
+    /**
+     * Returns the index of the first entry of the student.
+     *
+     * @param  student the student ordinal.
+     * @return the first entry index of the student.
+     */
+    public int getStudentBegin(final int student) {
+        return studentOffsets.get(student);
+    }
+
+    /**
+     * Returns the index one past the last entry of the student.
+     *
+     * @param  student the student ordinal.
+     * @return the end entry index of the student.
+     */
+    public int getStudentEnd(final int student) {
+        return studentOffsets.get(student + 1);
+    }
+
+    public int getCourseBegin(final int course) {
+        return courseOffsets.get(course);
+    }
+
+    public int getCourseEnd(final int course) {
+        return courseOffsets.get(course + 1);
+    }
+
+    /**
+     * Returns the entry index at position <code>position</code> of the course
+     * index. Positions <tt>[getCourseBegin(c), getCourseEnd(c))</tt> hold the
+     * entries of course <code>c</code>.
+     *
+     * @param  position the position in the course index.
+     * @return the entry index.
+     */
+    public int getCourseEntry(final int position) {
+        return courseEntries.get(position);
+    }
+
+    /**
+     * Returns the entry index at position <code>position</code> of the
+     * chronological course index. Positions
+     * <tt>[getCourseBegin(c), getCourseEnd(c))</tt> hold the entries of course
+     * <code>c</code> sorted by time.
+     *
+     * @param  position the position in the chronological course index.
+     * @return the entry index.
+     */
+    public int getCourseTimeEntry(final int position) {
+        return courseTimeEntries.get(position);
+    }
+
+    /**
+     * Returns the first position in the chronological index of a course whose
+     * entry time is at least <code>time</code>.
+     *
+     * @param  course the course ordinal.
+     * @param  time   the time to search for.
+     * @return a position within <tt>[getCourseBegin(c), getCourseEnd(c)]</tt>.
+     */
+    public int findCourseTime(final int course, final int time) {
+        int low = courseOffsets.get(course);
+        int high = courseOffsets.get(course + 1);
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+
+            if (courseTimes.get(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    public int getStudentCourseBegin(final int student) {
+        return studentCourseOffsets.get(student);
+    }
+
+    public int getStudentCourseEnd(final int student) {
+        return studentCourseOffsets.get(student + 1);
+    }
+
+    /**
+     * Returns the course ordinal at position <code>position</code> of the
+     * distinct course index. Positions
+     * <tt>[getStudentCourseBegin(s), getStudentCourseEnd(s))</tt> hold the
+     * courses of student <code>s</code> in ascending order.
+     *
+     * @param  position the position in the distinct course index.
+     * @return the course ordinal.
+     */
+    public int getStudentCourse(final int position) {
+        return studentCourses.get(position);
+    }
+
+    public int getStudentBestGrade(final int position) {
+        return studentBestGrades.get(position);
+    }
+
+    /**
+     * Returns the best grade a student has received from a course.
+     *
+     * @param  student the student ordinal.
+     * @param  course  the course ordinal.
+     * @return the best grade, or {@link Course#NON_EXISTENT_GRADE} if the
+     *         student has not attended the course.
+     */
+    public int getBestGrade(final int student, final int course) {
+        final int position = findStudentCourse(student, course);
+        return position < 0 ?
+               Course.NON_EXISTENT_GRADE :
+               studentBestGrades.get(position);
+    }
+
+    /**
+     * Looks up the position of a course in the distinct course index of a
+     * student.
+     *
+     * @param  student the student ordinal.
+     * @param  course  the course ordinal.
+     * @return the position, or a negative value if the student has not
+     *         attended the course.
+     */
+    public int findStudentCourse(final int student, final int course) {
+        int low = studentCourseOffsets.get(student);
+        int high = studentCourseOffsets.get(student + 1) - 1;
+
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int value = studentCourses.get(mid);
+
+            if (value < course) {
+                low = mid + 1;
+            } else if (value > course) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    private static IntBuffer copyToDirect(final IntBuffer buffer) {
+        final IntBuffer ret = 
+                ByteBuffer.allocateDirect(4 * buffer.capacity())
+                          .order(ByteOrder.nativeOrder())
+                          .asIntBuffer();
+
+        ret.put(buffer.duplicate());
+        ret.clear();
+        return ret;
+    }
+
+    private static ByteBuffer copyToDirect(final ByteBuffer buffer) {
+        final ByteBuffer ret = ByteBuffer.allocateDirect(buffer.capacity());
+        ret.put(buffer.duplicate());
+        ret.clear();
+        return ret;
+    }
+}
@@ -0,0 +1,282 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class holds the Pearson correlations between the best grades of all
+ * pairs of normal scale courses. The correlation of a pair is computed over
+ * the students that have attended both courses. All pairs are computed in one
+ * pass over the distinct course index of the students: each worker thread
+ * accumulates the sufficient statistics <tt>n</tt>, <tt>&Sigma;x</tt>,
+ * <tt>&Sigma;y</tt>, <tt>&Sigma;x&sup2;</tt>, <tt>&Sigma;y&sup2;</tt> and
+ * <tt>&Sigma;xy</tt> of every pair in a primitive array of its own, and the
+ * arrays are summed at the end. The correlations are stored in a dense
+ * symmetric matrix.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class GradeCorrelationMatrix {
+
+    /**
+     * The amount of sufficient statistics per pair.
+     */
+    private static final int STATISTICS = 6;
+
+    private final List<Course> courseList;
+    private final int minCount;
+
+    /**
+     * The amount of students of each pair in row-major order.
+     */
+    private final int[] counts;
+
+    /**
+     * The correlation of each pair in row-major order, <code>NaN</code> if
+     * there are less than <code>minCount</code> students or it is undefined.
+     */
+    private final double[] correlations;
+
+    private GradeCorrelationMatrix(final List<Course> courseList,
+                                   final int minCount,
+                                   final int[] counts,
+                                   final double[] correlations) {
+        this.courseList = courseList;
+        this.minCount = minCount;
+        this.counts = counts;
+        this.correlations = correlations;
+    }
+
+    /**
+     * Computes the grade correlations of all pairs of the normal scale courses
+     * of <code>storage</code>.
+     *
+     * @param  storage  the data storage.
+     * @param  minCount the least amount of students attending both courses of
+     *                  a pair for its correlation to be reported.
+     * @return the correlation matrix.
+     */
+    public static GradeCorrelationMatrix compute(final AppDataStorage storage,
+                                                 final int minCount) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotLess(minCount,
+                     1,
+                     "The minimum count must be positive. Received: " +
+                     minCount);
+
+        final EntryTable table = storage.getEntryTable();
+        final List<Course> courseList = new ArrayList<>();
+
+        // Maps each course ordinal to its row, or -1 for the pass/fail
+        // courses. The rows follow the ordinals, so the rows of the courses of
+        // a student come out in ascending order.
+        final int[] rows = new int[table.getCourseAmount()];
+
+        for (int c = 0; c < rows.length; ++c) {
+            final Course course = storage.getCourseList().get(c);
+
+            if (course.getGradingMode() == Course.GRADING_MODE_NORMAL_SCALE) {
+                rows[c] = courseList.size();
+                courseList.add(course);
+            } else {
+                rows[c] = -1;
+            }
+        }
+
+        final int k = courseList.size();
+
+        // The pair (i, j) with i < j has index rowBase[i] + j in the upper
+        // triangle.
+        final int[] rowBase = new int[k];
+
+        for (int i = 0; i < k; ++i) {
+            rowBase[i] = i * k - i * (i + 1) / 2 - i - 1;
+        }
+
+        final int pairs = k * (k - 1) / 2;
+        final int threads = Parallel.getParallelism();
+        final int students = table.getStudentAmount();
+
+        // One chunk per thread, so that there is one accumulator per thread.
+        final List<int[]> partials =
+                Parallel.forRange(threads, 1, new Parallel.RangeTask<int[]>() {
+            @Override
+            public int[] compute(final int from, final int to) {
+                final int[] statistics = new int[STATISTICS * pairs];
+                final int[] selected = new int[k];
+                final int[] grades = new int[k];
+                final int last = (int)((long) students * to / threads);
+
+                for (int s = (int)((long) students * from / threads);
+                        s < last;
+                        ++s) {
+                    final int end = table.getStudentCourseEnd(s);
+                    int amount = 0;
+
+                    for (int p = table.getStudentCourseBegin(s); p < end; ++p) {
+                        final int row = rows[table.getStudentCourse(p)];
+
+                        if (row >= 0) {
+                            selected[amount] = row;
+                            grades[amount++] = table.getStudentBestGrade(p);
+                        }
+                    }
+
+                    for (int a = 0; a < amount; ++a) {
+                        final int x = grades[a];
+                        final int base = rowBase[selected[a]];
+
+                        for (int b = a + 1; b < amount; ++b) {
+                            final int y = grades[b];
+                            final int index =
+                                    STATISTICS * (base + selected[b]);
+
+                            ++statistics[index];
+                            statistics[index + 1] += x;
+                            statistics[index + 2] += y;
+                            statistics[index + 3] += x * x;
+                            statistics[index + 4] += y * y;
+                            statistics[index + 5] += x * y;
+                        }
+                    }
+                }
+
+                return statistics;
+            }
+        });
+
+        final int[] statistics = partials.get(0);
+
+        for (int t = 1; t < partials.size(); ++t) {
+            final int[] partial = partials.get(t);
+
+            for (int i = 0; i < statistics.length; ++i) {
+                statistics[i] += partial[i];
+            }
+        }
+
+        final int[] counts = new int[k * k];
+        final double[] correlations = new double[k * k];
+        Arrays.fill(correlations, Double.NaN);
+
+        for (int i = 0; i < k; ++i) {
+            for (int j = i + 1; j < k; ++j) {
+                final int index = STATISTICS * (rowBase[i] + j);
+                final int n = statistics[index];
+                final double r = n < minCount ?
+                                 Double.NaN :
+                                 correlation(n,
+                                             statistics[index + 1],
+                                             statistics[index + 2],
+                                             statistics[index + 3],
+                                             statistics[index + 4],
+                                             statistics[index + 5]);
+
+                counts[i * k + j] = counts[j * k + i] = n;
+                correlations[i * k + j] = correlations[j * k + i] = r;
+            }
+        }
+
+        for (int i = 0; i < k; ++i) {
+            counts[i * k + i] =
+                    storage.getStudentBitmap(courseList.get(i))
+                           .getCardinality();
+            correlations[i * k + i] = counts[i * k + i] < minCount ?
+                                      Double.NaN :
+                                      1.0;
+        }
+
+        return new GradeCorrelationMatrix(
+                Collections.unmodifiableList(courseList),
+                minCount,
+                counts,
+                correlations);
+    }
+
+    /**
+     * Returns the courses of the rows and columns of the matrix.
+     *
+     * @return the list of normal scale courses.
+     */
+    public List<Course> getCourseList() {
+        return courseList;
+    }
+
+    public int getMinCount() {
+        return minCount;
+    }
+
+    /**
+     * Returns the amount of students that have attended both courses of a
+     * pair.
+     *
+     * @param  i the row of the first course.
+     * @param  j the row of the second course.
+     * @return the amount of students.
+     */
+    public int getCount(final int i, final int j) {
+        return counts[i * courseList.size() + j];
+    }
+
+    /**
+     * Returns the grade correlation of a pair of courses.
+     *
+     * @param  i the row of the first course.
+     * @param  j the row of the second course.
+     * @return the correlation coefficient, or <code>NaN</code> if less than
+     *         the minimum amount of students have attended both courses or
+     *         the grades of either course do not vary.
+     */
+    public double getCorrelation(final int i, final int j) {
+        return correlations[i * courseList.size() + j];
+    }
+
+    /**
+     * Returns the grade correlation of a pair of courses.
+     *
+     * @param  course1 the first course.
+     * @param  course2 the second course.
+     * @return the correlation coefficient, or <code>NaN</code> if it is not
+     *         available.
+     */
+    public double getCorrelation(final Course course1, final Course course2) {
+        final int i = courseList.indexOf(course1);
+        final int j = courseList.indexOf(course2);
+        return i < 0 || j < 0 ? Double.NaN : getCorrelation(i, j);
+    }
+
+    /**
+     * Returns a copy of the dense correlation matrix in row-major order.
+     *
+     * @return the correlation matrix.
+     */
+    public double[] toArray() {
+        return correlations.clone();
+    }
+
+    private static double correlation(final int n,
+                                      final long sumX,
+                                      final long sumY,
+                                      final long sumXX,
+                                      final long sumYY,
+                                      final long sumXY) {
+        // The terms are n times the co-moments, exact in integers.
+        final long covariance = n * sumXY - sumX * sumY;
+        final long varianceX = n * sumXX - sumX * sumX;
+        final long varianceY = n * sumYY - sumY * sumY;
+
+        if (varianceX == 0L || varianceY == 0L) {
+            return Double.NaN;
+        }
+
+        return covariance / Math.sqrt((double) varianceX * varianceY);
+    }
+}
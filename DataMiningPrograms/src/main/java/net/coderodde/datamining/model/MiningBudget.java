@@ -0,0 +1,192 @@
+package net.coderodde.datamining.model;
+
+import net.coderodde.datamining.model.MiningResult.Status;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class limits a mining run. A run may be limited by a time budget, by
+ * the amount of candidates per level, by the amount of used heap, and by a
+ * {@link CancellationToken}. A budget is immutable; the <tt>with</tt> methods
+ * return modified copies, and a budget may be shared by several runs. The
+ * time budget is measured from the start of each run.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class MiningBudget {
+
+    /**
+     * The budget without any limits.
+     */
+    public static final MiningBudget UNLIMITED =
+            new MiningBudget(Long.MAX_VALUE,
+                             Integer.MAX_VALUE,
+                             Long.MAX_VALUE,
+                             null);
+
+    private final long timeNanos;
+    private final int maxCandidates;
+    private final long maxHeapBytes;
+    private final CancellationToken token;
+
+    private MiningBudget(final long timeNanos,
+                         final int maxCandidates,
+                         final long maxHeapBytes,
+                         final CancellationToken token) {
+        this.timeNanos = timeNanos;
+        this.maxCandidates = maxCandidates;
+        this.maxHeapBytes = maxHeapBytes;
+        this.token = token;
+    }
+
+    /**
+     * Returns a copy of this budget allowing each run at most
+     * <code>millis</code> milliseconds. A limit too large to be represented
+     * in nanoseconds means no time limit at all.
+     *
+     * @param  millis the time budget in milliseconds.
+     * @return the new budget.
+     */
+    public MiningBudget withTimeLimit(final long millis) {
+        checkNotLess(millis, 0L, "The time limit is negative: " + millis);
+        return new MiningBudget(millis >= Long.MAX_VALUE / 1000000L ?
+                                Long.MAX_VALUE :
+                                millis * 1000000L,
+                                maxCandidates,
+                                maxHeapBytes,
+                                token);
+    }
+
+    /**
+     * Returns a copy of this budget allowing at most
+     * <code>maxCandidates</code> candidates per level.
+     *
+     * @param  maxCandidates the maximum amount of candidates.
+     * @return the new budget.
+     */
+    public MiningBudget withMaxCandidates(final int maxCandidates) {
+        checkNotLess(maxCandidates,
+                     0,
+                     "The candidate limit is negative: " + maxCandidates);
+        return new MiningBudget(timeNanos, maxCandidates, maxHeapBytes, token);
+    }
+
+    /**
+     * Returns a copy of this budget stopping the runs once the used heap
+     * exceeds <code>maxHeapBytes</code> bytes.
+     *
+     * @param  maxHeapBytes the maximum heap use.
+     * @return the new budget.
+     */
+    public MiningBudget withMaxHeapBytes(final long maxHeapBytes) {
+        checkNotLess(maxHeapBytes,
+                     0L,
+                     "The heap limit is negative: " + maxHeapBytes);
+        return new MiningBudget(timeNanos, maxCandidates, maxHeapBytes, token);
+    }
+
+    /**
+     * Returns a copy of this budget stopping the runs once
+     * <code>token</code> is cancelled.
+     *
+     * @param  token the cancellation token.
+     * @return the new budget.
+     */
+    public MiningBudget withCancellationToken(final CancellationToken token) {
+        checkNotNull(token, "The cancellation token is null.");
+        return new MiningBudget(timeNanos, maxCandidates, maxHeapBytes, token);
+    }
+
+    /**
+     * Starts tracking a run against this budget.
+     *
+     * @return the tracker of the run.
+     */
+    Tracker start() {
+        return new Tracker(timeNanos == Long.MAX_VALUE ?
+                           Long.MAX_VALUE :
+                           System.nanoTime() + timeNanos);
+    }
+
+    /**
+     * This class checks a single run against the budget.
+     */
+    final class Tracker {
+
+        /**
+         * The amount of work units between two checks of the clock and the
+         * heap in {@link #poll()}.
+         */
+        private static final int POLL_INTERVAL = 256;
+
+        private final long deadline;
+        private int polls;
+        private Status status = Status.COMPLETED;
+
+        Tracker(final long deadline) {
+            this.deadline = deadline;
+        }
+
+        /**
+         * Checks all the limits except the candidate limit.
+         *
+         * @return <code>true</code> if the run may continue.
+         */
+        boolean check() {
+            if (status != Status.COMPLETED) {
+                return false;
+            }
+
+            if ((token != null && token.isCancelled())
+                    || Thread.currentThread().isInterrupted()) {
+                status = Status.CANCELLED;
+            } else if (deadline != Long.MAX_VALUE
+                    && System.nanoTime() - deadline > 0L) {
+                status = Status.DEADLINE_EXCEEDED;
+            } else if (maxHeapBytes != Long.MAX_VALUE) {
+                final Runtime runtime = Runtime.getRuntime();
+
+                if (runtime.totalMemory() - runtime.freeMemory() >
+                        maxHeapBytes) {
+                    status = Status.MEMORY_LIMIT_EXCEEDED;
+                }
+            }
+
+            return status == Status.COMPLETED;
+        }
+
+        /**
+         * Checks the limits after every {@link #POLL_INTERVAL} calls. Meant
+         * to be called once per unit of work in the counting loops.
+         *
+         * @return <code>true</code> if the run may continue.
+         */
+        boolean poll() {
+            if (++polls < POLL_INTERVAL) {
+                return status == Status.COMPLETED;
+            }
+
+            polls = 0;
+            return check();
+        }
+
+        /**
+         * Checks the amount of candidates of a level.
+         *
+         * @param  candidates the amount of candidates.
+         * @return <code>true</code> if the run may continue.
+         */
+        boolean checkCandidates(final int candidates) {
+            if (status == Status.COMPLETED && candidates > maxCandidates) {
+                status = Status.CANDIDATE_LIMIT_EXCEEDED;
+            }
+
+            return status == Status.COMPLETED;
+        }
+
+        Status getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package net.coderodde.datamining.model;
+
+/**
+ * This class holds the result of a budgeted mining run. If the run was
+ * stopped before completing, the result contains the patterns of all the
+ * levels completed before the stop.
+ *
+ * @param <T> the type of the mined patterns.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class MiningResult<T> {
+
+    /**
+     * The ways a mining run may end.
+     */
+    public enum Status {
+
+        /**
+         * The run completed all levels.
+         */
+        COMPLETED,
+
+        /**
+         * The deadline passed.
+         */
+        DEADLINE_EXCEEDED,
+
+        /**
+         * A level had more candidates than allowed.
+         */
+        CANDIDATE_LIMIT_EXCEEDED,
+
+        /**
+         * The used heap grew beyond the limit.
+         */
+        MEMORY_LIMIT_EXCEEDED,
+
+        /**
+         * The run was cancelled through its token or by interrupting its
+         * thread.
+         */
+        CANCELLED
+    }
+
+    private final T result;
+    private final Status status;
+    private final int completedLevels;
+
+    public MiningResult(final T result,
+                        final Status status,
+                        final int completedLevels) {
+        this.result = result;
+        this.status = status;
+        this.completedLevels = completedLevels;
+    }
+
+    /**
+     * Returns the patterns of the completed levels.
+     *
+     * @return the mined patterns.
+     */
+    public T getResult() {
+        return result;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Tells whether the run completed all levels.
+     *
+     * @return <code>true</code> if the result is complete.
+     */
+    public boolean isComplete() {
+        return status == Status.COMPLETED;
+    }
+
+    /**
+     * Returns the largest level whose counting completed.
+     *
+     * @return the amount of completed levels.
+     */
+    public int getCompletedLevels() {
+        return completedLevels;
+    }
+}
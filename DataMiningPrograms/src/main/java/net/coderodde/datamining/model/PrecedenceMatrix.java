@@ -0,0 +1,397 @@
+package net.coderodde.datamining.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class counts for every ordered pair of courses <tt>(a, b)</tt> the
+ * students that have attended <tt>a</tt> strictly before <tt>b</tt>, and for
+ * every pair the students that have attended both within the same period.
+ * A student counts once per pair even if the courses were attended several
+ * times. With a maximum gap, only attendances at most that many months apart
+ * count as preceding. The counts are computed in one pass over the
+ * chronologically sorted entries of the students: each worker thread keeps
+ * its own dense count arrays of <tt>courses * courses</tt> integers, which
+ * are summed at the end.
+ * <p>
+ * The matrix may be restricted to a subset of the courses, such as the
+ * frequent ones: the courses of the subset are renumbered compactly, the
+ * entries of the other courses are skipped, and the count arrays hold only
+ * <tt>subset * subset</tt> integers. The counts involving a course outside
+ * the subset are zero.
+ * <p>
+ * The count of <tt>a</tt> before <tt>b</tt> without a gap limit equals the
+ * support count of the 2-sequence <tt>&lt;{a},{b}&gt;</tt>, so the matrix
+ * seeds the second level of the sequential miners of
+ * {@link AppDataStorage}.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class PrecedenceMatrix {
+
+    /**
+     * The maximum gap meaning that any two periods count.
+     */
+    public static final int NO_GAP_LIMIT = Integer.MAX_VALUE;
+
+    private final AppDataStorage storage;
+    private final int courses;
+    private final int maxGap;
+
+    /**
+     * The compact index of each course ordinal, or -1 if the course is not
+     * in the matrix.
+     */
+    private final int[] indices;
+
+    /**
+     * The amount of students that have attended <tt>a</tt> before
+     * <tt>b</tt> at index <tt>a * courses + b</tt>, where <tt>a</tt> and
+     * <tt>b</tt> are compact indices.
+     */
+    private final int[] beforeCounts;
+
+    /**
+     * The amount of students that have attended <tt>a</tt> and <tt>b</tt> in
+     * the same period at both <tt>a * courses + b</tt> and
+     * <tt>b * courses + a</tt>, where <tt>a</tt> and <tt>b</tt> are compact
+     * indices.
+     */
+    private final int[] sameCounts;
+
+    private PrecedenceMatrix(final AppDataStorage storage,
+                             final int courses,
+                             final int maxGap,
+                             final int[] indices,
+                             final int[] beforeCounts,
+                             final int[] sameCounts) {
+        this.storage = storage;
+        this.courses = courses;
+        this.maxGap = maxGap;
+        this.indices = indices;
+        this.beforeCounts = beforeCounts;
+        this.sameCounts = sameCounts;
+    }
+
+    /**
+     * Computes the precedence matrix without a gap limit.
+     *
+     * @param  storage the data storage.
+     * @return the precedence matrix.
+     */
+    public static PrecedenceMatrix compute(final AppDataStorage storage) {
+        return compute(storage, NO_GAP_LIMIT);
+    }
+
+    /**
+     * Computes the precedence matrix.
+     *
+     * @param  storage the data storage.
+     * @param  maxGap  the maximum amount of months between two attendances
+     *                 for one to precede the other.
+     * @return the precedence matrix.
+     */
+    public static PrecedenceMatrix compute(final AppDataStorage storage,
+                                           final int maxGap) {
+        checkNotNull(storage, "The data storage is null.");
+        final int[] indices = new int[storage.getCourseAmount()];
+
+        for (int c = 0; c < indices.length; ++c) {
+            indices[c] = c;
+        }
+
+        return compute(storage, indices, indices.length, maxGap);
+    }
+
+    /**
+     * Computes the precedence matrix of the courses in
+     * <code>courseCollection</code> without a gap limit.
+     *
+     * @param  storage          the data storage.
+     * @param  courseCollection the courses of the matrix.
+     * @return the precedence matrix.
+     */
+    public static PrecedenceMatrix
+        compute(final AppDataStorage storage,
+                final Collection<Course> courseCollection) {
+        return compute(storage, courseCollection, NO_GAP_LIMIT);
+    }
+
+    /**
+     * Computes the precedence matrix of the courses in
+     * <code>courseCollection</code>. The courses not in the data storage are
+     * ignored.
+     *
+     * @param  storage          the data storage.
+     * @param  courseCollection the courses of the matrix.
+     * @param  maxGap           the maximum amount of months between two
+     *                          attendances for one to precede the other.
+     * @return the precedence matrix.
+     */
+    public static PrecedenceMatrix
+        compute(final AppDataStorage storage,
+                final Collection<Course> courseCollection,
+                final int maxGap) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotNull(courseCollection, "The course collection is null.");
+        final int[] indices = new int[storage.getCourseAmount()];
+        int size = 0;
+
+        Arrays.fill(indices, -1);
+
+        for (final Course course : courseCollection) {
+            final int ordinal = storage.getCourseOrdinal(course);
+
+            if (ordinal >= 0 && indices[ordinal] < 0) {
+                indices[ordinal] = size++;
+            }
+        }
+
+        return compute(storage, indices, size, maxGap);
+    }
+
+    private static PrecedenceMatrix compute(final AppDataStorage storage,
+                                            final int[] indices,
+                                            final int courses,
+                                            final int maxGap) {
+        checkNotLess(maxGap,
+                     1,
+                     "The maximum gap must be positive. Received: " + maxGap);
+
+        final EntryTable table = storage.getEntryTable();
+        final int students = table.getStudentAmount();
+        final int threads = Parallel.getParallelism();
+
+        if ((long) courses * courses > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Too many courses for a dense matrix: " + courses);
+        }
+
+        // One chunk per thread, so that there is one pair of count arrays
+        // per thread.
+        final List<int[][]> partials =
+                Parallel.forRange(threads,
+                                  1,
+                                  new Parallel.RangeTask<int[][]>() {
+            @Override
+            public int[][] compute(final int from, final int to) {
+                final int[] before = new int[courses * courses];
+                final int[] same = new int[courses * courses];
+                int[] beforeKeys = new int[64];
+                int[] sameKeys = new int[64];
+                int[] entryCourses = new int[64];
+                int[] entryTimes = new int[64];
+                final int last = (int)((long) students * to / threads);
+
+                for (int s = (int)((long) students * from / threads);
+                        s < last;
+                        ++s) {
+                    final int begin = table.getStudentBegin(s);
+                    final int end = table.getStudentEnd(s);
+                    int entries = 0;
+                    int beforeAmount = 0;
+                    int sameAmount = 0;
+
+                    if (entryCourses.length < end - begin) {
+                        entryCourses = new int[end - begin];
+                        entryTimes = new int[end - begin];
+                    }
+
+                    // Keep the entries of the courses in the matrix, renumbered
+                    // to their compact indices.
+                    for (int i = begin; i < end; ++i) {
+                        final int index = indices[table.getCourse(i)];
+
+                        if (index >= 0) {
+                            entryCourses[entries] = index;
+                            entryTimes[entries] = table.getTime(i);
+                            ++entries;
+                        }
+                    }
+
+                    for (int i = 0; i < entries; ++i) {
+                        final int a = entryCourses[i];
+                        final int time = entryTimes[i];
+
+                        // The entries are sorted by time.
+                        for (int j = i + 1; j < entries; ++j) {
+                            final int b = entryCourses[j];
+                            final int gap = entryTimes[j] - time;
+
+                            if (gap > maxGap) {
+                                break;
+                            }
+
+                            if (a == b) {
+                                continue;
+                            }
+
+                            if (gap == 0) {
+                                if (sameAmount == sameKeys.length) {
+                                    sameKeys = Arrays.copyOf(sameKeys,
+                                                             2 * sameAmount);
+                                }
+
+                                sameKeys[sameAmount++] =
+                                        Math.min(a, b) * courses +
+                                        Math.max(a, b);
+                            } else {
+                                if (beforeAmount == beforeKeys.length) {
+                                    beforeKeys =
+                                            Arrays.copyOf(beforeKeys,
+                                                          2 * beforeAmount);
+                                }
+
+                                beforeKeys[beforeAmount++] = a * courses + b;
+                            }
+                        }
+                    }
+
+                    countDistinct(beforeKeys, beforeAmount, before);
+                    countDistinct(sameKeys, sameAmount, same);
+                }
+
+                return new int[][]{ before, same };
+            }
+        });
+
+        final int[] beforeCounts = partials.get(0)[0];
+        final int[] sameCounts = partials.get(0)[1];
+
+        for (int t = 1; t < partials.size(); ++t) {
+            final int[] before = partials.get(t)[0];
+            final int[] same = partials.get(t)[1];
+
+            for (int i = 0; i < beforeCounts.length; ++i) {
+                beforeCounts[i] += before[i];
+                sameCounts[i] += same[i];
+            }
+        }
+
+        for (int a = 0; a < courses; ++a) {
+            for (int b = a + 1; b < courses; ++b) {
+                sameCounts[b * courses + a] = sameCounts[a * courses + b];
+            }
+        }
+
+        return new PrecedenceMatrix(storage,
+                                    courses,
+                                    maxGap,
+                                    indices,
+                                    beforeCounts,
+                                    sameCounts);
+    }
+
+    public int getMaxGap() {
+        return maxGap;
+    }
+
+    /**
+     * Returns the amount of students that have attended course
+     * <code>a</code> before course <code>b</code>.
+     *
+     * @param  a the ordinal of the first course.
+     * @param  b the ordinal of the second course.
+     * @return the amount of students, or zero if either course is not in
+     *         the matrix.
+     */
+    public int getBeforeCount(final int a, final int b) {
+        final int i = indices[a];
+        final int j = indices[b];
+        return i < 0 || j < 0 ? 0 : beforeCounts[i * courses + j];
+    }
+
+    /**
+     * Returns the amount of students that have attended the two courses in
+     * the same period.
+     *
+     * @param  a the ordinal of the first course.
+     * @param  b the ordinal of the second course.
+     * @return the amount of students, or zero if either course is not in
+     *         the matrix.
+     */
+    public int getSameCount(final int a, final int b) {
+        final int i = indices[a];
+        final int j = indices[b];
+        return i < 0 || j < 0 ? 0 : sameCounts[i * courses + j];
+    }
+
+    /**
+     * Returns the amount of students that have attended course
+     * <code>a</code> after course <code>b</code>.
+     *
+     * @param  a the ordinal of the first course.
+     * @param  b the ordinal of the second course.
+     * @return the amount of students, or zero if either course is not in
+     *         the matrix.
+     */
+    public int getAfterCount(final int a, final int b) {
+        return getBeforeCount(b, a);
+    }
+
+    /**
+     * Returns the amount of students that have attended <code>a</code>
+     * before <code>b</code>.
+     *
+     * @param  a the first course.
+     * @param  b the second course.
+     * @return the amount of students, or zero if either course is unknown
+     *         or not in the matrix.
+     */
+    public int getBeforeCount(final Course a, final Course b) {
+        final int i = storage.getCourseOrdinal(a);
+        final int j = storage.getCourseOrdinal(b);
+        return i < 0 || j < 0 ? 0 : getBeforeCount(i, j);
+    }
+
+    /**
+     * Returns the amount of students that have attended <code>a</code> and
+     * <code>b</code> in the same period.
+     *
+     * @param  a the first course.
+     * @param  b the second course.
+     * @return the amount of students, or zero if either course is unknown
+     *         or not in the matrix.
+     */
+    public int getSameCount(final Course a, final Course b) {
+        final int i = storage.getCourseOrdinal(a);
+        final int j = storage.getCourseOrdinal(b);
+        return i < 0 || j < 0 ? 0 : getSameCount(i, j);
+    }
+
+    /**
+     * Returns the amount of students that have attended <code>a</code>
+     * after <code>b</code>.
+     *
+     * @param  a the first course.
+     * @param  b the second course.
+     * @return the amount of students, or zero if either course is unknown
+     *         or not in the matrix.
+     */
+    public int getAfterCount(final Course a, final Course b) {
+        return getBeforeCount(b, a);
+    }
+
+    /**
+     * Sorts the first <code>amount</code> keys and increments the count of
+     * each distinct key once.
+     */
+    private static void countDistinct(final int[] keys,
+                                      final int amount,
+                                      final int[] counts) {
+        Arrays.sort(keys, 0, amount);
+
+        for (int i = 0; i < amount; ++i) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                ++counts[keys[i]];
+            }
+        }
+    }
+}
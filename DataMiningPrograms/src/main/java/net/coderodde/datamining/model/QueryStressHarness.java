@@ -0,0 +1,443 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class stresses an {@link AppDataStorage} with a mix of read-only
+ * queries issued by several threads at once. The answer of each query is
+ * first computed in the calling thread; the worker threads then run the
+ * queries in rotation until the time is up and compare every answer with the
+ * single-threaded one. The report tells the throughput and the amount of
+ * answers that differed or failed, which is zero for a thread-safe storage.
+ * <p>
+ * The mix contains support counts, bitmap queries, confidences and the
+ * course sets of single students over the most attended courses and a sample
+ * of the students, as well as itemset and sequence mining with the given
+ * minimum support.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class QueryStressHarness {
+
+    /**
+     * The amount of the most attended courses the queries are about.
+     */
+    private static final int QUERY_COURSES = 8;
+
+    /**
+     * The amount of students whose courses are queried.
+     */
+    private static final int QUERY_STUDENTS = 32;
+
+    /**
+     * The length of the longest mined sequence.
+     */
+    private static final int SEQUENCE_SIZE = 3;
+
+    /**
+     * The maximum span in months of the sequences mined with a time
+     * constraint.
+     */
+    private static final int SEQUENCE_MAXSPAN = 24;
+
+    /**
+     * This interface defines the API for a query of the mix.
+     */
+    private interface Query {
+
+        /**
+         * Runs the query.
+         *
+         * @param  storage the data storage.
+         * @return the answer, comparable by <code>equals</code>.
+         */
+        Object execute(final AppDataStorage storage);
+    }
+
+    private final AppDataStorage storage;
+    private final List<String> nameList = new ArrayList<>();
+    private final List<Query> queryList = new ArrayList<>();
+
+    /**
+     * Constructs a harness for <code>storage</code>.
+     *
+     * @param storage    the data storage to query.
+     * @param minSupport the minimum support of the mining queries.
+     */
+    public QueryStressHarness(final AppDataStorage storage,
+                              final double minSupport) {
+        checkNotNull(storage, "The data storage is null.");
+
+        if (minSupport <= 0.0 || minSupport > 1.0) {
+            throw new IllegalArgumentException(
+                    "The minimum support must be within (0, 1]. Received: " +
+                    minSupport);
+        }
+
+        this.storage = storage;
+
+        final List<Course> courseList = getMostAttendedCourses(storage);
+        final List<Student> studentList = new ArrayList<>();
+        final int students = storage.getStudentAmount();
+        final int step = Math.max(1, students / QUERY_STUDENTS);
+
+        for (int s = 0; s < students; s += step) {
+            studentList.add(storage.getStudentByOrdinal(s));
+        }
+
+        add("supportCount", new Query() {
+            @Override
+            public Object execute(final AppDataStorage storage) {
+                final List<Integer> ret = new ArrayList<>();
+
+                for (final Set<Course> pair : getPairs(courseList)) {
+                    ret.add(storage.supportCount(pair));
+                }
+
+                return ret;
+            }
+        });
+
+        add("queryStudentBitmap", new Query() {
+            @Override
+            public Object execute(final AppDataStorage storage) {
+                final List<Integer> ret = new ArrayList<>();
+
+                for (final Set<Course> pair : getPairs(courseList)) {
+                    ret.add(storage.queryStudentBitmap(pair)
+                                   .getCardinality());
+                }
+
+                return ret;
+            }
+        });
+
+        add("confidence", new Query() {
+            @Override
+            public Object execute(final AppDataStorage storage) {
+                final List<Double> ret = new ArrayList<>();
+
+                for (int i = 0; i < courseList.size(); ++i) {
+                    for (int j = 0; j < courseList.size(); ++j) {
+                        if (i != j) {
+                            ret.add(storage.confidence(
+                                    Collections.singleton(courseList.get(i)),
+                                    Collections.singleton(courseList.get(j))));
+                        }
+                    }
+                }
+
+                return ret;
+            }
+        });
+
+        add("queryStudents", new Query() {
+            @Override
+            public Object execute(final AppDataStorage storage) {
+                final List<List<Student>> ret = new ArrayList<>();
+
+                for (final Course course : courseList) {
+                    ret.add(storage.queryStudents(
+                            Collections.singleton(course)));
+                }
+
+                return ret;
+            }
+        });
+
+        add("getStudentsAllCourses", new Query() {
+            @Override
+            public Object execute(final AppDataStorage storage) {
+                final List<Set<Course>> ret = new ArrayList<>();
+
+                for (final Student student : studentList) {
+                    ret.add(storage.getStudentsAllCourses(student));
+                }
+
+                return ret;
+            }
+        });
+
+        add("apriori", new Query() {
+            @Override
+            public Object execute(final AppDataStorage storage) {
+                return storage.apriori(minSupport);
+            }
+        });
+
+        add("sequentialApriori", new Query() {
+            @Override
+            public Object execute(final AppDataStorage storage) {
+                return toMap(storage.sequentialApriori(minSupport,
+                                                       SEQUENCE_SIZE));
+            }
+        });
+
+        add("sequentialAprioriMaxspan", new Query() {
+            @Override
+            public Object execute(final AppDataStorage storage) {
+                return toMap(storage.sequentialApriori(minSupport,
+                                                       SEQUENCE_SIZE,
+                                                       SEQUENCE_MAXSPAN));
+            }
+        });
+    }
+
+    /**
+     * Returns the names of the queries of the mix.
+     *
+     * @return the list of query names.
+     */
+    public List<String> getQueryNames() {
+        return Collections.unmodifiableList(nameList);
+    }
+
+    /**
+     * Runs the queries with <code>threads</code> threads for at least
+     * <code>millis</code> milliseconds. Every thread runs every query at
+     * least once, starting from a different query, so that the queries
+     * overlap.
+     *
+     * @param  threads the amount of querying threads.
+     * @param  millis  the duration of the run in milliseconds.
+     * @return the report of the run.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public Report run(final int threads, final long millis)
+    throws InterruptedException {
+        checkNotLess(threads,
+                     1,
+                     "The amount of threads must be positive. Received: " +
+                     threads);
+
+        if (millis < 0L) {
+            throw new IllegalArgumentException(
+                    "The duration is negative: " + millis);
+        }
+
+        final List<Object> expectedList = new ArrayList<>(queryList.size());
+
+        for (final Query query : queryList) {
+            expectedList.add(query.execute(storage));
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Future<Worker>> futureList = new ArrayList<>(threads);
+
+        try {
+            for (int t = 0; t < threads; ++t) {
+                final Worker worker = new Worker(t, expectedList);
+
+                futureList.add(pool.submit(new Callable<Worker>() {
+                    @Override
+                    public Worker call() throws InterruptedException {
+                        startLatch.await();
+                        worker.run(System.nanoTime() + millis * 1000000L);
+                        return worker;
+                    }
+                }));
+            }
+
+            final long startTime = System.nanoTime();
+            startLatch.countDown();
+
+            final Report report = new Report(threads);
+
+            for (final Future<Worker> future : futureList) {
+                report.add(future.get());
+            }
+
+            report.elapsedNanos = System.nanoTime() - startTime;
+            return report;
+        } catch (final ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * This class holds the outcome of a run.
+     */
+    public static final class Report {
+
+        private final int threads;
+        private final Set<String> failedQueries = new TreeSet<>();
+        private long operations;
+        private long mismatches;
+        private long elapsedNanos;
+
+        private Report(final int threads) {
+            this.threads = threads;
+        }
+
+        private void add(final Worker worker) {
+            operations += worker.operations;
+            mismatches += worker.mismatches;
+            failedQueries.addAll(worker.failedQueries);
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * Returns the amount of answers that differed from the
+         * single-threaded ones or threw an exception.
+         *
+         * @return the amount of wrong answers.
+         */
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * Returns the names of the queries that got a wrong answer.
+         *
+         * @return the sorted set of query names.
+         */
+        public Set<String> getFailedQueries() {
+            return Collections.unmodifiableSet(failedQueries);
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the amount of queries answered per second.
+         *
+         * @return the throughput.
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0L ?
+                   0.0 :
+                   1e9 * operations / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d threads: %d queries in %.2f s, " +
+                                 "%.1f queries/s, %d mismatches%s",
+                                 threads,
+                                 operations,
+                                 elapsedNanos / 1e9,
+                                 getThroughput(),
+                                 mismatches,
+                                 failedQueries.isEmpty() ?
+                                         "" :
+                                         " in " + failedQueries);
+        }
+    }
+
+    /**
+     * This class runs the queries in one thread.
+     */
+    private final class Worker {
+
+        private final int offset;
+        private final List<Object> expectedList;
+        private final Set<String> failedQueries = new HashSet<>();
+        private long operations;
+        private long mismatches;
+
+        Worker(final int offset, final List<Object> expectedList) {
+            this.offset = offset;
+            this.expectedList = expectedList;
+        }
+
+        void run(final long deadline) {
+            final int queries = queryList.size();
+
+            while (operations < queries || System.nanoTime() < deadline) {
+                final int index = (int)((offset + operations) % queries);
+                boolean correct;
+
+                try {
+                    correct = expectedList.get(index)
+                                          .equals(queryList.get(index)
+                                                           .execute(storage));
+                } catch (final RuntimeException ex) {
+                    correct = false;
+                }
+
+                if (!correct) {
+                    ++mismatches;
+                    failedQueries.add(nameList.get(index));
+                }
+
+                ++operations;
+            }
+        }
+    }
+
+    private void add(final String name, final Query query) {
+        nameList.add(name);
+        queryList.add(query);
+    }
+
+    private static List<Course>
+        getMostAttendedCourses(final AppDataStorage storage) {
+        final List<Course> courseList =
+                new ArrayList<>(storage.getCourseList());
+
+        Collections.sort(courseList, new Comparator<Course>() {
+            @Override
+            public int compare(final Course c1, final Course c2) {
+                return Integer.compare(storage.supportCount(c2),
+                                       storage.supportCount(c1));
+            }
+        });
+
+        return courseList.subList(0, Math.min(QUERY_COURSES,
+                                              courseList.size()));
+    }
+
+    private static List<Set<Course>> getPairs(final List<Course> courseList) {
+        final List<Set<Course>> ret = new ArrayList<>();
+
+        for (int i = 0; i < courseList.size(); ++i) {
+            for (int j = i + 1; j < courseList.size(); ++j) {
+                final Set<Course> pair = new HashSet<>(2);
+                pair.add(courseList.get(i));
+                pair.add(courseList.get(j));
+                ret.add(pair);
+            }
+        }
+
+        return ret;
+    }
+
+    private static Map<Sequence, Double>
+        toMap(final List<AppDataStorage.SequenceAndSupport> list) {
+        final Map<Sequence, Double> ret = new HashMap<>(list.size());
+
+        for (final AppDataStorage.SequenceAndSupport sequence : list) {
+            ret.put(sequence.getSequence(), sequence.getSupport());
+        }
+
+        return ret;
+    }
+}
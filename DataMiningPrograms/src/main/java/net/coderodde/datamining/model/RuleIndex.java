@@ -0,0 +1,477 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class indexes the antecedents of association rules in a trie so that
+ * the rules fired by a course set, that is, the rules whose antecedents the
+ * set contains, are found without testing every rule. The courses of each
+ * antecedent are sorted by ID and spell a path from the root; a rule is
+ * stored at the node its path ends in. A query walks only the paths spelled
+ * by the sorted query courses, and at each node it follows either the
+ * children present in the query or the query courses present among the
+ * children, whichever is fewer, so the work is proportional to the matched
+ * nodes. The trie is kept in flat arrays. Instances are immutable and
+ * thread-safe.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class RuleIndex {
+
+    private final List<AssociationRule> ruleList;
+
+    /**
+     * Maps each antecedent course to its ID.
+     */
+    private final Map<Course, Integer> idMap = new HashMap<>();
+
+    /**
+     * The children of node <tt>n</tt> are
+     * <tt>childNodes[childBegin[n], childBegin[n + 1])</tt>, keyed by the
+     * ascending course IDs at the same positions of <code>childKeys</code>.
+     * The root is node 0.
+     */
+    private final int[] childBegin;
+    private final int[] childKeys;
+    private final int[] childNodes;
+
+    /**
+     * The rules of node <tt>n</tt> are
+     * <tt>rules[ruleBegin[n], ruleBegin[n + 1])</tt>.
+     */
+    private final int[] ruleBegin;
+    private final int[] rules;
+
+    /**
+     * The courses of each consequent by ID; courses absent from all
+     * antecedents get IDs too.
+     */
+    private final int[][] consequents;
+
+    /**
+     * The courses indexed by ID.
+     */
+    private final List<Course> courseList = new ArrayList<>();
+
+    /**
+     * The amount of courses appearing in the antecedents; they have the
+     * smallest IDs.
+     */
+    private final int antecedentCourses;
+
+    /**
+     * Builds the index.
+     *
+     * @param ruleList the rules to index.
+     */
+    public RuleIndex(final List<AssociationRule> ruleList) {
+        checkNotNull(ruleList, "The rule list is null.");
+
+        this.ruleList = Collections.unmodifiableList(
+                                new ArrayList<>(ruleList));
+
+        // Antecedent courses get the smallest IDs, so that the ID arrays of
+        // the queries need no room for the consequent-only courses.
+        for (final AssociationRule rule : ruleList) {
+            for (final Course course : rule.getAntecedent()) {
+                getId(course);
+            }
+        }
+
+        final int antecedentCourses = courseList.size();
+        final List<BuildNode> nodeList = new ArrayList<>();
+        final BuildNode root = new BuildNode();
+        nodeList.add(root);
+
+        this.consequents = new int[ruleList.size()][];
+
+        for (int r = 0; r < ruleList.size(); ++r) {
+            final AssociationRule rule = ruleList.get(r);
+            BuildNode node = root;
+
+            for (final int id : toSortedIds(rule.getAntecedent())) {
+                BuildNode child = node.children.get(id);
+
+                if (child == null) {
+                    child = new BuildNode();
+                    node.children.put(id, child);
+                }
+
+                node = child;
+            }
+
+            node.ruleList.add(r);
+            consequents[r] = toSortedIds(rule.getConsequent());
+        }
+
+        // Number the nodes breadth first and flatten them.
+        for (int i = 0; i < nodeList.size(); ++i) {
+            final BuildNode node = nodeList.get(i);
+            node.index = i;
+            nodeList.addAll(node.children.values());
+        }
+
+        this.childBegin = new int[nodeList.size() + 1];
+        this.childKeys = new int[nodeList.size() - 1];
+        this.childNodes = new int[nodeList.size() - 1];
+        this.ruleBegin = new int[nodeList.size() + 1];
+        this.rules = new int[ruleList.size()];
+
+        int child = 0;
+        int rule = 0;
+
+        for (final BuildNode node : nodeList) {
+            childBegin[node.index] = child;
+            ruleBegin[node.index] = rule;
+
+            for (final Map.Entry<Integer, BuildNode> e :
+                    node.children.entrySet()) {
+                childKeys[child] = e.getKey();
+                childNodes[child++] = e.getValue().index;
+            }
+
+            for (final int r : node.ruleList) {
+                rules[rule++] = r;
+            }
+        }
+
+        childBegin[nodeList.size()] = child;
+        ruleBegin[nodeList.size()] = rule;
+        this.antecedentCourses = antecedentCourses;
+    }
+
+    /**
+     * Returns the indexed rules.
+     *
+     * @return the list of rules.
+     */
+    public List<AssociationRule> getRuleList() {
+        return ruleList;
+    }
+
+    /**
+     * Returns the rules whose antecedents <code>courseSet</code> contains.
+     *
+     * @param  courseSet the course set.
+     * @return the fired rules in index order.
+     */
+    public List<AssociationRule> match(final Set<Course> courseSet) {
+        checkNotNull(courseSet, "The course set is null.");
+
+        final int[] query = new int[courseSet.size()];
+        int length = 0;
+
+        for (final Course course : courseSet) {
+            final Integer id = idMap.get(course);
+
+            if (id != null && id < antecedentCourses) {
+                query[length++] = id;
+            }
+        }
+
+        Arrays.sort(query, 0, length);
+
+        final Matcher matcher = new Matcher();
+        final int amount = matcher.match(query, 0, length);
+        final int[] fired = Arrays.copyOf(matcher.fired, amount);
+        Arrays.sort(fired);
+
+        final List<AssociationRule> ret = new ArrayList<>(amount);
+
+        for (final int r : fired) {
+            ret.add(ruleList.get(r));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Matches every student of <code>storage</code> against the rules in one
+     * parallel pass.
+     *
+     * @param  storage the data storage.
+     * @return the sorted indices of the rules fired by each student, indexed
+     *         by student ordinal.
+     */
+    public int[][] matchAll(final AppDataStorage storage) {
+        checkNotNull(storage, "The data storage is null.");
+
+        final int[] ordinalToId = getOrdinalToIdMap(storage);
+        final EntryTable table = storage.getEntryTable();
+        final int[][] ret = new int[storage.getStudentAmount()][];
+
+        Parallel.forRange(ret.length, 256, new Parallel.RangeTask<Void>() {
+            @Override
+            public Void compute(final int from, final int to) {
+                final Matcher matcher = new Matcher();
+                int[] query = new int[16];
+
+                for (int s = from; s < to; ++s) {
+                    query = toQuery(table, s, ordinalToId, query);
+                    final int amount = matcher.match(query, 1, query[0]);
+                    final int[] fired = Arrays.copyOf(matcher.fired, amount);
+                    Arrays.sort(fired);
+                    ret[s] = fired;
+                }
+
+                return null;
+            }
+        });
+
+        return ret;
+    }
+
+    /**
+     * Scores every student of <code>storage</code> in one parallel pass. The
+     * score of a student is the highest confidence of a fired rule whose
+     * consequent the student has not fully attended yet, or zero if there is
+     * no such rule.
+     *
+     * @param  storage the data storage.
+     * @return the scores indexed by student ordinal.
+     */
+    public double[] scoreAll(final AppDataStorage storage) {
+        checkNotNull(storage, "The data storage is null.");
+
+        final int[] ordinalToId = getOrdinalToIdMap(storage);
+        final EntryTable table = storage.getEntryTable();
+        final double[] ret = new double[storage.getStudentAmount()];
+
+        Parallel.forRange(ret.length, 256, new Parallel.RangeTask<Void>() {
+            @Override
+            public Void compute(final int from, final int to) {
+                final Matcher matcher = new Matcher();
+                final int[] attendedStamp = new int[courseList.size()];
+                int[] query = new int[16];
+
+                for (int s = from; s < to; ++s) {
+                    final int stamp = s + 1;
+                    final int end = table.getStudentCourseEnd(s);
+
+                    for (int p = table.getStudentCourseBegin(s); p < end; ++p) {
+                        final int id = ordinalToId[table.getStudentCourse(p)];
+
+                        if (id >= 0) {
+                            attendedStamp[id] = stamp;
+                        }
+                    }
+
+                    query = toQuery(table, s, ordinalToId, query);
+                    final int amount = matcher.match(query, 1, query[0]);
+                    double score = 0.0;
+
+                    for (int i = 0; i < amount; ++i) {
+                        final int r = matcher.fired[i];
+
+                        if (ruleList.get(r).getConfidence() > score &&
+                                !allStamped(consequents[r],
+                                            attendedStamp,
+                                            stamp)) {
+                            score = ruleList.get(r).getConfidence();
+                        }
+                    }
+
+                    ret[s] = score;
+                }
+
+                return null;
+            }
+        });
+
+        return ret;
+    }
+
+    /**
+     * Maps the course ordinals of <code>storage</code> to the IDs of this
+     * index, or to -1 for the courses not in any rule.
+     */
+    private int[] getOrdinalToIdMap(final AppDataStorage storage) {
+        final int[] ret = new int[storage.getCourseAmount()];
+        Arrays.fill(ret, -1);
+
+        for (int id = 0; id < courseList.size(); ++id) {
+            final int c = storage.getCourseOrdinal(courseList.get(id));
+
+            if (c >= 0) {
+                ret[c] = id;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Writes the sorted antecedent course IDs of student <code>s</code> to
+     * <tt>query[1, length + 1)</tt> and the length to <tt>query[0]</tt>,
+     * growing the array if needed.
+     */
+    private int[] toQuery(final EntryTable table,
+                          final int s,
+                          final int[] ordinalToId,
+                          int[] query) {
+        final int begin = table.getStudentCourseBegin(s);
+        final int end = table.getStudentCourseEnd(s);
+
+        if (query.length < end - begin + 1) {
+            query = new int[2 * (end - begin) + 1];
+        }
+
+        int length = 0;
+
+        for (int p = begin; p < end; ++p) {
+            final int id = ordinalToId[table.getStudentCourse(p)];
+
+            if (id >= 0 && id < antecedentCourses) {
+                query[1 + length++] = id;
+            }
+        }
+
+        Arrays.sort(query, 1, 1 + length);
+        query[0] = length;
+        return query;
+    }
+
+    private static boolean allStamped(final int[] ids,
+                                      final int[] stamps,
+                                      final int stamp) {
+        for (final int id : ids) {
+            if (stamps[id] != stamp) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int getId(final Course course) {
+        Integer id = idMap.get(course);
+
+        if (id == null) {
+            id = courseList.size();
+            idMap.put(course, id);
+            courseList.add(course);
+        }
+
+        return id;
+    }
+
+    private int[] toSortedIds(final Set<Course> courseSet) {
+        final int[] ret = new int[courseSet.size()];
+        int i = 0;
+
+        for (final Course course : courseSet) {
+            ret[i++] = getId(course);
+        }
+
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    /**
+     * The per-thread state of the queries.
+     */
+    private final class Matcher {
+
+        /**
+         * The position of each course in the current query plus one, valid
+         * if the stamp is current.
+         */
+        private final int[] position = new int[antecedentCourses];
+        private final int[] positionStamp = new int[antecedentCourses];
+        private int stamp;
+
+        /**
+         * The fired rules of the current query.
+         */
+        private int[] fired = new int[16];
+        private int firedAmount;
+
+        /**
+         * Matches the sorted course IDs
+         * <tt>query[offset, offset + length)</tt> and returns the amount of
+         * fired rules stored in <code>fired</code>.
+         */
+        int match(final int[] query, final int offset, final int length) {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(positionStamp, 0);
+                stamp = 1;
+            }
+
+            for (int i = 0; i < length; ++i) {
+                position[query[offset + i]] = i + 1;
+                positionStamp[query[offset + i]] = stamp;
+            }
+
+            firedAmount = 0;
+            visit(0, query, offset, 0, length);
+            return firedAmount;
+        }
+
+        /**
+         * Collects the rules at or below <code>node</code> whose remaining
+         * antecedent courses are within <tt>query[offset + start,
+         * offset + length)</tt>.
+         */
+        private void visit(final int node,
+                           final int[] query,
+                           final int offset,
+                           final int start,
+                           final int length) {
+            for (int i = ruleBegin[node]; i < ruleBegin[node + 1]; ++i) {
+                if (firedAmount == fired.length) {
+                    fired = Arrays.copyOf(fired, 2 * firedAmount);
+                }
+
+                fired[firedAmount++] = rules[i];
+            }
+
+            final int begin = childBegin[node];
+            final int end = childBegin[node + 1];
+
+            if (end - begin <= length - start) {
+                // Look the children up in the query.
+                for (int i = begin; i < end; ++i) {
+                    final int key = childKeys[i];
+
+                    if (positionStamp[key] == stamp &&
+                            position[key] > start) {
+                        visit(childNodes[i],
+                              query,
+                              offset,
+                              position[key],
+                              length);
+                    }
+                }
+            } else {
+                // Look the query courses up in the children.
+                for (int i = start; i < length; ++i) {
+                    final int child = Arrays.binarySearch(childKeys,
+                                                          begin,
+                                                          end,
+                                                          query[offset + i]);
+
+                    if (child >= 0) {
+                        visit(childNodes[child], query, offset, i + 1, length);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class BuildNode {
+
+        private final Map<Integer, BuildNode> children = new TreeMap<>();
+        private final List<Integer> ruleList = new ArrayList<>(1);
+        private int index;
+    }
+}
@@ -0,0 +1,597 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class finds the frequent course sets approximately by mining a random
+ * sample of the students, as proposed by Toivonen:
+ * <ol>
+ *   <li>A sample of the students is drawn by reservoir sampling.</li>
+ *   <li>The itemsets of the sample are mined at a threshold lowered by the
+ *       Hoeffding bound, so that a frequent itemset is missed from the sample
+ *       result only with a small probability.</li>
+ *   <li>Optionally, the sample result and its <i>negative border</i>, the
+ *       minimal itemsets not in the sample result, are counted over all the
+ *       students with one pass of bitmap intersections. If no itemset of the
+ *       negative border is frequent, the verified result is exact.</li>
+ * </ol>
+ * Each reported itemset carries its sample support with a confidence
+ * interval, and its exact support if verified.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class SampledApriori {
+
+    /**
+     * A course set with its estimated support.
+     */
+    public static final class EstimatedItemset {
+
+        private final List<Course> courseList;
+        private final double support;
+        private final double lowerBound;
+        private final double upperBound;
+        private final double exactSupport;
+
+        EstimatedItemset(final List<Course> courseList,
+                         final double support,
+                         final double lowerBound,
+                         final double upperBound,
+                         final double exactSupport) {
+            this.courseList = courseList;
+            this.support = support;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.exactSupport = exactSupport;
+        }
+
+        /**
+         * Returns the courses of this itemset sorted by code.
+         *
+         * @return the list of courses.
+         */
+        public List<Course> getCourseList() {
+            return courseList;
+        }
+
+        /**
+         * Returns the support of this itemset within the sample.
+         *
+         * @return the estimated support.
+         */
+        public double getSupport() {
+            return support;
+        }
+
+        public double getLowerBound() {
+            return lowerBound;
+        }
+
+        public double getUpperBound() {
+            return upperBound;
+        }
+
+        /**
+         * Returns the support of this itemset over all the students, or
+         * <tt>NaN</tt> if the result was not verified.
+         *
+         * @return the exact support.
+         */
+        public double getExactSupport() {
+            return exactSupport;
+        }
+    }
+
+    /**
+     * The result of a sampled mining run.
+     */
+    public static final class Result {
+
+        private final List<EstimatedItemset> itemsetList;
+        private final int sampleSize;
+        private final double loweredSupport;
+        private final boolean verified;
+        private final int missedBorderAmount;
+
+        Result(final List<EstimatedItemset> itemsetList,
+               final int sampleSize,
+               final double loweredSupport,
+               final boolean verified,
+               final int missedBorderAmount) {
+            this.itemsetList = itemsetList;
+            this.sampleSize = sampleSize;
+            this.loweredSupport = loweredSupport;
+            this.verified = verified;
+            this.missedBorderAmount = missedBorderAmount;
+        }
+
+        /**
+         * Returns the itemsets by descending support. A verified result
+         * holds the itemsets frequent over all the students; an unverified
+         * result holds the itemsets whose confidence interval reaches the
+         * minimum support.
+         *
+         * @return the list of itemsets.
+         */
+        public List<EstimatedItemset> getItemsetList() {
+            return itemsetList;
+        }
+
+        public int getSampleSize() {
+            return sampleSize;
+        }
+
+        /**
+         * Returns the threshold the sample was mined at.
+         *
+         * @return the lowered minimum support.
+         */
+        public double getLoweredSupport() {
+            return loweredSupport;
+        }
+
+        public boolean isVerified() {
+            return verified;
+        }
+
+        /**
+         * Returns the amount of negative border itemsets found frequent in
+         * the verification. If positive, some frequent itemsets may be
+         * missing, and the run should be repeated with a larger sample.
+         *
+         * @return the amount of missed border itemsets.
+         */
+        public int getMissedBorderAmount() {
+            return missedBorderAmount;
+        }
+
+        /**
+         * Returns <code>true</code> if the result is verified and contains
+         * all the frequent itemsets.
+         *
+         * @return <code>true</code> if the result is exact.
+         */
+        public boolean isExact() {
+            return verified && missedBorderAmount == 0;
+        }
+    }
+
+    private final AppDataStorage storage;
+    private final int sampleSize;
+    private final Random random;
+
+    /**
+     * Constructs a miner drawing samples of <code>sampleSize</code> students.
+     *
+     * @param storage    the data storage.
+     * @param sampleSize the amount of students per sample.
+     * @param seed       the seed of the sampling.
+     */
+    public SampledApriori(final AppDataStorage storage,
+                          final int sampleSize,
+                          final long seed) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotLess(sampleSize,
+                     1,
+                     "The sample size must be positive. Received: " +
+                     sampleSize);
+
+        this.storage = storage;
+        this.sampleSize = sampleSize;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Mines a new sample.
+     *
+     * @param  minSupport the minimum support within <tt>(0, 1]</tt>.
+     * @param  confidence the confidence level of the lowered threshold and of
+     *                    the support intervals within <tt>(0, 1)</tt>.
+     * @param  verify     whether to count the supports over all the students.
+     * @return the result.
+     */
+    public Result mine(final double minSupport,
+                       final double confidence,
+                       final boolean verify) {
+        if (!(minSupport > 0.0 && minSupport <= 1.0)) {
+            throw new IllegalArgumentException(
+                    "The minimum support must be within (0, 1]. Received: " +
+                    minSupport);
+        }
+
+        if (!(confidence > 0.0 && confidence < 1.0)) {
+            throw new IllegalArgumentException(
+                    "The confidence must be within (0, 1). Received: " +
+                    confidence);
+        }
+
+        final int[] sample = sample();
+        final int n = sample.length;
+
+        if (n == 0) {
+            return new Result(Collections.<EstimatedItemset>emptyList(),
+                              0,
+                              minSupport,
+                              verify,
+                              0);
+        }
+
+        // One-sided bound for lowering the threshold, two-sided bound for the
+        // intervals.
+        final double delta = 1.0 - confidence;
+        final double lowering = Math.sqrt(Math.log(1.0 / delta) / (2.0 * n));
+        final double radius = Math.sqrt(Math.log(2.0 / delta) / (2.0 * n));
+        final int minCount =
+                Math.max(1, (int) Math.ceil((minSupport - lowering) * n -
+                                            1e-9));
+        final double loweredSupport = 1.0 * minCount / n;
+
+        final List<int[]> itemsetList = new ArrayList<>();
+        final List<Integer> countList = new ArrayList<>();
+        mineSample(sample, minCount, itemsetList, countList);
+
+        if (!verify) {
+            final List<EstimatedItemset> ret = new ArrayList<>();
+
+            for (int i = 0; i < itemsetList.size(); ++i) {
+                final double support = 1.0 * countList.get(i) / n;
+
+                if (support + radius >= minSupport) {
+                    ret.add(createItemset(itemsetList.get(i),
+                                          support,
+                                          radius,
+                                          Double.NaN));
+                }
+            }
+
+            sort(ret);
+            return new Result(ret, n, loweredSupport, false, 0);
+        }
+
+        final List<int[]> borderList = getNegativeBorder(itemsetList);
+        final List<int[]> candidateList = new ArrayList<>(itemsetList);
+        candidateList.addAll(borderList);
+
+        final int students = storage.getStudentAmount();
+        final int fullMinCount =
+                (int) Math.ceil(minSupport * students - 1e-9);
+        final int[] fullCounts = countAll(candidateList, fullMinCount);
+        final List<EstimatedItemset> ret = new ArrayList<>();
+
+        for (int i = 0; i < itemsetList.size(); ++i) {
+            if (fullCounts[i] >= fullMinCount) {
+                ret.add(createItemset(itemsetList.get(i),
+                                      1.0 * countList.get(i) / n,
+                                      radius,
+                                      1.0 * fullCounts[i] / students));
+            }
+        }
+
+        int missedBorderAmount = 0;
+
+        for (int i = itemsetList.size(); i < fullCounts.length; ++i) {
+            if (fullCounts[i] >= fullMinCount) {
+                ++missedBorderAmount;
+            }
+        }
+
+        sort(ret);
+        return new Result(ret, n, loweredSupport, true, missedBorderAmount);
+    }
+
+    /**
+     * Draws the sorted ordinals of a uniform sample of the students by
+     * reservoir sampling.
+     */
+    private int[] sample() {
+        final int students = storage.getStudentAmount();
+        final int[] reservoir = new int[Math.min(sampleSize, students)];
+
+        for (int s = 0; s < students; ++s) {
+            if (s < reservoir.length) {
+                reservoir[s] = s;
+            } else {
+                final int j = random.nextInt(s + 1);
+
+                if (j < reservoir.length) {
+                    reservoir[j] = s;
+                }
+            }
+        }
+
+        Arrays.sort(reservoir);
+        return reservoir;
+    }
+
+    /**
+     * Mines the itemsets contained by at least <code>minCount</code> sampled
+     * students by intersecting the sample bitmaps of the courses depth first.
+     */
+    private void mineSample(final int[] sample,
+                            final int minCount,
+                            final List<int[]> itemsetList,
+                            final List<Integer> countList) {
+        final EntryTable table = storage.getEntryTable();
+        final CompressedBitmap.Builder[] builders =
+                new CompressedBitmap.Builder[storage.getCourseAmount()];
+
+        for (int i = 0; i < sample.length; ++i) {
+            final int end = table.getStudentCourseEnd(sample[i]);
+
+            for (int p = table.getStudentCourseBegin(sample[i]); p < end; ++p) {
+                final int c = table.getStudentCourse(p);
+
+                if (builders[c] == null) {
+                    builders[c] = new CompressedBitmap.Builder();
+                }
+
+                builders[c].add(i);
+            }
+        }
+
+        final List<Integer> courseList = new ArrayList<>();
+        final List<CompressedBitmap> bitmapList = new ArrayList<>();
+
+        for (int c = 0; c < builders.length; ++c) {
+            if (builders[c] != null) {
+                final CompressedBitmap bitmap = builders[c].build();
+
+                if (bitmap.getCardinality() >= minCount) {
+                    courseList.add(c);
+                    bitmapList.add(bitmap);
+                }
+            }
+        }
+
+        extend(new int[0],
+               courseList,
+               bitmapList,
+               minCount,
+               itemsetList,
+               countList);
+    }
+
+    private static void extend(final int[] prefix,
+                               final List<Integer> courseList,
+                               final List<CompressedBitmap> bitmapList,
+                               final int minCount,
+                               final List<int[]> itemsetList,
+                               final List<Integer> countList) {
+        for (int i = 0; i < courseList.size(); ++i) {
+            final int[] itemset = Arrays.copyOf(prefix, prefix.length + 1);
+            itemset[prefix.length] = courseList.get(i);
+            itemsetList.add(itemset);
+            countList.add(bitmapList.get(i).getCardinality());
+
+            final List<Integer> nextCourseList = new ArrayList<>();
+            final List<CompressedBitmap> nextBitmapList = new ArrayList<>();
+
+            for (int j = i + 1; j < courseList.size(); ++j) {
+                final CompressedBitmap bitmap =
+                        CompressedBitmap.and(bitmapList.get(i),
+                                             bitmapList.get(j));
+
+                if (bitmap.getCardinality() >= minCount) {
+                    nextCourseList.add(courseList.get(j));
+                    nextBitmapList.add(bitmap);
+                }
+            }
+
+            if (!nextCourseList.isEmpty()) {
+                extend(itemset,
+                       nextCourseList,
+                       nextBitmapList,
+                       minCount,
+                       itemsetList,
+                       countList);
+            }
+        }
+    }
+
+    /**
+     * Returns the itemsets not in <code>itemsetList</code> all of whose
+     * immediate subsets are. The given itemsets must be closed under subsets
+     * and sorted within.
+     */
+    private List<int[]> getNegativeBorder(final List<int[]> itemsetList) {
+        final Set<List<Integer>> itemsetSet = new HashSet<>();
+        final List<List<int[]>> levelList = new ArrayList<>();
+
+        for (final int[] itemset : itemsetList) {
+            itemsetSet.add(toList(itemset));
+
+            while (levelList.size() < itemset.length) {
+                levelList.add(new ArrayList<int[]>());
+            }
+
+            levelList.get(itemset.length - 1).add(itemset);
+        }
+
+        final List<int[]> ret = new ArrayList<>();
+
+        // The singletons missing from the result.
+        for (int c = 0; c < storage.getCourseAmount(); ++c) {
+            if (!itemsetSet.contains(Collections.singletonList(c))) {
+                ret.add(new int[]{ c });
+            }
+        }
+
+        // Join the k-itemsets sharing the first k - 1 courses.
+        for (final List<int[]> level : levelList) {
+            Collections.sort(level, ITEMSET_COMPARATOR);
+
+            for (int i = 0; i < level.size(); ++i) {
+                final int[] a = level.get(i);
+
+                for (int j = i + 1; j < level.size(); ++j) {
+                    final int[] b = level.get(j);
+
+                    if (!samePrefix(a, b)) {
+                        break;
+                    }
+
+                    final int[] candidate = Arrays.copyOf(a, a.length + 1);
+                    candidate[a.length] = b[b.length - 1];
+
+                    if (!itemsetSet.contains(toList(candidate)) &&
+                            allSubsetsIn(candidate, itemsetSet)) {
+                        ret.add(candidate);
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static boolean samePrefix(final int[] a, final int[] b) {
+        for (int i = 0; i < a.length - 1; ++i) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean allSubsetsIn(final int[] candidate,
+                                        final Set<List<Integer>> set) {
+        final List<Integer> list = toList(candidate);
+
+        // The subsets without either of the last two courses are the joined
+        // itemsets.
+        for (int i = 0; i < candidate.length - 2; ++i) {
+            final List<Integer> subset = new ArrayList<>(list);
+            subset.remove(i);
+
+            if (!set.contains(subset)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Counts the itemsets over all the students in parallel. The counts below
+     * <code>minCount</code> are only known to be below it.
+     */
+    private int[] countAll(final List<int[]> candidateList,
+                           final int minCount) {
+        final List<Course> courseList = storage.getCourseList();
+        final List<int[]> partials =
+                Parallel.forRange(candidateList.size(),
+                                  16,
+                                  new Parallel.RangeTask<int[]>() {
+            @Override
+            public int[] compute(final int from, final int to) {
+                final int[] counts = new int[to - from];
+
+                for (int i = from; i < to; ++i) {
+                    final int[] candidate = candidateList.get(i);
+                    final CompressedBitmap[] bitmaps =
+                            new CompressedBitmap[candidate.length];
+
+                    for (int j = 0; j < candidate.length; ++j) {
+                        bitmaps[j] = storage.getStudentBitmap(
+                                courseList.get(candidate[j]));
+                    }
+
+                    counts[i - from] =
+                            CompressedBitmap.andCardinalityAtLeast(minCount,
+                                                                   bitmaps);
+                }
+
+                return counts;
+            }
+        });
+
+        final int[] ret = new int[candidateList.size()];
+        int offset = 0;
+
+        for (final int[] partial : partials) {
+            System.arraycopy(partial, 0, ret, offset, partial.length);
+            offset += partial.length;
+        }
+
+        return ret;
+    }
+
+    private EstimatedItemset createItemset(final int[] itemset,
+                                           final double support,
+                                           final double radius,
+                                           final double exactSupport) {
+        final List<Course> courseList = new ArrayList<>(itemset.length);
+
+        for (final int c : itemset) {
+            courseList.add(storage.getCourseList().get(c));
+        }
+
+        Collections.sort(courseList);
+        return new EstimatedItemset(Collections.unmodifiableList(courseList),
+                                    support,
+                                    Math.max(0.0, support - radius),
+                                    Math.min(1.0, support + radius),
+                                    exactSupport);
+    }
+
+    private static List<Integer> toList(final int[] itemset) {
+        final List<Integer> ret = new ArrayList<>(itemset.length);
+
+        for (final int c : itemset) {
+            ret.add(c);
+        }
+
+        return ret;
+    }
+
+    private static void sort(final List<EstimatedItemset> list) {
+        Collections.sort(list, new Comparator<EstimatedItemset>() {
+            @Override
+            public int compare(final EstimatedItemset o1,
+                               final EstimatedItemset o2) {
+                int cmp = Double.compare(o2.support, o1.support);
+
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                cmp = Integer.compare(o1.courseList.size(),
+                                      o2.courseList.size());
+
+                for (int i = 0; cmp == 0 && i < o1.courseList.size(); ++i) {
+                    cmp = o1.courseList.get(i)
+                                       .compareTo(o2.courseList.get(i));
+                }
+
+                return cmp;
+            }
+        });
+    }
+
+    private static final Comparator<int[]> ITEMSET_COMPARATOR =
+            new Comparator<int[]>() {
+        @Override
+        public int compare(final int[] o1, final int[] o2) {
+            for (int i = 0; i < o1.length; ++i) {
+                if (o1[i] != o2[i]) {
+                    return Integer.compare(o1[i], o2[i]);
+                }
+            }
+
+            return 0;
+        }
+    };
+}
@@ -0,0 +1,504 @@
+package net.coderodde.datamining.recommend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class recommends the next courses to a student. On construction, the
+ * amount of students attending each pair of courses is counted in one
+ * parallel pass, and for each course <tt>a</tt> the <tt>N</tt> best courses
+ * <tt>b</tt> by the confidence or the lift of the rule <tt>a -&gt; b</tt> are
+ * kept in flat arrays. A recommendation scores each course not yet attended
+ * by the best rule leading to it from the attended courses, so it only reads
+ * the neighbor lists of the attended courses. The per-request work arrays are
+ * borrowed from a small pool and returned after the request, so the ordinal
+ * based {@link #recommend(int, int[], float[])} allocates nothing once the
+ * pool has warmed up, no matter which thread serves the request. Instances
+ * are immutable and thread-safe.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class CourseRecommender {
+
+    /**
+     * The measure ranking the rules <tt>a -&gt; b</tt>.
+     */
+    public enum Measure {
+
+        /**
+         * The fraction of the students of <tt>a</tt> that have attended
+         * <tt>b</tt>.
+         */
+        CONFIDENCE,
+
+        /**
+         * The confidence divided by the support of <tt>b</tt>, which does not
+         * favor the courses everybody attends.
+         */
+        LIFT
+    }
+
+    /**
+     * A recommended course with its score.
+     */
+    public static final class Recommendation {
+
+        private final Course course;
+        private final float score;
+
+        Recommendation(final Course course, final float score) {
+            this.course = course;
+            this.score = score;
+        }
+
+        public Course getCourse() {
+            return course;
+        }
+
+        public float getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return course.getCode() + " " + score;
+        }
+    }
+
+    /**
+     * The work arrays of a single request. An entry of a stamp array is
+     * current if it equals <code>epoch</code>, so the arrays need not be
+     * cleared between the requests.
+     */
+    private static final class Scratch {
+
+        final float[] score;
+        final int[] scoreStamp;
+        final int[] attendedStamp;
+        final int[] touched;
+        int epoch;
+
+        Scratch(final int courses) {
+            this.score = new float[courses];
+            this.scoreStamp = new int[courses];
+            this.attendedStamp = new int[courses];
+            this.touched = new int[courses];
+        }
+
+        void nextEpoch() {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(scoreStamp, 0);
+                Arrays.fill(attendedStamp, 0);
+                epoch = 1;
+            }
+        }
+    }
+
+    private final AppDataStorage storage;
+    private final EntryTable table;
+    private final Measure measure;
+
+    /**
+     * The neighbors of course <tt>c</tt> are
+     * <tt>neighbors[offsets[c], offsets[c + 1])</tt> by descending score.
+     */
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final float[] scores;
+
+    /**
+     * The idle work arrays. A <code>null</code> slot is empty.
+     */
+    private final AtomicReferenceArray<Scratch> scratchPool;
+
+    /**
+     * Precomputes the neighbor lists.
+     *
+     * @param storage       the data storage.
+     * @param neighborLimit the maximum amount of neighbors per course.
+     * @param measure       the measure ranking the neighbors.
+     * @param minCount      the minimum amount of students attending a course
+     *                      and its neighbor.
+     */
+    public CourseRecommender(final AppDataStorage storage,
+                             final int neighborLimit,
+                             final Measure measure,
+                             final int minCount) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotNull(measure, "The measure is null.");
+        checkNotLess(neighborLimit,
+                     1,
+                     "The neighbor limit must be positive. Received: " +
+                     neighborLimit);
+        checkNotLess(minCount,
+                     1,
+                     "The minimum count must be positive. Received: " +
+                     minCount);
+
+        this.storage = storage;
+        this.table = storage.getEntryTable();
+        this.measure = measure;
+
+        final int courses = storage.getCourseAmount();
+        final int[] courseCounts = new int[courses];
+        final List<Course> courseList = storage.getCourseList();
+
+        for (int c = 0; c < courses; ++c) {
+            courseCounts[c] = storage.supportCount(courseList.get(c));
+        }
+
+        final List<int[][]> partials =
+                Parallel.forRange(courses,
+                                  4,
+                                  new Parallel.RangeTask<int[][]>() {
+            @Override
+            public int[][] compute(final int from, final int to) {
+                final int[][] ret = new int[to - from][];
+                final int[] pairCounts = new int[courses];
+                final int[] touched = new int[courses];
+                final int[] top = new int[neighborLimit];
+                final float[] topScores = new float[neighborLimit];
+
+                for (int a = from; a < to; ++a) {
+                    int touchedAmount = 0;
+
+                    for (final int s : storage.getStudentBitmap(
+                                               courseList.get(a)).toArray()) {
+                        final int end = table.getStudentCourseEnd(s);
+
+                        for (int p = table.getStudentCourseBegin(s);
+                                p < end;
+                                ++p) {
+                            final int b = table.getStudentCourse(p);
+
+                            if (b != a && pairCounts[b]++ == 0) {
+                                touched[touchedAmount++] = b;
+                            }
+                        }
+                    }
+
+                    int amount = 0;
+
+                    for (int i = 0; i < touchedAmount; ++i) {
+                        final int b = touched[i];
+
+                        if (pairCounts[b] >= minCount) {
+                            amount = insert(b,
+                                            rate(pairCounts[b],
+                                                 courseCounts[a],
+                                                 courseCounts[b]),
+                                            top,
+                                            topScores,
+                                            amount);
+                        }
+
+                        pairCounts[b] = 0;
+                    }
+
+                    final int[] row = new int[2 * amount];
+
+                    for (int i = 0; i < amount; ++i) {
+                        row[2 * i] = top[i];
+                        row[2 * i + 1] = Float.floatToIntBits(topScores[i]);
+                    }
+
+                    ret[a - from] = row;
+                }
+
+                return ret;
+            }
+        });
+
+        this.offsets = new int[courses + 1];
+
+        int total = 0;
+        int c = 0;
+
+        for (final int[][] partial : partials) {
+            for (final int[] row : partial) {
+                offsets[c++] = total;
+                total += row.length / 2;
+            }
+        }
+
+        offsets[courses] = total;
+        this.neighbors = new int[total];
+        this.scores = new float[total];
+
+        int i = 0;
+
+        for (final int[][] partial : partials) {
+            for (final int[] row : partial) {
+                for (int j = 0; j < row.length; j += 2) {
+                    neighbors[i] = row[j];
+                    scores[i++] = Float.intBitsToFloat(row[j + 1]);
+                }
+            }
+        }
+
+        this.scratchPool = new AtomicReferenceArray<>(
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public Measure getMeasure() {
+        return measure;
+    }
+
+    /**
+     * Returns the precomputed neighbors of <code>course</code>.
+     *
+     * @param  course the course.
+     * @return the neighbors by descending score.
+     */
+    public List<Recommendation> getNeighborList(final Course course) {
+        final int c = storage.getCourseOrdinal(course);
+
+        if (c < 0) {
+            return Collections.<Recommendation>emptyList();
+        }
+
+        final List<Recommendation> ret =
+                new ArrayList<>(offsets[c + 1] - offsets[c]);
+
+        for (int i = offsets[c]; i < offsets[c + 1]; ++i) {
+            ret.add(new Recommendation(storage.getCourseList()
+                                              .get(neighbors[i]),
+                                       scores[i]));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Recommends courses to a student. The amount of recommendations is the
+     * length of <code>resultCourses</code> at most.
+     *
+     * @param  student       the student ordinal.
+     * @param  resultCourses the array receiving the recommended course
+     *                       ordinals by descending score.
+     * @param  resultScores  the array receiving the scores, at least as long
+     *                       as <code>resultCourses</code>.
+     * @return the amount of recommendations.
+     */
+    public int recommend(final int student,
+                         final int[] resultCourses,
+                         final float[] resultScores) {
+        final Scratch s = begin(resultCourses, resultScores);
+
+        try {
+            final int begin = table.getStudentCourseBegin(student);
+            final int end = table.getStudentCourseEnd(student);
+
+            for (int p = begin; p < end; ++p) {
+                s.attendedStamp[table.getStudentCourse(p)] = s.epoch;
+            }
+
+            int touchedAmount = 0;
+
+            for (int p = begin; p < end; ++p) {
+                touchedAmount = score(table.getStudentCourse(p),
+                                      s,
+                                      touchedAmount);
+            }
+
+            return select(s, touchedAmount, resultCourses, resultScores);
+        } finally {
+            release(s);
+        }
+    }
+
+    /**
+     * Recommends courses following a set of attended courses.
+     *
+     * @param  courseSet the attended courses, for example
+     *                   {@link AppDataStorage#getStudentsAllCourses(
+     *                   net.coderodde.datamining.model.Student)}.
+     * @param  n         the maximum amount of recommendations.
+     * @return the recommendations by descending score.
+     */
+    public List<Recommendation> recommend(final Set<Course> courseSet,
+                                          final int n) {
+        checkNotNull(courseSet, "The course set is null.");
+        checkNotLess(n, 0, "The amount is negative: " + n);
+
+        final int[] resultCourses = new int[n];
+        final float[] resultScores = new float[n];
+        final Scratch s = begin(resultCourses, resultScores);
+        final int amount;
+
+        try {
+            for (final Course course : courseSet) {
+                final int c = storage.getCourseOrdinal(course);
+
+                if (c >= 0) {
+                    s.attendedStamp[c] = s.epoch;
+                }
+            }
+
+            int touchedAmount = 0;
+
+            for (final Course course : courseSet) {
+                final int c = storage.getCourseOrdinal(course);
+
+                if (c >= 0) {
+                    touchedAmount = score(c, s, touchedAmount);
+                }
+            }
+
+            amount = select(s, touchedAmount, resultCourses, resultScores);
+        } finally {
+            release(s);
+        }
+
+        final List<Recommendation> ret = new ArrayList<>(amount);
+
+        for (int i = 0; i < amount; ++i) {
+            ret.add(new Recommendation(storage.getCourseList()
+                                              .get(resultCourses[i]),
+                                       resultScores[i]));
+        }
+
+        return ret;
+    }
+
+    private Scratch begin(final int[] resultCourses,
+                          final float[] resultScores) {
+        checkNotNull(resultCourses, "The result course array is null.");
+        checkNotNull(resultScores, "The result score array is null.");
+
+        if (resultScores.length < resultCourses.length) {
+            throw new IllegalArgumentException(
+                    "The result score array is shorter than the result " +
+                    "course array.");
+        }
+
+        final Scratch s = borrow();
+        s.nextEpoch();
+        return s;
+    }
+
+    /**
+     * Takes idle work arrays from the pool, or creates new ones if the pool
+     * is empty.
+     */
+    private Scratch borrow() {
+        for (int i = 0; i < scratchPool.length(); ++i) {
+            final Scratch s = scratchPool.getAndSet(i, null);
+
+            if (s != null) {
+                return s;
+            }
+        }
+
+        return new Scratch(offsets.length - 1);
+    }
+
+    /**
+     * Returns work arrays to the pool, or drops them if the pool is full.
+     */
+    private void release(final Scratch s) {
+        for (int i = 0; i < scratchPool.length(); ++i) {
+            if (scratchPool.get(i) == null &&
+                    scratchPool.compareAndSet(i, null, s)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Raises the scores of the unattended neighbors of course <code>a</code>.
+     */
+    private int score(final int a, final Scratch s, int touchedAmount) {
+        for (int i = offsets[a]; i < offsets[a + 1]; ++i) {
+            final int b = neighbors[i];
+
+            if (s.attendedStamp[b] == s.epoch) {
+                continue;
+            }
+
+            if (s.scoreStamp[b] != s.epoch) {
+                s.scoreStamp[b] = s.epoch;
+                s.score[b] = scores[i];
+                s.touched[touchedAmount++] = b;
+            } else if (s.score[b] < scores[i]) {
+                s.score[b] = scores[i];
+            }
+        }
+
+        return touchedAmount;
+    }
+
+    private static int select(final Scratch s,
+                              final int touchedAmount,
+                              final int[] resultCourses,
+                              final float[] resultScores) {
+        int amount = 0;
+
+        for (int i = 0; i < touchedAmount; ++i) {
+            final int b = s.touched[i];
+            amount = insert(b, s.score[b], resultCourses, resultScores, amount);
+        }
+
+        return amount;
+    }
+
+    /**
+     * Inserts a course into the top list <tt>[0, amount)</tt> sorted by
+     * descending score and ascending ordinal, dropping the last course if
+     * the list is full.
+     *
+     * @return the new amount of courses in the list.
+     */
+    private static int insert(final int course,
+                              final float score,
+                              final int[] top,
+                              final float[] topScores,
+                              final int amount) {
+        int i = amount;
+
+        while (i > 0 && (topScores[i - 1] < score ||
+                         (topScores[i - 1] == score && top[i - 1] > course))) {
+            --i;
+        }
+
+        if (i == top.length) {
+            return amount;
+        }
+
+        final int newAmount = Math.min(amount + 1, top.length);
+        System.arraycopy(top, i, top, i + 1, newAmount - 1 - i);
+        System.arraycopy(topScores, i, topScores, i + 1, newAmount - 1 - i);
+        top[i] = course;
+        topScores[i] = score;
+        return newAmount;
+    }
+
+    private float rate(final int pairCount,
+                       final int countA,
+                       final int countB) {
+        final double confidence = 1.0 * pairCount / countA;
+
+        switch (measure) {
+            case CONFIDENCE:
+                return (float) confidence;
+
+            case LIFT:
+                return (float)(confidence * storage.getStudentAmount() /
+                               countB);
+
+            default:
+                throw new IllegalStateException("Unknown measure: " + measure);
+        }
+    }
+}
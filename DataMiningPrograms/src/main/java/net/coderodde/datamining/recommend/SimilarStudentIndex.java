@@ -0,0 +1,533 @@
+package net.coderodde.datamining.recommend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.model.Student;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class finds the students whose sets of attended courses are similar in
+ * the Jaccard sense. On construction, a MinHash signature of
+ * <tt>bands * rows</tt> values is computed for each student from the course
+ * ordinals, and the signatures are split into bands. Two students fall into
+ * the same bucket of a band if their signatures agree on all the rows of the
+ * band, which happens with probability <tt>J^rows</tt> for Jaccard similarity
+ * <tt>J</tt>; the pairs colliding in at least one band are the candidates,
+ * and only they are compared exactly. The threshold where a pair becomes a
+ * candidate with probability one half is about
+ * <tt>(1 / bands)^(1 / rows)</tt>. The buckets of each band are kept as the
+ * student ordinals sorted by the band hash. The signatures and the bands are
+ * built in parallel. Students without courses are not indexed. Instances are
+ * immutable and thread-safe.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class SimilarStudentIndex {
+
+    /**
+     * The default amount of bands.
+     */
+    public static final int DEFAULT_BANDS = 20;
+
+    /**
+     * The default amount of rows per band, which with the default bands puts
+     * the threshold at about 0.55.
+     */
+    public static final int DEFAULT_ROWS = 5;
+
+    /**
+     * A student and its Jaccard similarity to the query student.
+     */
+    public static final class Neighbor {
+
+        private final Student student;
+        private final double similarity;
+
+        Neighbor(final Student student, final double similarity) {
+            this.student = student;
+            this.similarity = similarity;
+        }
+
+        public Student getStudent() {
+            return student;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return student.getId() + " " + similarity;
+        }
+    }
+
+    /**
+     * A pair of students and their Jaccard similarity.
+     */
+    public static final class SimilarPair {
+
+        private final Student student1;
+        private final Student student2;
+        private final double similarity;
+
+        SimilarPair(final Student student1,
+                    final Student student2,
+                    final double similarity) {
+            this.student1 = student1;
+            this.student2 = student2;
+            this.similarity = similarity;
+        }
+
+        public Student getFirstStudent() {
+            return student1;
+        }
+
+        public Student getSecondStudent() {
+            return student2;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return student1.getId() + " " + student2.getId() + " " +
+                   similarity;
+        }
+    }
+
+    private final AppDataStorage storage;
+    private final EntryTable table;
+    private final int bands;
+    private final int rows;
+
+    /**
+     * The band hashes of student <code>s</code> are at
+     * <tt>[s * bands, (s + 1) * bands)</tt>.
+     */
+    private final int[] bandHashes;
+
+    /**
+     * The indexed students of band <code>b</code> sorted by their band hash,
+     * each packed as the hash in the upper and the ordinal in the lower half.
+     */
+    private final long[][] buckets;
+
+    /**
+     * Builds the index with the default amounts of bands and rows.
+     *
+     * @param storage the data storage.
+     */
+    public SimilarStudentIndex(final AppDataStorage storage) {
+        this(storage, DEFAULT_BANDS, DEFAULT_ROWS, 1L);
+    }
+
+    /**
+     * Builds the index.
+     *
+     * @param storage the data storage.
+     * @param bands   the amount of bands.
+     * @param rows    the amount of rows per band.
+     * @param seed    the seed of the hash functions.
+     */
+    public SimilarStudentIndex(final AppDataStorage storage,
+                               final int bands,
+                               final int rows,
+                               final long seed) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotLess(bands, 1, "The amount of bands must be positive.");
+        checkNotLess(rows, 1, "The amount of rows must be positive.");
+
+        this.storage = storage;
+        this.table = storage.getEntryTable();
+        this.bands = bands;
+        this.rows = rows;
+
+        final int students = table.getStudentAmount();
+        final long[] seeds = new long[bands * rows];
+        final Random random = new Random(seed);
+
+        for (int i = 0; i < seeds.length; ++i) {
+            seeds[i] = random.nextLong();
+        }
+
+        this.bandHashes = new int[students * bands];
+
+        final List<Integer> sizes =
+                Parallel.forRange(students,
+                                  256,
+                                  new Parallel.RangeTask<Integer>() {
+            @Override
+            public Integer compute(final int from, final int to) {
+                final int[] signature = new int[seeds.length];
+                int indexed = 0;
+
+                for (int s = from; s < to; ++s) {
+                    if (computeSignature(s, seeds, signature)) {
+                        ++indexed;
+
+                        for (int b = 0; b < bands; ++b) {
+                            bandHashes[s * bands + b] =
+                                    hashBand(signature, b * rows, rows);
+                        }
+                    }
+                }
+
+                return indexed;
+            }
+        });
+
+        int indexed = 0;
+
+        for (final int size : sizes) {
+            indexed += size;
+        }
+
+        this.buckets = new long[bands][indexed];
+
+        Parallel.forRange(bands, 1, new Parallel.RangeTask<Void>() {
+            @Override
+            public Void compute(final int from, final int to) {
+                for (int b = from; b < to; ++b) {
+                    final long[] bucket = buckets[b];
+                    int size = 0;
+
+                    for (int s = 0; s < students; ++s) {
+                        if (isIndexed(s)) {
+                            bucket[size++] = pack(bandHashes[s * bands + b],
+                                                  s);
+                        }
+                    }
+
+                    Arrays.sort(bucket);
+                }
+
+                return null;
+            }
+        });
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns at most <code>k</code> students most similar to
+     * <code>student</code> among the candidates of the index, by descending
+     * exact Jaccard similarity.
+     *
+     * @param  student the query student.
+     * @param  k       the maximum amount of students.
+     * @return the list of similar students.
+     */
+    public List<Neighbor> findSimilar(final Student student, final int k) {
+        checkNotNull(student, "The student is null.");
+        checkNotLess(k, 0, "The amount of students is negative: " + k);
+
+        final int s = storage.getStudentOrdinal(student);
+
+        if (s < 0 || !isIndexed(s)) {
+            return Collections.<Neighbor>emptyList();
+        }
+
+        final int[] candidates = findCandidates(s);
+        final double[] similarities = new double[candidates.length];
+        final Integer[] order = new Integer[candidates.length];
+
+        for (int i = 0; i < candidates.length; ++i) {
+            similarities[i] = jaccard(s, candidates[i]);
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                final int cmp = Double.compare(similarities[o2],
+                                               similarities[o1]);
+                return cmp != 0 ?
+                       cmp :
+                       Integer.compare(candidates[o1], candidates[o2]);
+            }
+        });
+
+        final List<Neighbor> ret = new ArrayList<>(Math.min(k, order.length));
+
+        for (int i = 0; i < order.length && i < k; ++i) {
+            ret.add(new Neighbor(
+                    storage.getStudentByOrdinal(candidates[order[i]]),
+                    similarities[order[i]]));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the pairs of students whose Jaccard similarity is at least
+     * <code>threshold</code> among the candidate pairs of the index. The
+     * bands are processed in parallel, and a pair is verified only in the
+     * first band it collides in.
+     *
+     * @param  threshold the minimum similarity.
+     * @return the pairs by descending similarity.
+     */
+    public List<SimilarPair> findPairs(final double threshold) {
+        if (!(threshold > 0.0 && threshold <= 1.0)) {
+            throw new IllegalArgumentException(
+                    "The threshold must be within (0, 1]. Received: " +
+                    threshold);
+        }
+
+        final List<List<SimilarPair>> partials =
+                Parallel.forRange(bands,
+                                  1,
+                                  new Parallel.RangeTask<List<SimilarPair>>() {
+            @Override
+            public List<SimilarPair> compute(final int from, final int to) {
+                final List<SimilarPair> ret = new ArrayList<>();
+
+                for (int b = from; b < to; ++b) {
+                    final long[] bucket = buckets[b];
+                    int begin = 0;
+
+                    while (begin < bucket.length) {
+                        int end = begin + 1;
+
+                        while (end < bucket.length &&
+                                hash(bucket[end]) == hash(bucket[begin])) {
+                            ++end;
+                        }
+
+                        for (int i = begin; i < end; ++i) {
+                            for (int j = i + 1; j < end; ++j) {
+                                addIfSimilar(b,
+                                             student(bucket[i]),
+                                             student(bucket[j]),
+                                             threshold,
+                                             ret);
+                            }
+                        }
+
+                        begin = end;
+                    }
+                }
+
+                return ret;
+            }
+        });
+
+        final List<SimilarPair> ret = new ArrayList<>();
+
+        for (final List<SimilarPair> partial : partials) {
+            ret.addAll(partial);
+        }
+
+        Collections.sort(ret, new Comparator<SimilarPair>() {
+            @Override
+            public int compare(final SimilarPair o1, final SimilarPair o2) {
+                final int cmp = Double.compare(o2.similarity, o1.similarity);
+
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                final int cmp2 = Integer.compare(o1.student1.getId(),
+                                                 o2.student1.getId());
+                return cmp2 != 0 ?
+                       cmp2 :
+                       Integer.compare(o1.student2.getId(),
+                                       o2.student2.getId());
+            }
+        });
+
+        return ret;
+    }
+
+    /**
+     * Computes the exact Jaccard similarity of the course sets of two
+     * students by merging their sorted distinct course lists.
+     *
+     * @param  s1 the ordinal of the first student.
+     * @param  s2 the ordinal of the second student.
+     * @return the Jaccard similarity.
+     */
+    double jaccard(final int s1, final int s2) {
+        int p1 = table.getStudentCourseBegin(s1);
+        int p2 = table.getStudentCourseBegin(s2);
+        final int end1 = table.getStudentCourseEnd(s1);
+        final int end2 = table.getStudentCourseEnd(s2);
+        final int union = end1 - p1 + end2 - p2;
+        int intersection = 0;
+
+        while (p1 < end1 && p2 < end2) {
+            final int c1 = table.getStudentCourse(p1);
+            final int c2 = table.getStudentCourse(p2);
+
+            if (c1 == c2) {
+                ++intersection;
+                ++p1;
+                ++p2;
+            } else if (c1 < c2) {
+                ++p1;
+            } else {
+                ++p2;
+            }
+        }
+
+        return union == 0 ? 0.0 : 1.0 * intersection / (union - intersection);
+    }
+
+    /**
+     * Adds the pair to <code>list</code> if its similarity reaches the
+     * threshold and <code>band</code> is the first band the pair collides in.
+     */
+    private void addIfSimilar(final int band,
+                              final int s1,
+                              final int s2,
+                              final double threshold,
+                              final List<SimilarPair> list) {
+        for (int b = 0; b < band; ++b) {
+            if (bandHashes[s1 * bands + b] == bandHashes[s2 * bands + b]) {
+                return;
+            }
+        }
+
+        final double similarity = jaccard(s1, s2);
+
+        if (similarity >= threshold) {
+            list.add(new SimilarPair(storage.getStudentByOrdinal(s1),
+                                     storage.getStudentByOrdinal(s2),
+                                     similarity));
+        }
+    }
+
+    /**
+     * Returns the distinct students sharing a bucket with <code>s</code> in
+     * any band, excluding <code>s</code> itself.
+     */
+    private int[] findCandidates(final int s) {
+        int[] candidates = new int[16];
+        int size = 0;
+
+        for (int b = 0; b < bands; ++b) {
+            final long[] bucket = buckets[b];
+            final int hash = bandHashes[s * bands + b];
+            int i = Arrays.binarySearch(bucket, pack(hash, 0));
+
+            if (i < 0) {
+                i = -i - 1;
+            }
+
+            for (; i < bucket.length && hash(bucket[i]) == hash; ++i) {
+                if (student(bucket[i]) != s) {
+                    if (size == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, 2 * size);
+                    }
+
+                    candidates[size++] = student(bucket[i]);
+                }
+            }
+        }
+
+        Arrays.sort(candidates, 0, size);
+        int distinct = 0;
+
+        for (int i = 0; i < size; ++i) {
+            if (distinct == 0 || candidates[distinct - 1] != candidates[i]) {
+                candidates[distinct++] = candidates[i];
+            }
+        }
+
+        return Arrays.copyOf(candidates, distinct);
+    }
+
+    private boolean isIndexed(final int s) {
+        return table.getStudentCourseEnd(s) > table.getStudentCourseBegin(s);
+    }
+
+    /**
+     * Computes the MinHash signature of student <code>s</code>.
+     *
+     * @return <code>false</code> if the student has no courses.
+     */
+    private boolean computeSignature(final int s,
+                                     final long[] seeds,
+                                     final int[] signature) {
+        final int begin = table.getStudentCourseBegin(s);
+        final int end = table.getStudentCourseEnd(s);
+
+        if (begin == end) {
+            return false;
+        }
+
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        for (int p = begin; p < end; ++p) {
+            final int course = table.getStudentCourse(p);
+
+            for (int i = 0; i < seeds.length; ++i) {
+                final int h = mix(course ^ seeds[i]);
+
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static int hashBand(final int[] signature,
+                                final int offset,
+                                final int length) {
+        long h = 0L;
+
+        for (int i = offset; i < offset + length; ++i) {
+            h = 31L * h + signature[i];
+        }
+
+        return mix(h);
+    }
+
+    /**
+     * The finalizer of MurmurHash3.
+     */
+    private static int mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Packs a band hash and a student ordinal so that the packed values sort
+     * by the hash and then by the ordinal.
+     */
+    private static long pack(final int hash, final int student) {
+        return ((long) hash << 32) | student;
+    }
+
+    private static int hash(final long packed) {
+        return (int)(packed >> 32);
+    }
+
+    private static int student(final long packed) {
+        return (int) packed;
+    }
+}
@@ -0,0 +1,773 @@
+package net.coderodde.datamining.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.AppDataStorage.SequenceAndSupport;
+import net.coderodde.datamining.model.AssociationRule;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.model.RuleIndex;
+import net.coderodde.datamining.model.Student;
+import net.coderodde.datamining.recommend.CourseRecommender;
+import net.coderodde.datamining.recommend.SimilarStudentIndex;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import net.coderodde.datamining.utils.JsonWriter;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class serves queries over a loaded {@link AppDataStorage} through the
+ * HTTP server of the JDK, so that the data is parsed and indexed only once.
+ * All the endpoints accept <tt>GET</tt> requests and answer with JSON:
+ * <ul>
+ *   <li><tt>/support?course=...</tt> - the support of the itemset of the
+ *       given courses;</li>
+ *   <li><tt>/confidence?x=...&amp;y=...</tt> - the confidence of the rule
+ *       <tt>x -&gt; y</tt>;</li>
+ *   <li><tt>/cohort?course=...[&amp;from=yyyy-mm][&amp;until=yyyy-mm]
+ *       [&amp;minGrade=g][&amp;maxGrade=g][&amp;limit=n]</tt> - the students
+ *       that have attended all the given courses within the time range with
+ *       a grade within the grade range, both holding for the same
+ *       attendance. The range starts at the month <tt>from</tt> and ends
+ *       before the month <tt>until</tt>, so <tt>until=2009-12</tt> excludes
+ *       December 2009;</li>
+ *   <li><tt>/itemsets?minSupport=s</tt> - the frequent itemsets;</li>
+ *   <li><tt>/rules?minSupport=s&amp;minConfidence=c[&amp;course=...]</tt> -
+ *       the association rules, or only those fired by the given courses;
+ *       </li>
+ *   <li><tt>/sequences?minSupport=s[&amp;size=k[&amp;maxspan=m]]</tt> - the
+ *       frequent sequences;</li>
+ *   <li><tt>/recommend?course=...[&amp;n=k][&amp;measure=confidence|lift]
+ *       </tt> - the courses to attend next after the given courses;</li>
+ *   <li><tt>/similar?student=id[&amp;n=k]</tt> - the students whose
+ *       attended courses are the most similar to those of the given
+ *       student.</li>
+ * </ul>
+ * A course is given by its code or by its name, and a parameter listing
+ * courses may be repeated. The requests are served by a pool of threads, or
+ * by virtual threads if the running JVM has them. The storage is only read,
+ * so the requests share its indices without locking. The mining results are
+ * cached by their parameters.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class QueryServer {
+
+    /**
+     * The maximum amount of cached mining results.
+     */
+    private static final int MAXIMUM_CACHED_RESULTS = 32;
+
+    /**
+     * The default maximum amount of students listed in a cohort response.
+     */
+    private static final int DEFAULT_COHORT_LIMIT = 100;
+
+    /**
+     * The default amount of recommended courses.
+     */
+    private static final int DEFAULT_RECOMMENDATIONS = 10;
+
+    /**
+     * The amount of neighbors kept per course by the recommenders.
+     */
+    private static final int RECOMMENDER_NEIGHBORS = 50;
+
+    /**
+     * The minimum amount of students behind a recommendation.
+     */
+    private static final int RECOMMENDER_MIN_COUNT = 2;
+
+    /**
+     * The default amount of similar students.
+     */
+    private static final int DEFAULT_SIMILAR_STUDENTS = 10;
+
+    private static final String JSON_CONTENT_TYPE =
+            "application/json; charset=UTF-8";
+
+    private final AppDataStorage storage;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Maps course codes and names to courses.
+     */
+    private final Map<String, Course> courseMap = new HashMap<>();
+
+    /**
+     * The least recently used mining results, keyed by the endpoint and the
+     * parameters.
+     */
+    private final Map<String, byte[]> resultCache =
+            new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<String, byte[]> eldest) {
+            return size() > MAXIMUM_CACHED_RESULTS;
+        }
+    };
+
+    /**
+     * The recommenders built so far, by measure.
+     */
+    private final Map<CourseRecommender.Measure, CourseRecommender>
+            recommenderMap = new EnumMap<>(CourseRecommender.Measure.class);
+
+    /**
+     * The similar student index, built on first use.
+     */
+    private SimilarStudentIndex similarStudentIndex;
+
+    /**
+     * Creates a server over <code>storage</code> bound to
+     * <code>address</code>. The server does not accept requests before
+     * {@link #start()} is called.
+     *
+     * @param  storage the data storage to query.
+     * @param  address the address to bind to. Port 0 picks a free port.
+     * @throws IOException if the server cannot be bound.
+     */
+    public QueryServer(final AppDataStorage storage,
+                       final InetSocketAddress address) throws IOException {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotNull(address, "The address is null.");
+
+        this.storage = storage;
+
+        for (final Course course : storage.getCourseList()) {
+            courseMap.put(course.getName(), course);
+        }
+
+        // Codes take precedence over names.
+        for (final Course course : storage.getCourseList()) {
+            courseMap.put(course.getCode(), course);
+        }
+
+        this.executor = createExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+
+        server.createContext("/support", new Endpoint() {
+            @Override
+            void handle(final Map<String, List<String>> parameters,
+                        final JsonWriter writer) throws IOException {
+                writeSupport(parameters, writer);
+            }
+        });
+
+        server.createContext("/confidence", new Endpoint() {
+            @Override
+            void handle(final Map<String, List<String>> parameters,
+                        final JsonWriter writer) throws IOException {
+                writeConfidence(parameters, writer);
+            }
+        });
+
+        server.createContext("/cohort", new Endpoint() {
+            @Override
+            void handle(final Map<String, List<String>> parameters,
+                        final JsonWriter writer) throws IOException {
+                writeCohort(parameters, writer);
+            }
+        });
+
+        server.createContext("/itemsets", new CachedEndpoint("itemsets") {
+            @Override
+            void handle(final Map<String, List<String>> parameters,
+                        final JsonWriter writer) throws IOException {
+                writeItemsets(parameters, writer);
+            }
+        });
+
+        server.createContext("/rules", new CachedEndpoint("rules") {
+            @Override
+            void handle(final Map<String, List<String>> parameters,
+                        final JsonWriter writer) throws IOException {
+                writeRules(parameters, writer);
+            }
+        });
+
+        server.createContext("/sequences", new CachedEndpoint("sequences") {
+            @Override
+            void handle(final Map<String, List<String>> parameters,
+                        final JsonWriter writer) throws IOException {
+                writeSequences(parameters, writer);
+            }
+        });
+
+        server.createContext("/recommend", new Endpoint() {
+            @Override
+            void handle(final Map<String, List<String>> parameters,
+                        final JsonWriter writer) throws IOException {
+                writeRecommendations(parameters, writer);
+            }
+        });
+
+        server.createContext("/similar", new Endpoint() {
+            @Override
+            void handle(final Map<String, List<String>> parameters,
+                        final JsonWriter writer) throws IOException {
+                writeSimilarStudents(parameters, writer);
+            }
+        });
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most <code>delay</code> seconds for the
+     * requests being served.
+     *
+     * @param delay the maximum amount of seconds to wait.
+     */
+    public void stop(final int delay) {
+        server.stop(delay);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the address the server is bound to.
+     *
+     * @return the address.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void writeSupport(final Map<String, List<String>> parameters,
+                              final JsonWriter writer) throws IOException {
+        final Set<Course> itemset = getCourses(parameters, "course");
+        final int count = storage.supportCount(itemset);
+
+        writer.beginObject()
+              .name("count").value(count)
+              .name("support").value(1.0 * count / storage.getStudentAmount())
+              .endObject();
+    }
+
+    private void writeConfidence(final Map<String, List<String>> parameters,
+                                 final JsonWriter writer) throws IOException {
+        final Set<Course> setx = getCourses(parameters, "x");
+        final Set<Course> sety = getCourses(parameters, "y");
+
+        writer.beginObject()
+              .name("support").value(storage.support(setx, sety))
+              .name("confidence").value(storage.confidence(setx, sety))
+              .endObject();
+    }
+
+    private void writeCohort(final Map<String, List<String>> parameters,
+                             final JsonWriter writer) throws IOException {
+        final Set<Course> courseSet = getCourses(parameters, "course");
+        final int fromTime = getTime(parameters, "from", Integer.MIN_VALUE);
+        final int untilTime = getTime(parameters, "until", Integer.MAX_VALUE);
+        final int minGrade = getInt(parameters, "minGrade", Integer.MIN_VALUE);
+        final int maxGrade = getInt(parameters, "maxGrade", Integer.MAX_VALUE);
+        final int limit = getInt(parameters, "limit", DEFAULT_COHORT_LIMIT);
+
+        final CompressedBitmap cohort =
+                minGrade == Integer.MIN_VALUE && maxGrade == Integer.MAX_VALUE ?
+                storage.queryStudentBitmapBetween(courseSet,
+                                                  fromTime,
+                                                  untilTime) :
+                storage.queryStudentBitmapBetween(courseSet,
+                                                  fromTime,
+                                                  untilTime,
+                                                  minGrade,
+                                                  maxGrade);
+        final int[] ordinals = cohort.toArray();
+
+        writer.beginObject();
+        writer.name("count").value(ordinals.length);
+        writer.name("students").beginArray();
+
+        for (int i = 0; i < Math.min(limit, ordinals.length); ++i) {
+            writer.value(storage.getStudentByOrdinal(ordinals[i]).getId());
+        }
+
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private void writeItemsets(final Map<String, List<String>> parameters,
+                               final JsonWriter writer) throws IOException {
+        final double minSupport = getDouble(parameters, "minSupport");
+        final List<Set<Course>> itemsetList =
+                new ArrayList<>(storage.apriori(minSupport));
+
+        writer.beginArray();
+
+        for (final Set<Course> itemset : itemsetList) {
+            writer.beginObject();
+            writer.name("courses");
+            writeCourses(writer, itemset);
+            writer.name("count").value(storage.supportCount(itemset));
+            writer.endObject();
+        }
+
+        writer.endArray();
+    }
+
+    private void writeRules(final Map<String, List<String>> parameters,
+                            final JsonWriter writer) throws IOException {
+        final double minSupport = getDouble(parameters, "minSupport");
+        final double minConfidence = getDouble(parameters, "minConfidence");
+        List<AssociationRule> ruleList =
+                storage.apriori(minSupport, minConfidence);
+
+        if (parameters.containsKey("course")) {
+            ruleList = new RuleIndex(ruleList).match(
+                    getCourses(parameters, "course"));
+        }
+
+        writer.beginArray();
+
+        for (final AssociationRule rule : ruleList) {
+            writer.beginObject();
+            writer.name("antecedent");
+            writeCourses(writer, rule.getAntecedent());
+            writer.name("consequent");
+            writeCourses(writer, rule.getConsequent());
+            writer.name("support").value(rule.getSupport());
+            writer.name("confidence").value(rule.getConfidence());
+            writer.name("lift").value(rule.getLift());
+            writer.name("is").value(rule.getISMeasure());
+            writer.endObject();
+        }
+
+        writer.endArray();
+    }
+
+    private void writeSequences(final Map<String, List<String>> parameters,
+                                final JsonWriter writer) throws IOException {
+        final double minSupport = getDouble(parameters, "minSupport");
+        final int size = getInt(parameters, "size", -1);
+        final int maxspan = getInt(parameters, "maxspan", -1);
+        final List<SequenceAndSupport> sequenceList;
+
+        if (size < 0) {
+            sequenceList = storage.sequentialApriori(minSupport);
+        } else if (maxspan < 0) {
+            sequenceList = storage.sequentialApriori(minSupport, size);
+        } else {
+            sequenceList = storage.sequentialApriori(minSupport, size, maxspan);
+        }
+
+        writer.beginArray();
+
+        for (final SequenceAndSupport sequence : sequenceList) {
+            writer.beginObject()
+                  .name("sequence").value(sequence.getSequence().toString())
+                  .name("support").value(sequence.getSupport())
+                  .endObject();
+        }
+
+        writer.endArray();
+    }
+
+    private void writeRecommendations(
+            final Map<String, List<String>> parameters,
+            final JsonWriter writer) throws IOException {
+        final Set<Course> courseSet = getCourses(parameters, "course");
+        final int n = getInt(parameters, "n", DEFAULT_RECOMMENDATIONS);
+        final String measureName = getString(parameters, "measure");
+        final CourseRecommender.Measure measure;
+
+        if (measureName == null || measureName.equals("confidence")) {
+            measure = CourseRecommender.Measure.CONFIDENCE;
+        } else if (measureName.equals("lift")) {
+            measure = CourseRecommender.Measure.LIFT;
+        } else {
+            throw new IllegalArgumentException(
+                    "Unknown measure \"" + measureName + "\".");
+        }
+
+        if (n < 0) {
+            throw new IllegalArgumentException(
+                    "The amount of recommendations is negative: " + n);
+        }
+
+        writer.beginArray();
+
+        for (final CourseRecommender.Recommendation recommendation :
+                getRecommender(measure).recommend(courseSet, n)) {
+            writer.beginObject()
+                  .name("code").value(recommendation.getCourse().getCode())
+                  .name("name").value(recommendation.getCourse().getName())
+                  .name("score").value(recommendation.getScore())
+                  .endObject();
+        }
+
+        writer.endArray();
+    }
+
+    /**
+     * Returns the recommender of <code>measure</code>, building it on first
+     * use.
+     */
+    private CourseRecommender getRecommender(
+            final CourseRecommender.Measure measure) {
+        synchronized (recommenderMap) {
+            CourseRecommender recommender = recommenderMap.get(measure);
+
+            if (recommender == null) {
+                recommender = new CourseRecommender(storage,
+                                                    RECOMMENDER_NEIGHBORS,
+                                                    measure,
+                                                    RECOMMENDER_MIN_COUNT);
+                recommenderMap.put(measure, recommender);
+            }
+
+            return recommender;
+        }
+    }
+
+    private void writeSimilarStudents(
+            final Map<String, List<String>> parameters,
+            final JsonWriter writer) throws IOException {
+        final int id = getInt(parameters, "student", -1);
+        final int n = getInt(parameters, "n", DEFAULT_SIMILAR_STUDENTS);
+        final Student student = new Student(id, 0);
+
+        if (storage.getStudentOrdinal(student) < 0) {
+            throw new IllegalArgumentException(
+                    "Unknown student \"" + getString(parameters, "student") +
+                    "\".");
+        }
+
+        if (n < 0) {
+            throw new IllegalArgumentException(
+                    "The amount of students is negative: " + n);
+        }
+
+        writer.beginArray();
+
+        for (final SimilarStudentIndex.Neighbor neighbor :
+                getSimilarStudentIndex().findSimilar(student, n)) {
+            writer.beginObject()
+                  .name("student").value(neighbor.getStudent().getId())
+                  .name("similarity").value(neighbor.getSimilarity())
+                  .endObject();
+        }
+
+        writer.endArray();
+    }
+
+    private synchronized SimilarStudentIndex getSimilarStudentIndex() {
+        if (similarStudentIndex == null) {
+            similarStudentIndex = new SimilarStudentIndex(storage);
+        }
+
+        return similarStudentIndex;
+    }
+
+    private static void writeCourses(final JsonWriter writer,
+                                     final Set<Course> courseSet)
+    throws IOException {
+        final List<Course> courseList = new ArrayList<>(courseSet);
+        Collections.sort(courseList);
+        writer.beginArray();
+
+        for (final Course course : courseList) {
+            writer.beginObject()
+                  .name("code").value(course.getCode())
+                  .name("name").value(course.getName())
+                  .endObject();
+        }
+
+        writer.endArray();
+    }
+
+    private Set<Course> getCourses(final Map<String, List<String>> parameters,
+                                   final String name) {
+        final List<String> valueList = parameters.get(name);
+
+        if (valueList == null) {
+            throw new IllegalArgumentException(
+                    "Missing parameter \"" + name + "\".");
+        }
+
+        final Set<Course> ret = new HashSet<>(valueList.size());
+
+        for (final String value : valueList) {
+            final Course course = courseMap.get(value);
+
+            if (course == null) {
+                throw new IllegalArgumentException(
+                        "Unknown course \"" + value + "\".");
+            }
+
+            ret.add(course);
+        }
+
+        return ret;
+    }
+
+    private static String getString(final Map<String, List<String>> parameters,
+                                    final String name) {
+        final List<String> valueList = parameters.get(name);
+        return valueList == null ? null : valueList.get(0);
+    }
+
+    private static double getDouble(final Map<String, List<String>> parameters,
+                                    final String name) {
+        final String value = getString(parameters, name);
+
+        if (value == null) {
+            throw new IllegalArgumentException(
+                    "Missing parameter \"" + name + "\".");
+        }
+
+        try {
+            return Double.parseDouble(value);
+        } catch (final NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    "Bad number \"" + value + "\" for \"" + name + "\".");
+        }
+    }
+
+    private static int getInt(final Map<String, List<String>> parameters,
+                              final String name,
+                              final int defaultValue) {
+        final String value = getString(parameters, name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException ex) {
+            throw new IllegalArgumentException(
+                    "Bad integer \"" + value + "\" for \"" + name + "\".");
+        }
+    }
+
+    /**
+     * Parses a time given as <tt>yyyy-mm</tt>.
+     */
+    private static int getTime(final Map<String, List<String>> parameters,
+                               final String name,
+                               final int defaultValue) {
+        final String value = getString(parameters, name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        final String[] parts = value.split("-");
+
+        try {
+            if (parts.length == 2) {
+                return EntryTable.toTime(Integer.parseInt(parts[0]),
+                                         Integer.parseInt(parts[1]));
+            }
+        } catch (final NumberFormatException ex) {
+            // Reported below.
+        }
+
+        throw new IllegalArgumentException(
+                "Bad time \"" + value + "\" for \"" + name + "\", " +
+                "expected yyyy-mm.");
+    }
+
+    static Map<String, List<String>> parseQuery(final String query)
+    throws UnsupportedEncodingException {
+        final Map<String, List<String>> ret = new HashMap<>();
+
+        if (query == null || query.isEmpty()) {
+            return ret;
+        }
+
+        for (final String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+
+            final int equals = pair.indexOf('=');
+            final String name =
+                    URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals),
+                                      "UTF-8");
+            final String value =
+                    equals < 0 ?
+                    "" :
+                    URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+
+            List<String> valueList = ret.get(name);
+
+            if (valueList == null) {
+                valueList = new ArrayList<>(1);
+                ret.put(name, valueList);
+            }
+
+            valueList.add(value);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Creates an executor running each request in a virtual thread if the
+     * JVM supports them, and otherwise a pool of daemon threads.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService)
+                    Executors.class
+                             .getMethod("newVirtualThreadPerTaskExecutor")
+                             .invoke(null);
+        } catch (final ReflectiveOperationException ex) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+
+            return Executors.newFixedThreadPool(
+                    2 * Parallel.getParallelism(),
+                    new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread =
+                            new Thread(runnable,
+                                       "query-server-" +
+                                       threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    /**
+     * The base class of the endpoints. Writes the response into a buffer, so
+     * that errors may still be reported with a proper status.
+     */
+    private abstract class Endpoint implements HttpHandler {
+
+        abstract void handle(final Map<String, List<String>> parameters,
+                             final JsonWriter writer) throws IOException;
+
+        byte[] respond(final Map<String, List<String>> parameters)
+        throws IOException {
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+            try (final JsonWriter writer =
+                    new JsonWriter(new OutputStreamWriter(buffer, "UTF-8"))) {
+                handle(parameters, writer);
+            }
+
+            return buffer.toByteArray();
+        }
+
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    send(exchange, 405, error("Only GET is supported."));
+                    return;
+                }
+
+                final String query = exchange.getRequestURI().getRawQuery();
+                byte[] response;
+
+                try {
+                    response = respond(parseQuery(query));
+                } catch (final IllegalArgumentException ex) {
+                    send(exchange, 400, error(ex.getMessage()));
+                    return;
+                } catch (final RuntimeException ex) {
+                    send(exchange, 500, error(ex.toString()));
+                    return;
+                }
+
+                send(exchange, 200, response);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * The base class of the endpoints whose responses are cached.
+     */
+    private abstract class CachedEndpoint extends Endpoint {
+
+        private final String name;
+
+        CachedEndpoint(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        byte[] respond(final Map<String, List<String>> parameters)
+        throws IOException {
+            final String key = name + "?" + new TreeMap<>(parameters);
+            byte[] response;
+
+            synchronized (resultCache) {
+                response = resultCache.get(key);
+            }
+
+            if (response == null) {
+                // Two requests may compute the same result concurrently,
+                // which is harmless.
+                response = super.respond(parameters);
+
+                synchronized (resultCache) {
+                    resultCache.put(key, response);
+                }
+            }
+
+            return response;
+        }
+    }
+
+    private static byte[] error(final String message) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        try (final JsonWriter writer =
+                new JsonWriter(new OutputStreamWriter(buffer, "UTF-8"))) {
+            writer.beginObject().name("error").value(message).endObject();
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private static void send(final HttpExchange exchange,
+                             final int status,
+                             final byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+
+        try (final OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
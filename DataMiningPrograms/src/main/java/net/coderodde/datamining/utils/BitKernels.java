@@ -0,0 +1,258 @@
+package net.coderodde.datamining.utils;
+
+/**
+ * This class provides the population count kernels over plain bitsets stored
+ * in <code>long</code> arrays. The multi-way kernels AND the words of all the
+ * bitsets and count the bits in the same pass, so that no intersection is
+ * ever written to memory. The loops are unrolled over four independent
+ * accumulators; {@link Long#bitCount(long)} is compiled to the population
+ * count instruction of the processor, and the independent accumulators keep
+ * several of them in flight.
+ * <p>
+ * The kernels taking a minimum count give up as soon as the bits left to
+ * inspect cannot lift the count to the minimum, which is what support
+ * counting against a minimum support needs: an infrequent itemset is rejected
+ * without counting all of its bits. Given a stop count, they also stop as
+ * soon as the count reaches it, so that a frequent itemset is accepted
+ * without counting all of its bits either.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class BitKernels {
+
+    /**
+     * The amount of words between two checks whether the minimum count is
+     * still reachable.
+     */
+    private static final int BLOCK_WORDS = 64;
+
+    private BitKernels() {}
+
+    /**
+     * Counts the set bits of <tt>words[from, to)</tt>.
+     *
+     * @param  words the bitset.
+     * @param  from  the first word.
+     * @param  to    the word one past the last word.
+     * @return the amount of set bits.
+     */
+    public static int cardinality(final long[] words,
+                                  final int from,
+                                  final int to) {
+        int c0 = 0;
+        int c1 = 0;
+        int c2 = 0;
+        int c3 = 0;
+        int i = from;
+
+        for (; i + 3 < to; i += 4) {
+            c0 += Long.bitCount(words[i]);
+            c1 += Long.bitCount(words[i + 1]);
+            c2 += Long.bitCount(words[i + 2]);
+            c3 += Long.bitCount(words[i + 3]);
+        }
+
+        for (; i < to; ++i) {
+            c0 += Long.bitCount(words[i]);
+        }
+
+        return c0 + c1 + c2 + c3;
+    }
+
+    /**
+     * Counts the set bits of the intersection of two bitsets within
+     * <tt>[from, to)</tt>.
+     *
+     * @param  a    the first bitset.
+     * @param  b    the second bitset.
+     * @param  from the first word.
+     * @param  to   the word one past the last word.
+     * @return the amount of bits set in both bitsets.
+     */
+    public static int andCardinality(final long[] a,
+                                     final long[] b,
+                                     final int from,
+                                     final int to) {
+        int c0 = 0;
+        int c1 = 0;
+        int c2 = 0;
+        int c3 = 0;
+        int i = from;
+
+        for (; i + 3 < to; i += 4) {
+            c0 += Long.bitCount(a[i] & b[i]);
+            c1 += Long.bitCount(a[i + 1] & b[i + 1]);
+            c2 += Long.bitCount(a[i + 2] & b[i + 2]);
+            c3 += Long.bitCount(a[i + 3] & b[i + 3]);
+        }
+
+        for (; i < to; ++i) {
+            c0 += Long.bitCount(a[i] & b[i]);
+        }
+
+        return c0 + c1 + c2 + c3;
+    }
+
+    /**
+     * Counts the set bits of the intersection of three bitsets within
+     * <tt>[from, to)</tt>.
+     *
+     * @param  a    the first bitset.
+     * @param  b    the second bitset.
+     * @param  c    the third bitset.
+     * @param  from the first word.
+     * @param  to   the word one past the last word.
+     * @return the amount of bits set in all three bitsets.
+     */
+    public static int andCardinality(final long[] a,
+                                     final long[] b,
+                                     final long[] c,
+                                     final int from,
+                                     final int to) {
+        int c0 = 0;
+        int c1 = 0;
+        int c2 = 0;
+        int c3 = 0;
+        int i = from;
+
+        for (; i + 3 < to; i += 4) {
+            c0 += Long.bitCount(a[i] & b[i] & c[i]);
+            c1 += Long.bitCount(a[i + 1] & b[i + 1] & c[i + 1]);
+            c2 += Long.bitCount(a[i + 2] & b[i + 2] & c[i + 2]);
+            c3 += Long.bitCount(a[i + 3] & b[i + 3] & c[i + 3]);
+        }
+
+        for (; i < to; ++i) {
+            c0 += Long.bitCount(a[i] & b[i] & c[i]);
+        }
+
+        return c0 + c1 + c2 + c3;
+    }
+
+    /**
+     * Counts the set bits of the intersection of the first
+     * <code>amount</code> bitsets of <code>sets</code> within
+     * <tt>[from, to)</tt>.
+     *
+     * @param  sets   the bitsets.
+     * @param  amount the amount of bitsets to intersect, at least one.
+     * @param  from   the first word.
+     * @param  to     the word one past the last word.
+     * @return the amount of bits set in all the bitsets.
+     */
+    public static int andCardinality(final long[][] sets,
+                                     final int amount,
+                                     final int from,
+                                     final int to) {
+        switch (amount) {
+            case 1:
+                return cardinality(sets[0], from, to);
+
+            case 2:
+                return andCardinality(sets[0], sets[1], from, to);
+
+            case 3:
+                return andCardinality(sets[0], sets[1], sets[2], from, to);
+        }
+
+        checkAmount(sets, amount);
+        final long[] first = sets[0];
+        int count = 0;
+
+        for (int i = from; i < to; ++i) {
+            long word = first[i];
+
+            // A word that becomes zero stays zero, so the remaining sets need
+            // not be loaded.
+            for (int j = 1; j < amount && word != 0L; ++j) {
+                word &= sets[j][i];
+            }
+
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the set bits of the intersection of the first
+     * <code>amount</code> bitsets of <code>sets</code> within
+     * <tt>[from, to)</tt>, giving up as soon as the count cannot reach
+     * <code>minCount</code>.
+     *
+     * @param  sets     the bitsets.
+     * @param  amount   the amount of bitsets to intersect, at least one.
+     * @param  from     the first word.
+     * @param  to       the word one past the last word.
+     * @param  minCount the least count of interest.
+     * @return the amount of bits set in all the bitsets if it is at least
+     *         <code>minCount</code>, and otherwise a value less than
+     *         <code>minCount</code>.
+     */
+    public static int andCardinality(final long[][] sets,
+                                     final int amount,
+                                     final int from,
+                                     final int to,
+                                     final int minCount) {
+        return andCardinality(sets,
+                              amount,
+                              from,
+                              to,
+                              minCount,
+                              Integer.MAX_VALUE);
+    }
+
+    /**
+     * Counts the set bits of the intersection of the first
+     * <code>amount</code> bitsets of <code>sets</code> within
+     * <tt>[from, to)</tt> until it is decided on which side of
+     * <code>minCount</code> and <code>stopCount</code> the count falls: the
+     * counting gives up as soon as the count cannot reach
+     * <code>minCount</code>, and stops as soon as the count reaches
+     * <code>stopCount</code>. With <code>stopCount</code> equal to
+     * <code>minCount</code> this answers whether the count reaches
+     * <code>minCount</code> without counting more than necessary.
+     *
+     * @param  sets      the bitsets.
+     * @param  amount    the amount of bitsets to intersect, at least one.
+     * @param  from      the first word.
+     * @param  to        the word one past the last word.
+     * @param  minCount  the least count of interest.
+     * @param  stopCount the count after which to stop counting.
+     * @return a value less than <code>minCount</code> if the count is less
+     *         than <code>minCount</code>, a value of at least
+     *         <code>stopCount</code> if the count is at least
+     *         <code>stopCount</code>, and the exact count otherwise.
+     */
+    public static int andCardinality(final long[][] sets,
+                                     final int amount,
+                                     final int from,
+                                     final int to,
+                                     final int minCount,
+                                     final int stopCount) {
+        checkAmount(sets, amount);
+        int count = 0;
+
+        for (int block = from; block < to; block += BLOCK_WORDS) {
+            if (count >= stopCount || count + 64L * (to - block) < minCount) {
+                return count;
+            }
+
+            count += andCardinality(sets,
+                                    amount,
+                                    block,
+                                    Math.min(to, block + BLOCK_WORDS));
+        }
+
+        return count;
+    }
+
+    private static void checkAmount(final long[][] sets, final int amount) {
+        if (amount < 1 || amount > sets.length) {
+            throw new IllegalArgumentException(
+                    "The amount of bitsets must be within [1, " +
+                    sets.length + "]. Received: " + amount);
+        }
+    }
+}
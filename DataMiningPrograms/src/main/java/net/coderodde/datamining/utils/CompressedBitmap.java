@@ -0,0 +1,995 @@
+package net.coderodde.datamining.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This class implements an immutable, compressed set of non-negative integers
+ * in the spirit of Roaring bitmaps. The integer range is split into chunks of
+ * <tt>2^16</tt> values keyed by the high 16 bits; each non-empty chunk is
+ * stored either as a sorted array of the low 16 bits (sparse chunks) or as a
+ * plain bitmap of 1024 longs (dense chunks).
+ * <p>
+ * In this application the integers are student ordinals, so a bitmap
+ * represents a cohort of students. Instances are built via {@link Builder}.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class CompressedBitmap {
+
+    /**
+     * The maximum cardinality of a chunk stored as a sorted array. Chunks with
+     * more elements are stored as plain bitmaps.
+     */
+    static final int ARRAY_CONTAINER_MAX_SIZE = 4096;
+
+    /**
+     * The amount of long words in a bitmap chunk.
+     */
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    /**
+     * The empty bitmap.
+     */
+    private static final CompressedBitmap EMPTY =
+            new CompressedBitmap(new char[0], new Container[0], 0);
+
+    /**
+     * The high 16 bits of each chunk in ascending order.
+     */
+    private final char[] keys;
+
+    /**
+     * The chunks. <code>containers[i]</code> is the chunk of
+     * <code>keys[i]</code>.
+     */
+    private final Container[] containers;
+
+    /**
+     * The amount of chunks in use.
+     */
+    private final int size;
+
+    /**
+     * The amount of integers in this bitmap.
+     */
+    private final int cardinality;
+
+    private CompressedBitmap(final char[] keys,
+                             final Container[] containers,
+                             final int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+
+        int card = 0;
+
+        for (int i = 0; i < size; ++i) {
+            card += containers[i].cardinality();
+        }
+
+        this.cardinality = card;
+    }
+
+    /**
+     * Returns the empty bitmap.
+     *
+     * @return the empty bitmap.
+     */
+    public static CompressedBitmap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a bitmap containing the input integers. The integers need not be
+     * sorted and may contain duplicates.
+     *
+     * @param  values the integers to put in the bitmap.
+     * @return a bitmap.
+     */
+    public static CompressedBitmap of(final int... values) {
+        final Builder builder = new Builder(values.length);
+
+        for (final int value : values) {
+            builder.add(value);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Returns the amount of integers in this bitmap.
+     *
+     * @return the cardinality of this bitmap.
+     */
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Checks whether <code>value</code> is in this bitmap.
+     *
+     * @param  value the value to query.
+     * @return <code>true</code> if <code>value</code> is in this bitmap.
+     */
+    public boolean contains(final int value) {
+        if (value < 0) {
+            return false;
+        }
+
+        final int index = Arrays.binarySearch(keys, 0, size, highBits(value));
+        return index >= 0 && containers[index].contains(lowBits(value));
+    }
+
+    /**
+     * Returns all the integers of this bitmap in ascending order.
+     *
+     * @return a sorted array of integers.
+     */
+    public int[] toArray() {
+        final int[] ret = new int[cardinality];
+        int offset = 0;
+
+        for (int i = 0; i < size; ++i) {
+            offset = containers[i].fill(ret, offset, keys[i] << 16);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the intersection of two bitmaps.
+     *
+     * @param  a the first bitmap.
+     * @param  b the second bitmap.
+     * @return the intersection of <code>a</code> and <code>b</code>.
+     */
+    public static CompressedBitmap and(final CompressedBitmap a,
+                                       final CompressedBitmap b) {
+        final int capacity = Math.min(a.size, b.size);
+        final char[] keys = new char[capacity];
+        final Container[] containers = new Container[capacity];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                ++i;
+            } else if (a.keys[i] > b.keys[j]) {
+                ++j;
+            } else {
+                final Container c = a.containers[i].and(b.containers[j]);
+
+                if (c.cardinality() > 0) {
+                    keys[size] = a.keys[i];
+                    containers[size++] = c;
+                }
+
+                ++i;
+                ++j;
+            }
+        }
+
+        return size == 0 ? EMPTY : new CompressedBitmap(keys, containers, size);
+    }
+
+    /**
+     * Returns the intersection of all the input bitmaps. The bitmaps are
+     * processed in the order of increasing cardinality, and the computation
+     * stops as soon as the intersection becomes empty.
+     *
+     * @param  bitmaps the bitmaps to intersect.
+     * @return the intersection of all <code>bitmaps</code>, or the empty bitmap
+     *         if no bitmaps are given.
+     */
+    public static CompressedBitmap and(final CompressedBitmap... bitmaps) {
+        if (bitmaps.length == 0) {
+            return EMPTY;
+        }
+
+        final CompressedBitmap[] sorted = sortByCardinality(bitmaps);
+        CompressedBitmap ret = sorted[0];
+
+        for (int i = 1; i < sorted.length && !ret.isEmpty(); ++i) {
+            ret = and(ret, sorted[i]);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the union of two bitmaps.
+     *
+     * @param  a the first bitmap.
+     * @param  b the second bitmap.
+     * @return the union of <code>a</code> and <code>b</code>.
+     */
+    public static CompressedBitmap or(final CompressedBitmap a,
+                                      final CompressedBitmap b) {
+        final int capacity = a.size + b.size;
+        final char[] keys = new char[capacity];
+        final Container[] containers = new Container[capacity];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                keys[size] = a.keys[i];
+                containers[size++] = a.containers[i++];
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                keys[size] = b.keys[j];
+                containers[size++] = b.containers[j++];
+            } else {
+                keys[size] = a.keys[i];
+                containers[size++] = a.containers[i++].or(b.containers[j++]);
+            }
+        }
+
+        return size == 0 ? EMPTY : new CompressedBitmap(keys, containers, size);
+    }
+
+    /**
+     * Returns the union of all the input bitmaps.
+     *
+     * @param  bitmaps the bitmaps to unite.
+     * @return the union of all <code>bitmaps</code>.
+     */
+    public static CompressedBitmap or(final CompressedBitmap... bitmaps) {
+        CompressedBitmap ret = EMPTY;
+
+        for (final CompressedBitmap bitmap : bitmaps) {
+            ret = or(ret, bitmap);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the difference of two bitmaps.
+     *
+     * @param  a the bitmap to subtract from.
+     * @param  b the bitmap to subtract.
+     * @return the integers of <code>a</code> not in <code>b</code>.
+     */
+    public static CompressedBitmap andNot(final CompressedBitmap a,
+                                          final CompressedBitmap b) {
+        final char[] keys = new char[a.size];
+        final Container[] containers = new Container[a.size];
+        int size = 0;
+        int j = 0;
+
+        for (int i = 0; i < a.size; ++i) {
+            while (j < b.size && b.keys[j] < a.keys[i]) {
+                ++j;
+            }
+
+            final Container c = j < b.size && b.keys[j] == a.keys[i] ?
+                                a.containers[i].andNot(b.containers[j]) :
+                                a.containers[i];
+
+            if (c.cardinality() > 0) {
+                keys[size] = a.keys[i];
+                containers[size++] = c;
+            }
+        }
+
+        return size == 0 ? EMPTY : new CompressedBitmap(keys, containers, size);
+    }
+
+    /**
+     * Returns the cardinality of the intersection of two bitmaps without
+     * materializing the intersection.
+     *
+     * @param  a the first bitmap.
+     * @param  b the second bitmap.
+     * @return the size of the intersection of <code>a</code> and
+     *         <code>b</code>.
+     */
+    public static int andCardinality(final CompressedBitmap a,
+                                     final CompressedBitmap b) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                ++i;
+            } else if (a.keys[i] > b.keys[j]) {
+                ++j;
+            } else {
+                count += a.containers[i++].andCardinality(b.containers[j++]);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the cardinality of the intersection of all the input bitmaps.
+     * The intersection is not materialized.
+     *
+     * @param  bitmaps the bitmaps to intersect.
+     * @return the size of the intersection.
+     */
+    public static int andCardinality(final CompressedBitmap... bitmaps) {
+        switch (bitmaps.length) {
+            case 0:
+                return 0;
+
+            case 1:
+                return bitmaps[0].getCardinality();
+
+            case 2:
+                return andCardinality(bitmaps[0], bitmaps[1]);
+        }
+
+        return andCardinalityAtLeast(0, bitmaps);
+    }
+
+    /**
+     * Returns the cardinality of the intersection of all the input bitmaps if
+     * it is at least <code>minCount</code>. The chunks are visited in the
+     * order of the bitmap of least cardinality, and the counting stops as soon
+     * as the chunks left cannot lift the count to <code>minCount</code>. The
+     * chunks that are plain bitmaps in all the inputs are intersected and
+     * counted in one pass by {@link BitKernels}, and the other chunks by
+     * looking up the values of the smallest sparse chunk in the other chunks.
+     *
+     * @param  minCount the least cardinality of interest.
+     * @param  bitmaps  the bitmaps to intersect.
+     * @return the size of the intersection if it is at least
+     *         <code>minCount</code>, and otherwise a value less than
+     *         <code>minCount</code>.
+     */
+    public static int andCardinalityAtLeast(final int minCount,
+                                            final CompressedBitmap... bitmaps) {
+        return andCardinality(minCount, Integer.MAX_VALUE, bitmaps);
+    }
+
+    /**
+     * Tells whether the intersection of all the input bitmaps contains at
+     * least <code>minCount</code> integers. The counting stops as soon as the
+     * answer is decided either way: when the count reaches
+     * <code>minCount</code>, or when the chunks left cannot lift it to
+     * <code>minCount</code>.
+     *
+     * @param  minCount the cardinality to reach.
+     * @param  bitmaps  the bitmaps to intersect.
+     * @return <code>true</code> if the intersection has at least
+     *         <code>minCount</code> integers.
+     */
+    public static boolean andCardinalityReaches(
+            final int minCount,
+            final CompressedBitmap... bitmaps) {
+        return andCardinality(minCount, minCount, bitmaps) >= minCount;
+    }
+
+    /**
+     * Counts the intersection of all the input bitmaps, stopping as soon as
+     * the count reaches <code>stopCount</code>. The count is checked between
+     * the chunks and between the blocks of words of the plain bitmap chunks,
+     * so a stopped count may exceed <code>stopCount</code> somewhat.
+     *
+     * @param  stopCount the count after which to stop counting.
+     * @param  bitmaps   the bitmaps to intersect.
+     * @return the size of the intersection if it is less than
+     *         <code>stopCount</code>, and otherwise a value of at least
+     *         <code>stopCount</code>.
+     */
+    public static int andCardinalityStopAfter(
+            final int stopCount,
+            final CompressedBitmap... bitmaps) {
+        return andCardinality(0, stopCount, bitmaps);
+    }
+
+    /**
+     * Counts the intersection of the bitmaps until it is decided on which
+     * side of <code>minCount</code> and <code>stopCount</code> the count
+     * falls.
+     */
+    private static int andCardinality(final int minCount,
+                                      final int stopCount,
+                                      final CompressedBitmap... bitmaps) {
+        if (bitmaps.length == 0) {
+            return 0;
+        }
+
+        final CompressedBitmap[] sorted = sortByCardinality(bitmaps);
+        final CompressedBitmap first = sorted[0];
+        final int[] cursors = new int[sorted.length];
+        final Container[] chunks = new Container[sorted.length];
+        final long[][] words = new long[sorted.length][];
+        int remaining = first.cardinality;
+        int count = 0;
+
+        chunkLoop:
+        for (int i = 0; i < first.size; ++i) {
+            final Container container = first.containers[i];
+            remaining -= container.cardinality();
+
+            if (count >= stopCount
+                    || count + container.cardinality() + remaining < minCount) {
+                return count;
+            }
+
+            final char key = first.keys[i];
+            chunks[0] = container;
+
+            for (int b = 1; b < sorted.length; ++b) {
+                final CompressedBitmap bitmap = sorted[b];
+                int cursor = cursors[b];
+
+                while (cursor < bitmap.size && bitmap.keys[cursor] < key) {
+                    ++cursor;
+                }
+
+                cursors[b] = cursor;
+
+                if (cursor == bitmap.size || bitmap.keys[cursor] != key) {
+                    continue chunkLoop;
+                }
+
+                chunks[b] = bitmap.containers[cursor];
+            }
+
+            count += andCardinality(chunks,
+                                    words,
+                                    minCount - count - remaining,
+                                    stopCount - count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the cardinality of the union of two bitmaps.
+     *
+     * @param  a the first bitmap.
+     * @param  b the second bitmap.
+     * @return the size of the union of <code>a</code> and <code>b</code>.
+     */
+    public static int orCardinality(final CompressedBitmap a,
+                                    final CompressedBitmap b) {
+        return a.cardinality + b.cardinality - andCardinality(a, b);
+    }
+
+    /**
+     * Returns the cardinality of the difference of two bitmaps.
+     *
+     * @param  a the bitmap to subtract from.
+     * @param  b the bitmap to subtract.
+     * @return the amount of integers of <code>a</code> not in <code>b</code>.
+     */
+    public static int andNotCardinality(final CompressedBitmap a,
+                                        final CompressedBitmap b) {
+        return a.cardinality - andCardinality(a, b);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof CompressedBitmap)) {
+            return false;
+        }
+
+        final CompressedBitmap other = (CompressedBitmap) obj;
+
+        return cardinality == other.cardinality
+                && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Counts the intersection of chunks of the same key, giving up on the
+     * plain bitmap chunks once <code>minCount</code> is out of reach, and
+     * stopping once the count reaches <code>stopCount</code>.
+     */
+    private static int andCardinality(final Container[] chunks,
+                                      final long[][] words,
+                                      final int minCount,
+                                      final int stopCount) {
+        ArrayContainer driver = null;
+
+        for (final Container chunk : chunks) {
+            if (chunk instanceof ArrayContainer
+                    && (driver == null ||
+                        chunk.cardinality() < driver.cardinality)) {
+                driver = (ArrayContainer) chunk;
+            }
+        }
+
+        if (driver == null) {
+            for (int b = 0; b < chunks.length; ++b) {
+                words[b] = ((BitmapContainer) chunks[b]).words;
+            }
+
+            return BitKernels.andCardinality(words,
+                                             chunks.length,
+                                             0,
+                                             BITMAP_WORDS,
+                                             minCount,
+                                             stopCount);
+        }
+
+        int count = 0;
+
+        valueLoop:
+        for (int i = 0; i < driver.cardinality && count < stopCount; ++i) {
+            final char value = driver.values[i];
+
+            for (final Container chunk : chunks) {
+                if (chunk != driver && !chunk.contains(value)) {
+                    continue valueLoop;
+                }
+            }
+
+            ++count;
+        }
+
+        return count;
+    }
+
+    private static CompressedBitmap[]
+        sortByCardinality(final CompressedBitmap[] bitmaps) {
+        final CompressedBitmap[] sorted = bitmaps.clone();
+
+        Arrays.sort(sorted, new Comparator<CompressedBitmap>() {
+            @Override
+            public int compare(final CompressedBitmap o1,
+                               final CompressedBitmap o2) {
+                return Integer.compare(o1.cardinality, o2.cardinality);
+            }
+        });
+
+        return sorted;
+    }
+
+    private static char highBits(final int value) {
+        return (char)(value >>> 16);
+    }
+
+    private static char lowBits(final int value) {
+        return (char) value;
+    }
+
+    /**
+     * This class builds compressed bitmaps. Integers may be added in any order
+     * and multiple times. This class is not thread-safe.
+     */
+    public static final class Builder {
+
+        private int[] values;
+        private int size;
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(final int expectedSize) {
+            this.values = new int[Math.max(expectedSize, 1)];
+        }
+
+        /**
+         * Adds a non-negative integer to the bitmap being built.
+         *
+         * @param  value the integer to add.
+         * @return this builder.
+         */
+        public Builder add(final int value) {
+            ValidationUtilities.checkNotLess(value,
+                                             0,
+                                             "Negative bitmap value: " +
+                                             value);
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+
+            values[size++] = value;
+            return this;
+        }
+
+        /**
+         * Builds the bitmap out of all the integers added so far.
+         *
+         * @return a compressed bitmap.
+         */
+        public CompressedBitmap build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+
+            final int[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+
+            final char[] keys = new char[size];
+            final Container[] containers = new Container[size];
+            int chunks = 0;
+            int begin = 0;
+
+            while (begin < sorted.length) {
+                final char key = highBits(sorted[begin]);
+                int end = begin + 1;
+
+                while (end < sorted.length && highBits(sorted[end]) == key) {
+                    ++end;
+                }
+
+                keys[chunks] = key;
+                containers[chunks++] = buildContainer(sorted, begin, end);
+                begin = end;
+            }
+
+            return new CompressedBitmap(keys, containers, chunks);
+        }
+
+        private static Container buildContainer(final int[] sorted,
+                                                final int begin,
+                                                final int end) {
+            final char[] low = new char[end - begin];
+            int count = 0;
+
+            for (int i = begin; i < end; ++i) {
+                final char c = lowBits(sorted[i]);
+
+                if (count == 0 || low[count - 1] != c) {
+                    low[count++] = c;
+                }
+            }
+
+            return ArrayContainer.create(low, count);
+        }
+    }
+
+    /**
+     * The base class for the chunk containers. Containers are immutable.
+     */
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(final char value);
+
+        abstract int fill(final int[] array, final int offset, final int high);
+
+        abstract Container and(final Container other);
+
+        abstract Container or(final Container other);
+
+        abstract Container andNot(final Container other);
+
+        abstract int andCardinality(final Container other);
+    }
+
+    /**
+     * Stores a sparse chunk as a sorted array of the low 16 bits.
+     */
+    private static final class ArrayContainer extends Container {
+
+        private final char[] values;
+        private final int cardinality;
+
+        private ArrayContainer(final char[] values, final int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * Creates the most appropriate container for the sorted, duplicate
+         * free values.
+         */
+        static Container create(final char[] values, final int cardinality) {
+            if (cardinality > ARRAY_CONTAINER_MAX_SIZE) {
+                final long[] words = new long[BITMAP_WORDS];
+
+                for (int i = 0; i < cardinality; ++i) {
+                    words[values[i] >>> 6] |= 1L << values[i];
+                }
+
+                return new BitmapContainer(words, cardinality);
+            }
+
+            return new ArrayContainer(values, cardinality);
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int fill(final int[] array, int offset, final int high) {
+            for (int i = 0; i < cardinality; ++i) {
+                array[offset++] = high | values[i];
+            }
+
+            return offset;
+        }
+
+        @Override
+        Container and(final Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.and(this);
+            }
+
+            final ArrayContainer o = (ArrayContainer) other;
+            final char[] out = new char[Math.min(cardinality, o.cardinality)];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+
+            while (i < cardinality && j < o.cardinality) {
+                if (values[i] < o.values[j]) {
+                    ++i;
+                } else if (values[i] > o.values[j]) {
+                    ++j;
+                } else {
+                    out[count++] = values[i];
+                    ++i;
+                    ++j;
+                }
+            }
+
+            return new ArrayContainer(out, count);
+        }
+
+        @Override
+        Container or(final Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+
+            final ArrayContainer o = (ArrayContainer) other;
+            final char[] out = new char[cardinality + o.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+
+            while (i < cardinality || j < o.cardinality) {
+                if (j == o.cardinality
+                        || (i < cardinality && values[i] < o.values[j])) {
+                    out[count++] = values[i++];
+                } else if (i == cardinality || values[i] > o.values[j]) {
+                    out[count++] = o.values[j++];
+                } else {
+                    out[count++] = values[i];
+                    ++i;
+                    ++j;
+                }
+            }
+
+            return create(out, count);
+        }
+
+        @Override
+        Container andNot(final Container other) {
+            final char[] out = new char[cardinality];
+            int count = 0;
+
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < cardinality; ++i) {
+                    if (!other.contains(values[i])) {
+                        out[count++] = values[i];
+                    }
+                }
+
+                return new ArrayContainer(out, count);
+            }
+
+            final ArrayContainer o = (ArrayContainer) other;
+            int j = 0;
+
+            for (int i = 0; i < cardinality; ++i) {
+                while (j < o.cardinality && o.values[j] < values[i]) {
+                    ++j;
+                }
+
+                if (j == o.cardinality || o.values[j] != values[i]) {
+                    out[count++] = values[i];
+                }
+            }
+
+            return new ArrayContainer(out, count);
+        }
+
+        @Override
+        int andCardinality(final Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.andCardinality(this);
+            }
+
+            final ArrayContainer o = (ArrayContainer) other;
+            int count = 0;
+            int i = 0;
+            int j = 0;
+
+            while (i < cardinality && j < o.cardinality) {
+                if (values[i] < o.values[j]) {
+                    ++i;
+                } else if (values[i] > o.values[j]) {
+                    ++j;
+                } else {
+                    ++count;
+                    ++i;
+                    ++j;
+                }
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Stores a dense chunk as a plain bitmap of <tt>2^16</tt> bits.
+     */
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(final long[] words, final int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * Converts the bitmap words to the most appropriate container.
+         */
+        static Container create(final long[] words) {
+            final int card = BitKernels.cardinality(words, 0, BITMAP_WORDS);
+
+            if (card > ARRAY_CONTAINER_MAX_SIZE) {
+                return new BitmapContainer(words, card);
+            }
+
+            final char[] values = new char[card];
+            int count = 0;
+
+            for (int i = 0; i < BITMAP_WORDS; ++i) {
+                long word = words[i];
+
+                while (word != 0L) {
+                    values[count++] =
+                            (char)((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+
+            return new ArrayContainer(values, card);
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return (words[value >>> 6] & (1L << value)) != 0L;
+        }
+
+        @Override
+        int fill(final int[] array, int offset, final int high) {
+            for (int i = 0; i < BITMAP_WORDS; ++i) {
+                long word = words[i];
+
+                while (word != 0L) {
+                    array[offset++] =
+                            high | ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+
+            return offset;
+        }
+
+        @Override
+        Container and(final Container other) {
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer o = (ArrayContainer) other;
+                final char[] out = new char[o.cardinality];
+                int count = 0;
+
+                for (int i = 0; i < o.cardinality; ++i) {
+                    if (contains(o.values[i])) {
+                        out[count++] = o.values[i];
+                    }
+                }
+
+                return new ArrayContainer(out, count);
+            }
+
+            final long[] otherWords = ((BitmapContainer) other).words;
+            final long[] out = new long[BITMAP_WORDS];
+
+            for (int i = 0; i < BITMAP_WORDS; ++i) {
+                out[i] = words[i] & otherWords[i];
+            }
+
+            return create(out);
+        }
+
+        @Override
+        Container or(final Container other) {
+            final long[] out = words.clone();
+
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer o = (ArrayContainer) other;
+
+                for (int i = 0; i < o.cardinality; ++i) {
+                    out[o.values[i] >>> 6] |= 1L << o.values[i];
+                }
+            } else {
+                final long[] otherWords = ((BitmapContainer) other).words;
+
+                for (int i = 0; i < BITMAP_WORDS; ++i) {
+                    out[i] |= otherWords[i];
+                }
+            }
+
+            return create(out);
+        }
+
+        @Override
+        Container andNot(final Container other) {
+            final long[] out = words.clone();
+
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer o = (ArrayContainer) other;
+
+                for (int i = 0; i < o.cardinality; ++i) {
+                    out[o.values[i] >>> 6] &= ~(1L << o.values[i]);
+                }
+            } else {
+                final long[] otherWords = ((BitmapContainer) other).words;
+
+                for (int i = 0; i < BITMAP_WORDS; ++i) {
+                    out[i] &= ~otherWords[i];
+                }
+            }
+
+            return create(out);
+        }
+
+        @Override
+        int andCardinality(final Container other) {
+            int count = 0;
+
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer o = (ArrayContainer) other;
+
+                for (int i = 0; i < o.cardinality; ++i) {
+                    if (contains(o.values[i])) {
+                        ++count;
+                    }
+                }
+
+                return count;
+            }
+
+            return BitKernels.andCardinality(words,
+                                             ((BitmapContainer) other).words,
+                                             0,
+                                             BITMAP_WORDS);
+        }
+    }
+}
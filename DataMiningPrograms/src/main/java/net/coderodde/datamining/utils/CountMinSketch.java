@@ -0,0 +1,134 @@
+package net.coderodde.datamining.utils;
+
+import java.util.Random;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+
+/**
+ * This class implements a Count-Min sketch of Cormode and Muthukrishnan over
+ * <code>long</code> keys. The sketch never underestimates a count; with
+ * probability at least <tt>1 - delta</tt> it overestimates the count by at
+ * most <tt>epsilon</tt> times the total of all counts. The memory use depends
+ * only on <tt>epsilon</tt> and <tt>delta</tt>. This class is not thread-safe.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class CountMinSketch {
+
+    /**
+     * The counters, one row per hash function.
+     */
+    private final long[][] table;
+
+    /**
+     * The hash seed of each row.
+     */
+    private final long[] seeds;
+
+    /**
+     * The width of a row minus one; the width is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * The total of all counts added.
+     */
+    private long total;
+
+    /**
+     * Constructs a sketch with the given error bounds.
+     *
+     * @param epsilon the relative error within <tt>(0, 1)</tt>.
+     * @param delta   the failure probability within <tt>(0, 1)</tt>.
+     * @param seed    the seed of the hash functions.
+     */
+    public CountMinSketch(final double epsilon,
+                          final double delta,
+                          final long seed) {
+        if (!(epsilon > 0.0 && epsilon < 1.0)) {
+            throw new IllegalArgumentException(
+                    "The relative error must be within (0, 1). Received: " +
+                    epsilon);
+        }
+
+        if (!(delta > 0.0 && delta < 1.0)) {
+            throw new IllegalArgumentException(
+                    "The failure probability must be within (0, 1). " +
+                    "Received: " + delta);
+        }
+
+        final int width =
+                Integer.highestOneBit((int) Math.ceil(Math.E / epsilon) - 1)
+                << 1;
+        final int depth = (int) Math.ceil(Math.log(1.0 / delta));
+        final Random random = new Random(seed);
+
+        this.table = new long[depth][Math.max(width, 2)];
+        this.seeds = new long[depth];
+        this.mask = table[0].length - 1;
+
+        for (int i = 0; i < depth; ++i) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Adds <code>count</code> occurrences of <code>key</code>.
+     *
+     * @param key   the key.
+     * @param count the amount of occurrences.
+     */
+    public void add(final long key, final long count) {
+        checkNotLess(count, 0L, "The count is negative: " + count);
+
+        for (int i = 0; i < table.length; ++i) {
+            table[i][index(key, i)] += count;
+        }
+
+        total += count;
+    }
+
+    /**
+     * Returns an upper bound for the count of <code>key</code>.
+     *
+     * @param  key the key.
+     * @return the estimated count.
+     */
+    public long estimate(final long key) {
+        long ret = Long.MAX_VALUE;
+
+        for (int i = 0; i < table.length; ++i) {
+            ret = Math.min(ret, table[i][index(key, i)]);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the total of all counts added.
+     *
+     * @return the total count.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getWidth() {
+        return table[0].length;
+    }
+
+    public int getDepth() {
+        return table.length;
+    }
+
+    private int index(final long key, final int row) {
+        // The finalizer of MurmurHash3.
+        long h = key ^ seeds[row];
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,204 @@
+package net.coderodde.datamining.utils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class writes JSON text to a character stream as it goes, so that no
+ * intermediate document or string is built. The caller is responsible for
+ * producing a well-formed sequence of calls; the writer only takes care of
+ * the separators and the escaping of strings.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class JsonWriter implements Closeable, Flushable {
+
+    /**
+     * The maximum nesting depth.
+     */
+    private static final int MAXIMUM_DEPTH = 64;
+
+    private final Writer writer;
+
+    /**
+     * Tells for each open object or array whether it already has an element,
+     * in which case the next element must be preceded by a comma.
+     */
+    private final boolean[] nonEmpty = new boolean[MAXIMUM_DEPTH];
+
+    /**
+     * The current nesting depth.
+     */
+    private int depth;
+
+    /**
+     * Set when a name has been written and its value is expected next.
+     */
+    private boolean afterName;
+
+    public JsonWriter(final Writer writer) {
+        checkNotNull(writer, "The writer is null.");
+        this.writer = writer;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param  name the member name.
+     * @return this writer.
+     * @throws IOException if writing fails.
+     */
+    public JsonWriter name(final String name) throws IOException {
+        separate();
+        writeString(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(final String value) throws IOException {
+        separate();
+
+        if (value == null) {
+            writer.write("null");
+        } else {
+            writeString(value);
+        }
+
+        return this;
+    }
+
+    public JsonWriter value(final long value) throws IOException {
+        separate();
+        writer.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a floating point value. Since JSON has no representation for
+     * <code>NaN</code> and infinities, those are written as
+     * <code>null</code>.
+     *
+     * @param  value the value to write.
+     * @return this writer.
+     * @throws IOException if writing fails.
+     */
+    public JsonWriter value(final double value) throws IOException {
+        separate();
+        writer.write(Double.isNaN(value) || Double.isInfinite(value) ?
+                     "null" :
+                     Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(final boolean value) throws IOException {
+        separate();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private JsonWriter open(final char c) throws IOException {
+        if (depth == MAXIMUM_DEPTH) {
+            throw new IllegalStateException("Nesting too deep.");
+        }
+
+        separate();
+        writer.write(c);
+        nonEmpty[depth++] = false;
+        return this;
+    }
+
+    private JsonWriter close(final char c) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("Nothing to close.");
+        }
+
+        --depth;
+        writer.write(c);
+        return this;
+    }
+
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+
+        if (depth > 0) {
+            if (nonEmpty[depth - 1]) {
+                writer.write(',');
+            }
+
+            nonEmpty[depth - 1] = true;
+        }
+    }
+
+    private void writeString(final String s) throws IOException {
+        writer.write('"');
+
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+
+                case '\n':
+                    writer.write("\\n");
+                    break;
+
+                case '\r':
+                    writer.write("\\r");
+                    break;
+
+                case '\t':
+                    writer.write("\\t");
+                    break;
+
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+
+        writer.write('"');
+    }
+}
@@ -0,0 +1,195 @@
+package net.coderodde.datamining.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+
+/**
+ * This class runs data parallel computations over integer ranges. The range is
+ * split into contiguous chunks, each chunk is processed by a task producing a
+ * partial result, and the partial results are returned in chunk order so that
+ * the caller may merge them. The tasks share a pool of daemon threads whose
+ * size equals the amount of available processors.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class Parallel {
+
+    /**
+     * This interface defines the API for computing a partial result over a
+     * chunk of a range.
+     *
+     * @param <T> the type of the partial result.
+     */
+    public interface RangeTask<T> {
+
+        /**
+         * Computes the partial result over <tt>[from, to)</tt>.
+         *
+         * @param  from the first index of the chunk.
+         * @param  to   the index one past the last index of the chunk.
+         * @return the partial result.
+         */
+        T compute(final int from, final int to);
+    }
+
+    /**
+     * The amount of threads in the pool.
+     */
+    private static final int THREADS =
+            Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The amount of chunks per thread. Using more chunks than threads evens out
+     * the load when the chunks are of unequal cost.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static ExecutorService executor;
+
+    /**
+     * The threads of the pool in the order of creation.
+     */
+    private static final List<Thread> threadList = new ArrayList<>();
+
+    private Parallel() {}
+
+    /**
+     * Returns the amount of worker threads.
+     *
+     * @return the amount of worker threads.
+     */
+    public static int getParallelism() {
+        return THREADS;
+    }
+
+    /**
+     * Runs <code>task</code> over the range <tt>[0, size)</tt>. If the range is
+     * shorter than <code>minChunkSize</code> or only one processor is
+     * available, the task is run in the calling thread over the entire range.
+     *
+     * @param  <T>          the type of the partial results.
+     * @param  size         the length of the range.
+     * @param  minChunkSize the minimum length of a chunk.
+     * @param  task         the task to run on each chunk.
+     * @return the list of partial results in chunk order.
+     */
+    public static <T> List<T> forRange(final int size,
+                                       final int minChunkSize,
+                                       final RangeTask<T> task) {
+        checkNotLess(size, 0, "The range length is negative: " + size);
+        checkNotLess(minChunkSize,
+                     1,
+                     "The minimum chunk size must be positive. Received: " +
+                     minChunkSize);
+
+        final int chunks = Math.min(THREADS * CHUNKS_PER_THREAD,
+                                    size / minChunkSize);
+
+        if (THREADS == 1 || chunks <= 1) {
+            final List<T> ret = new ArrayList<>(1);
+            ret.add(task.compute(0, size));
+            return ret;
+        }
+
+        final List<Future<T>> futureList = new ArrayList<>(chunks);
+        final ExecutorService pool = getExecutor();
+
+        for (int i = 0; i < chunks; ++i) {
+            final int from = (int)((long) size * i / chunks);
+            final int to = (int)((long) size * (i + 1) / chunks);
+
+            futureList.add(pool.submit(new Callable<T>() {
+                @Override
+                public T call() {
+                    return task.compute(from, to);
+                }
+            }));
+        }
+
+        final List<T> ret = new ArrayList<>(chunks);
+
+        try {
+            for (final Future<T> future : futureList) {
+                ret.add(future.get());
+            }
+        } catch (final InterruptedException ex) {
+            cancel(futureList);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted.", ex);
+        } catch (final ExecutionException ex) {
+            cancel(futureList);
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the IDs of the threads of the pool started so far. The pool
+     * threads run until the JVM exits, so an ID once returned stays valid.
+     *
+     * @return the array of thread IDs.
+     */
+    public static long[] getThreadIds() {
+        synchronized (threadList) {
+            final long[] ids = new long[threadList.size()];
+
+            for (int i = 0; i < ids.length; ++i) {
+                ids[i] = threadList.get(i).getId();
+            }
+
+            return ids;
+        }
+    }
+
+    private static void cancel(final List<? extends Future<?>> futureList) {
+        for (final Future<?> future : futureList) {
+            future.cancel(true);
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+
+            executor = Executors.newFixedThreadPool(THREADS,
+                                                    new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread =
+                            new Thread(runnable,
+                                       "parallel-" +
+                                       threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+
+                    synchronized (threadList) {
+                        threadList.add(thread);
+                    }
+
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+    }
+}
@@ -0,0 +1,223 @@
+package net.coderodde.datamining.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+
+/**
+ * This class implements the Space-Saving algorithm of Metwally, Agrawal and
+ * El Abbadi for finding the most frequent <code>long</code> keys of a stream
+ * with a fixed amount of counters. Each key occurring more than <tt>N / m</tt>
+ * times, where <tt>N</tt> is the total count and <tt>m</tt> the amount of
+ * counters, is guaranteed to be monitored. The count of a monitored key is
+ * overestimated by at most its error. This class is not thread-safe.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class SpaceSaving {
+
+    /**
+     * A monitored key with its estimated count.
+     */
+    public static final class Counter {
+
+        private final long key;
+        private long count;
+        private long error;
+
+        Counter(final long key, final long count, final long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the estimated count, which is never less than the true
+         * count.
+         *
+         * @return the estimated count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the maximum overestimation of the count.
+         *
+         * @return the error bound.
+         */
+        public long getError() {
+            return error;
+        }
+    }
+
+    /**
+     * The counters as a binary min-heap by count.
+     */
+    private final Counter[] heap;
+
+    /**
+     * Maps each monitored key to its position in the heap.
+     */
+    private final Map<Long, Integer> positionMap;
+
+    private int size;
+    private long total;
+
+    /**
+     * Constructs a summary with <code>capacity</code> counters.
+     *
+     * @param capacity the amount of counters.
+     */
+    public SpaceSaving(final int capacity) {
+        checkNotLess(capacity,
+                     1,
+                     "The capacity must be positive. Received: " + capacity);
+        this.heap = new Counter[capacity];
+        this.positionMap = new HashMap<>(2 * capacity);
+    }
+
+    /**
+     * Adds <code>count</code> occurrences of <code>key</code>.
+     *
+     * @param key   the key.
+     * @param count the amount of occurrences.
+     */
+    public void add(final long key, final long count) {
+        checkNotLess(count, 0L, "The count is negative: " + count);
+        total += count;
+
+        final Integer position = positionMap.get(key);
+
+        if (position != null) {
+            heap[position].count += count;
+            siftDown(position);
+        } else if (size < heap.length) {
+            heap[size] = new Counter(key, count, 0L);
+            positionMap.put(key, size);
+            siftUp(size++);
+        } else {
+            // Replace the least monitored key; its count bounds the error.
+            final Counter min = heap[0];
+            positionMap.remove(min.key);
+
+            heap[0] = new Counter(key, min.count + count, min.count);
+            positionMap.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the counter of <code>key</code>, or <code>null</code> if the
+     * key is not monitored.
+     *
+     * @param  key the key.
+     * @return the counter or <code>null</code>.
+     */
+    public Counter get(final long key) {
+        final Integer position = positionMap.get(key);
+        return position == null ? null : heap[position];
+    }
+
+    /**
+     * Returns the upper bound for the count of an unmonitored key.
+     *
+     * @return the least monitored count, or zero if not all counters are in
+     *         use.
+     */
+    public long getUnmonitoredBound() {
+        return size < heap.length ? 0L : heap[0].count;
+    }
+
+    /**
+     * Returns at most <code>k</code> monitored counters by descending
+     * estimated count.
+     *
+     * @param  k the maximum amount of counters.
+     * @return the list of counters.
+     */
+    public List<Counter> getTop(final int k) {
+        final List<Counter> ret =
+                new ArrayList<>(Arrays.asList(heap).subList(0, size));
+
+        Collections.sort(ret, new Comparator<Counter>() {
+            @Override
+            public int compare(final Counter o1, final Counter o2) {
+                final int cmp = Long.compare(o2.count, o1.count);
+                return cmp != 0 ? cmp : Long.compare(o1.key, o2.key);
+            }
+        });
+
+        return ret.subList(0, Math.min(k, ret.size()));
+    }
+
+    /**
+     * Returns the total of all counts added.
+     *
+     * @return the total count.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return heap.length;
+    }
+
+    private void siftUp(int position) {
+        final Counter counter = heap[position];
+
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+
+            place(heap[parent], position);
+            position = parent;
+        }
+
+        place(counter, position);
+    }
+
+    private void siftDown(int position) {
+        final Counter counter = heap[position];
+
+        for (;;) {
+            int child = 2 * position + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                ++child;
+            }
+
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+
+            place(heap[child], position);
+            position = child;
+        }
+
+        place(counter, position);
+    }
+
+    private void place(final Counter counter, final int position) {
+        heap[position] = counter;
+        positionMap.put(counter.key, position);
+    }
+}
@@ -68,6 +68,18 @@ public class Utils {
         return intersect(sets);
     }
     
+    /**
+     * This static method returns the intersection of all the argument bitmaps.
+     * 
+     * @param bitmaps the array of bitmaps.
+     * @return        the bitmap containing the intersection of all the argument
+     *                bitmaps.
+     */
+    public static CompressedBitmap intersect(
+            final CompressedBitmap... bitmaps) {
+        return CompressedBitmap.and(bitmaps);
+    }
+    
     /**
      * Returns <code>true</code> if <code>set1</code> is contained in 
      * <code>set2</code>.
@@ -59,7 +59,24 @@ public class ValidationUtilities {
             throw new IllegalArgumentException(errorMessage);
         }
     }
-    
+
+    /**
+     * Checks that <code>num</code> is no less than <code>lowerBound</code>.
+     *
+     * @param num          the long integer to validate.
+     * @param lowerBound   the lower bound.
+     * @param errorMessage the error message passed upon failure.
+     *
+     * @throws IllegalArgumentException if validation fails.
+     */
+    public static final void checkNotLess(final long num,
+                                          final long lowerBound,
+                                          final String errorMessage) {
+        if (num < lowerBound) {
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
+
     /**
      * Checks that <code>num</code> is no more than <code>upperBound</code>.
      * 
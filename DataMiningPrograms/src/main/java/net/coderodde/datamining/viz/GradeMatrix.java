@@ -0,0 +1,109 @@
+package net.coderodde.datamining.viz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class holds the best grades of a set of students from a list of
+ * courses in a primitive array. The rows of the matrix correspond to the
+ * courses and the columns to the students. A student that has not attended a
+ * course has the grade {@link Course#NON_EXISTENT_GRADE} in the respective
+ * cell.
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class GradeMatrix {
+
+    private final List<Course> courseList;
+    private final int[] studentOrdinals;
+    private final byte[] grades;
+
+    private GradeMatrix(final List<Course> courseList,
+                        final int[] studentOrdinals,
+                        final byte[] grades) {
+        this.courseList = courseList;
+        this.studentOrdinals = studentOrdinals;
+        this.grades = grades;
+    }
+
+    /**
+     * Computes the grade matrix of the given courses and students.
+     *
+     * @param  storage    the data storage.
+     * @param  courseList the courses, one per row.
+     * @param  students   the bitmap of the student ordinals, one per column in
+     *                    ascending order.
+     * @return the grade matrix.
+     */
+    public static GradeMatrix compute(final AppDataStorage storage,
+                                      final List<Course> courseList,
+                                      final CompressedBitmap students) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotNull(courseList, "The course list is null.");
+        checkNotNull(students, "The student bitmap is null.");
+
+        final EntryTable table = storage.getEntryTable();
+        final int[] studentOrdinals = students.toArray();
+        final int columns = studentOrdinals.length;
+        final byte[] grades = new byte[courseList.size() * columns];
+
+        for (int row = 0; row < courseList.size(); ++row) {
+            final int c = storage.getCourseOrdinal(courseList.get(row));
+            final int offset = row * columns;
+
+            for (int column = 0; column < columns; ++column) {
+                grades[offset + column] =
+                        (byte)(c < 0 ?
+                               Course.NON_EXISTENT_GRADE :
+                               table.getBestGrade(studentOrdinals[column], c));
+            }
+        }
+
+        return new GradeMatrix(
+                Collections.unmodifiableList(new ArrayList<>(courseList)),
+                studentOrdinals,
+                grades);
+    }
+
+    public int getRowAmount() {
+        return courseList.size();
+    }
+
+    public int getColumnAmount() {
+        return studentOrdinals.length;
+    }
+
+    public List<Course> getCourseList() {
+        return courseList;
+    }
+
+    /**
+     * Returns the ordinal of the student in the column <code>column</code>.
+     *
+     * @param  column the column index.
+     * @return the student ordinal.
+     */
+    public int getStudentOrdinal(final int column) {
+        return studentOrdinals[column];
+    }
+
+    /**
+     * Returns the grade in the given cell.
+     *
+     * @param  row    the row index.
+     * @param  column the column index.
+     * @return the grade, or {@link Course#NON_EXISTENT_GRADE}.
+     */
+    public int getGrade(final int row, final int column) {
+        return grades[row * studentOrdinals.length + column];
+    }
+}
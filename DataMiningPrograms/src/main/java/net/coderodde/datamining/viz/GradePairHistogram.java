@@ -0,0 +1,266 @@
+package net.coderodde.datamining.viz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.EntryTable;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.model.Course.MAXIMUM_COURSE_GRADE;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class holds the joint histogram of the best grades of the students
+ * that have attended both of two courses. The cell <tt>(a, b)</tt> counts the
+ * students whose best grade is <code>a</code> from the first course and
+ * <code>b</code> from the second course.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class GradePairHistogram {
+
+    /**
+     * The amount of distinct grades.
+     */
+    public static final int GRADES = MAXIMUM_COURSE_GRADE + 1;
+
+    private final Course firstCourse;
+    private final Course secondCourse;
+    private final int[] counts;
+
+    GradePairHistogram(final Course firstCourse,
+                       final Course secondCourse,
+                       final int[] counts) {
+        this.firstCourse = firstCourse;
+        this.secondCourse = secondCourse;
+        this.counts = counts;
+    }
+
+    /**
+     * Computes the grade pair histogram of two courses over all students.
+     *
+     * @param  storage      the data storage.
+     * @param  firstCourse  the first course.
+     * @param  secondCourse the second course.
+     * @return the histogram.
+     */
+    public static GradePairHistogram compute(final AppDataStorage storage,
+                                             final Course firstCourse,
+                                             final Course secondCourse) {
+        return compute(storage, firstCourse, secondCourse, null);
+    }
+
+    /**
+     * Computes the grade pair histogram of two courses over the students in
+     * <code>students</code>.
+     *
+     * @param  storage      the data storage.
+     * @param  firstCourse  the first course.
+     * @param  secondCourse the second course.
+     * @param  students     the bitmap of the student ordinals to consider, or
+     *                      <code>null</code> for all students.
+     * @return the histogram.
+     */
+    public static GradePairHistogram compute(final AppDataStorage storage,
+                                             final Course firstCourse,
+                                             final Course secondCourse,
+                                             final CompressedBitmap students) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotNull(firstCourse, "The first course is null.");
+        checkNotNull(secondCourse, "The second course is null.");
+
+        final EntryTable table = storage.getEntryTable();
+        final int a = storage.getCourseOrdinal(firstCourse);
+        final int b = storage.getCourseOrdinal(secondCourse);
+        final int[] counts = new int[GRADES * GRADES];
+
+        if (a >= 0 && b >= 0) {
+            CompressedBitmap both =
+                    CompressedBitmap.and(storage.getStudentBitmap(firstCourse),
+                                         storage.getStudentBitmap(secondCourse));
+
+            if (students != null) {
+                both = CompressedBitmap.and(both, students);
+            }
+
+            for (final int s : both.toArray()) {
+                ++counts[GRADES * table.getBestGrade(s, a) +
+                         table.getBestGrade(s, b)];
+            }
+        }
+
+        return new GradePairHistogram(firstCourse, secondCourse, counts);
+    }
+
+    /**
+     * Computes the grade pair histograms of all pairs of courses in
+     * <code>courseList</code> in one pass over the distinct course index of
+     * the students. The students are processed in parallel.
+     *
+     * @param  storage    the data storage.
+     * @param  courseList the courses.
+     * @param  students   the bitmap of the student ordinals to consider, or
+     *                    <code>null</code> for all students.
+     * @return the histograms of the pairs <tt>(courseList[i], courseList[j])
+     *         </tt> with <tt>i &lt; j</tt>, ordered by <code>i</code> and then
+     *         by <code>j</code>.
+     */
+    public static List<GradePairHistogram>
+        computeAll(final AppDataStorage storage,
+                   final List<Course> courseList,
+                   final CompressedBitmap students) {
+        checkNotNull(storage, "The data storage is null.");
+        checkNotNull(courseList, "The course list is null.");
+
+        final EntryTable table = storage.getEntryTable();
+        final int k = courseList.size();
+        final int cells = GRADES * GRADES;
+
+        // Maps each course ordinal to its index in the course list.
+        final int[] selection = new int[table.getCourseAmount()];
+        Arrays.fill(selection, -1);
+
+        for (int i = 0; i < k; ++i) {
+            final int c = storage.getCourseOrdinal(courseList.get(i));
+
+            if (c >= 0) {
+                selection[c] = i;
+            }
+        }
+
+        final int[] studentOrdinals = students == null ? null : students.toArray();
+        final int size = students == null ?
+                         table.getStudentAmount() :
+                         studentOrdinals.length;
+
+        final List<int[]> partials =
+                Parallel.forRange(size, 1024, new Parallel.RangeTask<int[]>() {
+            @Override
+            public int[] compute(final int from, final int to) {
+                final int[] counts = new int[k * k * cells];
+                final int[] selected = new int[k];
+                final int[] grades = new int[k];
+
+                for (int index = from; index < to; ++index) {
+                    final int s = studentOrdinals == null ?
+                                  index :
+                                  studentOrdinals[index];
+                    final int end = table.getStudentCourseEnd(s);
+                    int amount = 0;
+
+                    for (int p = table.getStudentCourseBegin(s); p < end; ++p) {
+                        final int i = selection[table.getStudentCourse(p)];
+
+                        if (i >= 0) {
+                            selected[amount] = i;
+                            grades[amount++] = table.getStudentBestGrade(p);
+                        }
+                    }
+
+                    for (int x = 0; x < amount; ++x) {
+                        for (int y = 0; y < amount; ++y) {
+                            if (selected[x] < selected[y]) {
+                                ++counts[(selected[x] * k + selected[y]) *
+                                         cells +
+                                         GRADES * grades[x] + grades[y]];
+                            }
+                        }
+                    }
+                }
+
+                return counts;
+            }
+        });
+
+        final List<GradePairHistogram> ret = new ArrayList<>();
+
+        for (int i = 0; i < k; ++i) {
+            for (int j = i + 1; j < k; ++j) {
+                final int[] counts = new int[cells];
+                final int base = (i * k + j) * cells;
+
+                for (final int[] partial : partials) {
+                    for (int cell = 0; cell < cells; ++cell) {
+                        counts[cell] += partial[base + cell];
+                    }
+                }
+
+                ret.add(new GradePairHistogram(courseList.get(i),
+                                               courseList.get(j),
+                                               counts));
+            }
+        }
+
+        return ret;
+    }
+
+    public Course getFirstCourse() {
+        return firstCourse;
+    }
+
+    public Course getSecondCourse() {
+        return secondCourse;
+    }
+
+    /**
+     * Returns the amount of students with the given pair of best grades.
+     *
+     * @param  firstGrade  the grade from the first course.
+     * @param  secondGrade the grade from the second course.
+     * @return the amount of students.
+     */
+    public int getCount(final int firstGrade, final int secondGrade) {
+        return counts[GRADES * firstGrade + secondGrade];
+    }
+
+    /**
+     * Returns the amount of students counted in the histogram.
+     *
+     * @return the total count.
+     */
+    public int getTotal() {
+        int total = 0;
+
+        for (final int count : counts) {
+            total += count;
+        }
+
+        return total;
+    }
+
+    /**
+     * Computes the correlation between the grades of the first and the second
+     * course over the students in the histogram.
+     *
+     * @return the correlation coefficient, or <code>NaN</code> if it is not
+     *         defined.
+     */
+    public double getCorrelation() {
+        double n = 0.0;
+        double sumX = 0.0;
+        double sumY = 0.0;
+        double sumXX = 0.0;
+        double sumYY = 0.0;
+        double sumXY = 0.0;
+
+        for (int x = 0; x < GRADES; ++x) {
+            for (int y = 0; y < GRADES; ++y) {
+                final int count = getCount(x, y);
+                n += count;
+                sumX += count * x;
+                sumY += count * y;
+                sumXX += count * x * x;
+                sumYY += count * y * y;
+                sumXY += count * x * y;
+            }
+        }
+
+        final double covariance = sumXY - sumX * sumY / n;
+        final double varianceX = sumXX - sumX * sumX / n;
+        final double varianceY = sumYY - sumY * sumY / n;
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+}
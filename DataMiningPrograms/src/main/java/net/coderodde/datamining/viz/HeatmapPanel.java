@@ -0,0 +1,154 @@
+package net.coderodde.datamining.viz;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.JPanel;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This panel shows the heatmap of a {@link GradeMatrix}. The heatmap is split
+ * into square tiles that are rendered on demand and cached, and only the tiles
+ * intersecting the visible area are painted. The panel is meant to be put in a
+ * {@link javax.swing.JScrollPane}, so that arbitrarily large cohorts remain
+ * interactive.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public class HeatmapPanel extends JPanel implements Scrollable {
+
+    /**
+     * The side length of a tile in pixels.
+     */
+    private static final int TILE_LENGTH = 256;
+
+    /**
+     * The maximum amount of cached tiles.
+     */
+    private static final int MAXIMUM_CACHED_TILES = 256;
+
+    /**
+     * The maximum size of the visible area.
+     */
+    private static final Dimension MAXIMUM_VIEWPORT_SIZE =
+            new Dimension(1200, 800);
+
+    private final GradeMatrix matrix;
+    private final HeatmapRenderer renderer;
+
+    /**
+     * The cache of rendered tiles in access order.
+     */
+    private final Map<Long, BufferedImage> tileCache =
+            new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAXIMUM_CACHED_TILES;
+        }
+    };
+
+    public HeatmapPanel(final GradeMatrix matrix,
+                        final HeatmapRenderer renderer) {
+        checkNotNull(matrix, "The grade matrix is null.");
+        checkNotNull(renderer, "The renderer is null.");
+
+        this.matrix = matrix;
+        this.renderer = renderer;
+
+        setPreferredSize(new Dimension(renderer.getWidth(matrix),
+                                       renderer.getHeight(matrix)));
+    }
+
+    @Override
+    protected void paintComponent(final Graphics g) {
+        super.paintComponent(g);
+
+        if (matrix.getRowAmount() == 0 || matrix.getColumnAmount() == 0) {
+            return;
+        }
+
+        final Rectangle clip = g.getClipBounds();
+        final Rectangle area = clip != null ?
+                               clip :
+                               new Rectangle(0, 0, getWidth(), getHeight());
+
+        final int firstTileX = Math.max(0, area.x / TILE_LENGTH);
+        final int firstTileY = Math.max(0, area.y / TILE_LENGTH);
+        final int lastTileX = Math.min(renderer.getWidth(matrix) - 1,
+                                       area.x + area.width - 1) / TILE_LENGTH;
+        final int lastTileY = Math.min(renderer.getHeight(matrix) - 1,
+                                       area.y + area.height - 1) / TILE_LENGTH;
+
+        for (int tileY = firstTileY; tileY <= lastTileY; ++tileY) {
+            for (int tileX = firstTileX; tileX <= lastTileX; ++tileX) {
+                g.drawImage(getTile(tileX, tileY),
+                            tileX * TILE_LENGTH,
+                            tileY * TILE_LENGTH,
+                            null);
+            }
+        }
+    }
+
+    private BufferedImage getTile(final int tileX, final int tileY) {
+        final Long key = ((long) tileY << 32) | tileX;
+        BufferedImage tile = tileCache.get(key);
+
+        if (tile == null) {
+            final int x = tileX * TILE_LENGTH;
+            final int y = tileY * TILE_LENGTH;
+
+            tile = renderer.render(
+                    matrix,
+                    x,
+                    y,
+                    Math.min(TILE_LENGTH, renderer.getWidth(matrix) - x),
+                    Math.min(TILE_LENGTH, renderer.getHeight(matrix) - y));
+            tileCache.put(key, tile);
+        }
+
+        return tile;
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        final Dimension size = getPreferredSize();
+        return new Dimension(Math.min(size.width, MAXIMUM_VIEWPORT_SIZE.width),
+                             Math.min(size.height,
+                                      MAXIMUM_VIEWPORT_SIZE.height));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(final Rectangle visibleRect,
+                                          final int orientation,
+                                          final int direction) {
+        return orientation == SwingConstants.HORIZONTAL ?
+               renderer.getCellWidth() :
+               renderer.getCellHeight();
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(final Rectangle visibleRect,
+                                           final int orientation,
+                                           final int direction) {
+        return orientation == SwingConstants.HORIZONTAL ?
+               visibleRect.width :
+               visibleRect.height;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
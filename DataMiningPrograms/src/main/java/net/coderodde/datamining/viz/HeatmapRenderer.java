@@ -0,0 +1,161 @@
+package net.coderodde.datamining.viz;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import net.coderodde.datamining.model.Course;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotLess;
+import static net.coderodde.datamining.utils.ValidationUtilities.checkNotNull;
+
+/**
+ * This class renders a {@link GradeMatrix} as a heatmap. Each cell is a
+ * rectangle colored by the grade: the better the grade, the darker the blue.
+ * Cells of students that have not attended the course are light gray. The
+ * renderer writes the pixels of an image directly, so any rectangular region
+ * of the heatmap may be rendered independently as a tile.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class HeatmapRenderer {
+
+    /**
+     * The color of the cells with no grade.
+     */
+    private static final int NO_GRADE_RGB = 0xdddddd;
+
+    private final int cellWidth;
+    private final int cellHeight;
+
+    /**
+     * The RGB value of each grade.
+     */
+    private final int[] palette;
+
+    public HeatmapRenderer(final int cellWidth, final int cellHeight) {
+        checkNotLess(cellWidth, 1, "The cell width must be positive.");
+        checkNotLess(cellHeight, 1, "The cell height must be positive.");
+
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.palette = new int[Course.MAXIMUM_COURSE_GRADE + 1];
+
+        for (int grade = 0; grade < palette.length; ++grade) {
+            final int factor = 255 - 255 * grade / Course.MAXIMUM_COURSE_GRADE;
+            palette[grade] = (factor << 16) | (factor << 8) | 255;
+        }
+    }
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * Returns the width of the entire heatmap of <code>matrix</code> in
+     * pixels.
+     *
+     * @param  matrix the grade matrix.
+     * @return the width in pixels.
+     */
+    public int getWidth(final GradeMatrix matrix) {
+        return cellWidth * matrix.getColumnAmount();
+    }
+
+    /**
+     * Returns the height of the entire heatmap of <code>matrix</code> in
+     * pixels.
+     *
+     * @param  matrix the grade matrix.
+     * @return the height in pixels.
+     */
+    public int getHeight(final GradeMatrix matrix) {
+        return cellHeight * matrix.getRowAmount();
+    }
+
+    /**
+     * Returns the RGB value of the cells with grade <code>grade</code>.
+     *
+     * @param  grade the grade.
+     * @return the RGB value.
+     */
+    public int getRGB(final int grade) {
+        return grade < 0 || grade >= palette.length ?
+               NO_GRADE_RGB :
+               palette[grade];
+    }
+
+    /**
+     * Renders the entire heatmap.
+     *
+     * @param  matrix the grade matrix.
+     * @return the heatmap image.
+     */
+    public BufferedImage render(final GradeMatrix matrix) {
+        return render(matrix, 0, 0, getWidth(matrix), getHeight(matrix));
+    }
+
+    /**
+     * Renders the region of the heatmap whose top left corner is at
+     * <tt>(x, y)</tt>. The parts of the region outside the heatmap are left
+     * white.
+     *
+     * @param  matrix the grade matrix.
+     * @param  x      the x-coordinate of the region in pixels.
+     * @param  y      the y-coordinate of the region in pixels.
+     * @param  width  the width of the region in pixels.
+     * @param  height the height of the region in pixels.
+     * @return the image of the region.
+     */
+    public BufferedImage render(final GradeMatrix matrix,
+                                final int x,
+                                final int y,
+                                final int width,
+                                final int height) {
+        checkNotNull(matrix, "The grade matrix is null.");
+
+        final BufferedImage image =
+                new BufferedImage(Math.max(1, width),
+                                  Math.max(1, height),
+                                  BufferedImage.TYPE_INT_RGB);
+        final int[] pixels =
+                ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        Arrays.fill(pixels, 0xffffff);
+
+        final int imageWidth = image.getWidth();
+        final int xEnd = Math.min(x + width, getWidth(matrix));
+        final int yEnd = Math.min(y + height, getHeight(matrix));
+
+        for (int py = Math.max(0, y); py < yEnd; ++py) {
+            final int row = py / cellHeight;
+            final int offset = (py - y) * imageWidth - x;
+
+            if (py > Math.max(0, y) && (py - 1) / cellHeight == row) {
+                // Same cell row as the previous line, just copy it.
+                System.arraycopy(pixels,
+                                 offset - imageWidth + Math.max(0, x),
+                                 pixels,
+                                 offset + Math.max(0, x),
+                                 Math.max(0, xEnd - Math.max(0, x)));
+                continue;
+            }
+
+            for (int px = Math.max(0, x); px < xEnd; ) {
+                final int column = px / cellWidth;
+                final int cellEnd = Math.min(xEnd, (column + 1) * cellWidth);
+
+                Arrays.fill(pixels,
+                            offset + px,
+                            offset + cellEnd,
+                            getRGB(matrix.getGrade(row, column)));
+                px = cellEnd;
+            }
+        }
+
+        return image;
+    }
+}
@@ -0,0 +1,160 @@
+package net.coderodde.datamining.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.CourseAttendanceEntry;
+import net.coderodde.datamining.model.Student;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StudentClustererTest {
+
+    private static final int GROUPS = 3;
+    private static final int COURSES_PER_GROUP = 6;
+    private static final int STUDENTS = 3000;
+
+    private final AppDataStorage storage;
+
+    /**
+     * The group of each student by ordinal.
+     */
+    private final int[] groups = new int[STUDENTS];
+
+    public StudentClustererTest() {
+        final List<Course> courseList =
+                createCourses(GROUPS * COURSES_PER_GROUP);
+
+        final Random random = new Random(31L);
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final Student student = student(s);
+            final int group = random.nextInt(GROUPS);
+            studentList.add(student);
+            groups[s] = group;
+
+            // The students of a group attend mostly the courses of the
+            // group.
+            for (int c = 0; c < courseList.size(); ++c) {
+                final boolean own = c / COURSES_PER_GROUP == group;
+
+                if (random.nextInt(10) < (own ? 8 : 1)) {
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2011,
+                                        1,
+                                        1 + random.nextInt(5)));
+                }
+            }
+        }
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    @Test
+    public void testKMeansRecoversGroups() {
+        final StudentClusterer.Clustering clustering =
+                new StudentClusterer(storage, false).kMeans(GROUPS, 50, 1L);
+
+        assertEquals(GROUPS, clustering.getClusterAmount());
+        assertTrue(clustering.getIterations() < 50);
+        assertTrue(purity(clustering) > 0.95);
+        assertEquals(bruteCost(clustering), clustering.getCost(), 1e-6);
+    }
+
+    @Test
+    public void testGradeWeightedKMeans() {
+        final StudentClusterer.Clustering clustering =
+                new StudentClusterer(storage, true).kMeans(GROUPS, 50, 2L);
+
+        assertTrue(purity(clustering) > 0.95);
+
+        for (int i = 0; i < GROUPS; ++i) {
+            for (final double x : clustering.getCentroid(i)) {
+                assertTrue(x >= 0.0 && x <= 1.0);
+            }
+        }
+    }
+
+    @Test
+    public void testKMedoidsRecoversGroups() {
+        final StudentClusterer.Clustering clustering =
+                new StudentClusterer(storage, false)
+                .kMedoids(GROUPS, 20, 100, 3L);
+        int total = 0;
+
+        assertTrue(purity(clustering) > 0.9);
+
+        for (int i = 0; i < GROUPS; ++i) {
+            final Student medoid = clustering.getMedoid(i);
+
+            assertEquals(i, clustering.getCluster(medoid));
+            total += clustering.getClusterSize(i);
+        }
+
+        assertEquals(STUDENTS, total);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyClustersThrows() {
+        new StudentClusterer(storage, false).kMeans(STUDENTS + 1, 10, 1L);
+    }
+
+    /**
+     * Returns the fraction of the students in the majority group of their
+     * cluster.
+     */
+    private double purity(final StudentClusterer.Clustering clustering) {
+        final int[][] counts = new int[clustering.getClusterAmount()][GROUPS];
+        int majority = 0;
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            ++counts[clustering.getCluster(s)][groups[s]];
+        }
+
+        for (final int[] row : counts) {
+            int max = 0;
+
+            for (final int count : row) {
+                max = Math.max(max, count);
+            }
+
+            majority += max;
+        }
+
+        return 1.0 * majority / STUDENTS;
+    }
+
+    /**
+     * Recomputes the k-means cost from the final assignments and the
+     * centroids of the last assignment step.
+     */
+    private double bruteCost(final StudentClusterer.Clustering clustering) {
+        double ret = 0.0;
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final double[] x = new double[GROUPS * COURSES_PER_GROUP];
+
+            for (final Course course : storage.getStudentsAllCourses(
+                                               storage.getStudentByOrdinal(s))) {
+                x[storage.getCourseOrdinal(course)] = 1.0;
+            }
+
+            final double[] centroid =
+                    clustering.getCentroid(clustering.getCluster(s));
+
+            for (int c = 0; c < x.length; ++c) {
+                ret += (x[c] - centroid[c]) * (x[c] - centroid[c]);
+            }
+        }
+
+        return ret;
+    }
+}
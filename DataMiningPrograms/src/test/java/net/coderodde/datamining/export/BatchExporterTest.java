@@ -0,0 +1,203 @@
+package net.coderodde.datamining.export;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.CourseAttendanceEntry;
+import net.coderodde.datamining.model.Student;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import net.coderodde.datamining.viz.GradeMatrix;
+import net.coderodde.datamining.viz.GradePairHistogram;
+import net.coderodde.datamining.viz.HeatmapRenderer;
+import static net.coderodde.datamining.model.TestStorages.course;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class BatchExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Course c1;
+    private final Course c2;
+    private final AppDataStorage storage;
+
+    public BatchExporterTest() {
+        c1 = course("Intro \"A\"", "1");
+        c2 = course("Advanced", "2");
+
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int i = 0; i < 300; ++i) {
+            final Student student = student(i);
+            studentList.add(student);
+            entryList.add(entry(student, c1, 2010, 1, i % 6));
+
+            if (i % 3 != 0) {
+                entryList.add(entry(student, c2, 2010, 1, (i / 7) % 6));
+            }
+        }
+
+        storage = new AppDataStorage(studentList,
+                                     Arrays.asList(c1, c2),
+                                     entryList);
+    }
+
+    @Test
+    public void testHeatmapPng() throws IOException {
+        final BatchExporter exporter =
+                new BatchExporter(storage, folder.getRoot());
+        final GradeMatrix matrix =
+                GradeMatrix.compute(storage,
+                                    Arrays.asList(c1, c2),
+                                    storage.getStudentBitmap(c1));
+        final HeatmapRenderer renderer = new HeatmapRenderer(3, 7);
+        final File file = exporter.exportHeatmap("heatmap", matrix, renderer);
+        final BufferedImage expected = renderer.render(matrix);
+        final BufferedImage actual = ImageIO.read(file);
+
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+
+        for (int y = 0; y < expected.getHeight(); ++y) {
+            for (int x = 0; x < expected.getWidth(); ++x) {
+                assertEquals(expected.getRGB(x, y) & 0xffffff,
+                             actual.getRGB(x, y) & 0xffffff);
+            }
+        }
+    }
+
+    @Test
+    public void testHistogramJson() throws IOException {
+        final BatchExporter exporter =
+                new BatchExporter(storage, folder.getRoot());
+        final GradePairHistogram histogram =
+                GradePairHistogram.compute(storage, c1, c2);
+
+        assertEquals(200, histogram.getTotal());
+
+        final File file = exporter.exportGradePairHistogram("pair", histogram);
+        final String json = new String(Files.readAllBytes(file.toPath()),
+                                       Charset.forName("UTF-8"));
+
+        assertTrue(json.startsWith(
+                "{\"first\":{\"code\":\"1\",\"name\":\"Intro \\\"A\\\"\"}," +
+                "\"second\":{\"code\":\"2\",\"name\":\"Advanced\"}," +
+                "\"total\":200,"));
+        assertTrue(json.contains("\"counts\":[["
+                                 + histogram.getCount(0, 0) + ","
+                                 + histogram.getCount(0, 1) + ","));
+    }
+
+    @Test
+    public void testRawBinaryPairs() throws IOException {
+        final BatchExporter exporter =
+                new BatchExporter(storage, folder.getRoot());
+        final CompressedBitmap students = CompressedBitmap.of(1, 2, 3, 4, 5);
+        final File file =
+                exporter.exportRawGradePairs("raw",
+                                             c1,
+                                             c2,
+                                             students,
+                                             BatchExporter.RawFormat.BINARY);
+
+        try (final DataInputStream in =
+                new DataInputStream(new FileInputStream(file))) {
+            final byte[] magic = new byte[4];
+            in.readFully(magic);
+
+            assertArrayEquals(new byte[]{ 'G', 'P', 'R', '1' }, magic);
+            assertEquals(4, in.readInt());
+
+            for (final int s : new int[]{ 1, 2, 4, 5 }) {
+                assertEquals(s % 6, in.readByte());
+                assertEquals((s / 7) % 6, in.readByte());
+            }
+
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testCoursePairs() throws IOException {
+        final List<File> fileList =
+                new BatchExporter(storage, folder.getRoot())
+                .exportCoursePairs(Arrays.asList(c1, c2),
+                                   BatchExporter.RawFormat.JSON);
+
+        assertEquals(2, fileList.size());
+        assertEquals("pair-1-2.json", fileList.get(0).getName());
+        assertEquals("pair-1-2-raw.json", fileList.get(1).getName());
+    }
+
+    @Test
+    public void testComputeAllMatchesCompute() {
+        final CompressedBitmap students = CompressedBitmap.of(1, 2, 3, 50, 299);
+
+        for (final CompressedBitmap bitmap :
+                new CompressedBitmap[]{ null, students }) {
+            final List<GradePairHistogram> histogramList =
+                    GradePairHistogram.computeAll(storage,
+                                                  Arrays.asList(c1, c2),
+                                                  bitmap);
+            final GradePairHistogram expected =
+                    GradePairHistogram.compute(storage, c1, c2, bitmap);
+
+            assertEquals(1, histogramList.size());
+            assertEquals(c1, histogramList.get(0).getFirstCourse());
+            assertEquals(c2, histogramList.get(0).getSecondCourse());
+
+            for (int a = 0; a < GradePairHistogram.GRADES; ++a) {
+                for (int b = 0; b < GradePairHistogram.GRADES; ++b) {
+                    assertEquals(expected.getCount(a, b),
+                                 histogramList.get(0).getCount(a, b));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGradePairFeed() throws IOException {
+        final Map<String, CompressedBitmap> cohortMap = new LinkedHashMap<>();
+        cohortMap.put("all", null);
+        cohortMap.put("some", CompressedBitmap.of(1, 2));
+
+        final File index =
+                new BatchExporter(storage, folder.getRoot())
+                .exportGradePairFeed("feed", Arrays.asList(c1, c2), cohortMap);
+        final String json = new String(Files.readAllBytes(index.toPath()),
+                                       Charset.forName("UTF-8"));
+
+        assertTrue(json.endsWith(
+                "\"cohorts\":[\"all\",\"some\"]," +
+                "\"pairs\":[{\"first\":0,\"second\":1," +
+                "\"file\":\"pair-1-2.json\"}]}"));
+
+        final String some = new String(
+                Files.readAllBytes(
+                        new File(index.getParentFile(),
+                                 "some/pair-1-2.json").toPath()),
+                Charset.forName("UTF-8"));
+
+        assertTrue(some.contains("\"total\":2,"));
+        assertTrue(new File(index.getParentFile(),
+                            "all/pair-1-2.json").isFile());
+    }
+}
@@ -0,0 +1,150 @@
+package net.coderodde.datamining.jobs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.CourseAttendanceEntry;
+import net.coderodde.datamining.model.Student;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class JobRunnerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Course> courseList = new ArrayList<>();
+    private final AppDataStorage storage;
+
+    public JobRunnerTest() {
+        courseList.addAll(createCourses(5));
+
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        // Student i attends course c iff bit c of i is set.
+        for (int i = 0; i < 32; ++i) {
+            final Student student = student(i);
+            studentList.add(student);
+
+            for (int c = 0; c < 5; ++c) {
+                if ((i & (1 << c)) != 0) {
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2010 + c,
+                                        1,
+                                        3));
+                }
+            }
+        }
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    @Test
+    public void testCooccurrenceMatchesSupportCount() {
+        final CooccurrenceCounter counter =
+                new CooccurrenceCounter(storage).request(2, 1)
+                                                .request(3, 5)
+                                                .request(5, 1)
+                                                .count();
+
+        final List<CooccurrenceCounter.CourseSetCount> pairList =
+                counter.getCourseSets(2, 1);
+
+        assertEquals(10, pairList.size());
+
+        for (final CooccurrenceCounter.CourseSetCount set : pairList) {
+            assertEquals(8, set.getCount());
+            assertEquals(storage.supportCount(
+                                 new HashSet<>(set.getCourseList())),
+                         set.getCount());
+        }
+
+        // Each 3-set is attended by 4 students, which is below 5.
+        assertTrue(counter.getCourseSets(3, 5).isEmpty());
+        assertEquals(1, counter.getCourseSets(5, 1).size());
+        assertEquals(courseList, counter.getCourseSets(5, 1).get(0)
+                                        .getCourseList());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnrequestedSizeThrows() {
+        new CooccurrenceCounter(storage).request(2, 5).count()
+                                        .getCourseSets(2, 4);
+    }
+
+    @Test
+    public void testRunWritesSeparateOutputs() throws IOException {
+        final List<Job> jobList =
+                Job.parse(new StringReader(
+                        "# Pairs and triples share one pass.\n" +
+                        "pairs.tsv cooccurrence k=2 minCount=8\n" +
+                        "\n" +
+                        "triples.tsv cooccurrence k=3 minCount=4\n" +
+                        "items.tsv itemsets minSupport=0.25\n" +
+                        "gpa.tsv gpa\n" +
+                        "correlations.tsv correlations minCount=1\n" +
+                        "precedence.tsv precedence maxGap=12\n"));
+
+        assertEquals(6, jobList.size());
+        assertEquals(Job.Analysis.COOCCURRENCE, jobList.get(0).getAnalysis());
+        assertEquals("pairs.tsv cooccurrence k=2 minCount=8",
+                     jobList.get(0).toString());
+
+        final List<File> fileList =
+                new JobRunner(storage, folder.getRoot()).run(jobList);
+
+        assertEquals(6, fileList.size());
+        assertEquals(10, lines(fileList.get(0)).size());
+        assertEquals(10, lines(fileList.get(1)).size());
+        assertEquals("4\tc0\tc1\tc2", lines(fileList.get(1)).get(0));
+
+        // 5 singletons with support 1/2 and 10 pairs with support 1/4.
+        assertEquals(15, lines(fileList.get(2)).size());
+        assertEquals("credits\tperiods\tmean",
+                     lines(fileList.get(3)).get(0));
+
+        for (final String line : lines(fileList.get(4))) {
+            assertEquals(4, line.split("\t").length);
+        }
+
+        assertEquals("before\tsame\tafter\tfirst\tsecond",
+                     lines(fileList.get(5)).get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAnalysisThrows() throws IOException {
+        Job.parse(new StringReader("out.txt mystery\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSharedOutputThrows() throws IOException {
+        new JobRunner(storage, folder.getRoot()).run(
+                Job.parse(new StringReader("a.txt gpa\na.txt gpa\n")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingParameterThrows() throws IOException {
+        new JobRunner(storage, folder.getRoot()).run(
+                Arrays.asList(Job.parse(new StringReader(
+                        "a.txt cooccurrence k=2\n")).get(0)));
+    }
+
+    private static List<String> lines(final File file) throws IOException {
+        return Files.readAllLines(file.toPath(), Charset.forName("UTF-8"));
+    }
+}
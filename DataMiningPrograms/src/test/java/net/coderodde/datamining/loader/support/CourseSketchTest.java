@@ -0,0 +1,117 @@
+package net.coderodde.datamining.loader.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class CourseSketchTest {
+
+    private static final int COURSES = 10;
+    private static final int STUDENTS = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void before() throws IOException {
+        file = folder.newFile("data.txt");
+
+        final Random random = new Random(17L);
+
+        try (final PrintWriter out = new PrintWriter(file)) {
+            for (int s = 0; s < STUDENTS; ++s) {
+                final StringBuilder sb = new StringBuilder("2010");
+
+                for (int c = 0; c < COURSES; ++c) {
+                    // Course c is attended with probability 1 - 0.1c, twice
+                    // now and then.
+                    if (random.nextInt(10) >= c) {
+                        for (int i = random.nextInt(4) == 0 ? 2 : 1;
+                                i > 0;
+                                --i) {
+                            sb.append(" 2011-0").append(i)
+                              .append(" 5900").append(c)
+                              .append(" \"Course ").append(c).append('"')
+                              .append(" 5 ").append(random.nextInt(6));
+                        }
+                    }
+                }
+
+                out.println(sb);
+            }
+        }
+    }
+
+    @Test
+    public void testLoaderSketchMatchesScanAndStorage() throws IOException {
+        final CourseSketch loaded = new CourseSketch(0.001, 0.01, 64);
+        final DataLoaderv1 loader = new DataLoaderv1();
+        loader.setSketch(loaded);
+
+        final AppDataStorage storage = loader.load(file);
+        final CourseSketch scanned =
+                new CourseSketch(0.001, 0.01, 64).scan(file);
+
+        assertEquals(STUDENTS, loaded.getTransactionAmount());
+        assertEquals(STUDENTS, scanned.getTransactionAmount());
+
+        for (final Course c1 : storage.getCourseList()) {
+            final int count = storage.supportCount(c1);
+
+            assertEquals(count, loaded.estimateCount(c1.getCode()));
+            assertEquals(count, scanned.estimateCount(c1.getCode()));
+
+            for (final Course c2 : storage.getCourseList()) {
+                if (!c1.equals(c2)) {
+                    final int pairCount = storage.supportCount(
+                            new HashSet<>(Arrays.asList(c1, c2)));
+
+                    assertEquals(pairCount,
+                                 loaded.estimateCount(c1.getCode(),
+                                                      c2.getCode()));
+                }
+            }
+        }
+
+        // All 45 pairs fit in the summary, so the counts are exact.
+        final List<CourseSketch.Estimate> topPairs = loaded.getTopPairs(3);
+
+        assertEquals(3, topPairs.size());
+        assertEquals(Arrays.asList("59000", "59001"),
+                     topPairs.get(0).getCodeList());
+        assertEquals(0L, topPairs.get(0).getError());
+        assertEquals(loaded.getTopCourses(1).get(0).getCount(),
+                     storage.supportCount(storage.getCourseByName("Course 0")));
+    }
+
+    @Test
+    public void testSmallSketchBoundsCounts() throws IOException {
+        final CourseSketch sketch = new CourseSketch(0.2, 0.1, 8).scan(file);
+        final CourseSketch exact = new CourseSketch(0.001, 0.01, 64).scan(file);
+
+        for (final CourseSketch.Estimate estimate : sketch.getTopPairs(8)) {
+            final List<String> codeList = estimate.getCodeList();
+            final long count = exact.estimateCount(codeList.get(0),
+                                                   codeList.get(1));
+
+            assertTrue(estimate.getCount() >= count);
+            assertTrue(estimate.getCount() - estimate.getError() <= count);
+        }
+
+        assertEquals(1.0, sketch.estimateSupport("59000"), 0.0);
+        assertEquals(0L, sketch.estimateCount("nonexistent"));
+    }
+}
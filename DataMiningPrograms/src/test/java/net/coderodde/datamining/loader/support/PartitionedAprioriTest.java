@@ -0,0 +1,146 @@
+package net.coderodde.datamining.loader.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import static net.coderodde.datamining.model.TestStorages.isAttended;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class PartitionedAprioriTest {
+
+    private static final int COURSES = 8;
+    private static final int STUDENTS = 300;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private AppDataStorage storage;
+
+    @Before
+    public void before() throws IOException {
+        file = folder.newFile("data.txt");
+
+        final Random random = new Random(13L);
+
+        try (final PrintWriter out = new PrintWriter(file)) {
+            for (int s = 0; s < STUDENTS; ++s) {
+                final StringBuilder sb = new StringBuilder("2010");
+
+                for (int c = 0; c < COURSES; ++c) {
+                    if (isAttended(random, c)) {
+                        sb.append(" 2011-0").append(1 + c)
+                          .append(" 5900").append(c)
+                          .append(" \"Course number ").append(c).append('"')
+                          .append(" 5 ")
+                          .append(c == 0 ? "Hyv." : "" + random.nextInt(6));
+                    }
+                }
+
+                out.println(sb);
+            }
+        }
+
+        storage = new DataLoaderv1().load(file);
+    }
+
+    @Test
+    public void testSinglePartitionMatchesBruteForce() throws IOException {
+        final PartitionedApriori miner =
+                new PartitionedApriori(file, Long.MAX_VALUE, folder.getRoot());
+
+        check(miner.mine(0.15), 0.15);
+        assertEquals(STUDENTS, miner.getTransactionAmount());
+        assertEquals(1, miner.getPartitionAmount());
+        assertEquals(1, miner.getCountingPassAmount());
+    }
+
+    @Test
+    public void testManyPartitionsMatchBruteForce() throws IOException {
+        // About 20 transactions per partition and 10 candidates per pass.
+        final PartitionedApriori miner =
+                new PartitionedApriori(file, 1600L, folder.getRoot());
+
+        check(miner.mine(0.15), 0.15);
+        assertTrue(miner.getPartitionAmount() > 10);
+        assertTrue(miner.getCountingPassAmount() > 1);
+        // The spill files are removed.
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testCoursesMatchLoader() throws IOException {
+        final Map<String, Course> courseMap = new HashMap<>();
+
+        for (final Course course : storage.getCourseList()) {
+            courseMap.put(course.getCode(), course);
+        }
+
+        for (final PartitionedApriori.FrequentItemset itemset :
+                new PartitionedApriori(file, 4096L, folder.getRoot())
+                .mine(0.5)) {
+            for (final Course course : itemset.getCourseList()) {
+                final Course expected = courseMap.get(course.getCode());
+
+                assertEquals(expected.getName(), course.getName());
+                assertEquals(expected.getGradingMode(),
+                             course.getGradingMode());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroSupportThrows() throws IOException {
+        new PartitionedApriori(file, 4096L, folder.getRoot()).mine(0.0);
+    }
+
+    private void check(final List<PartitionedApriori.FrequentItemset> list,
+                       final double minSupport) {
+        final List<Course> courseList = storage.getCourseList();
+        final int minCount = (int) Math.ceil(minSupport * STUDENTS);
+        final Map<Set<Course>, Integer> expected = new HashMap<>();
+
+        for (int mask = 1; mask < 1 << courseList.size(); ++mask) {
+            final Set<Course> itemset = new HashSet<>();
+
+            for (int c = 0; c < courseList.size(); ++c) {
+                if ((mask & (1 << c)) != 0) {
+                    itemset.add(courseList.get(c));
+                }
+            }
+
+            final int count = storage.supportCount(itemset);
+
+            if (count >= minCount) {
+                expected.put(itemset, count);
+            }
+        }
+
+        final Map<Set<Course>, Integer> actual = new HashMap<>();
+        int previousCount = Integer.MAX_VALUE;
+
+        for (final PartitionedApriori.FrequentItemset itemset : list) {
+            assertTrue(itemset.getCount() <= previousCount);
+            previousCount = itemset.getCount();
+            actual.put(new HashSet<>(itemset.getCourseList()),
+                       itemset.getCount());
+        }
+
+        assertEquals(list.size(), actual.size());
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,190 @@
+package net.coderodde.datamining.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.CourseAttendanceEntry;
+import net.coderodde.datamining.model.Student;
+import net.coderodde.datamining.utils.Parallel;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MiningMetricsTest {
+
+    private final AppDataStorage storage;
+
+    public MiningMetricsTest() {
+        final List<Course> courseList = createCourses(4);
+
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        // Student i attends course c iff bit c of i is set.
+        for (int i = 0; i < 16; ++i) {
+            final Student student = student(i);
+            studentList.add(student);
+
+            for (int c = 0; c < 4; ++c) {
+                if ((i & (1 << c)) != 0) {
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2010 + c,
+                                        1,
+                                        3));
+                }
+            }
+        }
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    @Test
+    public void testAprioriReportsEachLevel() {
+        final List<LevelMetrics> metricsList = new ArrayList<>();
+        final int[] runs = new int[1];
+
+        storage.setMiningListener(new MiningListener() {
+            @Override
+            public void levelCompleted(final LevelMetrics metrics) {
+                metricsList.add(metrics);
+            }
+
+            @Override
+            public void miningCompleted(final String algorithm,
+                                        final int levels,
+                                        final long totalNanos) {
+                assertEquals("apriori", algorithm);
+                assertEquals(metricsList.size(), levels);
+                ++runs[0];
+            }
+        });
+
+        // Each k-itemset has support 2^-k, so levels 1 and 2 are frequent.
+        assertEquals(4 + 6, storage.apriori(0.2).size());
+        assertEquals(1, runs[0]);
+
+        // None of the 4 candidates of the third level is frequent.
+        assertEquals(3, metricsList.size());
+
+        final int[] candidates = { 4, 6, 4 };
+        final int[] frequent = { 4, 6, 0 };
+
+        for (int i = 0; i < metricsList.size(); ++i) {
+            final LevelMetrics metrics = metricsList.get(i);
+
+            assertEquals(i + 1, metrics.getLevel());
+            assertEquals(candidates[i], metrics.getCandidates());
+            assertEquals(frequent[i], metrics.getFrequent());
+            assertTrue(metrics.getJoinNanos() >= 0L);
+            assertTrue(metrics.getCountNanos() >= 0L);
+            assertTrue(metrics.getSampledHeapBytes() > 0L);
+        }
+
+        storage.setMiningListener(null);
+    }
+
+    @Test
+    public void testCsvAndJsonLogs() throws IOException {
+        final LevelMetrics metrics =
+                new LevelMetrics("apriori", 2, 10, 3, 5L, 7L, 100L, 200L);
+        final StringWriter csv = new StringWriter();
+        final StringWriter json = new StringWriter();
+
+        new CompositeMiningListener(
+                new LogMiningListener(csv, LogMiningListener.Format.CSV),
+                new LogMiningListener(json, LogMiningListener.Format.JSON))
+                .levelCompleted(metrics);
+
+        assertEquals("algorithm,level,candidates,frequent,join_ns,count_ns," +
+                     "allocated_bytes,sampled_heap_bytes\n" +
+                     "apriori,2,10,3,5,7,100,200\n",
+                     csv.toString());
+        assertEquals("{\"algorithm\":\"apriori\",\"level\":2," +
+                     "\"candidates\":10,\"frequent\":3,\"joinNanos\":5," +
+                     "\"countNanos\":7,\"allocatedBytes\":100," +
+                     "\"sampledHeapBytes\":200}\n",
+                     json.toString());
+    }
+
+    @Test
+    public void testJmxAttributes() throws JMException {
+        final JmxMiningListener listener = new JmxMiningListener().register();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName name =
+                new ObjectName(JmxMiningListener.DEFAULT_OBJECT_NAME);
+
+        try {
+            storage.setMiningListener(listener);
+            storage.sequentialApriori(0.2, 2);
+
+            assertEquals(1L, server.getAttribute(name, "Runs"));
+            assertEquals(2L, server.getAttribute(name, "Levels"));
+            assertEquals(listener.getTotalCandidates(),
+                         server.getAttribute(name, "TotalCandidates"));
+        } finally {
+            storage.setMiningListener(null);
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testAllocationsOfPoolThreadsCount() {
+        final List<LevelMetrics> metricsList = new ArrayList<>();
+        final MiningRecorder recorder =
+                new MiningRecorder("test", new MiningListener() {
+            @Override
+            public void levelCompleted(final LevelMetrics metrics) {
+                metricsList.add(metrics);
+            }
+
+            @Override
+            public void miningCompleted(final String algorithm,
+                                        final int levels,
+                                        final long totalNanos) {}
+        });
+
+        recorder.startLevel(1);
+        recorder.joined(1);
+
+        // Each chunk allocates a megabyte, in the pool threads if there are
+        // several processors.
+        final List<long[]> partials =
+                Parallel.forRange(64, 1, new Parallel.RangeTask<long[]>() {
+            @Override
+            public long[] compute(final int from, final int to) {
+                return new long[(to - from) * 2048];
+            }
+        });
+
+        recorder.counted(1);
+        assertFalse(partials.isEmpty());
+
+        final long allocatedBytes = metricsList.get(0).getAllocatedBytes();
+
+        if (allocatedBytes >= 0L) {
+            assertTrue(allocatedBytes >= 64L * 2048L * 8L);
+        }
+    }
+
+    @Test
+    public void testNoListenerRecordsNothing() {
+        final MiningRecorder recorder = new MiningRecorder("test", null);
+
+        recorder.startLevel(1);
+        recorder.joined(1);
+        recorder.counted(1);
+        recorder.finish();
+        assertNull(storage.getMiningListener());
+        assertEquals(4, storage.apriori(0.4).size());
+    }
+}
@@ -0,0 +1,231 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static net.coderodde.datamining.model.Course.createCourse;
+import static net.coderodde.datamining.model.TestStorages.course;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.students;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AppDataStorageTest {
+
+    private final Student s1;
+    private final Student s2;
+    private final Student s3;
+    private final Course c1;
+    private final Course c2;
+    private final Course c3;
+    private final AppDataStorage storage;
+
+    public AppDataStorageTest() {
+        final List<Student> studentList = students(2009, 2010, 2011);
+
+        s1 = studentList.get(0);
+        s2 = studentList.get(1);
+        s3 = studentList.get(2);
+
+        c1 = course("Programming", "100");
+        c2 = createCourse().withName("Algorithms")
+                           .withCode("200")
+                           .withNormalScale()
+                           .withCredits(8.0f);
+        c3 = createCourse().withName("Seminar")
+                           .withCode("300")
+                           .withBinaryScale()
+                           .withCredits(2.0f);
+
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        entryList.add(entry(s1, c2, 2010, 1, 3));
+        entryList.add(entry(s1, c1, 2009, 9, 0));
+        entryList.add(entry(s1, c1, 2009, 12, 4));
+        entryList.add(entry(s2, c1, 2010, 9, 5));
+        entryList.add(entry(s2, c3, 2010, 9, 1));
+        entryList.add(entry(s3, c3, 2011, 3, 1));
+
+        storage = new AppDataStorage(studentList,
+                                     Arrays.asList(c1, c2, c3),
+                                     entryList);
+    }
+
+    @Test
+    public void testAmounts() {
+        assertEquals(3, storage.getStudentAmount());
+        assertEquals(3, storage.getCourseAmount());
+        assertEquals(6, storage.getEntryTable().getEntryAmount());
+    }
+
+    @Test
+    public void testEntriesAreChronological() {
+        final EntryTable table = storage.getEntryTable();
+        final int s = storage.getStudentOrdinal(s1);
+
+        assertEquals(3, table.getStudentEnd(s) - table.getStudentBegin(s));
+
+        for (int i = table.getStudentBegin(s) + 1;
+                i < table.getStudentEnd(s);
+                ++i) {
+            assertTrue(table.getTime(i - 1) <= table.getTime(i));
+        }
+
+        assertEquals(EntryTable.toTime(2009, 9),
+                     table.getTime(table.getStudentBegin(s)));
+    }
+
+    @Test
+    public void testEntryViews() {
+        final List<CourseAttendanceEntry> list = storage.getEntryList(s1, c1);
+
+        assertEquals(2, list.size());
+        assertEquals(s1, list.get(0).getStudent());
+        assertEquals(c1, list.get(0).getCourse());
+        assertEquals(9, list.get(0).getMonth());
+        assertEquals(4, list.get(1).getGrade());
+
+        assertEquals(3, storage.getEntriesOfCourse(c1).size());
+        assertEquals(2, storage.getEntriesOfCourse(c3).size());
+        assertTrue(storage.getEntryList(s3, c1).isEmpty());
+    }
+
+    @Test
+    public void testGrades() {
+        assertEquals(4, storage.grade(s1, c1));
+        assertEquals(5, storage.grade(s2, c1));
+        assertTrue(storage.passed(s1, c2));
+        assertFalse(storage.passed(s3, c1));
+        assertTrue(storage.hasGrade(s1, c2, 3, 3));
+        assertFalse(storage.hasGrade(s1, c2, 4, 5));
+    }
+
+    @Test
+    public void testStudentsCourses() {
+        assertEquals(new HashSet<>(Arrays.asList(c1, c2)),
+                     storage.getStudentsAllCourses(s1));
+        assertEquals(Arrays.asList(c1, c3),
+                     storage.getStudentsCourseList(s2));
+        assertEquals(2, storage.supportCount(c3));
+        assertEquals(1, storage.supportCount(
+                new HashSet<>(Arrays.asList(c1, c2))));
+    }
+
+    @Test
+    public void testThresholdQueries() {
+        final Set<Course> programming = new HashSet<>(Arrays.asList(c1));
+        final Set<Course> algorithms = new HashSet<>(Arrays.asList(c2));
+        final Set<Course> both = new HashSet<>(Arrays.asList(c1, c2));
+
+        assertTrue(storage.isFrequent(programming, 2.0 / 3.0));
+        assertFalse(storage.isFrequent(programming, 0.67));
+        assertTrue(storage.isFrequent(both, 1.0 / 3.0));
+        assertFalse(storage.isFrequent(both, 0.34));
+        assertTrue(storage.reachesSupportCount(both, 0));
+        assertTrue(storage.isConfident(algorithms, programming, 1.0));
+        assertTrue(storage.isConfident(programming, algorithms, 0.5));
+        assertFalse(storage.isConfident(programming, algorithms, 0.51));
+
+        final Sequence forward = new Sequence(Arrays.asList(
+                Arrays.asList(c1), Arrays.asList(c2)));
+        final Sequence backward = new Sequence(Arrays.asList(
+                Arrays.asList(c2), Arrays.asList(c1)));
+
+        assertTrue(storage.isFrequent(forward, 1.0 / 3.0));
+        assertFalse(storage.isFrequent(forward, 0.34));
+        assertFalse(storage.reachesSupportCount(backward, 1));
+        assertTrue(storage.reachesSupportCount(backward, 0));
+    }
+
+    @Test
+    public void testSupportStopAfter() {
+        final Set<Course> programming = new HashSet<>(Arrays.asList(c1));
+        final Set<Course> seminar = new HashSet<>(Arrays.asList(c3));
+
+        // Two students have attended the programming course.
+        assertEquals(1.0 / 3.0,
+                     storage.supportStopAfter(programming,
+                                              new HashSet<Course>(), 1),
+                     0.0);
+        assertEquals(2.0 / 3.0,
+                     storage.supportStopAfter(programming,
+                                              new HashSet<Course>(), 5),
+                     0.0);
+        assertEquals(1.0 / 3.0,
+                     storage.supportStopAfter(programming, seminar, 5),
+                     0.0);
+    }
+
+    @Test
+    public void testTimeRangeQueries() {
+        assertEquals(Arrays.asList(s1), 
+                     storage.getStudentsUntil(c1, 2009, 12));
+        assertEquals(Arrays.asList(s1, s2), 
+                     storage.getStudentsFrom(c1, 2009, 10));
+        assertEquals(Arrays.asList(s2), 
+                     storage.getStudentsFrom(c1, 2010, 1));
+        assertTrue(storage.getStudentsFrom(c3, 2012, 1).isEmpty());
+
+        final int from = EntryTable.toTime(2009, 10);
+        final int until = EntryTable.toTime(2010, 2);
+
+        assertEquals(1, storage.getStudentBitmapBetween(c1, from, until)
+                               .getCardinality());
+        assertTrue(storage.getStudentBitmapBetween(c1, until, from).isEmpty());
+        assertEquals(storage.getStudentBitmap(c1),
+                     storage.getStudentBitmapBetween(c1, 
+                                                     Integer.MIN_VALUE,
+                                                     Integer.MAX_VALUE));
+        assertEquals(1, storage.queryStudentBitmapBetween(
+                new HashSet<>(Arrays.asList(c1, c2)), from, until)
+                .getCardinality());
+        assertTrue(storage.queryStudentBitmapBetween(
+                new HashSet<>(Arrays.asList(c1, c3)), from, until)
+                .isEmpty());
+    }
+
+    @Test
+    public void testTimeAndGradeRangeQueries() {
+        final int from = EntryTable.toTime(2009, 9);
+        final int until = EntryTable.toTime(2009, 10);
+
+        // The first student failed programming within the range and passed
+        // it with a 4 after the range.
+        assertTrue(storage.getStudentBitmapBetween(c1, from, until, 4, 5)
+                          .isEmpty());
+        assertEquals(Arrays.asList(s1),
+                     storage.toStudentList(
+                             storage.getStudentBitmapBetween(
+                                     c1, from, until + 3, 4, 5)));
+        assertEquals(Arrays.asList(s1),
+                     storage.toStudentList(
+                             storage.getStudentBitmapBetween(
+                                     c1, from, until, 0, 0)));
+        assertEquals(Arrays.asList(s2),
+                     storage.toStudentList(
+                             storage.queryStudentBitmapBetween(
+                                     new HashSet<>(Arrays.asList(c1, c3)),
+                                     EntryTable.toTime(2010, 1),
+                                     EntryTable.toTime(2011, 1),
+                                     1,
+                                     5)));
+        assertTrue(storage.getStudentBitmapBetween(c1, until, from, 0, 5)
+                          .isEmpty());
+    }
+
+    @Test
+    public void testCreditsToGPA() {
+        final AppDataStorage.Result1 result = storage.getCreditsToGPA();
+
+        assertEquals(3, result.map1.size());
+        assertEquals(3, result.map1.get(5).getCount());
+        assertEquals(3.0f, result.map1.get(5).getMean(), 0.0001f);
+        assertEquals(14.0f / 3.0f, result.map1.get(5).getVariance(), 0.0001f);
+        assertEquals(1, result.map1.get(8).getCount());
+        assertEquals(3.0f, result.map1.get(8).getMean(), 0.0001f);
+        assertTrue(Float.isNaN(result.map1.get(0).getMean()));
+        assertEquals(Integer.valueOf(3), result.map2.get(5));
+    }
+}
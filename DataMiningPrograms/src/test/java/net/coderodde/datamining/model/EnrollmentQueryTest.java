@@ -0,0 +1,108 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import static net.coderodde.datamining.model.TestStorages.course;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.students;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EnrollmentQueryTest {
+
+    private final Course intro;
+    private final Course adv;
+    private final AppDataStorage storage;
+
+    public EnrollmentQueryTest() {
+        final List<Student> studentList = students(2009, 2011, 2012);
+        final Student s1 = studentList.get(0);
+        final Student s2 = studentList.get(1);
+        final Student s3 = studentList.get(2);
+
+        intro = course("Intro", "1");
+        adv = course("Advanced", "2");
+
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        entryList.add(entry(s1, intro, 2009, 9, 5));
+        entryList.add(entry(s1, adv, 2009, 10, 1));
+        entryList.add(entry(s1, adv, 2010, 3, 4));
+        entryList.add(entry(s2, intro, 2011, 9, 2));
+        entryList.add(entry(s2, adv, 2011, 10, 3));
+        entryList.add(entry(s3, intro, 2012, 9, 3));
+        entryList.add(entry(s3, adv, 2012, 10, 0));
+
+        storage = new AppDataStorage(studentList,
+                                     Arrays.asList(intro, adv),
+                                     entryList);
+    }
+
+    @Test
+    public void testCountAndMean() {
+        assertEquals(7, storage.query().count());
+        assertEquals(4, storage.query().withCourses(adv).count());
+        assertEquals(2.0f, storage.query().withCourses(adv).mean(), 0.0001f);
+        assertEquals(3, storage.query().withCourses(adv)
+                                       .bestAttemptOnly()
+                                       .count());
+        assertEquals(7.0f / 3.0f,
+                     storage.query().withCourses(adv)
+                                    .bestAttemptOnly()
+                                    .mean(),
+                     0.0001f);
+    }
+
+    @Test
+    public void testFilters() {
+        assertEquals(3, storage.query().withRegistrationYears(2010, 2100)
+                                       .withGrades(1, 5)
+                                       .count());
+        assertEquals(2, storage.query().withPeriod(EntryTable.toTime(2009, 10),
+                                                   EntryTable.toTime(2011, 1))
+                                       .count());
+        assertEquals(1.5f,
+                     storage.query().withStudentGrade(intro, 1, 3)
+                                    .withCourses(adv)
+                                    .bestAttemptOnly()
+                                    .mean(),
+                     0.0001f);
+        assertEquals(0, storage.query().withStudentGrade(adv, 5, 5).count());
+        assertTrue(Float.isNaN(
+                storage.query().withStudentGrade(adv, 5, 5).mean()));
+    }
+
+    @Test
+    public void testGroupBy() {
+        final Map<Course, EnrollmentQuery.Aggregate> byCourse =
+                storage.query().groupBy(EnrollmentQuery.GroupKey.COURSE);
+
+        assertEquals(Arrays.asList(intro, adv),
+                     new ArrayList<>(byCourse.keySet()));
+        assertArrayEquals(new int[]{ 1, 1, 0, 1, 1, 0 },
+                          byCourse.get(adv).getHistogram());
+
+        final Map<Integer, EnrollmentQuery.Aggregate> byYear =
+                storage.query().groupBy(EnrollmentQuery.GroupKey.YEAR);
+
+        assertEquals(Arrays.asList(2009, 2010, 2011, 2012),
+                     new ArrayList<>(byYear.keySet()));
+        assertEquals(2, byYear.get(2009).getCount());
+
+        final Map<Integer, EnrollmentQuery.Aggregate> byRegistration =
+                storage.query().groupBy(
+                        EnrollmentQuery.GroupKey.REGISTRATION_YEAR);
+
+        assertEquals(Arrays.asList(2009, 2011, 2012),
+                     new ArrayList<>(byRegistration.keySet()));
+        assertEquals(10.0f / 3.0f, byRegistration.get(2009).getMean(), 0.0001f);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBestAttemptsHaveNoTime() {
+        storage.query().bestAttemptOnly()
+                       .groupBy(EnrollmentQuery.GroupKey.PERIOD);
+    }
+}
@@ -0,0 +1,117 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EntryTableTest {
+
+    private static final int COURSES = 12;
+    private static final int STUDENTS = 500;
+
+    private final AppDataStorage heapStorage;
+    private final AppDataStorage offHeapStorage;
+
+    public EntryTableTest() {
+        final List<Course> courseList = createCourses(COURSES);
+
+        final Random random = new Random(53L);
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final Student student = student(s);
+            studentList.add(student);
+
+            for (int c = 0; c < COURSES; ++c) {
+                final int attendances = random.nextInt(3);
+
+                for (int i = 0; i < attendances; ++i) {
+                    final int month = random.nextInt(36);
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2011 + month / 12,
+                                        1 + month % 12,
+                                        random.nextInt(6)));
+                }
+            }
+        }
+
+        heapStorage = new AppDataStorage(studentList, courseList, entryList);
+        offHeapStorage =
+                new AppDataStorage(studentList, courseList, entryList, true);
+    }
+
+    @Test
+    public void testOffHeapColumnsEqual() {
+        final EntryTable heap = heapStorage.getEntryTable();
+        final EntryTable offHeap = offHeapStorage.getEntryTable();
+
+        assertFalse(heap.isOffHeap());
+        assertTrue(offHeap.isOffHeap());
+        assertSame(offHeap, offHeap.toOffHeap());
+        assertEquals(heap.getColumnBytes(), offHeap.getColumnBytes());
+        assertEquals(heap.getEntryAmount(), offHeap.getEntryAmount());
+        assertEquals(heap.getStudentAmount(), offHeap.getStudentAmount());
+        assertEquals(heap.getCourseAmount(), offHeap.getCourseAmount());
+
+        for (int i = 0; i < heap.getEntryAmount(); ++i) {
+            assertEquals(heap.getStudent(i), offHeap.getStudent(i));
+            assertEquals(heap.getCourse(i), offHeap.getCourse(i));
+            assertEquals(heap.getTime(i), offHeap.getTime(i));
+            assertEquals(heap.getGrade(i), offHeap.getGrade(i));
+            assertEquals(heap.getVariant(i), offHeap.getVariant(i));
+            assertEquals(heap.getCourseEntry(i), offHeap.getCourseEntry(i));
+            assertEquals(heap.getCourseTimeEntry(i),
+                         offHeap.getCourseTimeEntry(i));
+        }
+
+        for (int s = 0; s < heap.getStudentAmount(); ++s) {
+            assertEquals(heap.getStudentBegin(s), offHeap.getStudentBegin(s));
+            assertEquals(heap.getStudentEnd(s), offHeap.getStudentEnd(s));
+
+            for (int p = heap.getStudentCourseBegin(s);
+                    p < heap.getStudentCourseEnd(s);
+                    ++p) {
+                assertEquals(heap.getStudentCourse(p),
+                             offHeap.getStudentCourse(p));
+                assertEquals(heap.getStudentBestGrade(p),
+                             offHeap.getStudentBestGrade(p));
+            }
+
+            for (int c = 0; c < heap.getCourseAmount(); ++c) {
+                assertEquals(heap.getBestGrade(s, c),
+                             offHeap.getBestGrade(s, c));
+                assertEquals(heap.findStudentCourse(s, c),
+                             offHeap.findStudentCourse(s, c));
+            }
+        }
+
+        for (int c = 0; c < heap.getCourseAmount(); ++c) {
+            for (int month = -1; month <= 37; ++month) {
+                final int time = EntryTable.toTime(2011, 1) + month;
+                assertEquals(heap.findCourseTime(c, time),
+                             offHeap.findCourseTime(c, time));
+            }
+        }
+    }
+
+    @Test
+    public void testOffHeapQueriesEqual() {
+        assertEquals(heapStorage.apriori(0.2), offHeapStorage.apriori(0.2));
+        assertEquals(heapStorage.sequentialApriori(0.1, 3).toString(),
+                     offHeapStorage.sequentialApriori(0.1, 3).toString());
+
+        for (final Course course : heapStorage.getCourseList()) {
+            assertEquals(heapStorage.supportCount(course),
+                         offHeapStorage.supportCount(course));
+            assertEquals(heapStorage.getStudentsFrom(course, 2012, 6),
+                         offHeapStorage.getStudentsFrom(course, 2012, 6));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.coderodde.datamining.viz.GradePairHistogram;
+import static net.coderodde.datamining.model.Course.createCourse;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GradeCorrelationMatrixTest {
+
+    private static final int COURSES = 7;
+    private static final int STUDENTS = 3000;
+
+    private final AppDataStorage storage;
+
+    public GradeCorrelationMatrixTest() {
+        final List<Course> courseList = createCourses(COURSES - 1);
+
+        courseList.add(createCourse().withName("Seminar")
+                                     .withCode("s")
+                                     .withBinaryScale()
+                                     .withCredits(2.0f));
+
+        final Random random = new Random(5L);
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final Student student = student(s);
+            final int talent = random.nextInt(4);
+            studentList.add(student);
+
+            for (int c = 0; c < COURSES; ++c) {
+                // The last normal scale course is rare.
+                if (random.nextInt(c == COURSES - 2 ? 1000 : 10) < 6) {
+                    final int grade = c == COURSES - 1 ?
+                                      1 :
+                                      Math.min(5, talent + random.nextInt(3));
+
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2011,
+                                        1 + c,
+                                        grade));
+                }
+            }
+        }
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    @Test
+    public void testMatchesHistograms() {
+        final GradeCorrelationMatrix matrix =
+                GradeCorrelationMatrix.compute(storage, 100);
+        final List<Course> courseList = matrix.getCourseList();
+
+        assertEquals(COURSES - 1, courseList.size());
+
+        for (int i = 0; i < COURSES - 2; ++i) {
+            for (int j = i + 1; j < COURSES - 2; ++j) {
+                final GradePairHistogram histogram =
+                        GradePairHistogram.compute(storage,
+                                                   courseList.get(i),
+                                                   courseList.get(j));
+
+                assertEquals(histogram.getTotal(), matrix.getCount(i, j));
+                assertEquals(histogram.getCorrelation(),
+                             matrix.getCorrelation(i, j),
+                             1e-9);
+                assertEquals(matrix.getCorrelation(i, j),
+                             matrix.getCorrelation(j, i),
+                             0.0);
+
+                // The grades share the talent of the student.
+                assertTrue(matrix.getCorrelation(i, j) > 0.3);
+            }
+        }
+    }
+
+    @Test
+    public void testMinCountFilter() {
+        final GradeCorrelationMatrix matrix =
+                GradeCorrelationMatrix.compute(storage, 100);
+        final int rare = COURSES - 2;
+
+        assertTrue(matrix.getCount(0, rare) < 100);
+        assertTrue(Double.isNaN(matrix.getCorrelation(0, rare)));
+        assertEquals(1.0, matrix.getCorrelation(0, 0), 0.0);
+        assertTrue(Double.isNaN(matrix.getCorrelation(rare, rare)));
+    }
+
+    @Test
+    public void testPassFailCoursesExcluded() {
+        final GradeCorrelationMatrix matrix =
+                GradeCorrelationMatrix.compute(storage, 1);
+        final Course seminar = storage.getCourseByName("Seminar");
+
+        assertFalse(matrix.getCourseList().contains(seminar));
+        assertTrue(Double.isNaN(
+                matrix.getCorrelation(seminar,
+                                      matrix.getCourseList().get(0))));
+        assertEquals((COURSES - 1) * (COURSES - 1), matrix.toArray().length);
+    }
+}
@@ -0,0 +1,110 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import net.coderodde.datamining.model.AppDataStorage.SequenceAndSupport;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MiningBudgetTest {
+
+    private final AppDataStorage storage;
+
+    public MiningBudgetTest() {
+        final List<Course> courseList = createCourses(5);
+
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        // Student i attends course c in year 2010 + c iff bit c of i is set.
+        for (int i = 0; i < 32; ++i) {
+            final Student student = student(i);
+            studentList.add(student);
+
+            for (int c = 0; c < 5; ++c) {
+                if ((i & (1 << c)) != 0) {
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2010 + c,
+                                        1,
+                                        3));
+                }
+            }
+        }
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    @Test
+    public void testUnlimitedMatchesApriori() {
+        final MiningResult<Set<Set<Course>>> result =
+                storage.apriori(0.1, MiningBudget.UNLIMITED);
+
+        assertEquals(MiningResult.Status.COMPLETED, result.getStatus());
+        assertTrue(result.isComplete());
+        // 5 singletons, 10 pairs and 10 triples.
+        assertEquals(25, result.getResult().size());
+        assertEquals(storage.apriori(0.1), result.getResult());
+    }
+
+    @Test
+    public void testCandidateLimitKeepsCompletedLevels() {
+        final MiningResult<Set<Set<Course>>> result =
+                storage.apriori(0.1,
+                                MiningBudget.UNLIMITED.withMaxCandidates(5));
+
+        assertEquals(MiningResult.Status.CANDIDATE_LIMIT_EXCEEDED,
+                     result.getStatus());
+        assertFalse(result.isComplete());
+        assertEquals(1, result.getCompletedLevels());
+        assertEquals(5, result.getResult().size());
+    }
+
+    @Test
+    public void testCancelledTokenStops() {
+        final CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        final MiningResult<List<SequenceAndSupport>> result =
+                storage.sequentialApriori(
+                        0.1, MiningBudget.UNLIMITED.withCancellationToken(token));
+
+        assertEquals(MiningResult.Status.CANCELLED, result.getStatus());
+        assertEquals(1, result.getCompletedLevels());
+        assertEquals(5, result.getResult().size());
+    }
+
+    @Test
+    public void testSequenceSupportsOfAllLevels() {
+        final MiningResult<List<SequenceAndSupport>> result =
+                storage.sequentialApriori(0.2, MiningBudget.UNLIMITED);
+
+        assertTrue(result.isComplete());
+        // The 5 singletons and at least one frequent 2-sequence.
+        assertTrue(result.getResult().size() > 5);
+
+        for (final SequenceAndSupport sequence : result.getResult()) {
+            assertTrue(sequence.getSupport() >= 0.2);
+        }
+    }
+
+    @Test
+    public void testHugeTimeLimitMeansNoDeadline() {
+        final MiningBudget budget =
+                MiningBudget.UNLIMITED.withTimeLimit(Long.MAX_VALUE);
+        final MiningResult<Set<Set<Course>>> result =
+                storage.apriori(0.1, budget);
+
+        assertEquals(MiningResult.Status.COMPLETED, result.getStatus());
+        assertEquals(storage.apriori(0.1), result.getResult());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTimeLimitThrows() {
+        MiningBudget.UNLIMITED.withTimeLimit(-1L);
+    }
+}
@@ -0,0 +1,153 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PrecedenceMatrixTest {
+
+    private static final int COURSES = 6;
+    private static final int STUDENTS = 800;
+
+    private final AppDataStorage storage;
+    private final List<Course> courseList = new ArrayList<>();
+
+    /**
+     * The times of the attendances of each student on each course, or -1.
+     * Each course is attended at most twice.
+     */
+    private final int[][][] times = new int[STUDENTS][COURSES][];
+
+    public PrecedenceMatrixTest() {
+        courseList.addAll(createCourses(COURSES));
+
+        final Random random = new Random(37L);
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final Student student = student(s);
+            studentList.add(student);
+
+            for (int c = 0; c < COURSES; ++c) {
+                final int attendances = random.nextInt(3);
+                times[s][c] = new int[attendances];
+
+                for (int i = 0; i < attendances; ++i) {
+                    final int month = random.nextInt(30);
+                    times[s][c][i] = EntryTable.toTime(2011 + month / 12,
+                                                       1 + month % 12);
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2011 + month / 12,
+                                        1 + month % 12,
+                                        i));
+                }
+            }
+        }
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    @Test
+    public void testCountsEqualBruteForce() {
+        check(PrecedenceMatrix.compute(storage), courseList);
+        check(PrecedenceMatrix.compute(storage, 4), courseList);
+    }
+
+    @Test
+    public void testRestrictedCountsEqualBruteForce() {
+        // The compact indices follow the order of the collection, not the
+        // ordinals; the counts of the other courses are zero.
+        final List<Course> subList = Arrays.asList(courseList.get(4),
+                                                   courseList.get(1),
+                                                   courseList.get(3),
+                                                   courseList.get(1));
+
+        check(PrecedenceMatrix.compute(storage, subList), subList);
+        check(PrecedenceMatrix.compute(storage, subList, 4), subList);
+        check(PrecedenceMatrix.compute(storage, new ArrayList<Course>()),
+              new ArrayList<Course>());
+    }
+
+    @Test
+    public void testSeedsSequences() {
+        // The 2-sequences are counted from the matrix; they must agree with
+        // the containment in the student sequences.
+        final PrecedenceMatrix matrix = PrecedenceMatrix.compute(storage);
+        int twoSequences = 0;
+
+        for (final AppDataStorage.SequenceAndSupport sequence :
+                storage.sequentialApriori(0.1, 2)) {
+            if (sequence.getSequence().size() == 2) {
+                final List<Course> pair = new ArrayList<>();
+
+                for (final Course course : sequence.getSequence()) {
+                    pair.add(course);
+                }
+
+                assertEquals(matrix.getBeforeCount(pair.get(0), pair.get(1)),
+                             Math.round(sequence.getSupport() * STUDENTS));
+                ++twoSequences;
+            }
+        }
+
+        // 30 ordered pairs, each attended in order by well over a tenth.
+        assertEquals(COURSES * (COURSES - 1), twoSequences);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveGapThrows() {
+        PrecedenceMatrix.compute(storage, 0);
+    }
+
+    private void check(final PrecedenceMatrix matrix,
+                       final List<Course> includedList) {
+        final int maxGap = matrix.getMaxGap();
+
+        for (int a = 0; a < COURSES; ++a) {
+            for (int b = 0; b < COURSES; ++b) {
+                if (a == b) {
+                    continue;
+                }
+
+                int before = 0;
+                int same = 0;
+
+                for (int s = 0; s < STUDENTS; ++s) {
+                    boolean isBefore = false;
+                    boolean isSame = false;
+
+                    for (final int ta : times[s][a]) {
+                        for (final int tb : times[s][b]) {
+                            isBefore |= ta < tb && tb - ta <= maxGap;
+                            isSame |= ta == tb;
+                        }
+                    }
+
+                    before += isBefore ? 1 : 0;
+                    same += isSame ? 1 : 0;
+                }
+
+                final Course courseA = courseList.get(a);
+                final Course courseB = courseList.get(b);
+
+                if (!includedList.contains(courseA) ||
+                        !includedList.contains(courseB)) {
+                    before = 0;
+                    same = 0;
+                }
+
+                assertEquals(before, matrix.getBeforeCount(courseA, courseB));
+                assertEquals(before, matrix.getAfterCount(courseB, courseA));
+                assertEquals(same, matrix.getSameCount(courseA, courseB));
+            }
+        }
+    }
+}
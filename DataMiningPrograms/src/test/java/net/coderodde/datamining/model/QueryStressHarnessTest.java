@@ -0,0 +1,80 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class QueryStressHarnessTest {
+
+    private static final int COURSES = 10;
+    private static final int STUDENTS = 600;
+
+    private final AppDataStorage storage;
+
+    public QueryStressHarnessTest() {
+        final List<Course> courseList = createCourses(COURSES);
+
+        final Random random = new Random(47L);
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final Student student = student(s);
+            studentList.add(student);
+
+            for (int c = 0; c < COURSES; ++c) {
+                if (random.nextInt(10) < 7 - c / 2) {
+                    final int month = random.nextInt(36);
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2011 + month / 12,
+                                        1 + month % 12,
+                                        random.nextInt(6)));
+                }
+            }
+        }
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    @Test
+    public void testConcurrentQueriesAgree() throws InterruptedException {
+        final QueryStressHarness harness = new QueryStressHarness(storage, 0.1);
+        final QueryStressHarness.Report report = harness.run(8, 200L);
+
+        assertEquals(8, report.getThreads());
+        assertTrue(report.getOperations() >=
+                   8 * harness.getQueryNames().size());
+        assertEquals(report.toString(), 0L, report.getMismatches());
+        assertTrue(report.getFailedQueries().isEmpty());
+        assertTrue(report.getThroughput() > 0.0);
+    }
+
+    @Test
+    public void testMaxspanMiningDoesNotDependOnOrder() {
+        // The span of a candidate depends on the student; mining must give
+        // the same answer however often it is repeated.
+        final List<AppDataStorage.SequenceAndSupport> first =
+                storage.sequentialApriori(0.1, 3, 12);
+        final List<AppDataStorage.SequenceAndSupport> second =
+                storage.sequentialApriori(0.1, 3, 12);
+
+        assertEquals(first.toString(), second.toString());
+        assertTrue(first.size() <= storage.sequentialApriori(0.1, 3).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveThreads() throws InterruptedException {
+        new QueryStressHarness(storage, 0.1).run(0, 10L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsBadSupport() {
+        new QueryStressHarness(storage, 0.0);
+    }
+}
@@ -0,0 +1,98 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RuleIndexTest {
+
+    private static final int COURSES = 8;
+    private static final int STUDENTS = 1500;
+
+    private final AppDataStorage storage;
+    private final List<AssociationRule> ruleList;
+
+    public RuleIndexTest() {
+        storage = TestStorages.random(COURSES, STUDENTS, 11L);
+        ruleList = storage.apriori(0.05, 0.3);
+    }
+
+    @Test
+    public void testMatchEqualsBruteForce() {
+        assertFalse(ruleList.isEmpty());
+
+        final RuleIndex index = new RuleIndex(ruleList);
+        final Random random = new Random(3L);
+
+        for (int i = 0; i < 200; ++i) {
+            final Set<Course> query = new HashSet<>();
+
+            for (final Course course : storage.getCourseList()) {
+                if (random.nextBoolean()) {
+                    query.add(course);
+                }
+            }
+
+            assertEquals(bruteForce(query), index.match(query));
+        }
+    }
+
+    @Test
+    public void testMatchAllEqualsMatch() {
+        final RuleIndex index = new RuleIndex(ruleList);
+        final int[][] fired = index.matchAll(storage);
+        final double[] scores = index.scoreAll(storage);
+
+        assertEquals(storage.getStudentAmount(), fired.length);
+
+        for (int s = 0; s < fired.length; ++s) {
+            final Set<Course> courses = new HashSet<>(
+                    storage.getStudentsAllCourses(
+                            storage.getStudentByOrdinal(s)));
+            final List<AssociationRule> expected = bruteForce(courses);
+            double expectedScore = 0.0;
+
+            assertEquals(expected.size(), fired[s].length);
+
+            for (int i = 0; i < fired[s].length; ++i) {
+                assertEquals(expected.get(i),
+                             index.getRuleList().get(fired[s][i]));
+            }
+
+            for (final AssociationRule rule : expected) {
+                if (!courses.containsAll(rule.getConsequent())) {
+                    expectedScore = Math.max(expectedScore,
+                                             rule.getConfidence());
+                }
+            }
+
+            assertEquals(expectedScore, scores[s], 0.0);
+        }
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        final RuleIndex index =
+                new RuleIndex(new ArrayList<AssociationRule>());
+
+        assertTrue(index.match(
+                new HashSet<>(storage.getCourseList())).isEmpty());
+        assertEquals(0, index.matchAll(storage)[0].length);
+    }
+
+    private List<AssociationRule> bruteForce(final Set<Course> courses) {
+        final List<AssociationRule> ret = new ArrayList<>();
+
+        for (final AssociationRule rule : ruleList) {
+            if (courses.containsAll(rule.getAntecedent())) {
+                ret.add(rule);
+            }
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,114 @@
+package net.coderodde.datamining.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SampledAprioriTest {
+
+    private static final int COURSES = 8;
+    private static final int STUDENTS = 2000;
+
+    private final AppDataStorage storage;
+
+    public SampledAprioriTest() {
+        storage = TestStorages.random(COURSES, STUDENTS, 7L);
+    }
+
+    @Test
+    public void testFullSampleIsExact() {
+        final SampledApriori.Result result =
+                new SampledApriori(storage, STUDENTS, 1L).mine(0.2, 0.95, true);
+
+        assertEquals(STUDENTS, result.getSampleSize());
+        assertTrue(result.isExact());
+        assertEquals(bruteForce(0.2), toMap(result, true));
+    }
+
+    @Test
+    public void testVerifiedSampleFindsFrequentItemsets() {
+        final SampledApriori.Result result =
+                new SampledApriori(storage, 400, 1L).mine(0.2, 0.99, true);
+
+        assertEquals(400, result.getSampleSize());
+        assertTrue(result.getLoweredSupport() < 0.2);
+        assertTrue(result.isVerified());
+        assertTrue(result.isExact());
+        assertEquals(bruteForce(0.2), toMap(result, true));
+    }
+
+    @Test
+    public void testIntervalsContainMostExactSupports() {
+        final SampledApriori.Result result =
+                new SampledApriori(storage, 400, 3L).mine(0.2, 0.95, false);
+        final Map<Set<Course>, Double> exact = bruteForce(0.0001);
+
+        assertFalse(result.isVerified());
+        assertFalse(result.getItemsetList().isEmpty());
+
+        int covered = 0;
+
+        for (final SampledApriori.EstimatedItemset itemset :
+                result.getItemsetList()) {
+            assertTrue(Double.isNaN(itemset.getExactSupport()));
+            assertTrue(itemset.getLowerBound() <= itemset.getSupport());
+            assertTrue(itemset.getSupport() <= itemset.getUpperBound());
+
+            final double support =
+                    exact.get(new HashSet<>(itemset.getCourseList()));
+
+            if (itemset.getLowerBound() <= support &&
+                    support <= itemset.getUpperBound()) {
+                ++covered;
+            }
+        }
+
+        assertTrue(covered >= 0.95 * result.getItemsetList().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadConfidenceThrows() {
+        new SampledApriori(storage, 10, 1L).mine(0.2, 1.0, false);
+    }
+
+    private Map<Set<Course>, Double> bruteForce(final double minSupport) {
+        final List<Course> courseList = storage.getCourseList();
+        final Map<Set<Course>, Double> ret = new HashMap<>();
+
+        for (int mask = 1; mask < 1 << courseList.size(); ++mask) {
+            final Set<Course> itemset = new HashSet<>();
+
+            for (int c = 0; c < courseList.size(); ++c) {
+                if ((mask & (1 << c)) != 0) {
+                    itemset.add(courseList.get(c));
+                }
+            }
+
+            final double support = 1.0 * storage.supportCount(itemset) /
+                                   STUDENTS;
+
+            if (support >= minSupport) {
+                ret.put(itemset, support);
+            }
+        }
+
+        return ret;
+    }
+
+    private static Map<Set<Course>, Double>
+        toMap(final SampledApriori.Result result, final boolean exact) {
+        final Map<Set<Course>, Double> ret = new HashMap<>();
+
+        for (final SampledApriori.EstimatedItemset itemset :
+                result.getItemsetList()) {
+            ret.put(new HashSet<>(itemset.getCourseList()),
+                    exact ? itemset.getExactSupport() : itemset.getSupport());
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,151 @@
+package net.coderodde.datamining.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static net.coderodde.datamining.model.Course.createCourse;
+import static net.coderodde.datamining.model.CourseAttendanceEntry.createAttendanceEntry;
+import static net.coderodde.datamining.model.Student.createStudent;
+
+/**
+ * This class builds the data storages and the model objects the tests share.
+ *
+ * @author Rodion Efremov
+ * @version 1.6
+ */
+public final class TestStorages {
+
+    private TestStorages() {}
+
+    /**
+     * Builds a storage of <code>students</code> students attending
+     * <code>courses</code> courses. Course <tt>c</tt> is attended in month
+     * <tt>1 + c</tt> of 2011 with grade 3 with probability <tt>0.8 - 0.1c</tt>,
+     * as decided by {@link #isAttended(Random, int)}.
+     *
+     * @param  courses  the amount of courses.
+     * @param  students the amount of students.
+     * @param  seed     the seed of the random number generator.
+     * @return the data storage.
+     */
+    public static AppDataStorage random(final int courses,
+                                        final int students,
+                                        final long seed) {
+        final List<Course> courseList = createCourses(courses);
+        final Random random = new Random(seed);
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int s = 0; s < students; ++s) {
+            final Student student = student(s);
+            studentList.add(student);
+
+            for (int c = 0; c < courses; ++c) {
+                if (isAttended(random, c)) {
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2011,
+                                        1 + c,
+                                        3));
+                }
+            }
+        }
+
+        return new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    /**
+     * Decides whether a student attends course <code>course</code>, which
+     * happens with probability <tt>0.8 - 0.1 * course</tt>.
+     *
+     * @param  random the random number generator.
+     * @param  course the index of the course.
+     * @return <code>true</code> if the course is attended.
+     */
+    public static boolean isAttended(final Random random, final int course) {
+        return random.nextInt(10) < 8 - course;
+    }
+
+    /**
+     * Creates the normal scale courses "Course 0", "Course 1", ... with the
+     * codes "c0", "c1", ... and 5 credits each.
+     *
+     * @param  amount the amount of courses.
+     * @return the list of courses.
+     */
+    public static List<Course> createCourses(final int amount) {
+        final List<Course> courseList = new ArrayList<>(amount);
+
+        for (int c = 0; c < amount; ++c) {
+            courseList.add(course("Course " + c, "c" + c));
+        }
+
+        return courseList;
+    }
+
+    /**
+     * Creates a normal scale course worth 5 credits.
+     *
+     * @param  name the name of the course.
+     * @param  code the code of the course.
+     * @return the course.
+     */
+    public static Course course(final String name, final String code) {
+        return createCourse().withName(name)
+                             .withCode(code)
+                             .withNormalScale()
+                             .withCredits(5.0f);
+    }
+
+    /**
+     * Creates the students with the IDs 1, 2, ... registered in the given
+     * years.
+     *
+     * @param  registrationYears the registration year of each student.
+     * @return the list of students.
+     */
+    public static List<Student> students(final int... registrationYears) {
+        final List<Student> studentList =
+                new ArrayList<>(registrationYears.length);
+
+        for (int i = 0; i < registrationYears.length; ++i) {
+            studentList.add(createStudent().withId(i + 1)
+                                           .withRegistrationYear(
+                                                   registrationYears[i]));
+        }
+
+        return studentList;
+    }
+
+    /**
+     * Creates a student registered in 2010.
+     *
+     * @param  id the student ID.
+     * @return the student.
+     */
+    public static Student student(final int id) {
+        return createStudent().withId(id).withRegistrationYear(2010);
+    }
+
+    /**
+     * Creates an attendance entry.
+     *
+     * @param  student the student.
+     * @param  course  the course.
+     * @param  year    the year.
+     * @param  month   the month.
+     * @param  grade   the grade.
+     * @return the attendance entry.
+     */
+    public static CourseAttendanceEntry entry(final Student student,
+                                              final Course course,
+                                              final int year,
+                                              final int month,
+                                              final int grade) {
+        return createAttendanceEntry().withStudent(student)
+                                      .withCourse(course)
+                                      .withYear(year)
+                                      .withMonth(month)
+                                      .withGrade(grade);
+    }
+}
@@ -0,0 +1,221 @@
+package net.coderodde.datamining.recommend;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.CourseAttendanceEntry;
+import net.coderodde.datamining.model.Student;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.random;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CourseRecommenderTest {
+
+    private static final int COURSES = 12;
+    private static final int STUDENTS = 400;
+
+    private final AppDataStorage storage;
+
+    public CourseRecommenderTest() {
+        final List<Course> courseList = createCourses(COURSES);
+
+        final Random random = new Random(23L);
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final Student student = student(s);
+            studentList.add(student);
+
+            for (int c = 0; c < COURSES; ++c) {
+                if (random.nextInt(COURSES) < COURSES - c) {
+                    entryList.add(entry(student,
+                                        courseList.get(c),
+                                        2011,
+                                        1,
+                                        3));
+                }
+            }
+        }
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+    }
+
+    @Test
+    public void testNeighborsMatchRuleMeasures() {
+        for (final CourseRecommender.Measure measure :
+                CourseRecommender.Measure.values()) {
+            final CourseRecommender recommender =
+                    new CourseRecommender(storage, COURSES, measure, 1);
+
+            for (final Course a : storage.getCourseList()) {
+                final List<CourseRecommender.Recommendation> neighborList =
+                        recommender.getNeighborList(a);
+
+                assertEquals(COURSES - 1, neighborList.size());
+
+                float previous = Float.POSITIVE_INFINITY;
+
+                for (final CourseRecommender.Recommendation neighbor :
+                        neighborList) {
+                    final Set<Course> x = new HashSet<>(Arrays.asList(a));
+                    final Set<Course> y = new HashSet<>(
+                            Arrays.asList(neighbor.getCourse()));
+                    final double confidence = storage.confidence(x, y);
+                    final double expected =
+                            measure == CourseRecommender.Measure.CONFIDENCE ?
+                            confidence :
+                            confidence * STUDENTS /
+                            storage.supportCount(neighbor.getCourse());
+
+                    assertEquals(expected, neighbor.getScore(), 1e-6);
+                    assertTrue(neighbor.getScore() <= previous);
+                    previous = neighbor.getScore();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRecommendMatchesBruteForce() {
+        final CourseRecommender recommender =
+                new CourseRecommender(storage,
+                                      4,
+                                      CourseRecommender.Measure.LIFT,
+                                      1);
+        final int[] resultCourses = new int[3];
+        final float[] resultScores = new float[3];
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final Set<Course> courseSet =
+                    storage.getStudentsAllCourses(
+                            storage.getStudentByOrdinal(s));
+            final List<CourseRecommender.Recommendation> list =
+                    recommender.recommend(courseSet, 3);
+            final int amount =
+                    recommender.recommend(s, resultCourses, resultScores);
+
+            assertEquals(list.size(), amount);
+
+            // The best score of each unattended course over the attended
+            // courses' top 4 neighbors.
+            final float[] best = new float[COURSES];
+            Arrays.fill(best, -1.0f);
+
+            for (final Course a : courseSet) {
+                for (final CourseRecommender.Recommendation neighbor :
+                        recommender.getNeighborList(a)) {
+                    final int b = storage.getCourseOrdinal(
+                            neighbor.getCourse());
+
+                    if (!courseSet.contains(neighbor.getCourse())) {
+                        best[b] = Math.max(best[b], neighbor.getScore());
+                    }
+                }
+            }
+
+            for (int i = 0; i < amount; ++i) {
+                final int b = storage.getCourseOrdinal(
+                        list.get(i).getCourse());
+
+                assertEquals(b, resultCourses[i]);
+                assertEquals(best[b], resultScores[i], 0.0f);
+                assertFalse(courseSet.contains(list.get(i).getCourse()));
+
+                for (int c = 0; c < COURSES; ++c) {
+                    if (best[c] > resultScores[i]) {
+                        boolean listed = false;
+
+                        for (int j = 0; j < i; ++j) {
+                            listed |= resultCourses[j] == c;
+                        }
+
+                        assertTrue(listed);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOrdinalRecommendDoesNotAllocate() {
+        final com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+
+        final CourseRecommender recommender =
+                new CourseRecommender(storage,
+                                      5,
+                                      CourseRecommender.Measure.CONFIDENCE,
+                                      1);
+        final int[] resultCourses = new int[5];
+        final float[] resultScores = new float[5];
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            recommender.recommend(s, resultCourses, resultScores);
+        }
+
+        final long id = Thread.currentThread().getId();
+        final long before = bean.getThreadAllocatedBytes(id);
+
+        for (int i = 0; i < 10000; ++i) {
+            recommender.recommend(i % STUDENTS, resultCourses, resultScores);
+        }
+
+        assertTrue(bean.getThreadAllocatedBytes(id) - before < 4096L);
+    }
+
+    @Test
+    public void testFreshThreadReusesPooledScratch() throws Exception {
+        final com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+
+        if (!bean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+
+        // 4096 courses make the work arrays of a request 64 KiB large.
+        final CourseRecommender recommender =
+                new CourseRecommender(random(4096, 20, 5L),
+                                      5,
+                                      CourseRecommender.Measure.CONFIDENCE,
+                                      1);
+        final int[] resultCourses = new int[5];
+        final float[] resultScores = new float[5];
+        recommender.recommend(0, resultCourses, resultScores);
+
+        final AtomicLong allocated = new AtomicLong();
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                final long id = Thread.currentThread().getId();
+                final long before = bean.getThreadAllocatedBytes(id);
+
+                for (int i = 0; i < 100; ++i) {
+                    recommender.recommend(i % 20, resultCourses, resultScores);
+                }
+
+                allocated.set(bean.getThreadAllocatedBytes(id) - before);
+            }
+        };
+
+        thread.start();
+        thread.join();
+        assertTrue(allocated.get() < 4096L);
+    }
+}
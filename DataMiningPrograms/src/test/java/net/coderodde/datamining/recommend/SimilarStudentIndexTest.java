@@ -0,0 +1,172 @@
+package net.coderodde.datamining.recommend;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.CourseAttendanceEntry;
+import net.coderodde.datamining.model.Student;
+import static net.coderodde.datamining.model.TestStorages.createCourses;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SimilarStudentIndexTest {
+
+    private static final int COURSES = 60;
+    private static final int PROGRAMS = 15;
+    private static final int STUDENTS = 600;
+
+    private final AppDataStorage storage;
+    private final SimilarStudentIndex index;
+
+    public SimilarStudentIndexTest() {
+        final List<Course> courseList = createCourses(COURSES);
+
+        final Random random = new Random(29L);
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            final Student student = student(s);
+            final Set<Integer> courses = new HashSet<>();
+            final int program = random.nextInt(PROGRAMS);
+            studentList.add(student);
+
+            // The students of a program mostly share its 8 courses.
+            for (int i = 0; i < 8; ++i) {
+                if (random.nextInt(10) < 9) {
+                    courses.add((4 * program + i) % COURSES);
+                }
+            }
+
+            courses.add(random.nextInt(COURSES));
+
+            for (final int c : courses) {
+                entryList.add(entry(student,
+                                    courseList.get(c),
+                                    2011,
+                                    1,
+                                    3));
+            }
+        }
+
+        // A student without courses.
+        studentList.add(student(STUDENTS));
+
+        storage = new AppDataStorage(studentList, courseList, entryList);
+        index = new SimilarStudentIndex(storage);
+    }
+
+    @Test
+    public void testFindSimilar() {
+        for (int s = 0; s < STUDENTS; s += 37) {
+            final Student student = storage.getStudentByOrdinal(s);
+            final List<SimilarStudentIndex.Neighbor> neighborList =
+                    index.findSimilar(student, 5);
+
+            assertFalse(neighborList.isEmpty());
+            assertTrue(neighborList.size() <= 5);
+
+            double previous = 1.0;
+
+            for (final SimilarStudentIndex.Neighbor neighbor : neighborList) {
+                assertFalse(student.equals(neighbor.getStudent()));
+                assertEquals(bruteJaccard(student, neighbor.getStudent()),
+                             neighbor.getSimilarity(),
+                             0.0);
+                assertTrue(neighbor.getSimilarity() <= previous);
+                previous = neighbor.getSimilarity();
+            }
+
+            // The best neighbor is the best over all students, since it is
+            // far above the threshold of the index.
+            double best = 0.0;
+
+            for (int t = 0; t < STUDENTS; ++t) {
+                if (t != s) {
+                    best = Math.max(best,
+                                    bruteJaccard(student,
+                                                 storage.getStudentByOrdinal(t)));
+                }
+            }
+
+            assertEquals(best, neighborList.get(0).getSimilarity(), 0.0);
+        }
+    }
+
+    @Test
+    public void testFindPairs() {
+        final double threshold = 0.8;
+        final List<SimilarStudentIndex.SimilarPair> pairList =
+                index.findPairs(threshold);
+        final Set<List<Integer>> found = new HashSet<>();
+
+        for (final SimilarStudentIndex.SimilarPair pair : pairList) {
+            assertTrue(pair.getSimilarity() >= threshold);
+            assertEquals(bruteJaccard(pair.getFirstStudent(),
+                                      pair.getSecondStudent()),
+                         pair.getSimilarity(),
+                         0.0);
+            assertTrue(found.add(key(pair.getFirstStudent(),
+                                     pair.getSecondStudent())));
+        }
+
+        int expected = 0;
+        int recalled = 0;
+
+        for (int s = 0; s < STUDENTS; ++s) {
+            for (int t = s + 1; t < STUDENTS; ++t) {
+                final Student a = storage.getStudentByOrdinal(s);
+                final Student b = storage.getStudentByOrdinal(t);
+
+                if (bruteJaccard(a, b) >= threshold) {
+                    ++expected;
+
+                    if (found.contains(key(a, b))) {
+                        ++recalled;
+                    }
+                }
+            }
+        }
+
+        // No pair below the threshold is reported.
+        assertEquals(recalled, found.size());
+        assertTrue(expected > 100);
+        assertTrue(recalled >= 0.99 * expected);
+    }
+
+    @Test
+    public void testStudentWithoutCourses() {
+        final Student student = storage.getStudentByOrdinal(STUDENTS);
+
+        assertEquals(STUDENTS, student.getId());
+        assertTrue(index.findSimilar(student, 5).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadThresholdThrows() {
+        index.findPairs(0.0);
+    }
+
+    private double bruteJaccard(final Student a, final Student b) {
+        final Set<Course> union = new HashSet<>(storage.getStudentsAllCourses(a));
+        final Set<Course> intersection =
+                new HashSet<>(storage.getStudentsAllCourses(a));
+
+        union.addAll(storage.getStudentsAllCourses(b));
+        intersection.retainAll(storage.getStudentsAllCourses(b));
+        return 1.0 * intersection.size() / union.size();
+    }
+
+    private static List<Integer> key(final Student a, final Student b) {
+        final List<Integer> ret = new ArrayList<>(2);
+        ret.add(Math.min(a.getId(), b.getId()));
+        ret.add(Math.max(a.getId(), b.getId()));
+        return ret;
+    }
+}
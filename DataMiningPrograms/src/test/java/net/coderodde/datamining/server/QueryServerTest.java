@@ -0,0 +1,152 @@
+package net.coderodde.datamining.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.CourseAttendanceEntry;
+import net.coderodde.datamining.model.Student;
+import static net.coderodde.datamining.model.TestStorages.course;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class QueryServerTest {
+
+    private QueryServer server;
+
+    @Before
+    public void before() throws IOException {
+        final Course c1 = course("Intro", "1");
+        final Course c2 = course("Advanced", "2");
+        final List<Student> studentList = new ArrayList<>();
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        for (int i = 0; i < 10; ++i) {
+            final Student student = student(100 + i);
+            studentList.add(student);
+            entryList.add(entry(student, c1, 2010, 1, i % 6));
+
+            if (i % 2 == 0) {
+                entryList.add(entry(student, c2, 2011, 1, 5));
+            }
+        }
+
+        server = new QueryServer(new AppDataStorage(studentList,
+                                                    Arrays.asList(c1, c2),
+                                                    entryList),
+                                 new InetSocketAddress(
+                                         InetAddress.getLoopbackAddress(),
+                                         0));
+        server.start();
+    }
+
+    @After
+    public void after() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testSupport() throws IOException {
+        assertEquals("{\"count\":5,\"support\":0.5}",
+                     get("/support?course=1&course=Advanced", 200));
+    }
+
+    @Test
+    public void testConfidence() throws IOException {
+        assertEquals("{\"support\":0.5,\"confidence\":1.0}",
+                     get("/confidence?x=2&y=1", 200));
+    }
+
+    @Test
+    public void testCohort() throws IOException {
+        assertEquals("{\"count\":2,\"students\":[100,106]}",
+                     get("/cohort?course=1&from=2010-01" +
+                         "&until=2012-01&maxGrade=0", 200));
+        assertEquals("{\"count\":0,\"students\":[]}",
+                     get("/cohort?course=2&until=2011-01", 200));
+        assertEquals("{\"count\":5,\"students\":[100]}",
+                     get("/cohort?course=2&limit=1", 200));
+    }
+
+    @Test
+    public void testItemsets() throws IOException {
+        final String response = get("/itemsets?minSupport=0.4", 200);
+
+        assertTrue(response.contains(
+                "{\"courses\":[{\"code\":\"2\",\"name\":\"Advanced\"}," +
+                "{\"code\":\"1\",\"name\":\"Intro\"}],\"count\":5}") ||
+                   response.contains(
+                "{\"courses\":[{\"code\":\"1\",\"name\":\"Intro\"}," +
+                "{\"code\":\"2\",\"name\":\"Advanced\"}],\"count\":5}"));
+        assertEquals(response, get("/itemsets?minSupport=0.4", 200));
+    }
+
+    @Test
+    public void testRecommend() throws IOException {
+        assertEquals("[{\"code\":\"1\",\"name\":\"Intro\",\"score\":1.0}]",
+                     get("/recommend?course=2", 200));
+        assertEquals("[{\"code\":\"2\",\"name\":\"Advanced\"," +
+                     "\"score\":1.0}]",
+                     get("/recommend?course=Intro&measure=lift", 200));
+        assertEquals("[]", get("/recommend?course=1&course=2", 200));
+        assertEquals("[]", get("/recommend?course=2&n=0", 200));
+    }
+
+    @Test
+    public void testSimilar() throws IOException {
+        // The students with even IDs share both courses.
+        assertEquals("[{\"student\":102,\"similarity\":1.0}," +
+                     "{\"student\":104,\"similarity\":1.0}]",
+                     get("/similar?student=100&n=2", 200));
+        assertEquals("{\"error\":\"Unknown student \\\"7\\\".\"}",
+                     get("/similar?student=7", 400));
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        assertEquals("{\"error\":\"Unknown course \\\"3\\\".\"}",
+                     get("/support?course=3", 400));
+        assertEquals("{\"error\":\"Missing parameter \\\"minSupport\\\".\"}",
+                     get("/itemsets", 400));
+    }
+
+    private String get(final String path, final int expectedStatus)
+    throws IOException {
+        final URL url = new URL("http",
+                                server.getAddress().getHostString(),
+                                server.getAddress().getPort(),
+                                path);
+        final HttpURLConnection connection =
+                (HttpURLConnection) url.openConnection();
+
+        assertEquals(expectedStatus, connection.getResponseCode());
+
+        try (final InputStream in = expectedStatus == 200 ?
+                                    connection.getInputStream() :
+                                    connection.getErrorStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+
+            return out.toString("UTF-8");
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package net.coderodde.datamining.utils;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BitKernelsTest {
+
+    private static final int WORDS = 1000;
+
+    private final Random rnd = new Random(59L);
+
+    @Test
+    public void testKernelsEqualScalarLoops() {
+        for (int amount = 1; amount <= 6; ++amount) {
+            final long[][] sets = createSets(amount);
+
+            for (int from = 0; from < 5; ++from) {
+                for (int to = WORDS - 5; to <= WORDS; ++to) {
+                    final int expected = scalarAndCardinality(sets,
+                                                              amount,
+                                                              from,
+                                                              to);
+
+                    assertEquals(expected,
+                                 BitKernels.andCardinality(sets,
+                                                           amount,
+                                                           from,
+                                                           to));
+                    assertEquals(expected,
+                                 BitKernels.andCardinality(sets,
+                                                           amount,
+                                                           from,
+                                                           to,
+                                                           expected));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEarlyExit() {
+        final long[][] sets = createSets(3);
+        final int expected = scalarAndCardinality(sets, 3, 0, WORDS);
+
+        assertTrue(BitKernels.andCardinality(sets, 3, 0, WORDS, expected + 1) <
+                   expected + 1);
+
+        // The counting stops once the stop count is reached.
+        final int stopped = BitKernels.andCardinality(sets,
+                                                      3,
+                                                      0,
+                                                      WORDS,
+                                                      expected / 2,
+                                                      expected / 2);
+        assertTrue(stopped >= expected / 2 && stopped < expected);
+
+        // The count cannot reach more bits than there are.
+        assertEquals(0, BitKernels.andCardinality(sets,
+                                                  3,
+                                                  0,
+                                                  WORDS,
+                                                  64 * WORDS + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTooManySets() {
+        BitKernels.andCardinality(createSets(4), 5, 0, WORDS);
+    }
+
+    private long[][] createSets(final int amount) {
+        final long[][] sets = new long[amount][WORDS];
+
+        for (final long[] set : sets) {
+            for (int i = 0; i < WORDS; ++i) {
+                // Dense sets, so that intersections of several stay nonempty.
+                set[i] = rnd.nextLong() | rnd.nextLong() | rnd.nextLong();
+            }
+        }
+
+        return sets;
+    }
+
+    private static int scalarAndCardinality(final long[][] sets,
+                                            final int amount,
+                                            final int from,
+                                            final int to) {
+        int count = 0;
+
+        for (int i = from; i < to; ++i) {
+            long word = -1L;
+
+            for (int j = 0; j < amount; ++j) {
+                word &= sets[j][i];
+            }
+
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,216 @@
+package net.coderodde.datamining.utils;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CompressedBitmapTest {
+
+    private final Random rnd = new Random(13L);
+
+    @Test
+    public void testContainsAndCardinality() {
+        final CompressedBitmap bitmap = CompressedBitmap.of(5, 1, 70000, 5, 3);
+
+        assertEquals(4, bitmap.getCardinality());
+        assertTrue(bitmap.contains(1));
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(2));
+        assertFalse(bitmap.contains(-1));
+        assertFalse(bitmap.contains(70001));
+        assertArrayEquals(new int[]{ 1, 3, 5, 70000 }, bitmap.toArray());
+    }
+
+    @Test
+    public void testEmpty() {
+        final CompressedBitmap empty = CompressedBitmap.empty();
+        final CompressedBitmap bitmap = CompressedBitmap.of(1, 2, 3);
+
+        assertTrue(empty.isEmpty());
+        assertEquals(0, CompressedBitmap.and().getCardinality());
+        assertTrue(CompressedBitmap.and(bitmap, empty).isEmpty());
+        assertEquals(bitmap, CompressedBitmap.or(bitmap, empty));
+        assertEquals(bitmap, CompressedBitmap.andNot(bitmap, empty));
+        assertTrue(CompressedBitmap.andNot(bitmap, bitmap).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValueThrows() {
+        CompressedBitmap.of(-5);
+    }
+
+    @Test
+    public void testOperationsOnSparseChunks() {
+        checkOperations(500, 1 << 20);
+    }
+
+    @Test
+    public void testOperationsOnDenseChunks() {
+        checkOperations(30000, 1 << 17);
+    }
+
+    @Test
+    public void testOperationsOnMixedChunks() {
+        final Set<Integer> set1 = new TreeSet<>();
+        final Set<Integer> set2 = new TreeSet<>();
+
+        // Chunk 0 is dense in the first and sparse in the second set.
+        for (int i = 0; i < 50000; ++i) {
+            set1.add(rnd.nextInt(1 << 16));
+        }
+
+        for (int i = 0; i < 300; ++i) {
+            set2.add(rnd.nextInt(1 << 16));
+        }
+
+        check(set1, set2);
+        check(set2, set1);
+    }
+
+    @Test
+    public void testMultiwayIntersection() {
+        final CompressedBitmap a = CompressedBitmap.of(1, 2, 3, 4, 5, 100000);
+        final CompressedBitmap b = CompressedBitmap.of(2, 3, 4, 100000);
+        final CompressedBitmap c = CompressedBitmap.of(3, 4, 7, 100000);
+
+        assertEquals(CompressedBitmap.of(3, 4, 100000),
+                     CompressedBitmap.and(a, b, c));
+        assertEquals(3, CompressedBitmap.andCardinality(a, b, c));
+        assertEquals(CompressedBitmap.of(1, 2, 3, 4, 5, 7, 100000),
+                     CompressedBitmap.or(a, b, c));
+    }
+
+    @Test
+    public void testFusedMultiwayCardinality() {
+        // Chunk 0 is dense in all sets, chunk 1 dense in some and sparse in
+        // the others, chunk 2 present in some sets only.
+        final int[] densities = { 50000, 40000, 60000, 45000 };
+
+        for (int amount = 2; amount <= densities.length; ++amount) {
+            final CompressedBitmap[] bitmaps = new CompressedBitmap[amount];
+            Set<Integer> and = null;
+
+            for (int b = 0; b < amount; ++b) {
+                final Set<Integer> set = new TreeSet<>();
+
+                for (int i = 0; i < densities[b]; ++i) {
+                    set.add(rnd.nextInt(1 << 16));
+                }
+
+                for (int i = 0; i < (b % 2 == 0 ? 30000 : 500); ++i) {
+                    set.add((1 << 16) + rnd.nextInt(1 << 16));
+                }
+
+                if (b != 1) {
+                    set.add(3 << 16);
+                }
+
+                bitmaps[b] = toBitmap(set);
+
+                if (and == null) {
+                    and = set;
+                } else {
+                    and.retainAll(set);
+                }
+            }
+
+            final int expected = and.size();
+
+            assertEquals(expected, CompressedBitmap.andCardinality(bitmaps));
+            assertEquals(expected,
+                         CompressedBitmap.and(bitmaps).getCardinality());
+            assertEquals(expected,
+                         CompressedBitmap.andCardinalityAtLeast(expected,
+                                                                bitmaps));
+            assertTrue(CompressedBitmap.andCardinalityAtLeast(expected + 1,
+                                                              bitmaps) <=
+                       expected);
+            assertTrue(CompressedBitmap.andCardinalityAtLeast(1 << 20,
+                                                              bitmaps) <
+                       1 << 20);
+            assertTrue(CompressedBitmap.andCardinalityReaches(expected,
+                                                              bitmaps));
+            assertFalse(CompressedBitmap.andCardinalityReaches(expected + 1,
+                                                               bitmaps));
+            assertEquals(expected,
+                         CompressedBitmap.andCardinalityStopAfter(expected + 1,
+                                                                  bitmaps));
+
+            // The counting stops within the first block of words past the
+            // threshold instead of running to the exact size.
+            final int stopped =
+                    CompressedBitmap.andCardinalityStopAfter(10, bitmaps);
+            assertTrue(stopped >= 10);
+            assertTrue(stopped < expected);
+        }
+    }
+
+    private void checkOperations(final int elements, final int range) {
+        for (int iteration = 0; iteration < 5; ++iteration) {
+            final Set<Integer> set1 = new TreeSet<>();
+            final Set<Integer> set2 = new TreeSet<>();
+
+            for (int i = 0; i < elements; ++i) {
+                set1.add(rnd.nextInt(range));
+                set2.add(rnd.nextInt(range));
+            }
+
+            check(set1, set2);
+        }
+    }
+
+    private static void check(final Set<Integer> set1,
+                              final Set<Integer> set2) {
+        final CompressedBitmap a = toBitmap(set1);
+        final CompressedBitmap b = toBitmap(set2);
+
+        final Set<Integer> and = new TreeSet<>(set1);
+        and.retainAll(set2);
+
+        final Set<Integer> or = new TreeSet<>(set1);
+        or.addAll(set2);
+
+        final Set<Integer> andNot = new TreeSet<>(set1);
+        andNot.removeAll(set2);
+
+        assertEquals(set1.size(), a.getCardinality());
+        assertArrayEquals(toArray(set1), a.toArray());
+        assertArrayEquals(toArray(and), CompressedBitmap.and(a, b).toArray());
+        assertArrayEquals(toArray(or), CompressedBitmap.or(a, b).toArray());
+        assertArrayEquals(toArray(andNot),
+                          CompressedBitmap.andNot(a, b).toArray());
+
+        assertEquals(and.size(), CompressedBitmap.andCardinality(a, b));
+        assertEquals(or.size(), CompressedBitmap.orCardinality(a, b));
+        assertEquals(andNot.size(), CompressedBitmap.andNotCardinality(a, b));
+
+        for (final int value : set2) {
+            assertEquals(set1.contains(value), a.contains(value));
+        }
+    }
+
+    private static CompressedBitmap toBitmap(final Set<Integer> set) {
+        final CompressedBitmap.Builder builder = new CompressedBitmap.Builder();
+
+        for (final int value : set) {
+            builder.add(value);
+        }
+
+        return builder.build();
+    }
+
+    private static int[] toArray(final Set<Integer> set) {
+        final int[] ret = new int[set.size()];
+        int i = 0;
+
+        for (final int value : set) {
+            ret[i++] = value;
+        }
+
+        return ret;
+    }
+}
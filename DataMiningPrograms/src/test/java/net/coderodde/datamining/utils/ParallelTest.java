@@ -0,0 +1,62 @@
+package net.coderodde.datamining.utils;
+
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ParallelTest {
+
+    @Test
+    public void testChunksCoverRange() {
+        final int size = 100003;
+        final List<long[]> partials =
+                Parallel.forRange(size, 10, new Parallel.RangeTask<long[]>() {
+            @Override
+            public long[] compute(final int from, final int to) {
+                long sum = 0L;
+
+                for (int i = from; i < to; ++i) {
+                    sum += i;
+                }
+
+                return new long[]{ from, to, sum };
+            }
+        });
+
+        long expectedFrom = 0L;
+        long sum = 0L;
+
+        for (final long[] partial : partials) {
+            assertEquals(expectedFrom, partial[0]);
+            expectedFrom = partial[1];
+            sum += partial[2];
+        }
+
+        assertEquals(size, expectedFrom);
+        assertEquals((long) size * (size - 1) / 2, sum);
+    }
+
+    @Test
+    public void testSmallRangeRunsInOneChunk() {
+        final List<Integer> partials =
+                Parallel.forRange(5, 10, new Parallel.RangeTask<Integer>() {
+            @Override
+            public Integer compute(final int from, final int to) {
+                return to - from;
+            }
+        });
+
+        assertEquals(1, partials.size());
+        assertEquals(Integer.valueOf(5), partials.get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExceptionIsPropagated() {
+        Parallel.forRange(100000, 1, new Parallel.RangeTask<Void>() {
+            @Override
+            public Void compute(final int from, final int to) {
+                throw new IllegalStateException();
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package net.coderodde.datamining.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SpaceSavingTest {
+
+    @Test
+    public void testHeavyHittersAreMonitored() {
+        final SpaceSaving summary = new SpaceSaving(20);
+        final CountMinSketch sketch = new CountMinSketch(0.01, 0.01, 5L);
+        final Map<Long, Long> exact = new HashMap<>();
+        final Random random = new Random(11L);
+
+        for (int i = 0; i < 20000; ++i) {
+            // Keys 0..4 take half of the stream.
+            final long key = random.nextBoolean() ?
+                             random.nextInt(5) :
+                             5 + random.nextInt(5000);
+
+            summary.add(key, 1L);
+            sketch.add(key, 1L);
+
+            final Long count = exact.get(key);
+            exact.put(key, count == null ? 1L : count + 1L);
+        }
+
+        assertEquals(20000L, summary.getTotal());
+        assertEquals(20000L, sketch.getTotal());
+
+        for (final Map.Entry<Long, Long> e : exact.entrySet()) {
+            final long count = e.getValue();
+            final long estimate = sketch.estimate(e.getKey());
+
+            assertTrue(estimate >= count);
+            assertTrue(estimate <= count + 0.01 * 20000 * 2);
+
+            final SpaceSaving.Counter counter = summary.get(e.getKey());
+
+            if (count > 20000 / 20) {
+                assertNotNull(counter);
+            }
+
+            if (counter != null) {
+                assertTrue(counter.getCount() >= count);
+                assertTrue(counter.getCount() - counter.getError() <= count);
+            } else {
+                assertTrue(count <= summary.getUnmonitoredBound());
+            }
+        }
+
+        final List<SpaceSaving.Counter> top = summary.getTop(5);
+
+        assertEquals(5, top.size());
+
+        for (final SpaceSaving.Counter counter : top) {
+            assertTrue(counter.getKey() < 5);
+        }
+    }
+
+    @Test
+    public void testExactBelowCapacity() {
+        final SpaceSaving summary = new SpaceSaving(4);
+        summary.add(7L, 3L);
+        summary.add(8L, 1L);
+        summary.add(7L, 2L);
+
+        assertEquals(0L, summary.getUnmonitoredBound());
+        assertEquals(5L, summary.get(7L).getCount());
+        assertEquals(0L, summary.get(7L).getError());
+        assertEquals(7L, summary.getTop(1).get(0).getKey());
+        assertNull(summary.get(9L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadEpsilonThrows() {
+        new CountMinSketch(0.0, 0.1, 1L);
+    }
+}
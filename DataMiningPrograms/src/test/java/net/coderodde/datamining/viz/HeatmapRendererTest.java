@@ -0,0 +1,92 @@
+package net.coderodde.datamining.viz;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.coderodde.datamining.model.AppDataStorage;
+import net.coderodde.datamining.model.Course;
+import net.coderodde.datamining.model.CourseAttendanceEntry;
+import net.coderodde.datamining.model.Student;
+import net.coderodde.datamining.utils.CompressedBitmap;
+import static net.coderodde.datamining.model.TestStorages.course;
+import static net.coderodde.datamining.model.TestStorages.entry;
+import static net.coderodde.datamining.model.TestStorages.students;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HeatmapRendererTest {
+
+    private final Course c1;
+    private final Course c2;
+    private final AppDataStorage storage;
+
+    public HeatmapRendererTest() {
+        final List<Student> studentList = students(2009, 2010, 2011);
+        final Student s1 = studentList.get(0);
+        final Student s2 = studentList.get(1);
+        final Student s3 = studentList.get(2);
+
+        c1 = course("A", "1");
+        c2 = course("B", "2");
+
+        final List<CourseAttendanceEntry> entryList = new ArrayList<>();
+
+        entryList.add(entry(s1, c1, 2010, 1, 0));
+        entryList.add(entry(s1, c1, 2010, 1, 5));
+        entryList.add(entry(s1, c2, 2010, 1, 2));
+        entryList.add(entry(s2, c2, 2010, 1, 3));
+        entryList.add(entry(s3, c1, 2010, 1, 1));
+
+        storage = new AppDataStorage(studentList,
+                                     Arrays.asList(c1, c2),
+                                     entryList);
+    }
+
+    @Test
+    public void testGradeMatrix() {
+        final GradeMatrix matrix =
+                GradeMatrix.compute(storage,
+                                    Arrays.asList(c2, c1),
+                                    storage.getStudentBitmap(c1));
+
+        assertEquals(2, matrix.getRowAmount());
+        assertEquals(2, matrix.getColumnAmount());
+        assertEquals(2, matrix.getGrade(0, 0));
+        assertEquals(Course.NON_EXISTENT_GRADE, matrix.getGrade(0, 1));
+        assertEquals(5, matrix.getGrade(1, 0));
+        assertEquals(1, matrix.getGrade(1, 1));
+    }
+
+    @Test
+    public void testTilesMatchFullImage() {
+        final GradeMatrix matrix =
+                GradeMatrix.compute(storage,
+                                    Arrays.asList(c1, c2),
+                                    CompressedBitmap.or(
+                                            storage.getStudentBitmap(c1),
+                                            storage.getStudentBitmap(c2)));
+        final HeatmapRenderer renderer = new HeatmapRenderer(3, 5);
+        final BufferedImage full = renderer.render(matrix);
+
+        assertEquals(9, full.getWidth());
+        assertEquals(10, full.getHeight());
+        assertEquals(renderer.getRGB(5), full.getRGB(0, 0) & 0xffffff);
+        assertEquals(renderer.getRGB(Course.NON_EXISTENT_GRADE),
+                     full.getRGB(4, 0) & 0xffffff);
+        assertEquals(renderer.getRGB(3), full.getRGB(5, 9) & 0xffffff);
+
+        final BufferedImage tile = renderer.render(matrix, 2, 4, 4, 4);
+
+        for (int y = 0; y < 4; ++y) {
+            for (int x = 0; x < 4; ++x) {
+                assertEquals(full.getRGB(2 + x, 4 + y), tile.getRGB(x, y));
+            }
+        }
+
+        final BufferedImage border = renderer.render(matrix, 8, 9, 4, 4);
+
+        assertEquals(full.getRGB(8, 9), border.getRGB(0, 0));
+        assertEquals(0xffffff, border.getRGB(1, 1) & 0xffffff);
+    }
+}
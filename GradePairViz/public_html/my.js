@@ -1,449 +1,5 @@
-var old_grade_pairs =
-[[4, 4],
- [4, 5],
- [5, 5],
- [0, 3],
- [1, 5],
- [5, 0],
- [5, 4],
- [5, 5],
- [5, 5],
- [5, 1],
- [4, 1],
- [2, 3],
- [3, 4],
- [4, 4],
- [5, 5],
- [5, 4],
- [5, 0],
- [5, 5],
- [0, 1],
- [2, 2],
- [0, 0],
- [5, 1],
- [3, 0],
- [4, 3],
- [5, 4],
- [1, 0],
- [4, 5],
- [4, 1],
- [3, 2],
- [5, 5],
- [3, 5],
- [5, 3],
- [4, 0],
- [3, 0],
- [1, 2],
- [5, 4],
- [5, 4],
- [5, 5],
- [2, 1],
- [5, 2],
- [2, 1],
- [5, 0],
- [5, 5],
- [2, 2],
- [4, 5],
- [1, 2],
- [2, 3],
- [3, 5],
- [3, 2],
- [3, 5],
- [5, 4],
- [4, 1],
- [3, 5],
- [2, 1],
- [2, 0],
- [0, 0],
- [0, 0],
- [3, 4],
- [3, 0],
- [4, 3],
- [5, 2],
- [3, 5],
- [4, 1],
- [1, 1],
- [5, 0],
- [1, 0],
- [1, 2],
- [0, 3],
- [5, 0],
- [5, 0],
- [5, 3],
- [5, 0],
- [4, 4],
- [5, 5],
- [2, 1]];
- 
-var new_grade_pairs = 
-[[5, 1],
- [4, 4],
- [4, 5],
- [5, 4],
- [5, 5],
- [2, 2],
- [3, 0],
- [5, 4],
- [4, 1],
- [3, 4],
- [3, 0],
- [4, 3],
- [5, 3],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 4],
- [4, 4],
- [5, 1],
- [5, 5],
- [4, 5],
- [1, 1],
- [5, 4],
- [5, 5],
- [3, 2],
- [3, 2],
- [4, 5],
- [5, 3],
- [5, 4],
- [2, 0],
- [3, 0],
- [5, 5],
- [5, 5],
- [4, 5],
- [2, 3],
- [5, 4],
- [4, 2],
- [5, 3],
- [5, 2],
- [3, 5],
- [4, 5],
- [2, 4],
- [5, 3],
- [5, 3],
- [5, 5],
- [5, 5],
- [5, 4],
- [5, 4],
- [5, 5],
- [3, 5],
- [5, 5],
- [4, 5],
- [3, 3],
- [5, 4],
- [0, 3],
- [5, 2],
- [5, 3],
- [5, 4],
- [2, 3],
- [4, 5],
- [2, 1],
- [4, 2],
- [4, 5],
- [4, 4],
- [4, 4],
- [5, 5],
- [5, 4],
- [4, 5],
- [5, 5],
- [5, 5],
- [5, 5],
- [4, 3],
- [5, 5],
- [4, 4],
- [4, 5],
- [5, 5],
- [5, 5],
- [5, 1],
- [5, 5],
- [4, 5],
- [5, 4],
- [4, 1],
- [5, 3],
- [4, 5],
- [4, 3],
- [5, 4],
- [3, 5],
- [5, 4],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 4],
- [5, 5],
- [5, 5],
- [4, 4],
- [5, 5],
- [5, 4],
- [4, 4],
- [5, 5],
- [5, 4],
- [5, 5],
- [5, 5],
- [4, 5],
- [5, 5],
- [5, 5],
- [5, 0],
- [1, 0],
- [5, 3],
- [5, 3],
- [5, 5],
- [5, 5],
- [2, 2],
- [5, 3],
- [5, 5],
- [5, 4],
- [5, 5],
- [4, 5],
- [5, 5],
- [5, 5],
- [4, 5],
- [0, 0],
- [5, 0],
- [2, 2],
- [5, 5],
- [5, 4],
- [5, 1],
- [5, 4],
- [4, 5],
- [5, 4],
- [4, 3],
- [4, 5],
- [4, 2],
- [4, 3],
- [5, 1],
- [4, 4],
- [4, 5],
- [5, 0],
- [4, 4],
- [5, 5],
- [1, 1],
- [5, 1],
- [4, 3],
- [5, 4],
- [2, 1],
- [5, 5],
- [5, 5],
- [2, 3],
- [3, 0],
- [5, 3],
- [3, 2],
- [4, 1],
- [1, 4],
- [5, 2],
- [5, 2],
- [3, 2],
- [0, 0],
- [3, 2],
- [1, 4],
- [2, 5],
- [4, 5],
- [5, 2],
- [3, 5],
- [5, 4],
- [4, 4],
- [5, 5],
- [3, 5],
- [3, 4],
- [4, 4],
- [5, 4],
- [1, 1],
- [5, 4],
- [5, 1],
- [5, 3],
- [3, 3],
- [1, 4],
- [5, 3],
- [4, 5],
- [4, 5],
- [2, 4],
- [4, 1],
- [5, 5],
- [5, 4],
- [5, 3],
- [4, 3],
- [5, 5],
- [5, 5],
- [5, 5],
- [4, 4],
- [5, 5],
- [5, 5],
- [5, 4],
- [5, 5],
- [5, 4],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 5],
- [4, 4],
- [5, 5],
- [4, 5],
- [4, 5],
- [5, 5],
- [5, 2],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 5],
- [4, 4],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 4],
- [5, 4],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 4],
- [2, 1],
- [5, 5],
- [5, 5],
- [4, 5],
- [5, 5],
- [5, 5],
- [4, 5],
- [5, 4],
- [5, 4],
- [5, 5],
- [4, 5],
- [3, 5],
- [5, 5],
- [4, 2],
- [0, 1],
- [4, 2],
- [3, 4],
- [3, 3],
- [5, 4],
- [5, 4],
- [5, 5],
- [5, 4],
- [5, 2],
- [5, 5],
- [4, 4],
- [5, 5],
- [4, 4],
- [4, 5],
- [3, 2],
- [5, 4],
- [5, 4],
- [4, 5],
- [3, 2],
- [2, 1],
- [4, 5],
- [5, 4],
- [0, 4],
- [2, 0],
- [5, 5],
- [5, 4],
- [1, 3],
- [2, 0],
- [3, 3],
- [4, 2],
- [4, 4],
- [4, 3],
- [4, 5],
- [5, 5],
- [2, 4],
- [2, 1],
- [5, 3],
- [5, 3],
- [3, 5],
- [5, 5],
- [3, 1],
- [5, 4],
- [4, 3],
- [5, 5],
- [4, 4],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 5],
- [5, 4],
- [4, 4],
- [3, 4],
- [5, 4],
- [5, 0],
- [4, 5],
- [5, 4],
- [3, 2],
- [5, 3],
- [5, 5],
- [4, 5],
- [5, 5],
- [5, 5],
- [4, 3],
- [4, 5],
- [5, 5],
- [5, 4],
- [5, 1],
- [2, 2],
- [3, 4],
- [5, 5],
- [5, 4],
- [4, 3],
- [5, 3],
- [5, 5],
- [4, 5],
- [5, 5],
- [3, 3],
- [5, 4],
- [4, 3],
- [5, 3],
- [4, 4],
- [4, 3],
- [5, 0],
- [4, 5],
- [5, 3],
- [5, 4],
- [4, 4],
- [5, 4],
- [5, 4],
- [2, 4],
- [5, 5],
- [4, 4],
- [4, 2],
- [5, 5],
- [1, 2],
- [5, 3],
- [3, 4],
- [5, 4],
- [2, 5],
- [5, 1],
- [4, 4],
- [5, 5],
- [1, 5],
- [5, 3],
- [5, 4],
- [2, 4],
- [5, 5],
- [4, 2],
- [4, 3],
- [5, 5],
- [4, 4],
- [1, 2],
- [5, 4],
- [5, 5],
- [1, 2],
- [5, 4],
- [3, 5],
- [5, 5],
- [4, 4],
- [5, 5],
- [5, 4],
- [5, 5],
- [5, 5],
- [4, 5],
- [5, 2],
- [4, 0],
- [4, 4],
- [2, 2],
- [4, 1],
- [5, 5],
- [4, 0],
- [5, 5],
- [4, 2],
- [2, 1],
- [3, 0]];        
+// The directory of the grade pair feed written by the batch export.
+var feed_root = "grade-pair-feed/";
 
 function init_matrix(matrix) {
     for (var y = 0; y <= 5; ++y) {
@@ -454,9 +10,18 @@ function init_matrix(matrix) {
     }
 }
 
-function set_matrix(matrix, grade_pairs) {
-    for (var i = 0; i < grade_pairs.length; ++i) {
-        matrix[grade_pairs[i][1]][grade_pairs[i][0]]++;
+// counts[a][b] is the amount of students with grade a from the first course
+// and grade b from the second course. The first course goes on the
+// horizontal axis. If transpose is true, the courses are swapped.
+function set_matrix(matrix, counts, transpose) {
+    for (var a = 0; a <= 5; ++a) {
+        for (var b = 0; b <= 5; ++b) {
+            if (transpose) {
+                matrix[a][b] = counts[a][b];
+            } else {
+                matrix[b][a] = counts[a][b];
+            }
+        }
     }
 }
 
@@ -464,8 +29,8 @@ function set_matrix(matrix, grade_pairs) {
 // if weight is 1, return the color string representing blue.
 function get_color_string(weight) {
     weight = 1 - weight;
-    var red = Math.floor(255 * weight).toString(16);
-    var green = Math.floor(255 * weight).toString(16);
+    var red = ("0" + Math.floor(255 * weight).toString(16)).slice(-2);
+    var green = ("0" + Math.floor(255 * weight).toString(16)).slice(-2);
     return "#" + red + "" +  green + "ff";
 }
 
@@ -483,18 +48,10 @@ function get_maximum_cell(matrix) {
     return max;
 }
 
-function normalize(matrix) {
-    var max = get_maximum_cell(matrix);
-    
-    for (var y = 0; y < matrix.length; ++y) {
-        for (var x = 0; x < matrix[y].length; ++x) {
-            matrix[y][x] /= max;
-        }
-    }
-}
-
 function draw_matrix(matrix, canvas) {
     var ctx = canvas.getContext("2d");
+    var max = get_maximum_cell(matrix);
+    ctx.clearRect(0, 0, canvas.width, canvas.height);
     ctx.fillStyle = "#000000";
     ctx.font = "20px Arial";
     
@@ -511,77 +68,131 @@ function draw_matrix(matrix, canvas) {
     // Draw the actual visualization.
     for (var y = 0; y <= 5; ++y) {
         for (var x = 0; x <= 5; ++x) {
-            ctx.fillStyle = get_color_string(matrix[5 - y][x]);
+            var count = matrix[y][x];
+            ctx.fillStyle = get_color_string(max > 0 ? count / max : 0);
             ctx.fillRect(40 + x * 60, (5 - y) * 60, 60, 60);
+            ctx.fillStyle = count > max / 2 ? "#ffffff" : "#000000";
+            ctx.font = "14px Arial";
+            ctx.fillText(count, 40 + x * 60 + 6, (5 - y) * 60 + 34);
+            ctx.font = "20px Arial";
         }
     }
 }
 
-function mean_x(pairs) {
-    var sum = 0;
-    
-    for (var i = 0; i < pairs.length; ++i) {
-        sum += pairs[i][0];
+function load_json(url, callback) {
+    var request = new XMLHttpRequest();
+    request.open("GET", url, true);
+    request.onreadystatechange = function () {
+        if (request.readyState !== 4) {
+            return;
+        }
+        
+        if (request.status === 200 || request.status === 0) {
+            callback(JSON.parse(request.responseText));
+        } else {
+            status_line.textContent = "Cannot load " + url + ".";
+        }
+    };
+    request.send();
+}
+
+function course_label(course) {
+    return course.code + " " + course.name;
+}
+
+var first_select = document.getElementById("first_course");
+var second_select = document.getElementById("second_course");
+var status_line = document.getElementById("status");
+var canvas_area = document.getElementById("canvases");
+var feed_index = null;
+var canvases = {};
+var correlations = {};
+
+function add_options(select, courses) {
+    for (var i = 0; i < courses.length; ++i) {
+        var option = document.createElement("option");
+        option.value = i;
+        option.textContent = course_label(courses[i]);
+        select.appendChild(option);
+    }
+}
+
+function find_pair(first, second) {
+    for (var i = 0; i < feed_index.pairs.length; ++i) {
+        var pair = feed_index.pairs[i];
+        
+        if (pair.first === first && pair.second === second) {
+            return pair;
+        }
     }
     
-    return sum / pairs.length;
+    return null;
 }
 
-function mean_y(pairs) {
-    var sum = 0;
+function show_correlations() {
+    var text = "";
     
-    for (var i = 0; i < pairs.length; ++i) {
-        sum += pairs[i][1];
+    for (var i = 0; i < feed_index.cohorts.length; ++i) {
+        var cohort = feed_index.cohorts[i];
+        
+        if (correlations[cohort] !== undefined) {
+            text += cohort + " correlation: " + correlations[cohort] + "  ";
+        }
     }
     
-    return sum / pairs.length;
+    status_line.textContent = text;
+}
+
+function load_cohort(cohort, file, transpose) {
+    load_json(feed_root + cohort + "/" + file, function (histogram) {
+        var matrix = [];
+        init_matrix(matrix);
+        set_matrix(matrix, histogram.counts, transpose);
+        draw_matrix(matrix, canvases[cohort]);
+        correlations[cohort] = histogram.correlation === null ?
+                               "undefined" :
+                               histogram.correlation.toFixed(3) +
+                               " (n = " + histogram.total + ")";
+        show_correlations();
+    });
 }
 
-function correlation(pairs) {
-    var upper = 0;
-    var meanx = mean_x(pairs);
-    var meany = mean_y(pairs);
+// Loads the histograms of the selected pair on demand. The feed stores each
+// pair once with the first course before the second in the course list.
+function select_pair() {
+    var first = parseInt(first_select.value, 10);
+    var second = parseInt(second_select.value, 10);
     
-    for (var i = 0; i < pairs.length; ++i) {
-        upper += (pairs[i][0] - meanx) * (pairs[i][1] - meany);
+    if (first === second) {
+        status_line.textContent = "Select two different courses.";
+        return;
     }
     
-    var lowera = 0;
-    var lowerb = 0;
+    var transpose = first > second;
+    var pair = transpose ? find_pair(second, first) : find_pair(first, second);
+    correlations = {};
     
-    for (var i = 0; i < pairs.length; ++i) {
-        lowera += (pairs[i][0] - meanx) * (pairs[i][0] - meanx);
-        lowerb += (pairs[i][1] - meany) * (pairs[i][1] - meany);
+    for (var i = 0; i < feed_index.cohorts.length; ++i) {
+        load_cohort(feed_index.cohorts[i], pair.file, transpose);
     }
-    
-    return upper / (Math.sqrt(lowera) * Math.sqrt(lowerb));
 }
 
-var old_canvas = document.getElementById("old_canvas");
-var new_canvas = document.getElementById("new_canvas");
-
-old_canvas.width = 400;
-old_canvas.height = 400;
-
-new_canvas.width = 400;
-new_canvas.height = 400;
-
-var old_matrix = [];
-var new_matrix = [];
-
-init_matrix(old_matrix);
-init_matrix(new_matrix);
-
-set_matrix(old_matrix, old_grade_pairs);
-set_matrix(new_matrix, new_grade_pairs);
-
-normalize(old_matrix);
-normalize(new_matrix);
-
-draw_matrix(old_matrix, old_canvas);
-draw_matrix(new_matrix, new_canvas);
-
-alert("my.js is here!");
-alert("Old correlation: " + correlation(old_grade_pairs));
-alert("New correlation: " + correlation(new_grade_pairs));
-
+load_json(feed_root + "index.json", function (index) {
+    feed_index = index;
+    add_options(first_select, index.courses);
+    add_options(second_select, index.courses);
+    second_select.value = index.courses.length > 1 ? 1 : 0;
+    
+    for (var i = 0; i < index.cohorts.length; ++i) {
+        var canvas = document.createElement("canvas");
+        canvas.width = 400;
+        canvas.height = 400;
+        canvas.title = index.cohorts[i];
+        canvas_area.appendChild(canvas);
+        canvases[index.cohorts[i]] = canvas;
+    }
+    
+    first_select.onchange = select_pair;
+    second_select.onchange = select_pair;
+    select_pair();
+});